@@ -0,0 +1,189 @@
+package library.benchmark;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.repository.ColumnarMediaRepository;
+import library.repository.ConcurrentLoanRepository;
+import library.repository.ConcurrentMediaRepository;
+import library.repository.ConcurrentUserRepository;
+import library.repository.DueDateIndexedLoanRepository;
+import library.repository.InMemoryAdminRepository;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.repository.IndexedMediaRepository;
+import library.repository.LoanRepository;
+import library.repository.MappedLoanRepository;
+import library.repository.MediaRepository;
+import library.repository.SegmentedMediaRepository;
+import library.repository.UserRepository;
+import library.search.TrigramSearchIndex;
+import library.service.AuthService;
+import library.service.LibraryService;
+import library.service.ReminderService;
+import library.service.TimeProvider;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test data shared by the benchmarks.
+ * <p>
+ * Builds a library with a given number of media, users and loans:
+ * <ul>
+ *     <li>Every fifth media item is a CD, the rest are books.</li>
+ *     <li>Half of the loans are returned, a quarter are active and overdue,
+ *     and a quarter are active and not yet due.</li>
+ *     <li>Data is generated from a fixed seed, so every run sees the same library.</li>
+ * </ul>
+ */
+final class LibraryFixture {
+
+    /** Fixed "today" used by all services in the fixture. */
+    static final LocalDate TODAY = LocalDate.of(2025, 1, 1);
+
+    /** Words used to build titles and authors, also useful as search queries. */
+    static final String[] WORDS = {
+            "clean", "code", "java", "design", "patterns", "rock", "legends",
+            "classical", "history", "science", "garden", "ocean", "night", "river"
+    };
+
+    final UserRepository userRepo;
+    final MediaRepository mediaRepo;
+    final LoanRepository loanRepo;
+    final ReminderService reminderService;
+    final LibraryService libraryService;
+
+    final List<String> userIds = new ArrayList<>();
+    final List<String> mediaIds = new ArrayList<>();
+    final List<String> loanIds = new ArrayList<>();
+
+    /**
+     * Builds and fills a library.
+     *
+     * @param repoKind   "inmemory", "indexed", "trigram" (indexed with a trigram search index),
+     *                   "concurrent" or "segmented" (in-memory loans, parallel segmented media)
+     * @param mediaCount number of media items
+     * @param userCount  number of users
+     * @param loanCount  number of loans
+     */
+    LibraryFixture(String repoKind, int mediaCount, int userCount, int loanCount) {
+        this.userRepo = userRepository(repoKind);
+        this.mediaRepo = mediaRepository(repoKind);
+        this.loanRepo = loanRepository(repoKind);
+
+        TimeProvider time = () -> TODAY;
+        this.reminderService = new ReminderService(time);
+        this.libraryService = new LibraryService(userRepo, mediaRepo, loanRepo, reminderService, time,
+                new BookFineStrategy(), new CDFineStrategy(), new AuthService(new InMemoryAdminRepository()));
+
+        Random random = new Random(42);
+
+        for (int i = 0; i < mediaCount; i++) {
+            String title = word(random) + " " + word(random) + " " + i;
+            Media m = i % 5 == 4
+                    ? new CD(title, word(random))
+                    : new Book(title, word(random), "ISBN-" + i);
+            mediaRepo.save(m);
+            mediaIds.add(m.getId());
+        }
+
+        for (int i = 0; i < userCount; i++) {
+            User u = new User("user" + i, "user" + i + "@example.com");
+            userRepo.save(u);
+            userIds.add(u.getId());
+        }
+
+        for (int i = 0; i < loanCount; i++) {
+            String userId = userIds.get(random.nextInt(userIds.size()));
+            Media media = mediaRepo.findById(mediaIds.get(random.nextInt(mediaIds.size()))).get();
+
+            LocalDate borrowed = TODAY.minusDays(10 + random.nextInt(60));
+            Loan loan;
+            switch (i % 4) {
+                case 0:
+                case 1:
+                    loan = new Loan(userId, media.getId(), borrowed, borrowed.plusDays(28));
+                    loan.setReturnedDate(borrowed.plusDays(random.nextInt(28)));
+                    break;
+                case 2:
+                    loan = new Loan(userId, media.getId(), borrowed, TODAY.minusDays(1 + random.nextInt(30)));
+                    media.setAvailable(false);
+                    break;
+                default:
+                    loan = new Loan(userId, media.getId(), TODAY, TODAY.plusDays(28));
+                    media.setAvailable(false);
+                    break;
+            }
+            loanRepo.save(loan);
+            loanIds.add(loan.getId());
+        }
+    }
+
+    static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static UserRepository userRepository(String kind) {
+        return "concurrent".equals(kind) ? new ConcurrentUserRepository() : new InMemoryUserRepository();
+    }
+
+    private static MediaRepository mediaRepository(String kind) {
+        switch (kind) {
+            case "inmemory":
+                return new InMemoryMediaRepository();
+            case "indexed":
+            case "mapped":
+                return new IndexedMediaRepository();
+            case "trigram":
+                return new IndexedMediaRepository(new TrigramSearchIndex());
+            case "concurrent":
+                return new ConcurrentMediaRepository();
+            case "segmented":
+                return new SegmentedMediaRepository();
+            case "columnar":
+                return new ColumnarMediaRepository();
+            default:
+                throw new IllegalArgumentException("unknown repository kind: " + kind);
+        }
+    }
+
+    private static LoanRepository loanRepository(String kind) {
+        switch (kind) {
+            case "inmemory":
+            case "segmented":
+            case "columnar":
+                return new InMemoryLoanRepository();
+            case "indexed":
+            case "trigram":
+                return new DueDateIndexedLoanRepository();
+            case "concurrent":
+                return new ConcurrentLoanRepository();
+            case "mapped":
+                return mappedLoanRepository();
+            default:
+                throw new IllegalArgumentException("unknown repository kind: " + kind);
+        }
+    }
+
+    private static LoanRepository mappedLoanRepository() {
+        try {
+            Path file = Files.createTempFile("loan-history", ".bin");
+            file.toFile().deleteOnExit();
+            return new MappedLoanRepository(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
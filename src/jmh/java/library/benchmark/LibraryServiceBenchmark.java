@@ -0,0 +1,89 @@
+package library.benchmark;
+
+import library.domain.Loan;
+import library.domain.media.Media;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for LibraryService borrow, returnMedia and getBorrowedMediaReport.
+ * <p>
+ * Borrowing uses fresh users without fines or overdue loans and media that are
+ * still available. The library is rebuilt for every iteration so the loan
+ * history created by the benchmark does not keep growing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LibraryServiceBenchmark {
+
+    @Param({"inmemory", "indexed", "concurrent"})
+    public String repo;
+
+    @Param({"10000"})
+    public int mediaCount;
+
+    @Param({"1000"})
+    public int userCount;
+
+    @Param({"10000", "100000"})
+    public int loanCount;
+
+    private LibraryFixture library;
+    private List<String> borrowers;
+    private List<String> freeMedia;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        library = new LibraryFixture(repo, mediaCount, userCount, loanCount);
+
+        borrowers = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            borrowers.add(library.libraryService.registerUser("bench" + i, "bench" + i + "@example.com").getId());
+        }
+        freeMedia = new ArrayList<>();
+        for (Media m : library.mediaRepo.findAll()) {
+            if (m.isAvailable()) freeMedia.add(m.getId());
+        }
+        next = 0;
+    }
+
+    /**
+     * Borrows an available item and returns it again, so the catalogue state
+     * stays the same between invocations.
+     */
+    @Benchmark
+    public void borrowAndReturn() {
+        int i = next++;
+        String userId = borrowers.get(i % borrowers.size());
+        String mediaId = freeMedia.get(i % freeMedia.size());
+
+        library.libraryService.borrow(userId, mediaId);
+        for (Loan l : library.loanRepo.findActiveByUserId(userId)) {
+            library.libraryService.returnMedia(l.getId());
+        }
+    }
+
+    @Benchmark
+    public List<String> getBorrowedMediaReport() {
+        return library.libraryService.getBorrowedMediaReport();
+    }
+}
@@ -0,0 +1,90 @@
+package library.benchmark;
+
+import library.domain.Loan;
+import library.domain.media.Media;
+import library.repository.IdMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the join of active loans with their media and users.
+ * <ul>
+ *     <li>{@code byString} builds the user and media id strings of every loan,
+ *     looks the media up by string and groups the loans in a HashMap keyed by user id.</li>
+ *     <li>{@code byNumber} looks the media up with findByNumber and groups the
+ *     loans in an {@link IdMap} keyed by user number, without building any string.</li>
+ * </ul>
+ * Both count the active loans per user and the books among them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoanJoinBenchmark {
+
+    @Param({"indexed"})
+    public String repo;
+
+    @Param({"10000"})
+    public int mediaCount;
+
+    @Param({"10000"})
+    public int userCount;
+
+    @Param({"100000"})
+    public int loanCount;
+
+    private LibraryFixture library;
+    private List<Loan> active;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        library = new LibraryFixture(repo, mediaCount, userCount, loanCount);
+        active = library.loanRepo.findActive();
+    }
+
+    @Benchmark
+    public Map<String, int[]> byString() {
+        Map<String, int[]> perUser = new HashMap<>();
+        for (Loan loan : active) {
+            Media media = library.mediaRepo.findById(loan.getMediaId()).orElse(null);
+            int[] c = perUser.computeIfAbsent(loan.getUserId(), k -> new int[2]);
+            c[0]++;
+            if (media != null && "BOOK".equals(media.getMediaType())) c[1]++;
+        }
+        return perUser;
+    }
+
+    @Benchmark
+    public IdMap<int[]> byNumber() {
+        IdMap<int[]> perUser = new IdMap<>();
+        for (Loan loan : active) {
+            Media media = library.mediaRepo.findByNumber(loan.getMediaNumber()).orElse(null);
+            int[] c = perUser.get(loan.getUserNumber(), null);
+            if (c == null) {
+                c = new int[2];
+                perUser.put(loan.getUserNumber(), null, c);
+            }
+            c[0]++;
+            if (media != null && "BOOK".equals(media.getMediaType())) c[1]++;
+        }
+        return perUser;
+    }
+}
@@ -0,0 +1,70 @@
+package library.benchmark;
+
+import library.domain.Loan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the per-user and overdue loan queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoanRepositoryBenchmark {
+
+    @Param({"inmemory", "indexed", "concurrent", "mapped"})
+    public String repo;
+
+    @Param({"1000", "10000"})
+    public int userCount;
+
+    @Param({"10000", "100000"})
+    public int loanCount;
+
+    private LibraryFixture library;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        library = new LibraryFixture(repo, 1000, userCount, loanCount);
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public List<Loan> findByUserId() {
+        return library.loanRepo.findByUserId(library.userIds.get(random.nextInt(userCount)));
+    }
+
+    @Benchmark
+    public List<Loan> findActiveByUserId() {
+        return library.loanRepo.findActiveByUserId(library.userIds.get(random.nextInt(userCount)));
+    }
+
+    @Benchmark
+    public List<Loan> findOverdue() {
+        return library.loanRepo.findOverdue(LibraryFixture.TODAY);
+    }
+
+    @Benchmark
+    public void findActive(Blackhole bh) {
+        bh.consume(library.loanRepo.findActive());
+    }
+}
@@ -0,0 +1,79 @@
+package library.benchmark;
+
+import library.domain.media.Media;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for MediaRepository search and findById.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MediaRepositoryBenchmark {
+
+    @Param({"inmemory", "indexed", "trigram", "concurrent", "segmented", "columnar"})
+    public String repo;
+
+    @Param({"1000", "100000"})
+    public int mediaCount;
+
+    private LibraryFixture library;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        library = new LibraryFixture(repo, mediaCount, 1, 0);
+        random = new Random(7);
+    }
+
+    /**
+     * Search with a common word (many hits).
+     */
+    @Benchmark
+    public List<Media> searchCommonWord() {
+        return library.mediaRepo.search(LibraryFixture.word(random));
+    }
+
+    /**
+     * Search with a title that matches a single item.
+     */
+    @Benchmark
+    public List<Media> searchRareTitle() {
+        return library.mediaRepo.search(" " + random.nextInt(mediaCount));
+    }
+
+    @Benchmark
+    public Optional<Media> findById() {
+        return library.mediaRepo.findById(library.mediaIds.get(random.nextInt(mediaCount)));
+    }
+
+    @Benchmark
+    public Optional<Media> findByIdMissing() {
+        return library.mediaRepo.findById("missing");
+    }
+
+    @Benchmark
+    public void findAll(Blackhole bh) {
+        bh.consume(library.mediaRepo.findAll());
+    }
+}
@@ -0,0 +1,67 @@
+package library.benchmark;
+
+import library.dto.OverdueReport;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for ReminderService sendReminders and buildReport.
+ * The registered notifier only hands the message to a Blackhole, so the
+ * numbers show the cost of collecting and grouping the overdue loans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReminderServiceBenchmark {
+
+    @Param({"inmemory", "indexed", "concurrent"})
+    public String repo;
+
+    @Param({"10000"})
+    public int mediaCount;
+
+    @Param({"1000", "100000"})
+    public int userCount;
+
+    @Param({"10000", "100000"})
+    public int loanCount;
+
+    private LibraryFixture library;
+    private Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole bh) {
+        blackhole = bh;
+        library = new LibraryFixture(repo, mediaCount, userCount, loanCount);
+        library.reminderService.registerNotifier((user, message) -> blackhole.consume(message));
+    }
+
+    @Benchmark
+    public void sendReminders() {
+        library.reminderService.sendReminders(library.loanRepo, library.userRepo, library.mediaRepo);
+    }
+
+    @Benchmark
+    public OverdueReport buildReport() {
+        return library.reminderService.buildReport(library.loanRepo, library.userRepo, library.mediaRepo,
+                new BookFineStrategy(), new CDFineStrategy());
+    }
+}
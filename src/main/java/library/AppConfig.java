@@ -4,22 +4,42 @@ import library.domain.Admin;
 import library.domain.User;
 import library.domain.media.Book;
 import library.domain.media.CD;
+import library.domain.media.Media;
 import library.notifications.FakeEmailClient;
+import library.persistence.DomainEvent;
+import library.persistence.EventApplier;
+import library.persistence.LogCompactor;
+import library.persistence.SnapshotStore;
+import library.persistence.WriteAheadLog;
 import library.repository.*;
+import library.search.TrigramSearchIndex;
 import library.service.*;
 import library.strategy.BookFineStrategy;
 import library.strategy.CDFineStrategy;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
 /**
  * AppConfig: sets up the main components of the library system.
  * This class wires the services and adds some initial sample data.
+ * <p>
+ * With a data directory, the state is kept in a {@link WriteAheadLog}. At startup
+ * the newest snapshot is loaded and only the log after it is replayed; the sample
+ * data is only added to an empty store. A {@link LogCompactor} writes new
+ * snapshots in the background and deletes the log segments they cover.
  */
 public class AppConfig {
 
+    // time between two background snapshots
+    private static final long SNAPSHOT_INTERVAL_MINUTES = 10;
+
     private final InMemoryAdminRepository adminRepo = new InMemoryAdminRepository();
     private final InMemoryUserRepository userRepo = new InMemoryUserRepository();
-    private final InMemoryMediaRepository mediaRepo = new InMemoryMediaRepository();
-    private final InMemoryLoanRepository loanRepo = new InMemoryLoanRepository();
+    private final MediaRepository mediaRepo;
+    private final LoanRepository loanRepo = new DueDateIndexedLoanRepository();
     private final TimeProvider timeProvider = new SystemTimeProvider();
 
     // Reminder service uses the time provider
@@ -29,17 +49,69 @@ public class AppConfig {
     private final FakeEmailClient fakeEmailClient = new FakeEmailClient();
 
     private final AuthService authService = new AuthService(adminRepo);
-    private final LibraryService libraryService =
-            new LibraryService(userRepo, mediaRepo, loanRepo, reminderService, timeProvider,
-                    new BookFineStrategy(), new CDFineStrategy(), authService);
+    private final LibraryService libraryService;
+
+    // null when the state is not persisted
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+    private final LogCompactor logCompactor;
 
     /**
-     * Constructor: loads the seed data and registers the notifiers.
+     * Constructor: uses the hash-indexed media repository with a trigram
+     * search index behind a search result cache, loads the seed data
+     * and registers the notifiers.
      */
     public AppConfig() {
+        this(new CachingMediaRepository(new IndexedMediaRepository(new TrigramSearchIndex()),
+                1024, 10, TimeUnit.MINUTES));
+    }
+
+    /**
+     * Constructor: uses the given media repository,
+     * loads the seed data and registers the notifiers.
+     *
+     * @param mediaRepo media repository implementation to use
+     */
+    public AppConfig(MediaRepository mediaRepo) {
+        this(mediaRepo, null, null);
+    }
+
+    /**
+     * Constructor: keeps the state in a write-ahead log and snapshots in the given
+     * directory. The newest snapshot and the log after it are loaded into the
+     * repositories; an empty store gets the seed data.
+     *
+     * @param dataDir directory of the write-ahead log and the snapshots
+     * @throws IOException if the log or the snapshots cannot be opened or read
+     */
+    public AppConfig(Path dataDir) throws IOException {
+        this(new CachingMediaRepository(new IndexedMediaRepository(new TrigramSearchIndex()),
+                        1024, 10, TimeUnit.MINUTES),
+                new WriteAheadLog(dataDir.resolve("wal")), new SnapshotStore(dataDir.resolve("snapshots")));
+    }
+
+    private AppConfig(MediaRepository mediaRepo, WriteAheadLog writeAheadLog, SnapshotStore snapshotStore) {
+        this.mediaRepo = mediaRepo;
+        this.writeAheadLog = writeAheadLog;
+        this.snapshotStore = snapshotStore;
+        this.libraryService = new LibraryService(userRepo, mediaRepo, loanRepo, reminderService, timeProvider,
+                new BookFineStrategy(), new CDFineStrategy(), authService);
+
         seedAdmins();
-        seedUsers();
-        seedMedia();
+        if (writeAheadLog == null) {
+            seedUsers();
+            seedMedia();
+            logCompactor = null;
+        } else {
+            if (!recover()) {
+                seedUsers();
+                seedMedia();
+                logSeedData();
+            }
+            libraryService.setEventLog(writeAheadLog);
+            logCompactor = new LogCompactor(writeAheadLog, snapshotStore);
+            logCompactor.start(SNAPSHOT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
         registerNotifiers();
     }
 
@@ -74,6 +146,47 @@ public class AppConfig {
         mediaRepo.save(new CD("Rock Legends", "Pink Floyd"));
     }
 
+    /**
+     * Writes the seed users and media to the empty log, so they are restored like any other data.
+     */
+    private void logSeedData() {
+        long lsn = 0;
+        for (User u : userRepo.findAll()) lsn = writeAheadLog.append(DomainEvent.userRegistered(u));
+        for (Media m : mediaRepo.findAll()) lsn = writeAheadLog.append(DomainEvent.mediaAdded(m));
+        writeAheadLog.sync(lsn);
+    }
+
+    /**
+     * Loads the newest snapshot and replays the log after it into the repositories.
+     *
+     * @return false if there was nothing to load
+     */
+    private boolean recover() {
+        try {
+            long snapshotLsn = snapshotStore.loadLatest(userRepo, mediaRepo, loanRepo);
+            if (snapshotLsn == 0 && writeAheadLog.getLastLsn() == 0) return false;
+            // new events must come after the snapshot even if the log ends before it
+            writeAheadLog.advanceTo(snapshotLsn);
+
+            EventApplier applier = new EventApplier(userRepo, mediaRepo, loanRepo);
+            writeAheadLog.replay(snapshotLsn, (event, lsn) -> applier.apply(event));
+            applier.restoreAvailability();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not load the stored state", e);
+        }
+    }
+
+    /**
+     * Stops the background snapshots and flushes and closes the write-ahead log, if there is one.
+     *
+     * @throws IOException if the final write fails
+     */
+    public void close() throws IOException {
+        if (logCompactor != null) logCompactor.close();
+        if (writeAheadLog != null) writeAheadLog.close();
+    }
+
     /**
      * Registers two notifiers:
      * 1) Console output
@@ -122,6 +235,12 @@ public class AppConfig {
     /** @return library service */
     public LibraryService libraryService() { return libraryService; }
 
+    /** @return the write-ahead log, or null when the state is not persisted */
+    public WriteAheadLog writeAheadLog() { return writeAheadLog; }
+
+    /** @return the background snapshot writer, or null when the state is not persisted */
+    public LogCompactor logCompactor() { return logCompactor; }
+
     /** @return fake email client (used for tests) */
     public FakeEmailClient fakeEmailClient() { return fakeEmailClient; }
 }
@@ -2,11 +2,14 @@ package library;
 
 import library.domain.User;
 import library.domain.media.Media;
+import library.dto.SearchPage;
 import library.exception.BusinessRuleException;
 import library.exception.ResourceNotFoundException;
 import library.service.AuthService;
 import library.service.LibraryService;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
 
@@ -19,19 +22,32 @@ public class Main {
     // constants to avoid repeating literals
     private static final String DEMO_USER_PROMPT_PREFIX = "Your user id (demo user id: ";
     private static final String ERROR_PREFIX = "Error: ";
+    // maximum number of search results printed at once
+    private static final int PAGE_SIZE = 20;
 
     /**
      * Starts the library program.
      *
-     * @param args command-line arguments (not used in this app)
+     * @param args command-line arguments (not used in this app); set the system property
+     *             {@code library.dataDir} to keep the data in a write-ahead log there
+     * @throws IOException if the data directory cannot be opened
      */
-    public static void main(String[] args) {
-        AppConfig cfg = new AppConfig();
+    public static void main(String[] args) throws IOException {
+        String dataDir = System.getProperty("library.dataDir");
+        AppConfig cfg = dataDir == null ? new AppConfig() : new AppConfig(Paths.get(dataDir));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                cfg.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the data files: " + e.getMessage());
+            }
+        }));
         AuthService auth = cfg.authService();
         LibraryService lib = cfg.libraryService();
 
-        // Create a demo user for testing
-        User demoUser = lib.registerUser("demo", "demo@example.com");
+        // Create a demo user for testing (kept from an earlier run when persisted)
+        User demoUser = cfg.userRepository().findByEmail("demo@example.com")
+                .orElseGet(() -> lib.registerUser("demo", "demo@example.com"));
 
         Scanner sc = new Scanner(System.in);
 
@@ -129,8 +145,7 @@ public class Main {
                     case "5":
                         System.out.print("Search query: ");
                         String q = sc.nextLine().trim();
-                        java.util.List<library.domain.media.Media> results = lib.search(q);
-                        printMediaList(results);
+                        printMediaPage(lib.search(q, 0, PAGE_SIZE));
                         break;
                     case "6":
                         try {
@@ -375,11 +390,33 @@ public class Main {
             return;
         }
         System.out.println("Results:");
-        for (Media m : results) {
-            System.out.println(" - " + m.getId()
-                    + " | " + m.getTitle()
-                    + " | available=" + m.isAvailable()
-                    + " | type=" + m.getMediaType());
+        for (Media m : results.subList(0, Math.min(PAGE_SIZE, results.size()))) {
+            printMedia(m);
+        }
+        if (results.size() > PAGE_SIZE) {
+            System.out.println("... " + (results.size() - PAGE_SIZE) + " more, refine your query to see them.");
+        }
+    }
+
+    private static void printMediaPage(SearchPage page) {
+        if (page.getTotalMatches() == 0) {
+            System.out.println("No results.");
+            return;
+        }
+        System.out.println("Results (best matches first):");
+        for (Media m : page.getItems()) {
+            printMedia(m);
         }
+        if (page.hasMore()) {
+            System.out.println("Showing " + page.getItems().size() + " of " + page.getTotalMatches()
+                    + " matches, refine your query to narrow them down.");
+        }
+    }
+
+    private static void printMedia(Media m) {
+        System.out.println(" - " + m.getId()
+                + " | " + m.getTitle()
+                + " | available=" + m.isAvailable()
+                + " | type=" + m.getMediaType());
     }
 }
@@ -1,13 +1,16 @@
 package library.domain;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Simple class representing an admin in the system.
  * Each admin gets an auto-generated id, a username, and a stored password.
  */
 public class Admin {
 
-    private static long SEQ = 1;
+    private static final AtomicLong SEQ = new AtomicLong(1);
     private final String id;
+    private final long number;
     private final String username;
     private final String passwordHash;
 
@@ -18,7 +21,8 @@ public class Admin {
      * @param password the password (stored as-is for demo purposes)
      */
     public Admin(String username, String password) {
-        this.id = "A" + (SEQ++);
+        this.number = SEQ.getAndIncrement();
+        this.id = Ids.format('A', number);
         this.username = username;
         this.passwordHash = password;
     }
@@ -26,6 +30,9 @@ public class Admin {
     /** @return admin id */
     public String getId() { return id; }
 
+    /** @return sequence number of the id */
+    public long getNumber() { return number; }
+
     /** @return username */
     public String getUsername() { return username; }
 
@@ -0,0 +1,58 @@
+package library.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Helpers for the generated ids of the domain objects ("U1", "M1", "L1", ...):
+ * a one-letter prefix followed by a sequence number.
+ * <p>
+ * The domain objects keep the sequence number as a primitive, so repositories can
+ * key their indexes by number; the string form is used at the API boundaries.
+ */
+public final class Ids {
+
+    private Ids() {
+    }
+
+    /**
+     * Returns the sequence number of a generated id.
+     *
+     * @param id     the id, e.g. "L42"
+     * @param prefix the expected prefix, e.g. 'L'
+     * @return the number, or -1 if the id does not have the generated form
+     */
+    public static long numberOf(String id, char prefix) {
+        if (id == null || id.length() < 2 || id.length() > 19 || id.charAt(0) != prefix) return -1;
+        if (id.charAt(1) == '0' && id.length() > 2) return -1;
+        long n = 0;
+        for (int i = 1; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    /**
+     * Builds the string form of a generated id.
+     *
+     * @param prefix the prefix, e.g. 'L'
+     * @param number the sequence number
+     * @return the id, e.g. "L42"
+     */
+    public static String format(char prefix, long number) {
+        return prefix + Long.toString(number);
+    }
+
+    /**
+     * Makes sure a sequence never hands out an id that was restored from storage.
+     *
+     * @param seq    the sequence that generates the ids
+     * @param id     a restored id
+     * @param prefix the prefix of the ids of the sequence
+     */
+    public static void advancePast(AtomicLong seq, String id, char prefix) {
+        long n = numberOf(id, prefix);
+        if (n >= 0) seq.accumulateAndGet(n + 1, Math::max);
+    }
+}
@@ -2,20 +2,28 @@ package library.domain;
 
 import library.domain.media.Media;
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a loan operation in the library.
  * A loan stores the userId, mediaId, borrow date, due date, and return date.
+ * Generated user and media ids ("U1", "M1") are stored as their numbers and
+ * turned back into strings only when asked for; other ids are stored as given.
  */
 public class Loan {
 
-    private static long SEQ = 1;
+    private static final AtomicLong SEQ = new AtomicLong(1);
     private final String id;
-    private final String userId;
-    private final String mediaId;
+    // sequence number of the id, or -1 if the id does not have the generated form
+    private final long number;
+    // user and media as sequence numbers; the string is only kept for ids without one
+    private final long userNumber;
+    private final long mediaNumber;
+    private final String userIdText;
+    private final String mediaIdText;
     private final LocalDate borrowDate;
     private final LocalDate dueDate;
-    private LocalDate returnedDate;
+    private volatile LocalDate returnedDate;
 
     /**
      * Creates a new loan.
@@ -26,21 +34,55 @@ public class Loan {
      * @param dueDate    the date the item should be returned
      */
     public Loan(String userId, String mediaId, LocalDate borrowDate, LocalDate dueDate) {
-        this.id = "L" + (SEQ++);
-        this.userId = userId;
-        this.mediaId = mediaId;
+        this.number = SEQ.getAndIncrement();
+        this.id = Ids.format('L', number);
+        this.userNumber = Ids.numberOf(userId, 'U');
+        this.mediaNumber = Ids.numberOf(mediaId, 'M');
+        this.userIdText = userNumber < 0 ? userId : null;
+        this.mediaIdText = mediaNumber < 0 ? mediaId : null;
         this.borrowDate = borrowDate;
         this.dueDate = dueDate;
     }
 
+    /**
+     * Restores a stored loan with its original id.
+     * Later generated ids will not collide with it.
+     *
+     * @param id         the stored loan id
+     * @param userId     the id of the user who borrowed the item
+     * @param mediaId    the id of the media item (book or CD)
+     * @param borrowDate the date the item was borrowed
+     * @param dueDate    the date the item should be returned
+     */
+    public Loan(String id, String userId, String mediaId, LocalDate borrowDate, LocalDate dueDate) {
+        this.id = id;
+        this.number = Ids.numberOf(id, 'L');
+        this.userNumber = Ids.numberOf(userId, 'U');
+        this.mediaNumber = Ids.numberOf(mediaId, 'M');
+        this.userIdText = userNumber < 0 ? userId : null;
+        this.mediaIdText = mediaNumber < 0 ? mediaId : null;
+        this.borrowDate = borrowDate;
+        this.dueDate = dueDate;
+        Ids.advancePast(SEQ, id, 'L');
+    }
+
     /** @return loan id */
     public String getId() { return id; }
 
+    /** @return sequence number of the id, or -1 if the id was not generated */
+    public long getNumber() { return number; }
+
     /** @return user id */
-    public String getUserId() { return userId; }
+    public String getUserId() { return userNumber >= 0 ? Ids.format('U', userNumber) : userIdText; }
 
     /** @return media id */
-    public String getMediaId() { return mediaId; }
+    public String getMediaId() { return mediaNumber >= 0 ? Ids.format('M', mediaNumber) : mediaIdText; }
+
+    /** @return sequence number of the user id, or -1 if the user id was not generated */
+    public long getUserNumber() { return userNumber; }
+
+    /** @return sequence number of the media id, or -1 if the media id was not generated */
+    public long getMediaNumber() { return mediaNumber; }
 
     /** @return the borrow date */
     public LocalDate getBorrowDate() { return borrowDate; }
@@ -87,8 +129,8 @@ public class Loan {
     public String toString() {
         return "Loan{" +
                 "id='" + id + '\'' +
-                ", userId='" + userId + '\'' +
-                ", mediaId='" + mediaId + '\'' +
+                ", userId='" + getUserId() + '\'' +
+                ", mediaId='" + getMediaId() + '\'' +
                 ", borrowDate=" + borrowDate +
                 ", dueDate=" + dueDate +
                 ", returnedDate=" + returnedDate +
@@ -1,16 +1,21 @@
 package library.domain;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Represents a regular user in the library system.
  * A user has an auto-generated id, a name, an email, and an outstanding fine amount.
  */
 public class User {
 
-    private static long SEQ = 1;
+    private static final AtomicLong SEQ = new AtomicLong(1);
     private final String id;
+    // sequence number of the id, or -1 if the id does not have the generated form
+    private final long number;
     private final String name;
     private final String email;
-    private int outstandingFine;
+    private final AtomicInteger outstandingFine = new AtomicInteger();
 
     /**
      * Creates a new user.
@@ -19,15 +24,34 @@ public class User {
      * @param email the user's email address
      */
     public User(String name, String email) {
-        this.id = "U" + (SEQ++);
+        this.number = SEQ.getAndIncrement();
+        this.id = Ids.format('U', number);
+        this.name = name;
+        this.email = email;
+    }
+
+    /**
+     * Restores a stored user with its original id.
+     * Later generated ids will not collide with it.
+     *
+     * @param id    the stored user id
+     * @param name  the user's name
+     * @param email the user's email address
+     */
+    public User(String id, String name, String email) {
+        this.id = id;
+        this.number = Ids.numberOf(id, 'U');
         this.name = name;
         this.email = email;
-        this.outstandingFine = 0;
+        Ids.advancePast(SEQ, id, 'U');
     }
 
     /** @return user id */
     public String getId() { return id; }
 
+    /** @return sequence number of the id, or -1 if the id was not generated */
+    public long getNumber() { return number; }
+
     /** @return user name */
     public String getName() { return name; }
 
@@ -35,24 +59,35 @@ public class User {
     public String getEmail() { return email; }
 
     /** @return current outstanding fine amount */
-    public int getOutstandingFine() { return outstandingFine; }
+    public int getOutstandingFine() { return outstandingFine.get(); }
 
     /**
      * Adds a fine amount to the user.
      *
      * @param amount the fine to add
+     * @return the outstanding fine after adding
      */
-    public void addFine(int amount) {
-        this.outstandingFine += amount;
+    public int addFine(int amount) {
+        return outstandingFine.addAndGet(amount);
     }
 
     /**
      * Pays part or all of the user's outstanding fine.
      *
      * @param amount the amount paid
+     * @return the outstanding fine after paying
+     */
+    public int payFine(int amount) {
+        if (amount <= 0) return outstandingFine.get();
+        return outstandingFine.updateAndGet(f -> Math.max(0, f - amount));
+    }
+
+    /**
+     * Sets the outstanding fine, e.g. when restoring a stored balance.
+     *
+     * @param amount the outstanding fine
      */
-    public void payFine(int amount) {
-        if (amount <= 0) return;
-        this.outstandingFine = Math.max(0, this.outstandingFine - amount);
+    public void setOutstandingFine(int amount) {
+        outstandingFine.set(amount);
     }
 }
@@ -8,6 +8,9 @@ public class Book extends Media {
 
     private final String isbn;
     private final String author;
+    private final String isbnKey;
+    private final String authorKey;
+    private final String canonicalIsbn;
 
     /**
      * Creates a new Book.
@@ -20,6 +23,26 @@ public class Book extends Media {
         super(title, "BOOK");
         this.author = author;
         this.isbn = isbn;
+        this.authorKey = SearchKey.normalize(author);
+        this.isbnKey = SearchKey.normalize(isbn);
+        this.canonicalIsbn = Isbn.canonical(isbn);
+    }
+
+    /**
+     * Restores a stored book with its original id.
+     *
+     * @param id     the stored media id
+     * @param title  the book title
+     * @param author the author's name
+     * @param isbn   the ISBN of the book
+     */
+    public Book(String id, String title, String author, String isbn) {
+        super(id, title, "BOOK");
+        this.author = author;
+        this.isbn = isbn;
+        this.authorKey = SearchKey.normalize(author);
+        this.isbnKey = SearchKey.normalize(isbn);
+        this.canonicalIsbn = Isbn.canonical(isbn);
     }
 
     /** @return the author's name */
@@ -27,4 +50,19 @@ public class Book extends Media {
 
     /** @return the ISBN value */
     public String getIsbn() { return isbn; }
+
+    /** @return the search key of the author, or null if there is no author */
+    public String getAuthorKey() { return authorKey; }
+
+    /** @return the search key of the ISBN, or null if there is no ISBN */
+    public String getIsbnKey() { return isbnKey; }
+
+    /** @return the canonical ISBN (see {@link Isbn}), or null if there is no ISBN */
+    public String getCanonicalIsbn() { return canonicalIsbn; }
+
+    /** Books also match on the author and the ISBN. */
+    @Override
+    protected boolean matchesDetails(String nq) {
+        return SearchKey.contains(authorKey, nq) || SearchKey.contains(isbnKey, nq);
+    }
 }
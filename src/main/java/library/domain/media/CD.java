@@ -7,6 +7,7 @@ package library.domain.media;
 public class CD extends Media {
 
     private final String artist;
+    private final String artistKey;
 
     /**
      * Creates a new CD.
@@ -17,8 +18,31 @@ public class CD extends Media {
     public CD(String title, String artist) {
         super(title, "CD");
         this.artist = artist;
+        this.artistKey = SearchKey.normalize(artist);
+    }
+
+    /**
+     * Restores a stored CD with its original id.
+     *
+     * @param id     the stored media id
+     * @param title  the CD title
+     * @param artist the artist or band name
+     */
+    public CD(String id, String title, String artist) {
+        super(id, title, "CD");
+        this.artist = artist;
+        this.artistKey = SearchKey.normalize(artist);
     }
 
     /** @return the artist name */
     public String getArtist() { return artist; }
+
+    /** @return the search key of the artist, or null if there is no artist */
+    public String getArtistKey() { return artistKey; }
+
+    /** CDs also match on the artist. */
+    @Override
+    protected boolean matchesDetails(String nq) {
+        return SearchKey.contains(artistKey, nq);
+    }
 }
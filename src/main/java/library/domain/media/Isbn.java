@@ -0,0 +1,93 @@
+package library.domain.media;
+
+/**
+ * Canonical form of ISBNs, used as the key of the ISBN index.
+ * <p>
+ * Rules:
+ * <ul>
+ *     <li>Spaces and hyphens are removed and letters are upper-cased
+ *     ("978-0-13-235088-4" and "9780132350884" are the same).</li>
+ *     <li>An ISBN-13 is only taken as such with a valid check digit, so a mistyped
+ *     number does not share the key of the ISBN it was meant to be.</li>
+ *     <li>A valid ISBN-10 is converted to its ISBN-13 form
+ *     ("0-13-235088-2" becomes "9780132350884").</li>
+ *     <li>A leading "ISBN" label in front of a valid number is dropped
+ *     ("ISBN 978-0-13-235088-4").</li>
+ *     <li>Anything else (e.g. internal codes like "ISBN-100") keeps the
+ *     cleaned-up text, so it still matches itself in any case or spacing.</li>
+ * </ul>
+ */
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * Returns the canonical form of an ISBN.
+     *
+     * @param raw the ISBN as typed or stored, may be null
+     * @return the canonical ISBN, or null if the input is null or blank
+     */
+    public static String canonical(String raw) {
+        if (raw == null) return null;
+
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '-' || Character.isWhitespace(c)) continue;
+            sb.append(Character.toUpperCase(c));
+        }
+        if (sb.length() == 0) return null;
+
+        String cleaned = sb.toString();
+        String number = cleaned.startsWith("ISBN") ? cleaned.substring(4) : cleaned;
+        if (number.startsWith(":")) number = number.substring(1);
+
+        if (isIsbn13(number)) return number;
+        if (isIsbn10(number)) return toIsbn13(number);
+        return cleaned;
+    }
+
+    // thirteen digits with a valid mod-10 check digit
+    private static boolean isIsbn13(String s) {
+        if (s.length() != 13) return false;
+        for (int i = 0; i < 13; i++) {
+            if (!isDigit(s.charAt(i))) return false;
+        }
+        return s.charAt(12) - '0' == checkDigit13(s);
+    }
+
+    // nine digits and a check digit (0-9 or X) with a valid mod-11 checksum
+    private static boolean isIsbn10(String s) {
+        if (s.length() != 10) return false;
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = s.charAt(i);
+            int v;
+            if (isDigit(c)) v = c - '0';
+            else if (c == 'X' && i == 9) v = 10;
+            else return false;
+            sum += (10 - i) * v;
+        }
+        return sum % 11 == 0;
+    }
+
+    private static String toIsbn13(String isbn10) {
+        String body = "978" + isbn10.substring(0, 9);
+        return body + checkDigit13(body);
+    }
+
+    // check digit of the first twelve digits: weights 1 and 3 alternating
+    private static int checkDigit13(String s) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int d = s.charAt(i) - '0';
+            sum += i % 2 == 0 ? d : 3 * d;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
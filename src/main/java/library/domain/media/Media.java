@@ -1,16 +1,42 @@
 package library.domain.media;
 
+import library.domain.Ids;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Base class for all media items in the library (e.g., books, CDs).
  * Each media has an auto-generated id, a title, a type, and an availability flag.
+ * The search keys of the id and title (see {@link SearchKey}) are computed once here,
+ * so searching does not create new strings for every item.
  */
 public abstract class Media {
 
-    private static long SEQ = 1;
+    /**
+     * Listener called when the availability of a media item changes,
+     * e.g. by caches and indexes that depend on it.
+     */
+    public interface AvailabilityListener {
+        void availabilityChanged(Media media, boolean available);
+    }
+
+    private static final AtomicLong SEQ = new AtomicLong(1);
+    private static final AtomicIntegerFieldUpdater<Media> AVAILABLE =
+            AtomicIntegerFieldUpdater.newUpdater(Media.class, "available");
     private final String id;
+    // sequence number of the id, or -1 if the id does not have the generated form
+    private final long number;
     private final String title;
-    private boolean available = true;
+    // 1 = available, 0 = borrowed; an int so it can be updated with CAS
+    private volatile int available = 1;
     private final String mediaType;
+    private final String idKey;
+    private final String titleKey;
+    // created on first use; most items never get a listener
+    private volatile List<AvailabilityListener> listeners;
 
     /**
      * Creates a new media item.
@@ -19,22 +45,121 @@ public abstract class Media {
      * @param mediaType the type of media (e.g., "BOOK", "CD")
      */
     protected Media(String title, String mediaType) {
-        this.id = "M" + (SEQ++);
+        this.number = SEQ.getAndIncrement();
+        this.id = Ids.format('M', number);
         this.title = title;
         this.mediaType = mediaType;
+        this.idKey = SearchKey.normalize(id);
+        this.titleKey = SearchKey.normalize(title);
+    }
+
+    /**
+     * Restores a stored media item with its original id.
+     * Later generated ids will not collide with it.
+     *
+     * @param id        the stored media id
+     * @param title     the title of the media
+     * @param mediaType the type of media (e.g., "BOOK", "CD")
+     */
+    protected Media(String id, String title, String mediaType) {
+        this.id = id;
+        this.number = Ids.numberOf(id, 'M');
+        this.title = title;
+        this.mediaType = mediaType;
+        this.idKey = SearchKey.normalize(id);
+        this.titleKey = SearchKey.normalize(title);
+        Ids.advancePast(SEQ, id, 'M');
     }
 
     /** @return media id */
     public String getId() { return id; }
 
+    /** @return sequence number of the id, or -1 if the id was not generated */
+    public long getNumber() { return number; }
+
     /** @return media title */
     public String getTitle() { return title; }
 
+    /** @return the search key of the id */
+    public String getIdKey() { return idKey; }
+
+    /** @return the search key of the title, or null if there is no title */
+    public String getTitleKey() { return titleKey; }
+
+    /**
+     * Checks if any searchable field contains the query: the title, the id,
+     * and the fields added by subclasses (author, ISBN, artist).
+     *
+     * @param nq the query, already passed through {@link SearchKey#normalize(String)}
+     * @return true if a searchable field contains the query
+     */
+    public boolean matches(String nq) {
+        return SearchKey.contains(titleKey, nq)
+                || matchesDetails(nq)
+                || SearchKey.contains(idKey, nq);
+    }
+
+    /**
+     * Checks the searchable fields of a subclass. Media without extra fields
+     * don't need to override this.
+     *
+     * @param nq the normalized query
+     * @return true if one of the subclass fields contains the query
+     */
+    protected boolean matchesDetails(String nq) {
+        return false;
+    }
+
     /** @return true if the media is available to borrow */
-    public boolean isAvailable() { return available; }
+    public boolean isAvailable() { return available == 1; }
+
+    /** Sets the availability of the media item and notifies the listeners if it changed. */
+    public void setAvailable(boolean available) {
+        int value = available ? 1 : 0;
+        if (AVAILABLE.getAndSet(this, value) != value) fireAvailabilityChanged(available);
+    }
+
+    /**
+     * Atomically marks the media as not available if it is available now.
+     * When several threads try to reserve the same item, only one succeeds.
+     *
+     * @return true if this call reserved the media, false if it was already taken
+     */
+    public boolean tryReserve() {
+        if (!AVAILABLE.compareAndSet(this, 1, 0)) return false;
+        fireAvailabilityChanged(false);
+        return true;
+    }
 
-    /** Sets the availability of the media item. */
-    public void setAvailable(boolean available) { this.available = available; }
+    /**
+     * Registers a listener for availability changes of this item.
+     *
+     * @param listener the listener to add
+     */
+    public void addAvailabilityListener(AvailabilityListener listener) {
+        synchronized (this) {
+            if (listeners == null) listeners = new CopyOnWriteArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added before.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeAvailabilityListener(AvailabilityListener listener) {
+        List<AvailabilityListener> current = listeners;
+        if (current != null) current.remove(listener);
+    }
+
+    private void fireAvailabilityChanged(boolean available) {
+        List<AvailabilityListener> current = listeners;
+        if (current == null) return;
+        for (AvailabilityListener l : current) {
+            l.availabilityChanged(this, available);
+        }
+    }
 
     /** @return the media type (BOOK, CD, etc.) */
     public String getMediaType() { return mediaType; }
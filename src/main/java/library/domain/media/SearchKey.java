@@ -0,0 +1,54 @@
+package library.domain.media;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes text for search: lower-case (locale independent) and without accents,
+ * so "Beyoncé" and "BEYONCE" give the same key.
+ * <p>
+ * Media items keep the keys of their fields, computed once when they are created.
+ * Queries go through the same {@link #normalize(String)} before they are compared.
+ */
+public final class SearchKey {
+
+    // combining marks left over after splitting accented letters (é -> e + ́)
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchKey() {
+    }
+
+    /**
+     * Returns the search key of a text.
+     *
+     * @param text the text, may be null
+     * @return the normalized text, or null if the text is null
+     */
+    public static String normalize(String text) {
+        if (text == null) return null;
+        if (isAscii(text)) return text.toLowerCase(Locale.ROOT);
+
+        // lower-case first: it can add marks of its own ("İ" -> "i" + dot above)
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * Checks if a field key contains a normalized query. Missing fields never match.
+     *
+     * @param key the field key, may be null
+     * @param nq  the normalized query
+     * @return true if the key contains the query
+     */
+    static boolean contains(String key, String nq) {
+        return key != null && key.contains(nq);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
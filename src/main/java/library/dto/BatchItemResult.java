@@ -0,0 +1,72 @@
+package library.dto;
+
+import library.domain.Loan;
+
+/**
+ * Result of one item inside a batch borrow or return.
+ * Used by LibraryService.borrowAll and LibraryService.returnAll.
+ *
+ * - itemId : the requested media id (borrow) or loan id (return)
+ * - loan   : the created or returned loan, null if the item failed
+ * - fine   : fine applied for this item (returns only)
+ * - error  : reason the item failed, null on success
+ */
+public class BatchItemResult {
+
+    private final String itemId;
+    private final Loan loan;
+    private final int fine;
+    private final String error;
+
+    private BatchItemResult(String itemId, Loan loan, int fine, String error) {
+        this.itemId = itemId;
+        this.loan = loan;
+        this.fine = fine;
+        this.error = error;
+    }
+
+    /**
+     * Creates a successful item result.
+     *
+     * @param itemId the requested media or loan id
+     * @param loan   the created or returned loan
+     * @param fine   fine applied for this item
+     * @return the result
+     */
+    public static BatchItemResult success(String itemId, Loan loan, int fine) {
+        return new BatchItemResult(itemId, loan, fine, null);
+    }
+
+    /**
+     * Creates a failed item result.
+     *
+     * @param itemId the requested media or loan id
+     * @param error  why the item failed
+     * @return the result
+     */
+    public static BatchItemResult failure(String itemId, String error) {
+        return new BatchItemResult(itemId, null, 0, error);
+    }
+
+    /** @return the requested media id or loan id */
+    public String getItemId() { return itemId; }
+
+    /** @return the created or returned loan, or null if the item failed */
+    public Loan getLoan() { return loan; }
+
+    /** @return fine applied for this item */
+    public int getFine() { return fine; }
+
+    /** @return the error message, or null if the item succeeded */
+    public String getError() { return error; }
+
+    /** @return true if the item succeeded */
+    public boolean isSuccess() { return error == null; }
+
+    @Override
+    public String toString() {
+        return isSuccess()
+                ? "BatchItemResult[" + itemId + " ok, loan=" + loan.getId() + ", fine=" + fine + "]"
+                : "BatchItemResult[" + itemId + " failed: " + error + "]";
+    }
+}
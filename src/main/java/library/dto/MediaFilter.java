@@ -0,0 +1,101 @@
+package library.dto;
+
+import library.domain.media.Media;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Restricts a search to a media type and/or an availability.
+ *
+ * - mediaType : "BOOK", "CD", ... or null for any type
+ * - available : true for available items, false for borrowed ones, or null for both
+ */
+public final class MediaFilter {
+
+    /** Filter that accepts every item. */
+    public static final MediaFilter ANY = new MediaFilter(null, null);
+
+    private final String mediaType;
+    private final Boolean available;
+
+    /**
+     * Creates a new MediaFilter.
+     *
+     * @param mediaType the media type (ignores case), or null for any type
+     * @param available the wanted availability, or null for both
+     */
+    public MediaFilter(String mediaType, Boolean available) {
+        this.mediaType = mediaType == null ? null : mediaType.trim().toUpperCase(Locale.ROOT);
+        this.available = available;
+    }
+
+    /**
+     * Filter for the items of one type that can be borrowed now.
+     *
+     * @param mediaType the media type, or null for any type
+     * @return the filter
+     */
+    public static MediaFilter availableOnly(String mediaType) {
+        return new MediaFilter(mediaType, Boolean.TRUE);
+    }
+
+    /** @return the media type, or null for any type */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /** @return the wanted availability, or null for both */
+    public Boolean getAvailable() {
+        return available;
+    }
+
+    /** @return true if this filter accepts every item */
+    public boolean isAny() {
+        return mediaType == null && available == null;
+    }
+
+    /** @return true if the availability of an item decides whether it passes */
+    public boolean dependsOnAvailability() {
+        return available != null;
+    }
+
+    /**
+     * Checks the type part of the filter only.
+     *
+     * @param media the media item
+     * @return true if the item has the wanted type
+     */
+    public boolean acceptsType(Media media) {
+        return mediaType == null || mediaType.equals(media.getMediaType());
+    }
+
+    /**
+     * Checks an item against the whole filter.
+     *
+     * @param media the media item
+     * @return true if the item has the wanted type and availability
+     */
+    public boolean test(Media media) {
+        return acceptsType(media) && (available == null || available == media.isAvailable());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MediaFilter)) return false;
+        MediaFilter other = (MediaFilter) o;
+        return Objects.equals(mediaType, other.mediaType) && Objects.equals(available, other.available);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mediaType, available);
+    }
+
+    @Override
+    public String toString() {
+        return "type=" + (mediaType == null ? "*" : mediaType)
+                + ",available=" + (available == null ? "*" : available);
+    }
+}
@@ -0,0 +1,62 @@
+package library.dto;
+
+import library.domain.media.Media;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of ranked search results.
+ *
+ * - items        : the media items of this page, best match first
+ * - offset       : number of better-ranked matches before this page
+ * - limit        : the requested page size
+ * - totalMatches : number of items matching the query overall
+ */
+public class SearchPage {
+
+    private final List<Media> items;
+    private final int offset;
+    private final int limit;
+    private final int totalMatches;
+
+    /**
+     * Creates a new SearchPage.
+     *
+     * @param items        media items of this page
+     * @param offset       position of the first item among all matches
+     * @param limit        the requested page size
+     * @param totalMatches number of matches overall
+     */
+    public SearchPage(List<Media> items, int offset, int limit, int totalMatches) {
+        this.items = Collections.unmodifiableList(items);
+        this.offset = offset;
+        this.limit = limit;
+        this.totalMatches = totalMatches;
+    }
+
+    /** @return the media items of this page, best match first */
+    public List<Media> getItems() {
+        return items;
+    }
+
+    /** @return position of the first item among all matches */
+    public int getOffset() {
+        return offset;
+    }
+
+    /** @return the requested page size */
+    public int getLimit() {
+        return limit;
+    }
+
+    /** @return number of items matching the query overall */
+    public int getTotalMatches() {
+        return totalMatches;
+    }
+
+    /** @return true if there are matches after this page */
+    public boolean hasMore() {
+        return offset + items.size() < totalMatches;
+    }
+}
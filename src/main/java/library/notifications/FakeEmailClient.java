@@ -10,6 +10,7 @@ import java.util.List;
  * Fake implementation of EmailClient used for testing.
  * Instead of sending real emails, it stores all sent messages
  * so tests or admin tools can inspect them later.
+ * Safe to use from several threads (e.g. parallel reminder dispatch).
  */
 public class FakeEmailClient implements EmailClient {
 
@@ -17,25 +18,25 @@ public class FakeEmailClient implements EmailClient {
     private final List<EmailMessage> sent = new ArrayList<>();
 
     @Override
-    public void send(String to, String subject, String body) {
+    public synchronized void send(String to, String subject, String body) {
         sent.add(new EmailMessage(to, subject, body));
     }
 
     /**
-     * Returns an unmodifiable list of all sent emails.
+     * Returns an unmodifiable snapshot of all sent emails.
      * Useful for checking results in tests or via admin console.
      *
      * @return list of EmailMessage items
      */
-    public List<EmailMessage> getSent() {
-        return Collections.unmodifiableList(sent);
+    public synchronized List<EmailMessage> getSent() {
+        return Collections.unmodifiableList(new ArrayList<>(sent));
     }
 
     /**
      * Clears the stored email list.
      * Tests usually call this before each run.
      */
-    public void clear() {
+    public synchronized void clear() {
         sent.clear();
     }
 }
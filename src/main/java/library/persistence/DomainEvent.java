@@ -0,0 +1,276 @@
+package library.persistence;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * A change of the library state, as written to the {@link WriteAheadLog}.
+ * <p>
+ * Events are idempotent: applying one twice (see {@link EventApplier}) leaves the
+ * same state as applying it once. That is why fine events carry the resulting
+ * balance and not only the amount.
+ * <ul>
+ *     <li>USER_REGISTERED / USER_UNREGISTERED : id, name, email</li>
+ *     <li>MEDIA_ADDED    : id, mediaType, title, creator (author or artist), isbn</li>
+ *     <li>LOAN_CREATED   : id, userId, mediaId, date (borrowed), dueDate</li>
+ *     <li>LOAN_RETURNED  : id, date (returned)</li>
+ *     <li>FINE_ADDED / FINE_PAID : userId, amount, balance</li>
+ * </ul>
+ */
+public final class DomainEvent {
+
+    /** Kinds of events. The ordinal is stored, so only append new kinds. */
+    public enum Type {
+        USER_REGISTERED, USER_UNREGISTERED, MEDIA_ADDED, LOAN_CREATED, LOAN_RETURNED, FINE_ADDED, FINE_PAID
+    }
+
+    private final Type type;
+    private final String id;
+    private final String userId;
+    private final String mediaId;
+    private final String mediaType;
+    private final String name;
+    private final String detail;
+    private final String isbn;
+    private final LocalDate date;
+    private final LocalDate dueDate;
+    private final int amount;
+    private final int balance;
+
+    private DomainEvent(Type type, String id, String userId, String mediaId, String mediaType,
+                        String name, String detail, String isbn, LocalDate date, LocalDate dueDate,
+                        int amount, int balance) {
+        this.type = type;
+        this.id = id;
+        this.userId = userId;
+        this.mediaId = mediaId;
+        this.mediaType = mediaType;
+        this.name = name;
+        this.detail = detail;
+        this.isbn = isbn;
+        this.date = date;
+        this.dueDate = dueDate;
+        this.amount = amount;
+        this.balance = balance;
+    }
+
+    /**
+     * @param user the registered user
+     * @return a USER_REGISTERED event
+     */
+    public static DomainEvent userRegistered(User user) {
+        return new DomainEvent(Type.USER_REGISTERED, user.getId(), user.getId(), null, null,
+                user.getName(), user.getEmail(), null, null, null, 0, 0);
+    }
+
+    /**
+     * @param userId id of the removed user
+     * @return a USER_UNREGISTERED event
+     */
+    public static DomainEvent userUnregistered(String userId) {
+        return new DomainEvent(Type.USER_UNREGISTERED, userId, userId, null, null,
+                null, null, null, null, null, 0, 0);
+    }
+
+    /**
+     * @param media the added book or CD
+     * @return a MEDIA_ADDED event
+     */
+    public static DomainEvent mediaAdded(Media media) {
+        String creator = null;
+        String isbn = null;
+        if (media instanceof Book) {
+            creator = ((Book) media).getAuthor();
+            isbn = ((Book) media).getIsbn();
+        } else if (media instanceof CD) {
+            creator = ((CD) media).getArtist();
+        }
+        return new DomainEvent(Type.MEDIA_ADDED, media.getId(), null, media.getId(), media.getMediaType(),
+                media.getTitle(), creator, isbn, null, null, 0, 0);
+    }
+
+    /**
+     * @param loan the new loan
+     * @return a LOAN_CREATED event
+     */
+    public static DomainEvent loanCreated(Loan loan) {
+        return new DomainEvent(Type.LOAN_CREATED, loan.getId(), loan.getUserId(), loan.getMediaId(), null,
+                null, null, null, loan.getBorrowDate(), loan.getDueDate(), 0, 0);
+    }
+
+    /**
+     * @param loan the returned loan
+     * @return a LOAN_RETURNED event
+     */
+    public static DomainEvent loanReturned(Loan loan) {
+        return new DomainEvent(Type.LOAN_RETURNED, loan.getId(), loan.getUserId(), loan.getMediaId(), null,
+                null, null, null, loan.getReturnedDate(), null, 0, 0);
+    }
+
+    /**
+     * @param userId  id of the user
+     * @param amount  the fine added
+     * @param balance the outstanding fine after adding
+     * @return a FINE_ADDED event
+     */
+    public static DomainEvent fineAdded(String userId, int amount, int balance) {
+        return new DomainEvent(Type.FINE_ADDED, userId, userId, null, null,
+                null, null, null, null, null, amount, balance);
+    }
+
+    /**
+     * @param userId  id of the user
+     * @param amount  the amount paid
+     * @param balance the outstanding fine after paying
+     * @return a FINE_PAID event
+     */
+    public static DomainEvent finePaid(String userId, int amount, int balance) {
+        return new DomainEvent(Type.FINE_PAID, userId, userId, null, null,
+                null, null, null, null, null, amount, balance);
+    }
+
+    /** @return the kind of event */
+    public Type getType() { return type; }
+
+    /** @return id of the user, media or loan the event is about */
+    public String getId() { return id; }
+
+    /** @return the user id (user, loan and fine events) */
+    public String getUserId() { return userId; }
+
+    /** @return the media id (media and loan events) */
+    public String getMediaId() { return mediaId; }
+
+    /** @return "BOOK" or "CD" (MEDIA_ADDED) */
+    public String getMediaType() { return mediaType; }
+
+    /** @return the user name or media title */
+    public String getName() { return name; }
+
+    /** @return the user email or the media author/artist */
+    public String getDetail() { return detail; }
+
+    /** @return the ISBN of a book */
+    public String getIsbn() { return isbn; }
+
+    /** @return the borrow date (LOAN_CREATED) or return date (LOAN_RETURNED) */
+    public LocalDate getDate() { return date; }
+
+    /** @return the due date (LOAN_CREATED) */
+    public LocalDate getDueDate() { return dueDate; }
+
+    /** @return the fine added or paid */
+    public int getAmount() { return amount; }
+
+    /** @return the outstanding fine after the change */
+    public int getBalance() { return balance; }
+
+    /**
+     * Writes the fields used by this kind of event.
+     *
+     * @param out the output
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        writeString(out, id);
+        switch (type) {
+            case USER_REGISTERED:
+                writeString(out, name);
+                writeString(out, detail);
+                break;
+            case MEDIA_ADDED:
+                writeString(out, mediaType);
+                writeString(out, name);
+                writeString(out, detail);
+                writeString(out, isbn);
+                break;
+            case LOAN_CREATED:
+                writeString(out, userId);
+                writeString(out, mediaId);
+                out.writeLong(date.toEpochDay());
+                out.writeLong(dueDate.toEpochDay());
+                break;
+            case LOAN_RETURNED:
+                writeString(out, userId);
+                writeString(out, mediaId);
+                out.writeLong(date.toEpochDay());
+                break;
+            case FINE_ADDED:
+            case FINE_PAID:
+                out.writeInt(amount);
+                out.writeInt(balance);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Reads an event written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input
+     * @return the event
+     * @throws IOException if reading fails or the data is not an event
+     */
+    public static DomainEvent readFrom(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= Type.values().length) throw new IOException("unknown event type " + ordinal);
+        Type type = Type.values()[ordinal];
+        String id = readString(in);
+        switch (type) {
+            case USER_REGISTERED:
+                return new DomainEvent(type, id, id, null, null,
+                        readString(in), readString(in), null, null, null, 0, 0);
+            case USER_UNREGISTERED:
+                return userUnregistered(id);
+            case MEDIA_ADDED: {
+                String mediaType = readString(in);
+                String title = readString(in);
+                String creator = readString(in);
+                String isbn = readString(in);
+                return new DomainEvent(type, id, null, id, mediaType, title, creator, isbn, null, null, 0, 0);
+            }
+            case LOAN_CREATED: {
+                String userId = readString(in);
+                String mediaId = readString(in);
+                LocalDate borrowed = LocalDate.ofEpochDay(in.readLong());
+                LocalDate due = LocalDate.ofEpochDay(in.readLong());
+                return new DomainEvent(type, id, userId, mediaId, null, null, null, null, borrowed, due, 0, 0);
+            }
+            case LOAN_RETURNED: {
+                String userId = readString(in);
+                String mediaId = readString(in);
+                LocalDate returned = LocalDate.ofEpochDay(in.readLong());
+                return new DomainEvent(type, id, userId, mediaId, null, null, null, null, returned, null, 0, 0);
+            }
+            default: {
+                int amount = in.readInt();
+                int balance = in.readInt();
+                return new DomainEvent(type, id, id, null, null, null, null, null, null, null, amount, balance);
+            }
+        }
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Override
+    public String toString() {
+        return type + "{" + id + "}";
+    }
+}
@@ -0,0 +1,101 @@
+package library.persistence;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.repository.LoanRepository;
+import library.repository.MediaRepository;
+import library.repository.UserRepository;
+
+/**
+ * Rebuilds the repositories from {@link DomainEvent}s, e.g. while replaying the
+ * {@link WriteAheadLog} at startup.
+ * <ul>
+ *     <li>Objects are restored with their original ids, and the id sequences are
+ *     moved past them, so new objects never reuse a stored id.</li>
+ *     <li>Applying an event again is harmless: existing objects are not added twice,
+ *     a returned loan stays returned, and fines are set to the logged balance.</li>
+ *     <li>Media availability is not logged; {@link #restoreAvailability()} derives it
+ *     from the active loans once all events are applied.</li>
+ * </ul>
+ */
+public class EventApplier {
+
+    private final UserRepository userRepo;
+    private final MediaRepository mediaRepo;
+    private final LoanRepository loanRepo;
+
+    /**
+     * Creates an applier for the given repositories.
+     *
+     * @param userRepo  repository for users
+     * @param mediaRepo repository for media
+     * @param loanRepo  repository for loans
+     */
+    public EventApplier(UserRepository userRepo, MediaRepository mediaRepo, LoanRepository loanRepo) {
+        this.userRepo = userRepo;
+        this.mediaRepo = mediaRepo;
+        this.loanRepo = loanRepo;
+    }
+
+    /**
+     * Applies one event to the repositories.
+     *
+     * @param event the event
+     */
+    public void apply(DomainEvent event) {
+        switch (event.getType()) {
+            case USER_REGISTERED:
+                if (!userRepo.findById(event.getId()).isPresent()) {
+                    userRepo.save(new User(event.getId(), event.getName(), event.getDetail()));
+                }
+                break;
+            case USER_UNREGISTERED:
+                userRepo.findById(event.getId()).ifPresent(userRepo::delete);
+                break;
+            case MEDIA_ADDED:
+                if (!mediaRepo.findById(event.getId()).isPresent()) {
+                    mediaRepo.save(restoreMedia(event));
+                }
+                break;
+            case LOAN_CREATED:
+                if (!loanRepo.findById(event.getId()).isPresent()) {
+                    loanRepo.save(new Loan(event.getId(), event.getUserId(), event.getMediaId(),
+                            event.getDate(), event.getDueDate()));
+                }
+                break;
+            case LOAN_RETURNED:
+                loanRepo.findById(event.getId()).ifPresent(l -> loanRepo.markReturned(l, event.getDate()));
+                break;
+            case FINE_ADDED:
+            case FINE_PAID:
+                userRepo.findById(event.getUserId()).ifPresent(u -> u.setOutstandingFine(event.getBalance()));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Marks every media item available, except the ones with an active loan.
+     */
+    public void restoreAvailability() {
+        for (Media m : mediaRepo.findAll()) {
+            m.setAvailable(true);
+        }
+        for (Loan l : loanRepo.findActive()) {
+            long number = l.getMediaNumber();
+            (number >= 0 ? mediaRepo.findByNumber(number) : mediaRepo.findById(l.getMediaId()))
+                    .ifPresent(m -> m.setAvailable(false));
+        }
+    }
+
+    private static Media restoreMedia(DomainEvent event) {
+        if ("CD".equals(event.getMediaType())) {
+            return new CD(event.getId(), event.getName(), event.getDetail());
+        }
+        return new Book(event.getId(), event.getName(), event.getDetail(), event.getIsbn());
+    }
+}
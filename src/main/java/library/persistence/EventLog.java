@@ -0,0 +1,26 @@
+package library.persistence;
+
+/**
+ * Where the services record their {@link DomainEvent}s.
+ * <p>
+ * Appending and syncing are split, so a caller can append several events (or
+ * append under a lock to keep the order of related events) and then wait once.
+ * Many callers waiting at the same time share one flush (group commit).
+ */
+public interface EventLog {
+
+    /**
+     * Appends an event. The event is not durable yet.
+     *
+     * @param event the event
+     * @return the log sequence number (LSN) of the event, starting at 1
+     */
+    long append(DomainEvent event);
+
+    /**
+     * Waits until the event with the given LSN, and all events before it, are durable.
+     *
+     * @param lsn the LSN returned by {@link #append(DomainEvent)}
+     */
+    void sync(long lsn);
+}
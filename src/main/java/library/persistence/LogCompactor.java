@@ -0,0 +1,115 @@
+package library.persistence;
+
+import library.repository.ConcurrentMediaRepository;
+import library.repository.ConcurrentUserRepository;
+import library.repository.IndexedLoanRepository;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes snapshots in the background and deletes the log segments they cover,
+ * so a restart only replays the tail of the log.
+ * <p>
+ * A snapshot is built from the files only: the newest snapshot is loaded into
+ * private repositories and the durable log after it is replayed on top. The live
+ * repositories and the {@link library.service.LibraryService} are never read or
+ * locked, so writes go on at full speed while a snapshot is made, and the
+ * snapshot is exactly the state at its LSN.
+ */
+public class LogCompactor implements AutoCloseable {
+
+    private final WriteAheadLog wal;
+    private final SnapshotStore snapshots;
+    private ScheduledExecutorService scheduler;
+
+    // LSN of the newest snapshot written or found; only changed by compact()
+    private volatile long snapshotLsn = -1;
+
+    /**
+     * Creates a compactor.
+     *
+     * @param wal       the log to compact
+     * @param snapshots where the snapshots are written
+     */
+    public LogCompactor(WriteAheadLog wal, SnapshotStore snapshots) {
+        this.wal = wal;
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Runs {@link #compact()} periodically on a background daemon thread.
+     * Failures are reported on stderr and retried at the next run.
+     *
+     * @param period time between two runs
+     * @param unit   time unit of period
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Log compaction failed: " + e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Writes a snapshot of all durable events, if there are new ones, and deletes
+     * the log segments it covers.
+     *
+     * @return the LSN of the newest snapshot
+     * @throws IOException if reading the log or writing the snapshot fails
+     */
+    public synchronized long compact() throws IOException {
+        long target = wal.getDurableLsn();
+        if (snapshotLsn >= 0 && target <= snapshotLsn) return snapshotLsn;
+
+        ConcurrentUserRepository users = new ConcurrentUserRepository();
+        ConcurrentMediaRepository media = new ConcurrentMediaRepository();
+        IndexedLoanRepository loans = new IndexedLoanRepository();
+        long base = snapshots.loadLatest(users, media, loans);
+        if (target <= base) {
+            snapshotLsn = base;
+            return base;
+        }
+
+        EventApplier applier = new EventApplier(users, media, loans);
+        wal.replay(base, (event, lsn) -> {
+            if (lsn <= target) applier.apply(event);
+        });
+        // write() forces the snapshot directory, so the segments are only
+        // deleted once the snapshot that replaces them is durable
+        snapshots.write(target, users.findAll(), media.findAll(), loans.findAll());
+        snapshotLsn = target;
+        wal.deleteSegmentsThrough(target);
+        return target;
+    }
+
+    /**
+     * Stops the background runs. A run in progress is finished first.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService s;
+        synchronized (this) {
+            s = scheduler;
+            scheduler = null;
+        }
+        if (s == null) return;
+        s.shutdown();
+        try {
+            s.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package library.persistence;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.repository.LoanRepository;
+import library.repository.MediaRepository;
+import library.repository.UserRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary snapshots of users, media, loans and fines.
+ * <p>
+ * Behavior:
+ * <ul>
+ *     <li>A snapshot holds the state after all events up to an LSN of the
+ *     {@link WriteAheadLog} and is named {@code snapshot-<LSN>.bin}.</li>
+ *     <li>It is written to a temporary file, forced, and then renamed, so a
+ *     crash never leaves a half-written snapshot under the final name. The
+ *     directory is forced after the rename, so once {@link #write} returns the
+ *     snapshot survives a crash.</li>
+ *     <li>The content ends with a CRC32; a damaged snapshot is skipped and
+ *     the previous one is used.</li>
+ *     <li>The newest {@link #KEEP} snapshots are kept, older ones are deleted.</li>
+ * </ul>
+ * Layout: magic, version, LSN, then the users (id, name, email, fine), media
+ * (id, type, title, author/artist, ISBN) and loans (id, user, media, dates as
+ * epoch days), each list preceded by its size.
+ */
+public class SnapshotStore {
+
+    /** Number of snapshots kept on disk. */
+    public static final int KEEP = 2;
+
+    private static final int MAGIC = 0x4C494253; // "LIBS"
+    private static final int VERSION = 1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path dir;
+
+    /**
+     * Creates a store in the given directory.
+     *
+     * @param dir directory of the snapshot files
+     * @throws IOException if the directory cannot be created
+     */
+    public SnapshotStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Writes a snapshot and deletes the snapshots older than the newest {@link #KEEP}.
+     *
+     * @param lsn   the LSN of the last event included
+     * @param users the users
+     * @param media the media items
+     * @param loans the loans
+     * @return the snapshot file
+     * @throws IOException if writing fails
+     */
+    public Path write(long lsn, Collection<User> users, Collection<Media> media, Collection<Loan> loans)
+            throws IOException {
+        Path target = dir.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(lsn);
+
+            out.writeInt(users.size());
+            for (User u : users) {
+                writeString(out, u.getId());
+                writeString(out, u.getName());
+                writeString(out, u.getEmail());
+                out.writeInt(u.getOutstandingFine());
+            }
+
+            out.writeInt(media.size());
+            for (Media m : media) {
+                writeString(out, m.getId());
+                out.writeBoolean(m instanceof CD);
+                writeString(out, m.getTitle());
+                if (m instanceof CD) {
+                    writeString(out, ((CD) m).getArtist());
+                } else {
+                    writeString(out, m instanceof Book ? ((Book) m).getAuthor() : null);
+                    writeString(out, m instanceof Book ? ((Book) m).getIsbn() : null);
+                }
+            }
+
+            out.writeInt(loans.size());
+            for (Loan l : loans) {
+                writeString(out, l.getId());
+                writeString(out, l.getUserId());
+                writeString(out, l.getMediaId());
+                out.writeInt((int) l.getBorrowDate().toEpochDay());
+                out.writeInt((int) l.getDueDate().toEpochDay());
+                out.writeInt(l.getReturnedDate() == null ? NO_DATE : (int) l.getReturnedDate().toEpochDay());
+            }
+            out.flush();
+            // the checksum itself is not part of the checksum
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        // the rename must be durable before the caller deletes the log it replaces
+        WriteAheadLog.forceDirectory(dir);
+
+        List<Path> all = snapshots();
+        for (int i = 0; i < all.size() - KEEP; i++) {
+            Files.deleteIfExists(all.get(i));
+        }
+        return target;
+    }
+
+    /**
+     * Loads the newest readable snapshot into the repositories.
+     *
+     * @param userRepo  repository for users
+     * @param mediaRepo repository for media
+     * @param loanRepo  repository for loans
+     * @return the LSN of the loaded snapshot, or 0 if there is none
+     * @throws IOException if the directory cannot be read
+     */
+    public long loadLatest(UserRepository userRepo, MediaRepository mediaRepo, LoanRepository loanRepo)
+            throws IOException {
+        List<Path> all = snapshots();
+        for (int i = all.size() - 1; i >= 0; i--) {
+            Snapshot snapshot = read(all.get(i));
+            if (snapshot == null) continue;
+            snapshot.users.forEach(userRepo::save);
+            snapshot.media.forEach(mediaRepo::save);
+            snapshot.loans.forEach(loanRepo::save);
+            return snapshot.lsn;
+        }
+        return 0;
+    }
+
+    /** @return the snapshot files, oldest first */
+    public List<Path> snapshots() throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path p : files) result.add(p);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /** @return the snapshot, or null if the file is damaged */
+    private static Snapshot read(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        if (data.length < 8) return null;
+        CRC32 crc = new CRC32();
+        try (InputStream in = new ByteArrayInputStream(data, 0, data.length - 8)) {
+            DataInputStream body = new DataInputStream(new CheckedInputStream(new BufferedInputStream(in), crc));
+            if (body.readInt() != MAGIC || body.readUnsignedByte() != VERSION) return null;
+            Snapshot s = new Snapshot(body.readLong());
+
+            for (int i = body.readInt(); i > 0; i--) {
+                User u = new User(readString(body), readString(body), readString(body));
+                u.setOutstandingFine(body.readInt());
+                s.users.add(u);
+            }
+            for (int i = body.readInt(); i > 0; i--) {
+                String id = readString(body);
+                boolean cd = body.readBoolean();
+                String title = readString(body);
+                s.media.add(cd
+                        ? new CD(id, title, readString(body))
+                        : new Book(id, title, readString(body), readString(body)));
+            }
+            for (int i = body.readInt(); i > 0; i--) {
+                Loan l = new Loan(readString(body), readString(body), readString(body),
+                        LocalDate.ofEpochDay(body.readInt()), LocalDate.ofEpochDay(body.readInt()));
+                int returned = body.readInt();
+                if (returned != NO_DATE) l.setReturnedDate(LocalDate.ofEpochDay(returned));
+                s.loans.add(l);
+            }
+            if (body.read() != -1) return null;
+
+            long stored = new DataInputStream(new ByteArrayInputStream(data, data.length - 8, 8)).readLong();
+            return stored == crc.getValue() ? s : null;
+        } catch (IOException | RuntimeException e) {
+            // truncated or damaged content
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Content of one snapshot file.
+     */
+    private static final class Snapshot {
+        final long lsn;
+        final List<User> users = new ArrayList<>();
+        final List<Media> media = new ArrayList<>();
+        final List<Loan> loans = new ArrayList<>();
+
+        Snapshot(long lsn) {
+            this.lsn = lsn;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package library.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, file-based {@link EventLog}.
+ * <p>
+ * Behavior:
+ * <ul>
+ *     <li>The log is a directory of segment files {@code wal-<first LSN>.log}. A new
+ *     segment is started when the current one reaches the segment size.</li>
+ *     <li>Each record is {@code [payload length][CRC32][LSN][payload]}.</li>
+ *     <li>{@link #append(DomainEvent)} only encodes the event into an in-memory buffer.</li>
+ *     <li>{@link #sync(long)} uses group commit: the first waiting caller becomes the
+ *     leader, writes everything buffered so far through the {@link FileChannel}
+ *     and calls {@code force} once; the callers that arrived meanwhile are released
+ *     by the same force, or by the next one.</li>
+ *     <li>On open, an incomplete or corrupt record at the end of the last segment
+ *     (a write cut off by a crash) is cut off; it was never acknowledged.</li>
+ *     <li>After a failed write the log refuses further appends, since the file
+ *     may not match the buffer any more.</li>
+ *     <li>Once a snapshot covers the events of old segments, they can be deleted
+ *     with {@link #deleteSegmentsThrough(long)}; the current segment is always kept.</li>
+ *     <li>LSNs are never reused: on open, numbering continues after the newest
+ *     segment, even an empty one, and {@link #advanceTo(long)} moves it past a
+ *     loaded snapshot.</li>
+ * </ul>
+ * Thread-safe.
+ */
+public class WriteAheadLog implements EventLog, Closeable {
+
+    /** Default size at which a new segment is started. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    // length + crc + lsn
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Object lock = new Object();
+
+    // guarded by lock
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long lastLsn;
+    private long durableLsn;
+    private boolean flushing;
+    private IOException failure;
+    private boolean closed;
+    private long flushes;
+
+    // only used by the flushing leader (or under lock when no flush runs)
+    private FileChannel channel;
+    private long channelSize;
+
+    /**
+     * Opens (or creates) a log with {@link #DEFAULT_SEGMENT_BYTES} segments.
+     *
+     * @param dir directory of the log
+     * @throws IOException if the log cannot be opened or is corrupt
+     */
+    public WriteAheadLog(Path dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens (or creates) a log.
+     *
+     * @param dir          directory of the log
+     * @param segmentBytes size at which a new segment file is started
+     * @throws IOException if the log cannot be opened or is corrupt
+     */
+    public WriteAheadLog(Path dir, long segmentBytes) throws IOException {
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("segmentBytes must be positive");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            long end = scan(segments.get(i), last);
+            if (last) {
+                channel = FileChannel.open(segments.get(i), StandardOpenOption.WRITE);
+                if (channel.size() > end) {
+                    channel.truncate(end);
+                    channel.force(true);
+                }
+                channel.position(end);
+                channelSize = end;
+                // the newest segment may be empty (e.g. the older ones were compacted away);
+                // its name still tells which LSN comes next
+                lastLsn = Math.max(lastLsn, firstLsnOf(segments.get(i)) - 1);
+            }
+        }
+        durableLsn = lastLsn;
+    }
+
+    /**
+     * Appends an event to the write buffer.
+     *
+     * @param event the event
+     * @return the LSN of the event
+     * @throws UncheckedIOException  if an earlier write failed
+     * @throws IllegalStateException if the log is closed
+     */
+    @Override
+    public long append(DomainEvent event) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        try {
+            event.writeTo(new DataOutputStream(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = payload.toByteArray();
+
+        synchronized (lock) {
+            checkUsable();
+            long lsn = ++lastLsn;
+            writeRecord(pending, lsn, bytes);
+            return lsn;
+        }
+    }
+
+    /**
+     * Waits until an event is on disk, flushing the buffer if no other caller does.
+     *
+     * @param lsn the LSN returned by {@link #append(DomainEvent)}
+     * @throws UncheckedIOException if writing the log fails
+     */
+    @Override
+    public void sync(long lsn) {
+        while (true) {
+            byte[] batch;
+            long firstLsn;
+            long batchLsn;
+            synchronized (lock) {
+                while (flushing && durableLsn < lsn) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted while waiting for the log", e);
+                    }
+                }
+                if (durableLsn >= lsn) return;
+                checkUsable();
+                flushing = true;
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream();
+                firstLsn = durableLsn + 1;
+                batchLsn = lastLsn;
+            }
+
+            IOException error = null;
+            try {
+                write(batch, firstLsn);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            synchronized (lock) {
+                flushing = false;
+                if (error == null) {
+                    durableLsn = batchLsn;
+                    flushes++;
+                } else {
+                    failure = error;
+                }
+                lock.notifyAll();
+            }
+            if (error != null) throw new UncheckedIOException("could not write the log", error);
+        }
+    }
+
+    /**
+     * Appends an event and waits until it is on disk.
+     *
+     * @param event the event
+     * @return the LSN of the event
+     */
+    public long appendAndSync(DomainEvent event) {
+        long lsn = append(event);
+        sync(lsn);
+        return lsn;
+    }
+
+    /**
+     * Reads the durable events in LSN order.
+     *
+     * @param afterLsn only events with a larger LSN are passed on
+     * @param consumer receives each event with its LSN
+     * @throws IOException if a segment cannot be read, or the events right
+     *                     after afterLsn were already deleted
+     */
+    public void replay(long afterLsn, ObjLongConsumer<DomainEvent> consumer) throws IOException {
+        List<Path> segments;
+        long upTo;
+        synchronized (lock) {
+            segments = segments();
+            upTo = durableLsn;
+        }
+        if (!segments.isEmpty() && firstLsnOf(segments.get(0)) > afterLsn + 1) {
+            throw new IOException("log starts at LSN " + firstLsnOf(segments.get(0))
+                    + ", events after " + afterLsn + " are missing");
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            // a segment ends before the next one starts
+            if (i + 1 < segments.size() && firstLsnOf(segments.get(i + 1)) <= afterLsn + 1) continue;
+            scanForReplay(segments.get(i), afterLsn, upTo, consumer);
+        }
+    }
+
+    /**
+     * Deletes the segments whose events all have an LSN up to the given one,
+     * e.g. after a snapshot made them unnecessary. The current segment is kept.
+     *
+     * @param lsn LSN covered by a durable snapshot
+     * @return number of deleted segment files
+     * @throws IOException if a file cannot be deleted
+     */
+    public int deleteSegmentsThrough(long lsn) throws IOException {
+        synchronized (lock) {
+            List<Path> segments = segments();
+            int deleted = 0;
+            // a segment ends right before the next one starts
+            for (int i = 0; i + 1 < segments.size() && firstLsnOf(segments.get(i + 1)) <= lsn + 1; i++) {
+                Files.delete(segments.get(i));
+                deleted++;
+            }
+            return deleted;
+        }
+    }
+
+    /**
+     * Makes sure the next appended event gets an LSN after the given one, e.g. the
+     * LSN of a snapshot loaded at startup. If the log ends before that LSN, its
+     * segments only hold events the snapshot covers; they are deleted and the next
+     * event starts a new segment.
+     *
+     * @param lsn the LSN the log must not hand out again
+     * @throws IOException           if a segment cannot be deleted
+     * @throws IllegalStateException if events are waiting to be written
+     */
+    public void advanceTo(long lsn) throws IOException {
+        synchronized (lock) {
+            checkUsable();
+            if (lsn <= lastLsn) return;
+            if (flushing || durableLsn != lastLsn) {
+                throw new IllegalStateException("cannot advance a log with unwritten events");
+            }
+            if (channel != null) {
+                channel.close();
+                channel = null;
+                channelSize = 0;
+            }
+            for (Path segment : segments()) {
+                Files.delete(segment);
+            }
+            forceDirectory(dir);
+            lastLsn = lsn;
+            durableLsn = lsn;
+        }
+    }
+
+    /** @return the LSN of the last appended event, or 0 if the log is empty */
+    public long getLastLsn() {
+        synchronized (lock) {
+            return lastLsn;
+        }
+    }
+
+    /** @return the LSN up to which all events are on disk */
+    public long getDurableLsn() {
+        synchronized (lock) {
+            return durableLsn;
+        }
+    }
+
+    /** @return number of batched writes (each followed by one force) so far */
+    long getFlushCount() {
+        synchronized (lock) {
+            return flushes;
+        }
+    }
+
+    /** @return the directory of the log */
+    public Path getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Flushes the buffered events and closes the log.
+     *
+     * @throws IOException if the final write fails
+     */
+    @Override
+    public void close() throws IOException {
+        long lsn;
+        boolean failed;
+        synchronized (lock) {
+            if (closed) return;
+            lsn = lastLsn;
+            failed = failure != null;
+        }
+        try {
+            if (!failed) sync(lsn);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                if (channel != null) channel.close();
+            }
+        }
+    }
+
+    // ===== file layout =====
+
+    /** @return the segment files, oldest first */
+    List<Path> segments() throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path p : files) result.add(p);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    static long firstLsnOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private Path segmentPath(long firstLsn) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, firstLsn, SUFFIX));
+    }
+
+    // called by the flushing leader only
+    private void write(byte[] batch, long firstLsn) throws IOException {
+        if (batch.length == 0) return;
+        if (channel == null || channelSize >= segmentBytes) {
+            if (channel != null) channel.close();
+            channel = FileChannel.open(segmentPath(firstLsn),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            channelSize = channel.size();
+            forceDirectory(dir);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        channelSize += batch.length;
+    }
+
+    // makes new, renamed or deleted entries of a directory durable; not supported on every platform
+    static void forceDirectory(Path dir) {
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException e) {
+            // the file data is still forced; only the directory entry may be lost on some systems
+        }
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, long lsn, byte[] payload) {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(payload.length);
+        header.putInt(0);
+        header.putLong(lsn);
+        crc.update(header.array(), 8, 8);
+        crc.update(payload, 0, payload.length);
+        header.putInt(4, (int) crc.getValue());
+        out.write(header.array(), 0, HEADER_BYTES);
+        out.write(payload, 0, payload.length);
+    }
+
+    /**
+     * Checks the records of a segment and advances lastLsn.
+     *
+     * @param last true for the newest segment, where a broken tail is allowed
+     * @return the offset after the last valid record
+     */
+    private long scan(Path segment, boolean last) throws IOException {
+        byte[] data = Files.readAllBytes(segment);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long expected = firstLsnOf(segment);
+        if (lastLsn > 0 && expected != lastLsn + 1) {
+            throw new IOException("gap in the log before " + segment.getFileName());
+        }
+        while (buffer.remaining() > 0) {
+            int start = buffer.position();
+            if (readRecord(buffer, expected) == null) {
+                if (last) return start;
+                throw new IOException("corrupt record in " + segment.getFileName() + " at offset " + start);
+            }
+            lastLsn = expected++;
+        }
+        return data.length;
+    }
+
+    private void scanForReplay(Path segment, long afterLsn, long upTo, ObjLongConsumer<DomainEvent> consumer)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        long lsn = firstLsnOf(segment);
+        while (buffer.remaining() > 0 && lsn <= upTo) {
+            DomainEvent event = readRecord(buffer, lsn);
+            if (event == null) throw new IOException("corrupt record in " + segment.getFileName());
+            if (lsn > afterLsn) consumer.accept(event, lsn);
+            lsn++;
+        }
+    }
+
+    /** @return the event of the record at the buffer position, or null if it is incomplete or corrupt */
+    private static DomainEvent readRecord(ByteBuffer buffer, long expectedLsn) {
+        if (buffer.remaining() < HEADER_BYTES) return null;
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int storedCrc = buffer.getInt();
+        long lsn = buffer.getLong();
+        if (length < 0 || length > buffer.remaining() || lsn != expectedLsn) return null;
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start + 8, 8 + length);
+        if ((int) crc.getValue() != storedCrc) return null;
+        try {
+            DomainEvent event = DomainEvent.readFrom(new DataInputStream(
+                    new ByteArrayInputStream(buffer.array(), buffer.position(), length)));
+            buffer.position(buffer.position() + length);
+            return event;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void checkUsable() {
+        if (closed) throw new IllegalStateException("log is closed");
+        if (failure != null) throw new UncheckedIOException("log failed earlier", failure);
+    }
+}
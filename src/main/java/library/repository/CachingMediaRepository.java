@@ -0,0 +1,400 @@
+package library.repository;
+
+import library.domain.media.Book;
+import library.domain.media.Isbn;
+import library.domain.media.Media;
+import library.domain.media.SearchKey;
+import library.dto.MediaFilter;
+import library.dto.SearchPage;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * MediaRepository decorator that caches search results.
+ * <p>
+ * Behavior:
+ * <ul>
+ *     <li>Caches {@code search}, {@code searchPage}, {@code searchByTitle},
+ *     {@code searchByAuthor} and {@code findByIsbn}, keyed by the normalized query
+ *     (and the filter, for filtered searches).</li>
+ *     <li>Bounded by size (least recently used entry is evicted first)
+ *     and by time (entries expire a fixed time after they were stored).</li>
+ *     <li>On {@code save}, only the entries whose query matches the new item,
+ *     or the item it replaces, are dropped.</li>
+ *     <li>Entries whose result depends on availability (searches filtered by
+ *     availability) are dropped when the availability of a matching item changes.
+ *     The cache listens to every item saved through it (and to the items already
+ *     in the delegate). These entries are also kept in their own index, and while
+ *     there are none, an availability change costs one volatile read: no lock, no scan.</li>
+ *     <li>Hit, miss, eviction and invalidation counters are available.</li>
+ * </ul>
+ * Cached results hold the live media objects, so their availability is always current.
+ * The items only reference the cache weakly, so a dropped cache can be garbage collected.
+ * All other calls go straight to the delegate. Thread-safe if the delegate is.
+ */
+public class CachingMediaRepository implements MediaRepository {
+
+    private final MediaRepository delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    // query key -> cached result; access order, so the first entry is the least recently used
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // query key -> cached result that depends on availability (also in cache)
+    private final Map<String, Entry> availabilityEntries = new HashMap<>();
+
+    // availability-dependent loads that are running now
+    private int availabilityLoads;
+
+    // availabilityEntries.size() + availabilityLoads, read without the lock by the listener
+    private volatile int availabilityWatchers;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    // number of saves and availability changes seen, to detect races with loading
+    private long saves;
+    private long availabilityChanges;
+
+    private final Media.AvailabilityListener availabilityListener = new WeakListener(this);
+
+    /**
+     * Creates a caching repository.
+     *
+     * @param delegate   the repository that holds the media
+     * @param maxEntries maximum number of cached queries
+     * @param ttl        how long a cached result stays valid
+     * @param unit       time unit of ttl
+     */
+    public CachingMediaRepository(MediaRepository delegate, int maxEntries, long ttl, TimeUnit unit) {
+        this(delegate, maxEntries, unit.toNanos(ttl), System::nanoTime);
+    }
+
+    // lets tests control the clock
+    CachingMediaRepository(MediaRepository delegate, int maxEntries, long ttlNanos, LongSupplier nanoTime) {
+        if (maxEntries <= 0 || ttlNanos <= 0) {
+            throw new IllegalArgumentException("maxEntries and ttl must be positive");
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.nanoTime = nanoTime;
+
+        for (Media m : delegate.findAll()) {
+            m.addAvailabilityListener(availabilityListener);
+        }
+    }
+
+    /**
+     * Saves the item in the delegate and drops the cached queries it affects.
+     *
+     * @param media the media object to store
+     */
+    @Override
+    public void save(Media media) {
+        Media previous = delegate.findById(media.getId()).orElse(null);
+        delegate.save(media);
+
+        if (previous != media) {
+            media.addAvailabilityListener(availabilityListener);
+            if (previous != null) previous.removeAvailabilityListener(availabilityListener);
+        }
+        invalidateMatching(media, previous);
+    }
+
+    @Override
+    public Optional<Media> findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Media> findByNumber(long number) {
+        return delegate.findByNumber(number);
+    }
+
+    @Override
+    public Map<String, Media> findAllById(Collection<String> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<Media> search(String q) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        List<Media> result = cached("search|" + nq, m -> m.matches(nq), false,
+                () -> delegate.search(nq));
+        return new ArrayList<>(result);
+    }
+
+    @Override
+    public SearchPage searchPage(String q, int offset, int limit) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        return cached("page|" + offset + "|" + limit + "|" + nq, m -> m.matches(nq), false,
+                () -> delegate.searchPage(nq, offset, limit));
+    }
+
+    @Override
+    public List<Media> search(String q, MediaFilter filter) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        List<Media> result = cached("search|" + filter + "|" + nq,
+                m -> filter.acceptsType(m) && m.matches(nq), filter.dependsOnAvailability(),
+                () -> delegate.search(nq, filter));
+        return new ArrayList<>(result);
+    }
+
+    @Override
+    public SearchPage searchPage(String q, MediaFilter filter, int offset, int limit) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        return cached("page|" + filter + "|" + offset + "|" + limit + "|" + nq,
+                m -> filter.acceptsType(m) && m.matches(nq), filter.dependsOnAvailability(),
+                () -> delegate.searchPage(nq, filter, offset, limit));
+    }
+
+    @Override
+    public List<Media> searchByTitle(String title) {
+        String nq = title == null ? "" : SearchKey.normalize(title);
+        List<Media> result = cached("title|" + nq,
+                m -> m.getTitleKey() != null && m.getTitleKey().contains(nq), false,
+                () -> delegate.searchByTitle(nq));
+        return new ArrayList<>(result);
+    }
+
+    @Override
+    public List<Media> searchByAuthor(String author) {
+        String nq = author == null ? "" : SearchKey.normalize(author);
+        List<Media> result = cached("author|" + nq, m -> MediaRepository.creatorMatches(m, nq), false,
+                () -> delegate.searchByAuthor(nq));
+        return new ArrayList<>(result);
+    }
+
+    @Override
+    public List<Book> findByIsbn(String isbn) {
+        String key = Isbn.canonical(isbn);
+        if (key == null) return new ArrayList<>();
+        List<Book> result = cached("isbn|" + key,
+                m -> m instanceof Book && key.equals(((Book) m).getCanonicalIsbn()), false,
+                () -> delegate.findByIsbn(key));
+        return new ArrayList<>(result);
+    }
+
+    @Override
+    public Map<String, List<Book>> findAllByIsbn(Collection<String> isbns) {
+        return delegate.findAllByIsbn(isbns);
+    }
+
+    @Override
+    public List<String> autocomplete(String prefix, int k) {
+        return delegate.autocomplete(prefix, k);
+    }
+
+    @Override
+    public List<Media> searchFuzzy(String q, int maxDistance) {
+        return delegate.searchFuzzy(q, maxDistance);
+    }
+
+    @Override
+    public List<Media> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public synchronized void invalidateAll() {
+        invalidations += cache.size();
+        cache.clear();
+        availabilityEntries.clear();
+        updateWatchers();
+    }
+
+    /** @return number of calls answered from the cache */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** @return number of calls that went to the delegate */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /** @return number of entries dropped because the cache was full */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /** @return number of entries dropped because of a save or availability change */
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /** @return number of cached queries */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the cached result for a key, or loads and caches it.
+     * The delegate is called outside the lock, so a slow query does not block other callers.
+     *
+     * @param key                  the query key
+     * @param affects              which items can change this result
+     * @param availabilityMatters  true if the result depends on availability
+     * @param loader               loads the result from the delegate
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Predicate<Media> affects, boolean availabilityMatters, Supplier<T> loader) {
+        long savesBefore;
+        long changesBefore;
+        synchronized (this) {
+            Entry e = cache.get(key);
+            if (e != null && nanoTime.getAsLong() - e.storedAt < ttlNanos) {
+                hits++;
+                return (T) e.value;
+            }
+            if (e != null) {
+                cache.remove(key);
+                forget(key, e);
+            }
+            misses++;
+            savesBefore = saves;
+            changesBefore = availabilityChanges;
+            // counted before loading, so a change made while loading is not skipped
+            if (availabilityMatters) {
+                availabilityLoads++;
+                updateWatchers();
+            }
+        }
+
+        T value;
+        try {
+            value = loader.get();
+        } finally {
+            if (availabilityMatters) {
+                synchronized (this) {
+                    availabilityLoads--;
+                    updateWatchers();
+                }
+            }
+        }
+
+        synchronized (this) {
+            // a write while loading may have made the value stale; don't cache it then
+            boolean stale = saves != savesBefore
+                    || (availabilityMatters && availabilityChanges != changesBefore);
+            if (!stale) {
+                Entry entry = new Entry(value, affects, availabilityMatters, nanoTime.getAsLong());
+                Entry replaced = cache.put(key, entry);
+                if (replaced != null) forget(key, replaced);
+                if (availabilityMatters) availabilityEntries.put(key, entry);
+                evictOverflow();
+                updateWatchers();
+            }
+        }
+        return value;
+    }
+
+    private synchronized void invalidateMatching(Media media, Media previous) {
+        saves++;
+        Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (e.getValue().affects.test(media) || (previous != null && e.getValue().affects.test(previous))) {
+                it.remove();
+                forget(e.getKey(), e.getValue());
+                invalidations++;
+            }
+        }
+        updateWatchers();
+    }
+
+    private void availabilityChanged(Media media) {
+        // nothing cached or loading depends on availability: skip the lock
+        if (availabilityWatchers == 0) return;
+        synchronized (this) {
+            availabilityChanges++;
+            Iterator<Map.Entry<String, Entry>> it = availabilityEntries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                if (e.getValue().affects.test(media)) {
+                    it.remove();
+                    cache.remove(e.getKey());
+                    invalidations++;
+                }
+            }
+            updateWatchers();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+        while (cache.size() > maxEntries && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            it.remove();
+            forget(e.getKey(), e.getValue());
+            evictions++;
+        }
+    }
+
+    // removes a dropped entry from the availability index
+    private void forget(String key, Entry e) {
+        if (e.availabilityMatters) availabilityEntries.remove(key, e);
+    }
+
+    private void updateWatchers() {
+        availabilityWatchers = availabilityEntries.size() + availabilityLoads;
+    }
+
+    /**
+     * Availability listener that holds the cache weakly. Items outlive a dropped
+     * cache; once the cache is collected, the listener removes itself on the next change.
+     */
+    private static final class WeakListener implements Media.AvailabilityListener {
+        private final WeakReference<CachingMediaRepository> cache;
+
+        WeakListener(CachingMediaRepository cache) {
+            this.cache = new WeakReference<>(cache);
+        }
+
+        @Override
+        public void availabilityChanged(Media media, boolean available) {
+            CachingMediaRepository c = cache.get();
+            if (c == null) {
+                media.removeAvailabilityListener(this);
+                return;
+            }
+            c.availabilityChanged(media);
+        }
+    }
+
+    /**
+     * One cached result with what it depends on.
+     */
+    private static final class Entry {
+        final Object value;
+        final Predicate<Media> affects;
+        final boolean availabilityMatters;
+        final long storedAt;
+
+        Entry(Object value, Predicate<Media> affects, boolean availabilityMatters, long storedAt) {
+            this.value = value;
+            this.affects = affects;
+            this.availabilityMatters = availabilityMatters;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package library.repository;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Isbn;
+import library.domain.media.Media;
+import library.domain.media.SearchKey;
+import library.dto.MediaFilter;
+import library.dto.SearchPage;
+import library.search.TopKCollector;
+
+import java.io.Closeable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * MediaRepository that stores the catalogue in columns instead of one object per item.
+ * <ul>
+ *     <li>Ids, titles, authors/artists and ISBNs are dictionary-encoded in
+ *     {@link OffHeapStringPool}s, so their characters live outside the heap and
+ *     each distinct value is stored once. Each item only has an int code per field.</li>
+ *     <li>The media type is a byte per item and availability is a {@link BitSet}.</li>
+ *     <li>Search checks each distinct value of a pool once and then combines the
+ *     codes per item; no Media object is needed to find the matches.</li>
+ *     <li>Media objects are built only when a caller asks for an item, and cached
+ *     through weak references: while a caller holds one, the same instance is
+ *     returned, and once it is dropped the garbage collector can reclaim it.</li>
+ * </ul>
+ * The repository listens to the availability of the instances it hands out and
+ * keeps the bitset current. Only {@link Book} and {@link CD} can be stored.
+ * <p>
+ * Saves must not run concurrently with other calls. Lookups, searches and
+ * availability changes may run from many threads (borrowing reserves items
+ * concurrently): each position gets its instance atomically, and the availability
+ * bits are guarded by a lock and read from the item itself, so change events that
+ * arrive out of order still leave the current state. {@link #close()} frees the off-heap memory; the
+ * repository must not be used afterwards.
+ */
+public class ColumnarMediaRepository implements MediaRepository, Closeable {
+
+    private static final byte BOOK = 0;
+    private static final byte CD_TYPE = 1;
+    private static final String[] TYPE_NAMES = {"BOOK", "CD"};
+    private static final int NONE = -1;
+
+    private final OffHeapStringPool ids = new OffHeapStringPool();
+    private final OffHeapStringPool titles = new OffHeapStringPool();
+    // authors of books and artists of CDs
+    private final OffHeapStringPool people = new OffHeapStringPool();
+    private final OffHeapStringPool isbns = new OffHeapStringPool();
+
+    // columns, indexed by position in insertion order; NONE means no value
+    private int[] idCodes = new int[16];
+    private int[] titleCodes = new int[16];
+    private int[] personCodes = new int[16];
+    private int[] isbnCodes = new int[16];
+    private byte[] types = new byte[16];
+    private int size;
+
+    // positions whose item is available now; guarded by availableLock
+    private final BitSet available = new BitSet();
+    private final Object availableLock = new Object();
+
+    // id code -> position
+    private int[] positionByIdCode = new int[16];
+
+    // position -> media instance handed out and still reachable
+    private final ConcurrentMap<Integer, View> views = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Media> collected = new ReferenceQueue<>();
+
+    private final Media.AvailabilityListener availabilityListener = this::availabilityChanged;
+
+    /**
+     * Saves a media item to the columns.
+     * Saving an item with an id that is already stored replaces it in place.
+     * The saved instance is the one returned by later lookups while it is reachable.
+     *
+     * @param media the book or CD to store
+     * @throws IllegalArgumentException if the media is neither a book nor a CD
+     */
+    @Override
+    public void save(Media media) {
+        if (!(media instanceof Book) && !(media instanceof CD)) {
+            throw new IllegalArgumentException("Unsupported media type: " + media.getMediaType());
+        }
+        int known = ids.size();
+        int idCode = ids.intern(media.getId());
+        int pos;
+        if (idCode < known) {
+            pos = positionByIdCode[idCode];
+        } else {
+            if (idCode == positionByIdCode.length) {
+                positionByIdCode = Arrays.copyOf(positionByIdCode, idCode * 2);
+            }
+            pos = size++;
+            if (pos == idCodes.length) grow();
+            positionByIdCode[idCode] = pos;
+            idCodes[pos] = idCode;
+        }
+        write(pos, media);
+        expungeCollected();
+        View previous = views.put(pos, new View(media, pos, collected));
+        Media old = previous == null ? null : previous.get();
+        if (old != media) {
+            if (old != null) old.removeAvailabilityListener(availabilityListener);
+            media.addAvailabilityListener(availabilityListener);
+        }
+    }
+
+    /**
+     * Finds a media item by its id through the id dictionary.
+     *
+     * @param id the media id
+     * @return Optional containing the media if found, otherwise empty
+     */
+    @Override
+    public Optional<Media> findById(String id) {
+        int idCode = ids.find(id);
+        return idCode < 0 ? Optional.empty() : Optional.of(view(positionByIdCode[idCode]));
+    }
+
+    /**
+     * Searches media by title, author, artist, ISBN, or id.
+     * The search ignores case and accents.
+     *
+     * @param q the search query
+     * @return list of matching media items, in insertion order
+     */
+    @Override
+    public List<Media> search(String q) {
+        return search(q, MediaFilter.ANY);
+    }
+
+    /**
+     * Filtered search over the columns; only the matches are built as Media.
+     *
+     * @param q      the search query (an empty query matches every item)
+     * @param filter the media type and availability to keep
+     * @return matching media items, in insertion order
+     */
+    @Override
+    public List<Media> search(String q, MediaFilter filter) {
+        BitSet docs = matching(q == null ? "" : SearchKey.normalize(q), filter);
+        List<Media> result = new ArrayList<>(docs.cardinality());
+        for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+            result.add(view(doc));
+        }
+        return result;
+    }
+
+    /**
+     * Ranked, paginated search; only the matches are built as Media for scoring.
+     *
+     * @param q      the search query
+     * @param offset number of best matches to skip
+     * @param limit  maximum number of items in the page
+     * @return the page, best match first, with the total number of matches
+     */
+    @Override
+    public SearchPage searchPage(String q, int offset, int limit) {
+        return searchPage(q, MediaFilter.ANY, offset, limit);
+    }
+
+    /**
+     * Ranked, paginated search over the items accepted by the filter.
+     *
+     * @param q      the search query (an empty query matches every item)
+     * @param filter the media type and availability to keep
+     * @param offset number of best matches to skip
+     * @param limit  maximum number of items in the page
+     * @return the page, best match first, with the total number of filtered matches
+     */
+    @Override
+    public SearchPage searchPage(String q, MediaFilter filter, int offset, int limit) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        TopKCollector top = new TopKCollector(offset, limit);
+        BitSet docs = matching(nq, filter);
+        for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+            top.offer(view(doc), doc, nq);
+        }
+        return top.toPage();
+    }
+
+    /**
+     * Finds the books with an ISBN by comparing each distinct ISBN of the pool once.
+     *
+     * @param isbn the ISBN to look up, in any form
+     * @return the books with that ISBN in insertion order, or an empty list
+     */
+    @Override
+    public List<Book> findByIsbn(String isbn) {
+        List<Book> result = new ArrayList<>();
+        String key = Isbn.canonical(isbn);
+        if (key == null) return result;
+
+        BitSet codes = new BitSet(isbns.size());
+        for (int code = 0; code < isbns.size(); code++) {
+            if (key.equals(Isbn.canonical(isbns.get(code)))) codes.set(code);
+        }
+        if (codes.isEmpty()) return result;
+        for (int doc = 0; doc < size; doc++) {
+            if (isbnCodes[doc] != NONE && codes.get(isbnCodes[doc])) result.add((Book) view(doc));
+        }
+        return result;
+    }
+
+    /**
+     * Returns all stored media items in insertion order; every item is built as Media.
+     *
+     * @return list of all media
+     */
+    @Override
+    public List<Media> findAll() {
+        List<Media> result = new ArrayList<>(size);
+        for (int doc = 0; doc < size; doc++) {
+            result.add(view(doc));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of stored items without building any of them.
+     *
+     * @return number of items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes the string pools use outside the heap.
+     *
+     * @return off-heap bytes of all pools
+     */
+    public long getOffHeapBytes() {
+        return ids.offHeapBytes() + titles.offHeapBytes() + people.offHeapBytes() + isbns.offHeapBytes();
+    }
+
+    /**
+     * Frees the off-heap memory of the string pools now instead of when they are
+     * garbage collected. Must not run concurrently with other calls; the
+     * repository cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        ids.release();
+        titles.release();
+        people.release();
+        isbns.release();
+    }
+
+    // positions that match the query and the filter
+    private BitSet matching(String nq, MediaFilter filter) {
+        BitSet titleHits = titles.codesContaining(nq);
+        BitSet personHits = people.codesContaining(nq);
+        BitSet isbnHits = isbns.codesContaining(nq);
+        BitSet idHits = ids.codesContaining(nq);
+        String type = filter == null ? null : filter.getMediaType();
+        Boolean wantAvailable = filter == null ? null : filter.getAvailable();
+
+        BitSet availableNow = null;
+        if (wantAvailable != null) {
+            synchronized (availableLock) {
+                availableNow = (BitSet) available.clone();
+            }
+        }
+
+        BitSet result = new BitSet(size);
+        for (int doc = 0; doc < size; doc++) {
+            if (type != null && !type.equals(TYPE_NAMES[types[doc]])) continue;
+            if (availableNow != null && availableNow.get(doc) != wantAvailable) continue;
+            if (hit(titleHits, titleCodes[doc]) || hit(personHits, personCodes[doc])
+                    || hit(isbnHits, isbnCodes[doc]) || idHits.get(idCodes[doc])) {
+                result.set(doc);
+            }
+        }
+        return result;
+    }
+
+    private static boolean hit(BitSet codes, int code) {
+        return code != NONE && codes.get(code);
+    }
+
+    private void write(int pos, Media media) {
+        titleCodes[pos] = codeOf(titles, media.getTitle());
+        if (media instanceof Book) {
+            Book book = (Book) media;
+            types[pos] = BOOK;
+            personCodes[pos] = codeOf(people, book.getAuthor());
+            isbnCodes[pos] = codeOf(isbns, book.getIsbn());
+        } else {
+            types[pos] = CD_TYPE;
+            personCodes[pos] = codeOf(people, ((CD) media).getArtist());
+            isbnCodes[pos] = NONE;
+        }
+        synchronized (availableLock) {
+            available.set(pos, media.isAvailable());
+        }
+    }
+
+    private static int codeOf(OffHeapStringPool pool, String value) {
+        return value == null ? NONE : pool.intern(value);
+    }
+
+    private static String valueOf(OffHeapStringPool pool, int code) {
+        return code == NONE ? null : pool.get(code);
+    }
+
+    // the live instance of a position, or a new one built from the columns;
+    // concurrent callers for the same position get the same instance
+    private Media view(int pos) {
+        View ref = views.get(pos);
+        Media media = ref == null ? null : ref.get();
+        if (media != null) return media;
+
+        expungeCollected();
+        Media[] result = new Media[1];
+        views.compute(pos, (key, current) -> {
+            Media live = current == null ? null : current.get();
+            if (live != null) {
+                result[0] = live;
+                return current;
+            }
+            result[0] = build(pos);
+            return new View(result[0], pos, collected);
+        });
+        return result[0];
+    }
+
+    private Media build(int pos) {
+        String id = ids.get(idCodes[pos]);
+        String title = valueOf(titles, titleCodes[pos]);
+        Media media = types[pos] == BOOK
+                ? new Book(id, title, valueOf(people, personCodes[pos]), valueOf(isbns, isbnCodes[pos]))
+                : new CD(id, title, valueOf(people, personCodes[pos]));
+        synchronized (availableLock) {
+            media.setAvailable(available.get(pos));
+        }
+        media.addAvailabilityListener(availabilityListener);
+        return media;
+    }
+
+    // the event's value may be stale when two changes race, so the bit is read from the item
+    private void availabilityChanged(Media media, boolean isAvailable) {
+        int idCode = ids.find(media.getId());
+        if (idCode < 0) return;
+        int pos = positionByIdCode[idCode];
+        View ref = views.get(pos);
+        if (ref == null || ref.get() != media) return;
+        synchronized (availableLock) {
+            available.set(pos, media.isAvailable());
+        }
+    }
+
+    // drops the cache entries whose instance was garbage collected
+    private void expungeCollected() {
+        View ref;
+        while ((ref = (View) collected.poll()) != null) {
+            views.remove(ref.pos, ref);
+        }
+    }
+
+    private void grow() {
+        int capacity = idCodes.length * 2;
+        idCodes = Arrays.copyOf(idCodes, capacity);
+        titleCodes = Arrays.copyOf(titleCodes, capacity);
+        personCodes = Arrays.copyOf(personCodes, capacity);
+        isbnCodes = Arrays.copyOf(isbnCodes, capacity);
+        types = Arrays.copyOf(types, capacity);
+    }
+
+    /**
+     * Weak reference to a media instance that remembers its position.
+     */
+    private static final class View extends WeakReference<Media> {
+
+        private final int pos;
+
+        View(Media media, int pos, ReferenceQueue<Media> queue) {
+            super(media, queue);
+            this.pos = pos;
+        }
+    }
+}
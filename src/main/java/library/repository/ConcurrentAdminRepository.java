@@ -0,0 +1,38 @@
+package library.repository;
+
+import library.domain.Admin;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe in-memory implementation of the AdminRepository.
+ * Admins are kept in a concurrent map keyed by username.
+ */
+public class ConcurrentAdminRepository implements AdminRepository {
+
+    private final ConcurrentMap<String, Admin> admins = new ConcurrentHashMap<>();
+
+    /**
+     * Saves the admin. Like the list-based repository,
+     * the first admin saved with a username is the one that is found.
+     *
+     * @param admin the admin to save
+     */
+    @Override
+    public void save(Admin admin) {
+        admins.putIfAbsent(admin.getUsername(), admin);
+    }
+
+    /**
+     * Finds an admin by username.
+     *
+     * @param username the username to look for
+     * @return Optional containing the admin if found, otherwise empty
+     */
+    @Override
+    public Optional<Admin> findByUsername(String username) {
+        return username == null ? Optional.empty() : Optional.ofNullable(admins.get(username));
+    }
+}
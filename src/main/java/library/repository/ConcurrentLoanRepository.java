@@ -0,0 +1,287 @@
+package library.repository;
+
+import library.domain.Ids;
+import library.domain.Loan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe in-memory implementation of the LoanRepository.
+ * <p>
+ * Keeps the same indexes as {@link DueDateIndexedLoanRepository} (user, active loans,
+ * due date), but built on concurrent maps. Per-user lists are only changed inside
+ * {@link ConcurrentHashMap#compute}, which locks a single bin of the map, so parallel
+ * borrow/return traffic for different users never waits on a global lock.
+ * {@link #markReturned(Loan, LocalDate)} lets exactly one caller return a loan.
+ * <p>
+ * Loans and users are keyed by the number of their generated ids ("L1", "U1"),
+ * boxed as a Long, so no id string is built per call; ids without a number
+ * fall back to the string itself.
+ */
+public class ConcurrentLoanRepository implements LoanRepository {
+
+    // low bits of a due-index key hold the insertion sequence
+    private static final int SEQ_BITS = 40;
+
+    private final AtomicLong insertSeq = new AtomicLong();
+
+    // loan key -> insertion sequence
+    private final ConcurrentMap<Object, Long> seqById = new ConcurrentHashMap<>();
+
+    // insertion sequence -> loan
+    private final ConcurrentSkipListMap<Long, Loan> loans = new ConcurrentSkipListMap<>();
+
+    // insertion sequence -> active loan
+    private final ConcurrentSkipListMap<Long, Loan> activeLoans = new ConcurrentSkipListMap<>();
+
+    // (due epoch day, insertion sequence) -> active loan
+    private final ConcurrentSkipListMap<Long, Loan> activeByDueDay = new ConcurrentSkipListMap<>();
+
+    // user key -> loans of that user
+    private final ConcurrentMap<Object, List<Loan>> loansByUser = new ConcurrentHashMap<>();
+
+    // user key -> active loans of that user
+    private final ConcurrentMap<Object, List<Loan>> activeByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Saves a loan and adds it to the indexes.
+     * Saving a loan with an id that is already stored replaces it.
+     *
+     * @param loan the loan to store
+     */
+    @Override
+    public void save(Loan loan) {
+        long seq = seqById.computeIfAbsent(loanKey(loan), k -> insertSeq.incrementAndGet());
+        Loan previous = loans.put(seq, loan);
+        if (previous == loan) return;
+
+        if (previous != null) {
+            removeFromIndexes(seq, previous);
+        }
+        addToIndex(loansByUser, loan);
+        if (!loan.isReturned()) {
+            activeLoans.put(seq, loan);
+            activeByDueDay.put(dueKey(loan, seq), loan);
+            addToIndex(activeByUser, loan);
+        }
+    }
+
+    /**
+     * Saves several loans, adding them to each user list in one step.
+     * The loans of a user are appended with a single {@code compute}, so the
+     * copy-on-write list of that user is copied once per batch instead of once per loan.
+     *
+     * @param batch the loans to store
+     */
+    @Override
+    public void saveAll(Collection<Loan> batch) {
+        // user key -> loans of the batch, to be appended to the user indexes
+        Map<Object, List<Loan>> added = new LinkedHashMap<>();
+        Map<Object, List<Loan>> addedActive = new LinkedHashMap<>();
+        for (Loan loan : batch) {
+            long seq = seqById.computeIfAbsent(loanKey(loan), k -> insertSeq.incrementAndGet());
+            Loan previous = loans.put(seq, loan);
+            if (previous == loan) continue;
+
+            if (previous != null) {
+                removeFromIndexes(seq, previous);
+                // a loan replaced within the batch is not in the user indexes yet
+                removePending(added, previous);
+                removePending(addedActive, previous);
+            }
+            Object user = userKey(loan);
+            added.computeIfAbsent(user, k -> new ArrayList<>()).add(loan);
+            if (!loan.isReturned()) {
+                activeLoans.put(seq, loan);
+                activeByDueDay.put(dueKey(loan, seq), loan);
+                addedActive.computeIfAbsent(user, k -> new ArrayList<>()).add(loan);
+            }
+        }
+        addAllToIndex(loansByUser, added);
+        addAllToIndex(activeByUser, addedActive);
+    }
+
+    /**
+     * Finds a loan by its id.
+     *
+     * @param id the loan id
+     * @return Optional containing the loan if found, otherwise empty
+     */
+    @Override
+    public Optional<Loan> findById(String id) {
+        Long seq = seqById.get(key(Ids.numberOf(id, 'L'), id));
+        return seq == null ? Optional.empty() : Optional.ofNullable(loans.get(seq));
+    }
+
+    /**
+     * Returns all loans that belong to a specific user.
+     *
+     * @param userId the user's id
+     * @return list of the user's loans
+     */
+    @Override
+    public List<Loan> findByUserId(String userId) {
+        List<Loan> userLoans = loansByUser.get(key(Ids.numberOf(userId, 'U'), userId));
+        return userLoans == null ? Collections.emptyList() : new ArrayList<>(userLoans);
+    }
+
+    /**
+     * Returns a list of all loans in insertion order.
+     *
+     * @return list of all loans
+     */
+    @Override
+    public List<Loan> findAll() {
+        return new ArrayList<>(loans.values());
+    }
+
+    /**
+     * Returns the active loans in insertion order.
+     *
+     * @return list of active loans
+     */
+    @Override
+    public List<Loan> findActive() {
+        return stillActive(activeLoans.values());
+    }
+
+    /**
+     * Returns the active loans of a user.
+     *
+     * @param userId the user's id
+     * @return list of the user's active loans
+     */
+    @Override
+    public List<Loan> findActiveByUserId(String userId) {
+        List<Loan> userLoans = activeByUser.get(key(Ids.numberOf(userId, 'U'), userId));
+        return userLoans == null ? Collections.emptyList() : stillActive(userLoans);
+    }
+
+    /**
+     * Returns the active loans with a due date before the given date,
+     * ordered by due date.
+     *
+     * @param today the current date
+     * @return list of overdue loans
+     */
+    @Override
+    public List<Loan> findOverdue(LocalDate today) {
+        return stillActive(activeByDueDay.headMap(today.toEpochDay() << SEQ_BITS, false).values());
+    }
+
+    /**
+     * Marks the loan as returned. Removing the loan from the active map is atomic,
+     * so when several threads return the same loan only one of them gets true.
+     *
+     * @param loan         the loan being returned
+     * @param returnedDate the return date
+     * @return true if the loan was active here, false if it was already returned
+     *         or is not stored in this repository
+     */
+    @Override
+    public boolean markReturned(Loan loan, LocalDate returnedDate) {
+        Long seq = seqById.get(loanKey(loan));
+        if (seq == null || !activeLoans.remove(seq, loan)) {
+            // not stored as active here, or already returned by another thread
+            return false;
+        }
+        loan.setReturnedDate(returnedDate);
+        activeByDueDay.remove(dueKey(loan, seq), loan);
+        removeFromIndex(activeByUser, loan);
+        return true;
+    }
+
+    /**
+     * Removes a loan from the repository and from all indexes.
+     *
+     * @param loan the loan to delete
+     */
+    @Override
+    public void delete(Loan loan) {
+        Long seq = seqById.remove(loanKey(loan));
+        if (seq == null) return;
+
+        Loan removed = loans.remove(seq);
+        if (removed != null) {
+            removeFromIndexes(seq, removed);
+        }
+    }
+
+    private void removeFromIndexes(long seq, Loan loan) {
+        removeFromIndex(loansByUser, loan);
+        if (activeLoans.remove(seq, loan)) {
+            activeByDueDay.remove(dueKey(loan, seq), loan);
+            removeFromIndex(activeByUser, loan);
+        }
+    }
+
+    // the number of a generated id, or the id itself when it has no number
+    private static Object key(long number, String id) {
+        return number >= 0 ? (Object) number : id;
+    }
+
+    private static Object loanKey(Loan loan) {
+        return key(loan.getNumber(), loan.getId());
+    }
+
+    // getUserId() builds a string, so it is only called for ids without a number
+    private static Object userKey(Loan loan) {
+        long number = loan.getUserNumber();
+        return number >= 0 ? (Object) number : loan.getUserId();
+    }
+
+    private static long dueKey(Loan loan, long seq) {
+        return (loan.getDueDate().toEpochDay() << SEQ_BITS) | seq;
+    }
+
+    // a loan returned without markReturned is still filtered out here
+    private static List<Loan> stillActive(Collection<Loan> candidates) {
+        List<Loan> result = new ArrayList<>();
+        for (Loan l : candidates) {
+            if (!l.isReturned()) result.add(l);
+        }
+        return result;
+    }
+
+    private static void addToIndex(ConcurrentMap<Object, List<Loan>> index, Loan loan) {
+        index.compute(userKey(loan), (k, list) -> {
+            List<Loan> result = list == null ? new CopyOnWriteArrayList<>() : list;
+            result.add(loan);
+            return result;
+        });
+    }
+
+    private static void addAllToIndex(ConcurrentMap<Object, List<Loan>> index, Map<Object, List<Loan>> byUser) {
+        for (Map.Entry<Object, List<Loan>> e : byUser.entrySet()) {
+            index.compute(e.getKey(), (k, list) -> {
+                if (list == null) return new CopyOnWriteArrayList<>(e.getValue());
+                list.addAll(e.getValue());
+                return list;
+            });
+        }
+    }
+
+    private static void removePending(Map<Object, List<Loan>> byUser, Loan loan) {
+        List<Loan> pending = byUser.get(userKey(loan));
+        if (pending != null) pending.remove(loan);
+    }
+
+    private static void removeFromIndex(ConcurrentMap<Object, List<Loan>> index, Loan loan) {
+        index.computeIfPresent(userKey(loan), (k, list) -> {
+            list.remove(loan);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package library.repository;
+
+import library.domain.media.Media;
+import library.domain.media.SearchKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Thread-safe in-memory implementation of the MediaRepository.
+ * Uses concurrent maps instead of a global lock, so many threads
+ * can save and look up media at the same time.
+ * Items are kept in insertion order for findAll and search.
+ */
+public class ConcurrentMediaRepository implements MediaRepository {
+
+    private final AtomicLong insertSeq = new AtomicLong();
+
+    // media id -> insertion sequence
+    private final ConcurrentMap<String, Long> seqById = new ConcurrentHashMap<>();
+
+    // insertion sequence -> media
+    private final ConcurrentSkipListMap<Long, Media> items = new ConcurrentSkipListMap<>();
+
+    /**
+     * Saves a media item to the repository.
+     * Saving an item with an id that is already stored replaces it in place.
+     *
+     * @param media the media object to store
+     */
+    @Override
+    public void save(Media media) {
+        long seq = seqById.computeIfAbsent(media.getId(), k -> insertSeq.incrementAndGet());
+        items.put(seq, media);
+    }
+
+    /**
+     * Finds a media item by its id.
+     *
+     * @param id the media id
+     * @return Optional containing the media if found, otherwise empty
+     */
+    @Override
+    public Optional<Media> findById(String id) {
+        Long seq = seqById.get(id);
+        return seq == null ? Optional.empty() : Optional.ofNullable(items.get(seq));
+    }
+
+    /**
+     * Searches media by title, author, artist, ISBN, or id.
+     * The search ignores case and accents.
+     *
+     * @param q the search query
+     * @return list of matching media items
+     */
+    @Override
+    public List<Media> search(String q) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+
+        return items.values().stream()
+                .filter(m -> m.matches(nq))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns all stored media items in insertion order.
+     *
+     * @return list of all media
+     */
+    @Override
+    public List<Media> findAll() {
+        return new ArrayList<>(items.values());
+    }
+}
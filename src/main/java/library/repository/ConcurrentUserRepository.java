@@ -0,0 +1,116 @@
+package library.repository;
+
+import library.domain.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe in-memory implementation of the UserRepository.
+ * Users are indexed by id and by email in concurrent maps,
+ * and kept in insertion order for findAll. The email index holds the insertion
+ * sequences of every user with that email, so findByEmail returns the first of
+ * them and delete needs no scan to find the next one.
+ */
+public class ConcurrentUserRepository implements UserRepository {
+
+    private final AtomicLong insertSeq = new AtomicLong();
+
+    // user id -> insertion sequence
+    private final ConcurrentMap<String, Long> seqById = new ConcurrentHashMap<>();
+
+    // insertion sequence -> user
+    private final ConcurrentSkipListMap<Long, User> users = new ConcurrentSkipListMap<>();
+
+    // email -> insertion sequences of the users with that email
+    private final ConcurrentMap<String, ConcurrentSkipListSet<Long>> byEmail = new ConcurrentHashMap<>();
+
+    /**
+     * Saves a user to the repository.
+     * Saving a user with an id that is already stored replaces it in place,
+     * and the email of the replaced user is dropped from the email index.
+     *
+     * @param user the user object to store
+     */
+    @Override
+    public void save(User user) {
+        long seq = seqById.computeIfAbsent(user.getId(), k -> insertSeq.incrementAndGet());
+        User previous = users.put(seq, user);
+        if (previous != null && previous.getEmail() != null && !previous.getEmail().equals(user.getEmail())) {
+            removeEmail(previous.getEmail(), seq);
+        }
+        if (user.getEmail() != null) {
+            byEmail.compute(user.getEmail(), (k, seqs) -> {
+                if (seqs == null) seqs = new ConcurrentSkipListSet<>();
+                seqs.add(seq);
+                return seqs;
+            });
+        }
+    }
+
+    /**
+     * Finds a user by id.
+     *
+     * @param id the user id
+     * @return Optional containing the user if found, otherwise empty
+     */
+    @Override
+    public Optional<User> findById(String id) {
+        Long seq = seqById.get(id);
+        return seq == null ? Optional.empty() : Optional.ofNullable(users.get(seq));
+    }
+
+    /**
+     * Finds a user by email using the email index.
+     *
+     * @param email the email address to search for
+     * @return Optional containing the user if found, otherwise empty
+     */
+    @Override
+    public Optional<User> findByEmail(String email) {
+        ConcurrentSkipListSet<Long> seqs = email == null ? null : byEmail.get(email);
+        // ceiling instead of first(): the set may become empty meanwhile
+        Long seq = seqs == null ? null : seqs.ceiling(Long.MIN_VALUE);
+        return seq == null ? Optional.empty() : Optional.ofNullable(users.get(seq));
+    }
+
+    /**
+     * Returns all users in insertion order.
+     *
+     * @return list of all users
+     */
+    @Override
+    public List<User> findAll() {
+        return new ArrayList<>(users.values());
+    }
+
+    /**
+     * Removes a user from the repository and from the email index.
+     * Another user with the same email stays findable by it.
+     *
+     * @param user the user to delete
+     */
+    @Override
+    public void delete(User user) {
+        Long seq = seqById.remove(user.getId());
+        if (seq == null) return;
+
+        User stored = users.remove(seq);
+        if (stored != null && stored.getEmail() != null) {
+            removeEmail(stored.getEmail(), seq);
+        }
+    }
+
+    private void removeEmail(String email, long seq) {
+        byEmail.computeIfPresent(email, (k, seqs) -> {
+            seqs.remove(seq);
+            return seqs.isEmpty() ? null : seqs;
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package library.repository;
+
+import library.domain.Loan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * LoanRepository that adds a due-date ordered index of active loans
+ * on top of {@link IndexedLoanRepository}.
+ * <p>
+ * Active loans are grouped by the epoch day of their due date in a sorted map,
+ * so the loans overdue on a date are one head-map range read instead of a scan.
+ * The cost of findOverdue grows with the number of overdue loans only.
+ */
+public class DueDateIndexedLoanRepository extends IndexedLoanRepository {
+
+    // due date (epoch day) -> active loans due on that day
+    private final NavigableMap<Long, List<Loan>> activeByDueDay = new TreeMap<>();
+
+    /**
+     * Saves a loan and adds it to the due-date index if it is still active.
+     *
+     * @param loan the loan to store
+     */
+    @Override
+    public void save(Loan loan) {
+        findById(loan.getId()).ifPresent(this::removeFromDueIndex);
+        super.save(loan);
+        if (!loan.isReturned()) {
+            activeByDueDay.computeIfAbsent(loan.getDueDate().toEpochDay(), k -> new ArrayList<>()).add(loan);
+        }
+    }
+
+    /**
+     * Saves several loans through {@link IndexedLoanRepository#saveAll} and adds
+     * the active ones to the due-date index. Consecutive loans due on the same day
+     * (e.g. from a batch borrow) share one lookup of that day's list.
+     *
+     * @param batch the loans to store
+     */
+    @Override
+    public void saveAll(Collection<Loan> batch) {
+        for (Loan loan : batch) {
+            findById(loan.getId()).ifPresent(this::removeFromDueIndex);
+        }
+        super.saveAll(batch);
+
+        long lastDay = 0;
+        List<Loan> dueThatDay = null;
+        for (Loan loan : batch) {
+            // a loan replaced by a later one of the same batch is not stored
+            if (loan.isReturned() || findById(loan.getId()).orElse(null) != loan) continue;
+            long day = loan.getDueDate().toEpochDay();
+            if (dueThatDay == null || day != lastDay) {
+                dueThatDay = activeByDueDay.computeIfAbsent(day, k -> new ArrayList<>());
+                lastDay = day;
+            }
+            dueThatDay.add(loan);
+        }
+    }
+
+    /**
+     * Returns the active loans with a due date before the given date,
+     * ordered by due date.
+     *
+     * @param today the current date
+     * @return list of overdue loans
+     */
+    @Override
+    public List<Loan> findOverdue(LocalDate today) {
+        List<Loan> result = new ArrayList<>();
+        for (List<Loan> dueThatDay : activeByDueDay.headMap(today.toEpochDay(), false).values()) {
+            for (Loan l : dueThatDay) {
+                if (!l.isReturned()) result.add(l);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks the loan as returned and removes it from the due-date index.
+     *
+     * @param loan         the loan being returned
+     * @param returnedDate the return date
+     * @return true if the loan was active, false if it was already returned
+     */
+    @Override
+    public boolean markReturned(Loan loan, LocalDate returnedDate) {
+        if (!super.markReturned(loan, returnedDate)) return false;
+        removeFromDueIndex(loan);
+        return true;
+    }
+
+    /**
+     * Removes a loan from the repository and from the due-date index.
+     *
+     * @param loan the loan to delete
+     */
+    @Override
+    public void delete(Loan loan) {
+        findById(loan.getId()).ifPresent(this::removeFromDueIndex);
+        super.delete(loan);
+    }
+
+    private void removeFromDueIndex(Loan loan) {
+        long day = loan.getDueDate().toEpochDay();
+        List<Loan> dueThatDay = activeByDueDay.get(day);
+        if (dueThatDay == null) return;
+
+        dueThatDay.remove(loan);
+        if (dueThatDay.isEmpty()) {
+            activeByDueDay.remove(day);
+        }
+    }
+}
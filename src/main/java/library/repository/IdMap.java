@@ -0,0 +1,93 @@
+package library.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map keyed by entity id that uses the number of generated ids ("U1", "M1", ...)
+ * instead of the string.
+ * <ul>
+ *     <li>Numbered ids go through a {@link LongIntMap} to a slot of a dense value
+ *     array, so neither a String nor a map entry object is needed per key.</li>
+ *     <li>Ids without a number (see {@link library.domain.Ids#numberOf}) fall back
+ *     to a HashMap keyed by the string.</li>
+ * </ul>
+ * Every method takes the number and the string of the id; the string is only read
+ * when the number is negative, so callers holding a number can pass null.
+ *
+ * @param <V> the type of the values
+ */
+public final class IdMap<V> {
+
+    // number -> slot in numbers and values
+    private final LongIntMap slots = new LongIntMap();
+    private long[] numbers = new long[16];
+    private Object[] values = new Object[16];
+    private int size;
+
+    // values of ids that have no number
+    private final Map<String, V> byText = new HashMap<>();
+
+    /**
+     * Returns the value of an id.
+     *
+     * @param number the number of the id, or -1
+     * @param text   the id, only read when the number is negative
+     * @return the value, or null if the id is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long number, String text) {
+        if (number < 0) return byText.get(text);
+        int slot = slots.get(number);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Stores a value, replacing the value of the id if present.
+     *
+     * @param number the number of the id, or -1
+     * @param text   the id, only read when the number is negative
+     * @param value  the value, not null
+     */
+    public void put(long number, String text, V value) {
+        if (number < 0) {
+            byText.put(text, value);
+            return;
+        }
+        int slot = slots.get(number);
+        if (slot < 0) {
+            slot = size++;
+            if (slot == values.length) {
+                numbers = Arrays.copyOf(numbers, slot * 2);
+                values = Arrays.copyOf(values, slot * 2);
+            }
+            numbers[slot] = number;
+            slots.put(number, slot);
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Removes an id. The last slot is moved into the freed one.
+     *
+     * @param number the number of the id, or -1
+     * @param text   the id, only read when the number is negative
+     */
+    public void remove(long number, String text) {
+        if (number < 0) {
+            byText.remove(text);
+            return;
+        }
+        int slot = slots.remove(number);
+        if (slot < 0) return;
+
+        int last = --size;
+        if (slot != last) {
+            numbers[slot] = numbers[last];
+            values[slot] = values[last];
+            slots.put(numbers[slot], slot);
+        }
+        values[last] = null;
+    }
+}
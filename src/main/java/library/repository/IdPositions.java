@@ -0,0 +1,70 @@
+package library.repository;
+
+import library.domain.Ids;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Position of each stored item by id, keyed by the number of generated ids.
+ * Numbered ids are kept in a {@link LongIntMap}; ids without a number fall back
+ * to a HashMap keyed by the string.
+ */
+final class IdPositions {
+
+    private final char prefix;
+
+    // id number -> position
+    private final LongIntMap byNumber = new LongIntMap();
+
+    // id without a number -> position
+    private final Map<String, Integer> byText = new HashMap<>();
+
+    /**
+     * Creates an empty index for ids with the given prefix.
+     *
+     * @param prefix the prefix of the generated ids, e.g. 'M'
+     */
+    IdPositions(char prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Returns the position of an id. The number is parsed from the string,
+     * which needs no allocation.
+     *
+     * @param id the id
+     * @return the position, or -1 if the id is not stored
+     */
+    int get(String id) {
+        long number = Ids.numberOf(id, prefix);
+        if (number >= 0) return byNumber.get(number);
+        Integer pos = byText.get(id);
+        return pos == null ? -1 : pos;
+    }
+
+    /**
+     * Returns the position of a numbered id.
+     *
+     * @param number the id number
+     * @return the position, or -1 if the id is not stored
+     */
+    int get(long number) {
+        return byNumber.get(number);
+    }
+
+    /**
+     * Stores the position of an id.
+     *
+     * @param id  the id
+     * @param pos the position
+     */
+    void put(String id, int pos) {
+        long number = Ids.numberOf(id, prefix);
+        if (number >= 0) {
+            byNumber.put(number, pos);
+        } else {
+            byText.put(id, pos);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package library.repository;
 
+import library.domain.Ids;
 import library.domain.Loan;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +29,16 @@ public class InMemoryLoanRepository implements LoanRepository {
         loans.add(loan); 
     }
 
+    /**
+     * Saves several loans with a single list append.
+     *
+     * @param batch the loans to store
+     */
+    @Override
+    public void saveAll(Collection<Loan> batch) {
+        loans.addAll(batch);
+    }
+
     /**
      * Finds a loan by its id.
      *
@@ -46,8 +60,9 @@ public class InMemoryLoanRepository implements LoanRepository {
      */
     @Override
     public List<Loan> findByUserId(String userId) { 
+        Predicate<Loan> ofUser = ofUser(userId);
         return loans.stream()
-                    .filter(l -> l.getUserId().equals(userId))
+                    .filter(ofUser)
                     .collect(Collectors.toList()); 
     }
 
@@ -61,6 +76,59 @@ public class InMemoryLoanRepository implements LoanRepository {
         return new ArrayList<>(loans); 
     }
 
+    /**
+     * Returns all loans that are not returned yet.
+     *
+     * @return list of active loans
+     */
+    @Override
+    public List<Loan> findActive() {
+        return loans.stream()
+                    .filter(l -> !l.isReturned())
+                    .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the loans of a user that are not returned yet.
+     *
+     * @param userId the user's id
+     * @return list of the user's active loans
+     */
+    @Override
+    public List<Loan> findActiveByUserId(String userId) {
+        Predicate<Loan> ofUser = ofUser(userId);
+        return loans.stream()
+                    .filter(l -> !l.isReturned() && ofUser.test(l))
+                    .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the loans that are not returned and overdue on the given date.
+     *
+     * @param today the current date
+     * @return list of overdue loans
+     */
+    @Override
+    public List<Loan> findOverdue(LocalDate today) {
+        return loans.stream()
+                    .filter(l -> l.isOverdue(today))
+                    .collect(Collectors.toList());
+    }
+
+    /**
+     * Marks the loan as returned on the given date.
+     *
+     * @param loan         the loan being returned
+     * @param returnedDate the return date
+     * @return true if the loan was active, false if it was already returned
+     */
+    @Override
+    public boolean markReturned(Loan loan, LocalDate returnedDate) {
+        if (loan.isReturned()) return false;
+        loan.setReturnedDate(returnedDate);
+        return true;
+    }
+
     /**
      * Removes a loan from the repository.
      *
@@ -70,4 +138,11 @@ public class InMemoryLoanRepository implements LoanRepository {
     public void delete(Loan loan) { 
         loans.remove(loan); 
     }
+
+    // matches the loans of a user; a generated id is parsed once and compared by number
+    private static Predicate<Loan> ofUser(String userId) {
+        long number = Ids.numberOf(userId, 'U');
+        if (number >= 0) return l -> l.getUserNumber() == number;
+        return l -> l.getUserNumber() < 0 && l.getUserId().equals(userId);
+    }
 }
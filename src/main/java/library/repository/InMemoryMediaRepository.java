@@ -1,12 +1,16 @@
 package library.repository;
 
-import library.domain.media.Book;
-import library.domain.media.CD;
 import library.domain.media.Media;
+import library.domain.media.SearchKey;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -40,33 +44,36 @@ public class InMemoryMediaRepository implements MediaRepository {
                 .findFirst(); 
     }
 
+    /**
+     * Finds several media items with a single pass over the list.
+     *
+     * @param ids the media ids
+     * @return map of media id to media
+     */
+    @Override
+    public Map<String, Media> findAllById(Collection<String> ids) {
+        Set<String> wanted = new HashSet<>(ids);
+        Map<String, Media> result = new HashMap<>();
+        for (Media m : items) {
+            if (wanted.contains(m.getId())) result.putIfAbsent(m.getId(), m);
+        }
+        return result;
+    }
+
     /**
      * Searches media by title, author, artist, ISBN, or id.
-     * The search is case-insensitive.
+     * The search ignores case and accents.
      *
      * @param q the search query
      * @return list of matching media items
      */
     @Override
     public List<Media> search(String q) {
-        String ql = q == null ? "" : q.toLowerCase();
-
-        return items.stream().filter(m -> {
-            boolean titleMatch = m.getTitle().toLowerCase().contains(ql);
-            boolean authorOrArtist = false;
+        String nq = q == null ? "" : SearchKey.normalize(q);
 
-            if (m instanceof Book) {
-                Book b = (Book) m;
-                authorOrArtist =
-                        b.getAuthor().toLowerCase().contains(ql) ||
-                        b.getIsbn().toLowerCase().contains(ql);
-            } else if (m instanceof CD) {
-                authorOrArtist =
-                        ((CD) m).getArtist().toLowerCase().contains(ql);
-            }
-
-            return titleMatch || authorOrArtist || m.getId().toLowerCase().contains(ql);
-        }).collect(Collectors.toList());
+        return items.stream()
+                .filter(m -> m.matches(nq))
+                .collect(Collectors.toList());
     }
 
     /**
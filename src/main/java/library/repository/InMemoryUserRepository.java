@@ -3,8 +3,13 @@ package library.repository;
 import library.domain.User;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Simple in-memory implementation of the UserRepository.
@@ -37,6 +42,22 @@ public class InMemoryUserRepository implements UserRepository {
                 .findFirst();
     }
 
+    /**
+     * Finds several users with a single pass over the list.
+     *
+     * @param ids the user ids
+     * @return map of user id to user
+     */
+    @Override
+    public Map<String, User> findAllById(Collection<String> ids) {
+        Set<String> wanted = new HashSet<>(ids);
+        Map<String, User> result = new HashMap<>();
+        for (User u : users) {
+            if (wanted.contains(u.getId())) result.putIfAbsent(u.getId(), u);
+        }
+        return result;
+    }
+
     /**
      * Finds a user by email.
      *
@@ -0,0 +1,245 @@
+package library.repository;
+
+import library.domain.Ids;
+import library.domain.Loan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory implementation of the LoanRepository with secondary indexes.
+ * <ul>
+ *     <li>Each user's loans are kept in their own list, so findByUserId
+ *     only costs the size of that user's history.</li>
+ *     <li>Active (not returned) loans are kept apart from the returned ones,
+ *     so findActive and findActiveByUserId never scan the loan history.</li>
+ * </ul>
+ * The active index is updated by {@link #markReturned(Loan, LocalDate)}.
+ * The user indexes are keyed by the number of the user id (see {@link IdMap}).
+ */
+public class IndexedLoanRepository implements LoanRepository {
+
+    // loan id -> loan, in insertion order
+    private final Map<String, Loan> loans = new LinkedHashMap<>();
+
+    // user id -> loans of that user
+    private final IdMap<List<Loan>> loansByUser = new IdMap<>();
+
+    // loan id -> active loan, in insertion order
+    private final Map<String, Loan> activeLoans = new LinkedHashMap<>();
+
+    // user id -> active loans of that user
+    private final IdMap<List<Loan>> activeByUser = new IdMap<>();
+
+    /**
+     * Saves a loan and adds it to the indexes.
+     * Saving a loan with an id that is already stored replaces it.
+     *
+     * @param loan the loan to store
+     */
+    @Override
+    public void save(Loan loan) {
+        Loan previous = loans.put(loan.getId(), loan);
+        if (previous != null) {
+            removeFromIndex(loansByUser, previous);
+            removeActive(previous);
+        }
+        addToIndex(loansByUser, loan);
+        if (!loan.isReturned()) {
+            activeLoans.put(loan.getId(), loan);
+            addToIndex(activeByUser, loan);
+        }
+    }
+
+    /**
+     * Saves several loans, updating the indexes in one pass.
+     * Consecutive loans of the same user (e.g. from a batch borrow) share one
+     * lookup of that user's index lists.
+     *
+     * @param batch the loans to store
+     */
+    @Override
+    public void saveAll(Collection<Loan> batch) {
+        Loan last = null;
+        List<Loan> userLoans = null;
+        List<Loan> userActive = null;
+        for (Loan loan : batch) {
+            Loan previous = loans.put(loan.getId(), loan);
+            if (previous != null) {
+                removeFromIndex(loansByUser, previous);
+                removeActive(previous);
+                // the cached lists may have been dropped from the index
+                last = null;
+            }
+            if (last == null || !sameUser(last, loan)) {
+                userLoans = listFor(loansByUser, loan);
+                userActive = null;
+            }
+            userLoans.add(loan);
+            if (!loan.isReturned()) {
+                activeLoans.put(loan.getId(), loan);
+                if (userActive == null) userActive = listFor(activeByUser, loan);
+                userActive.add(loan);
+            }
+            last = loan;
+        }
+    }
+
+    /**
+     * Finds a loan by its id.
+     *
+     * @param id the loan id
+     * @return Optional containing the loan if found, otherwise empty
+     */
+    @Override
+    public Optional<Loan> findById(String id) {
+        return Optional.ofNullable(loans.get(id));
+    }
+
+    /**
+     * Returns all loans that belong to a specific user, using the user index.
+     *
+     * @param userId the user's id
+     * @return list of the user's loans
+     */
+    @Override
+    public List<Loan> findByUserId(String userId) {
+        List<Loan> userLoans = loansByUser.get(Ids.numberOf(userId, 'U'), userId);
+        return userLoans == null ? Collections.emptyList() : new ArrayList<>(userLoans);
+    }
+
+    /**
+     * Returns a list of all loans in insertion order.
+     *
+     * @return list of all loans
+     */
+    @Override
+    public List<Loan> findAll() {
+        return new ArrayList<>(loans.values());
+    }
+
+    /**
+     * Returns the active loans from the active index.
+     *
+     * @return list of active loans
+     */
+    @Override
+    public List<Loan> findActive() {
+        return stillActive(activeLoans.values());
+    }
+
+    /**
+     * Returns the active loans of a user from the active index.
+     *
+     * @param userId the user's id
+     * @return list of the user's active loans
+     */
+    @Override
+    public List<Loan> findActiveByUserId(String userId) {
+        List<Loan> userLoans = activeByUser.get(Ids.numberOf(userId, 'U'), userId);
+        return userLoans == null ? Collections.emptyList() : stillActive(userLoans);
+    }
+
+    /**
+     * Returns the overdue loans by checking the active loans only.
+     *
+     * @param today the current date
+     * @return list of overdue loans
+     */
+    @Override
+    public List<Loan> findOverdue(LocalDate today) {
+        List<Loan> result = new ArrayList<>();
+        for (Loan l : activeLoans.values()) {
+            if (l.isOverdue(today)) result.add(l);
+        }
+        return result;
+    }
+
+    /**
+     * Marks the loan as returned and moves it out of the active index.
+     *
+     * @param loan         the loan being returned
+     * @param returnedDate the return date
+     * @return true if the loan was active, false if it was already returned
+     */
+    @Override
+    public boolean markReturned(Loan loan, LocalDate returnedDate) {
+        if (loan.isReturned()) return false;
+        loan.setReturnedDate(returnedDate);
+        removeActive(loan);
+        return true;
+    }
+
+    /**
+     * Removes a loan from the repository and from all indexes.
+     *
+     * @param loan the loan to delete
+     */
+    @Override
+    public void delete(Loan loan) {
+        Loan removed = loans.remove(loan.getId());
+        if (removed != null) {
+            removeFromIndex(loansByUser, removed);
+            removeActive(removed);
+        }
+    }
+
+    private void removeActive(Loan loan) {
+        if (activeLoans.remove(loan.getId()) != null) {
+            removeFromIndex(activeByUser, loan);
+        }
+    }
+
+    // a loan returned without markReturned is still filtered out here
+    private static List<Loan> stillActive(Collection<Loan> candidates) {
+        List<Loan> result = new ArrayList<>(candidates.size());
+        for (Loan l : candidates) {
+            if (!l.isReturned()) result.add(l);
+        }
+        return result;
+    }
+
+    private static void addToIndex(IdMap<List<Loan>> index, Loan loan) {
+        listFor(index, loan).add(loan);
+    }
+
+    // the index list of the loan's user, created if missing
+    private static List<Loan> listFor(IdMap<List<Loan>> index, Loan loan) {
+        long user = loan.getUserNumber();
+        String text = textOf(loan);
+        List<Loan> userLoans = index.get(user, text);
+        if (userLoans == null) {
+            userLoans = new ArrayList<>();
+            index.put(user, text, userLoans);
+        }
+        return userLoans;
+    }
+
+    private static boolean sameUser(Loan a, Loan b) {
+        if (a.getUserNumber() != b.getUserNumber()) return false;
+        return a.getUserNumber() >= 0 || a.getUserId().equals(b.getUserId());
+    }
+
+    private static void removeFromIndex(IdMap<List<Loan>> index, Loan loan) {
+        long user = loan.getUserNumber();
+        String text = textOf(loan);
+        List<Loan> userLoans = index.get(user, text);
+        if (userLoans == null) return;
+
+        userLoans.remove(loan);
+        if (userLoans.isEmpty()) {
+            index.remove(user, text);
+        }
+    }
+
+    // the user id string is only needed, and only built, for ids without a number
+    private static String textOf(Loan loan) {
+        return loan.getUserNumber() < 0 ? loan.getUserId() : null;
+    }
+}
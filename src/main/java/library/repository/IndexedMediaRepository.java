@@ -0,0 +1,326 @@
+package library.repository;
+
+import library.domain.media.Book;
+import library.domain.media.Isbn;
+import library.domain.media.Media;
+import library.domain.media.SearchKey;
+import library.dto.MediaFilter;
+import library.dto.SearchPage;
+import library.search.CompletionTrie;
+import library.search.FacetIndex;
+import library.search.FuzzyTermIndex;
+import library.search.MediaSearchIndex;
+import library.search.TokenSearchIndex;
+import library.search.TopKCollector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory implementation of the MediaRepository with a hash index on the id.
+ * Items are kept in insertion order for findAll, and findById is a
+ * constant-time lookup by id number instead of a scan over the whole catalogue.
+ * <p>
+ * Search goes through a pluggable {@link MediaSearchIndex}: the index narrows
+ * the catalogue down to candidates, and only those are checked against the query.
+ * The position of an item in insertion order is its document number in the index.
+ * Autocomplete suggestions come from a {@link CompletionTrie}, fuzzy search from a
+ * {@link FuzzyTermIndex}, and books are also indexed by canonical ISBN; all of
+ * them are updated on save.
+ * <p>
+ * Type and availability filters are answered from the bitsets of a {@link FacetIndex}.
+ * The repository listens to the availability of the items it stores to keep them current.
+ */
+public class IndexedMediaRepository implements MediaRepository {
+
+    // media in insertion order
+    private final List<Media> items = new ArrayList<>();
+
+    // media id -> position inside items
+    private final IdPositions positions = new IdPositions('M');
+
+    private final MediaSearchIndex searchIndex;
+
+    // titles, authors and artists for autocomplete
+    private final CompletionTrie completions = new CompletionTrie();
+
+    // words of titles, authors and artists for typo-tolerant search
+    private final FuzzyTermIndex fuzzyTerms = new FuzzyTermIndex();
+
+    // canonical ISBN -> books with that ISBN, in insertion order
+    private final Map<String, List<Book>> booksByIsbn = new HashMap<>();
+
+    // per-type and availability bitsets for filtered search
+    private final FacetIndex facets = new FacetIndex();
+
+    private final Media.AvailabilityListener availabilityListener = this::availabilityChanged;
+
+    /**
+     * Creates a repository that searches through a {@link TokenSearchIndex}.
+     */
+    public IndexedMediaRepository() {
+        this(new TokenSearchIndex());
+    }
+
+    /**
+     * Creates a repository that searches through the given index.
+     *
+     * @param searchIndex the search index, kept up to date on save
+     */
+    public IndexedMediaRepository(MediaSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Saves a media item to the repository.
+     * Saving an item with an id that is already stored replaces it in place.
+     *
+     * @param media the media object to store
+     */
+    @Override
+    public void save(Media media) {
+        int pos = positions.get(media.getId());
+        if (pos >= 0) {
+            Media previous = items.set(pos, media);
+            searchIndex.remove(pos, previous);
+            searchIndex.add(pos, media);
+            completions.remove(previous);
+            completions.add(media);
+            fuzzyTerms.remove(pos, previous);
+            fuzzyTerms.add(pos, media);
+            facets.remove(pos, previous);
+            facets.add(pos, media);
+            replaceIsbn(previous, media);
+            if (previous != media) {
+                previous.removeAvailabilityListener(availabilityListener);
+                media.addAvailabilityListener(availabilityListener);
+            }
+            return;
+        }
+        positions.put(media.getId(), items.size());
+        searchIndex.add(items.size(), media);
+        completions.add(media);
+        fuzzyTerms.add(items.size(), media);
+        facets.add(items.size(), media);
+        addIsbn(media);
+        items.add(media);
+        media.addAvailabilityListener(availabilityListener);
+    }
+
+    /**
+     * Finds a media item by its id using the hash index.
+     *
+     * @param id the media id
+     * @return Optional containing the media if found, otherwise empty
+     */
+    @Override
+    public Optional<Media> findById(String id) {
+        int pos = positions.get(id);
+        return pos < 0 ? Optional.empty() : Optional.of(items.get(pos));
+    }
+
+    /**
+     * Finds a media item by id number without building the id string.
+     *
+     * @param number the id number
+     * @return Optional containing the media if found, otherwise empty
+     */
+    @Override
+    public Optional<Media> findByNumber(long number) {
+        int pos = positions.get(number);
+        return pos < 0 ? Optional.empty() : Optional.of(items.get(pos));
+    }
+
+    /**
+     * Searches media by title, author, artist, ISBN, or id.
+     * The search ignores case and accents. Only the candidates returned by the
+     * search index are checked, unless the index cannot narrow the query.
+     *
+     * @param q the search query
+     * @return list of matching media items, in insertion order
+     */
+    @Override
+    public List<Media> search(String q) {
+        return search(q, MediaFilter.ANY);
+    }
+
+    /**
+     * Filtered search: the candidates of the search index are intersected with
+     * the facet bitsets of the filter, so the filter is never checked item by item.
+     *
+     * @param q      the search query (an empty query matches every item)
+     * @param filter the media type and availability to keep
+     * @return matching media items, in insertion order
+     */
+    @Override
+    public List<Media> search(String q, MediaFilter filter) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        int[] docs = docsToCheck(nq, filter);
+
+        List<Media> result = new ArrayList<>();
+        if (docs == null) {
+            for (Media m : items) {
+                if (m.matches(nq)) result.add(m);
+            }
+            return result;
+        }
+        for (int doc : docs) {
+            Media m = items.get(doc);
+            if (nq.isEmpty() || m.matches(nq)) result.add(m);
+        }
+        return result;
+    }
+
+    /**
+     * Ranked, paginated search over the candidates of the search index.
+     * Matches are scored one by one into a bounded heap; no result list is built.
+     *
+     * @param q      the search query
+     * @param offset number of best matches to skip
+     * @param limit  maximum number of items in the page
+     * @return the page, best match first, with the total number of matches
+     */
+    @Override
+    public SearchPage searchPage(String q, int offset, int limit) {
+        return searchPage(q, MediaFilter.ANY, offset, limit);
+    }
+
+    /**
+     * Ranked, paginated search over the candidates of the search index
+     * that are accepted by the facet bitsets of the filter.
+     *
+     * @param q      the search query (an empty query matches every item)
+     * @param filter the media type and availability to keep
+     * @param offset number of best matches to skip
+     * @param limit  maximum number of items in the page
+     * @return the page, best match first, with the total number of filtered matches
+     */
+    @Override
+    public SearchPage searchPage(String q, MediaFilter filter, int offset, int limit) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        TopKCollector top = new TopKCollector(offset, limit);
+
+        int[] docs = docsToCheck(nq, filter);
+        if (docs == null) {
+            for (int doc = 0; doc < items.size(); doc++) {
+                top.offer(items.get(doc), doc, nq);
+            }
+        } else {
+            for (int doc : docs) {
+                top.offer(items.get(doc), doc, nq);
+            }
+        }
+        return top.toPage();
+    }
+
+    /**
+     * Suggests titles, authors and artists from the completion trie.
+     *
+     * @param prefix the typed prefix (ignores case and accents)
+     * @param k      maximum number of suggestions
+     * @return up to k suggestions
+     */
+    @Override
+    public List<String> autocomplete(String prefix, int k) {
+        return completions.complete(prefix, k);
+    }
+
+    /**
+     * Typo-tolerant search through the BK-tree of the fuzzy term index.
+     * Only the words close to the query words are compared, not every item.
+     *
+     * @param q           the search query (ignores case and accents)
+     * @param maxDistance largest number of edits allowed per word
+     * @return matching media items, closest first, then in insertion order
+     */
+    @Override
+    public List<Media> searchFuzzy(String q, int maxDistance) {
+        List<Media> result = new ArrayList<>();
+        for (int doc : fuzzyTerms.search(q == null ? "" : SearchKey.normalize(q), maxDistance)) {
+            result.add(items.get(doc));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the books with an ISBN using the ISBN hash index.
+     *
+     * @param isbn the ISBN to look up, in any form
+     * @return the books with that ISBN, or an empty list
+     */
+    @Override
+    public List<Book> findByIsbn(String isbn) {
+        String key = Isbn.canonical(isbn);
+        List<Book> books = key == null ? null : booksByIsbn.get(key);
+        return books == null ? Collections.emptyList() : new ArrayList<>(books);
+    }
+
+    /**
+     * Finds the books of several ISBNs with one hash lookup each.
+     *
+     * @param isbns the ISBNs to look up, in any form
+     * @return map of each given ISBN (as passed in) to its books
+     */
+    @Override
+    public Map<String, List<Book>> findAllByIsbn(Collection<String> isbns) {
+        Map<String, List<Book>> result = new LinkedHashMap<>();
+        for (String isbn : isbns) {
+            List<Book> books = findByIsbn(isbn);
+            if (!books.isEmpty()) result.put(isbn, books);
+        }
+        return result;
+    }
+
+    /**
+     * Returns all stored media items in insertion order.
+     *
+     * @return list of all media
+     */
+    @Override
+    public List<Media> findAll() {
+        return new ArrayList<>(items);
+    }
+
+    // candidates of the search index restricted to the filter; null means all items
+    private int[] docsToCheck(String nq, MediaFilter filter) {
+        return facets.restrict(searchIndex.candidates(nq), filter);
+    }
+
+    // the event's value may be stale when two changes race, so the facet reads the item
+    private void availabilityChanged(Media media, boolean available) {
+        int pos = positions.get(media.getId());
+        if (pos >= 0 && items.get(pos) == media) facets.updateAvailable(pos, media);
+    }
+
+    private void addIsbn(Media media) {
+        String key = canonicalIsbnOf(media);
+        if (key != null) booksByIsbn.computeIfAbsent(key, k -> new ArrayList<>()).add((Book) media);
+    }
+
+    // keeps the position of the book when its ISBN did not change
+    private void replaceIsbn(Media previous, Media media) {
+        String oldKey = canonicalIsbnOf(previous);
+        String newKey = canonicalIsbnOf(media);
+        if (oldKey != null && oldKey.equals(newKey)) {
+            List<Book> books = booksByIsbn.get(oldKey);
+            books.set(books.indexOf(previous), (Book) media);
+            return;
+        }
+        if (oldKey != null) {
+            List<Book> books = booksByIsbn.get(oldKey);
+            books.remove(previous);
+            if (books.isEmpty()) booksByIsbn.remove(oldKey);
+        }
+        addIsbn(media);
+    }
+
+    private static String canonicalIsbnOf(Media media) {
+        return media instanceof Book ? ((Book) media).getCanonicalIsbn() : null;
+    }
+}
@@ -2,6 +2,8 @@ package library.repository;
 
 import library.domain.Loan;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +19,18 @@ public interface LoanRepository {
      */
     void save(Loan loan);
 
+    /**
+     * Saves several loans in one call.
+     * The default just saves them one by one; implementations may batch the writes.
+     *
+     * @param loans the loans to store
+     */
+    default void saveAll(Collection<Loan> loans) {
+        for (Loan loan : loans) {
+            save(loan);
+        }
+    }
+
     /**
      * Finds a loan by its id.
      *
@@ -40,6 +54,42 @@ public interface LoanRepository {
      */
     List<Loan> findAll();
 
+    /**
+     * Returns all active (not returned) loans.
+     *
+     * @return list of active loans
+     */
+    List<Loan> findActive();
+
+    /**
+     * Returns the active (not returned) loans of a specific user.
+     *
+     * @param userId the id of the user
+     * @return list of active loans belonging to that user
+     */
+    List<Loan> findActiveByUserId(String userId);
+
+    /**
+     * Returns the active loans that are overdue on the given date,
+     * meaning their due date is before that date.
+     *
+     * @param today the current date
+     * @return list of overdue loans
+     */
+    List<Loan> findOverdue(LocalDate today);
+
+    /**
+     * Marks a stored loan as returned on the given date.
+     * Services should use this instead of calling {@link Loan#setReturnedDate}
+     * directly, so the repository can keep its active loans up to date.
+     *
+     * @param loan         the loan being returned
+     * @param returnedDate the return date
+     * @return true if the loan was active and is now returned,
+     *         false if it was already returned
+     */
+    boolean markReturned(Loan loan, LocalDate returnedDate);
+
     /**
      * Deletes the given loan from the repository.
      *
@@ -0,0 +1,104 @@
+package library.repository;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from non-negative long keys to int values, e.g. from the
+ * number of a generated id to a position. Keys and values are kept in primitive
+ * arrays, so an entry costs no object.
+ */
+final class LongIntMap {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys = newKeys(16);
+    private int[] values = new int[16];
+    private int size;
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key; negative keys are never stored
+     * @return the value, or -1 if the key is not in the map
+     */
+    int get(long key) {
+        if (key < 0) return -1;
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a value, replacing the value of the key if present.
+     *
+     * @param key   the key, not negative
+     * @param value the value
+     */
+    void put(long key, int value) {
+        if ((size + 1) * 4 > keys.length * 3) resize();
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+        if (keys[i] == EMPTY) size++;
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Removes a key. Backward-shift deletion keeps the probe chains intact without tombstones.
+     *
+     * @param key the key
+     * @return the removed value, or -1 if the key was not in the map
+     */
+    int remove(long key) {
+        if (key < 0) return -1;
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) return -1;
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        size--;
+        int hole = i;
+        for (int j = (hole + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        return removed;
+    }
+
+    /** @return number of keys */
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = newKeys(oldKeys.length * 2);
+        values = new int[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] k = new long[capacity];
+        Arrays.fill(k, EMPTY);
+        return k;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,293 @@
+package library.repository;
+
+import library.domain.Ids;
+import library.domain.Loan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * LoanRepository that keeps the returned loans in a memory-mapped file.
+ * <ul>
+ *     <li>Active loans stay on the heap in an {@link IndexedLoanRepository}.</li>
+ *     <li>A returned loan is written as a fixed-width record of {@link #RECORD_SIZE}
+ *     bytes: loan, user and media numbers as longs, then the borrow, due and
+ *     return dates as epoch-day ints. No Loan object is kept for it.</li>
+ *     <li>History lookups scan the mapped region field by field and only build
+ *     a Loan for the records that match.</li>
+ *     <li>Loans whose ids do not have the generated form ("L1", "U1", "M1")
+ *     cannot be encoded and stay on the heap, returned or not.</li>
+ * </ul>
+ * The file is a working area, not a durable store: it is emptied on open, and
+ * durability comes from the write-ahead log. Loans read back from the history are
+ * new objects on every call. Like the other in-memory repositories, this class is
+ * not thread-safe.
+ */
+public class MappedLoanRepository implements LoanRepository, Closeable {
+
+    /** Size of one history record in bytes. */
+    public static final int RECORD_SIZE = 36;
+
+    private static final int USER_OFFSET = 8;
+    private static final int MEDIA_OFFSET = 16;
+    private static final int BORROW_OFFSET = 24;
+    private static final int DUE_OFFSET = 28;
+    private static final int RETURNED_OFFSET = 32;
+
+    // records per mapped chunk; the file grows one chunk at a time
+    private static final int CHUNK_RECORDS = 1 << 16;
+    private static final long CHUNK_BYTES = (long) CHUNK_RECORDS * RECORD_SIZE;
+
+    private final FileChannel channel;
+
+    // mapped chunks of the history file, in order
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    // active loans, and returned loans whose ids cannot be encoded
+    private final IndexedLoanRepository heap = new IndexedLoanRepository();
+
+    // loan number -> record index in the history
+    private final LongIntMap history = new LongIntMap();
+
+    private int recordCount;
+
+    /**
+     * Opens the history file, creating it if needed, and empties it.
+     *
+     * @param file the file that holds the returned loans
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedLoanRepository(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Saves a loan. A returned loan with encodable ids goes to the mapped history,
+     * any other loan to the heap. Saving a loan with an id that is already stored replaces it.
+     *
+     * @param loan the loan to store
+     */
+    @Override
+    public void save(Loan loan) {
+        long number = loan.getNumber();
+        if (loan.isReturned() && isEncodable(loan)) {
+            heap.delete(loan);
+            int record = history.get(number);
+            writeRecord(record >= 0 ? record : append(number), loan);
+            return;
+        }
+        if (number >= 0) removeRecord(number);
+        heap.save(loan);
+    }
+
+    /**
+     * Finds a loan on the heap first, then through the history index.
+     *
+     * @param id the loan id
+     * @return Optional containing the loan if found, otherwise empty
+     */
+    @Override
+    public Optional<Loan> findById(String id) {
+        Optional<Loan> loan = heap.findById(id);
+        if (loan.isPresent()) return loan;
+        int record = history.get(Ids.numberOf(id, 'L'));
+        return record < 0 ? Optional.empty() : Optional.of(readRecord(record));
+    }
+
+    /**
+     * Returns the loans of a user: the ones on the heap, then the matching history records.
+     *
+     * @param userId the user's id
+     * @return list of the user's loans
+     */
+    @Override
+    public List<Loan> findByUserId(String userId) {
+        List<Loan> result = new ArrayList<>(heap.findByUserId(userId));
+        long user = Ids.numberOf(userId, 'U');
+        if (user < 0) return result;
+        for (int r = 0; r < recordCount; r++) {
+            if (chunkOf(r).getLong(offsetOf(r) + USER_OFFSET) == user) result.add(readRecord(r));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the loans on the heap followed by the whole history.
+     *
+     * @return list of all loans
+     */
+    @Override
+    public List<Loan> findAll() {
+        List<Loan> result = heap.findAll();
+        for (int r = 0; r < recordCount; r++) {
+            result.add(readRecord(r));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the active loans; they are all on the heap.
+     *
+     * @return list of active loans
+     */
+    @Override
+    public List<Loan> findActive() {
+        return heap.findActive();
+    }
+
+    /**
+     * Returns the active loans of a user from the heap.
+     *
+     * @param userId the user's id
+     * @return list of the user's active loans
+     */
+    @Override
+    public List<Loan> findActiveByUserId(String userId) {
+        return heap.findActiveByUserId(userId);
+    }
+
+    /**
+     * Returns the overdue loans; only active loans on the heap can be overdue.
+     *
+     * @param today the current date
+     * @return list of overdue loans
+     */
+    @Override
+    public List<Loan> findOverdue(LocalDate today) {
+        return heap.findOverdue(today);
+    }
+
+    /**
+     * Marks the loan as returned and moves it from the heap to the mapped history
+     * when its ids can be encoded.
+     *
+     * @param loan         the loan being returned
+     * @param returnedDate the return date
+     * @return true if the loan was active, false if it was already returned
+     */
+    @Override
+    public boolean markReturned(Loan loan, LocalDate returnedDate) {
+        if (!heap.markReturned(loan, returnedDate)) return false;
+        if (heap.findById(loan.getId()).orElse(null) == loan && isEncodable(loan)) {
+            heap.delete(loan);
+            writeRecord(append(loan.getNumber()), loan);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a loan from the heap or from the history.
+     * The last history record is moved into the freed slot.
+     *
+     * @param loan the loan to delete
+     */
+    @Override
+    public void delete(Loan loan) {
+        heap.delete(loan);
+        long number = loan.getNumber();
+        if (number >= 0) removeRecord(number);
+    }
+
+    /**
+     * Returns the number of loans held in the mapped history.
+     *
+     * @return number of history records
+     */
+    public int getHistorySize() {
+        return recordCount;
+    }
+
+    /**
+     * Closes the history file. The repository must not be used afterwards.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        chunks.clear();
+        channel.close();
+    }
+
+    private static boolean isEncodable(Loan loan) {
+        return loan.getNumber() >= 0
+                && loan.getUserNumber() >= 0
+                && loan.getMediaNumber() >= 0
+                && loan.getBorrowDate() != null
+                && loan.getDueDate() != null;
+    }
+
+    // reserves a new record at the end of the history and indexes it
+    private int append(long number) {
+        int record = recordCount;
+        if (record == chunks.size() * CHUNK_RECORDS) mapChunk();
+        recordCount++;
+        history.put(number, record);
+        return record;
+    }
+
+    private void removeRecord(long number) {
+        int record = history.remove(number);
+        if (record < 0) return;
+
+        int last = --recordCount;
+        if (record == last) return;
+        MappedByteBuffer from = chunkOf(last);
+        MappedByteBuffer to = chunkOf(record);
+        int src = offsetOf(last);
+        int dst = offsetOf(record);
+        for (int i = 0; i < RECORD_SIZE; i += 4) {
+            to.putInt(dst + i, from.getInt(src + i));
+        }
+        history.put(to.getLong(dst), record);
+    }
+
+    private void writeRecord(int record, Loan loan) {
+        MappedByteBuffer chunk = chunkOf(record);
+        int at = offsetOf(record);
+        chunk.putLong(at, loan.getNumber());
+        chunk.putLong(at + USER_OFFSET, loan.getUserNumber());
+        chunk.putLong(at + MEDIA_OFFSET, loan.getMediaNumber());
+        chunk.putInt(at + BORROW_OFFSET, (int) loan.getBorrowDate().toEpochDay());
+        chunk.putInt(at + DUE_OFFSET, (int) loan.getDueDate().toEpochDay());
+        chunk.putInt(at + RETURNED_OFFSET, (int) loan.getReturnedDate().toEpochDay());
+    }
+
+    private Loan readRecord(int record) {
+        MappedByteBuffer chunk = chunkOf(record);
+        int at = offsetOf(record);
+        Loan loan = new Loan(
+                Ids.format('L', chunk.getLong(at)),
+                Ids.format('U', chunk.getLong(at + USER_OFFSET)),
+                Ids.format('M', chunk.getLong(at + MEDIA_OFFSET)),
+                LocalDate.ofEpochDay(chunk.getInt(at + BORROW_OFFSET)),
+                LocalDate.ofEpochDay(chunk.getInt(at + DUE_OFFSET)));
+        loan.setReturnedDate(LocalDate.ofEpochDay(chunk.getInt(at + RETURNED_OFFSET)));
+        return loan;
+    }
+
+    private MappedByteBuffer chunkOf(int record) {
+        return chunks.get(record / CHUNK_RECORDS);
+    }
+
+    private static int offsetOf(int record) {
+        return (record % CHUNK_RECORDS) * RECORD_SIZE;
+    }
+
+    private void mapChunk() {
+        try {
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * CHUNK_BYTES, CHUNK_BYTES));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
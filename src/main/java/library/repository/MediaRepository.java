@@ -1,8 +1,23 @@
 package library.repository;
 
+import library.domain.Ids;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Isbn;
 import library.domain.media.Media;
+import library.domain.media.SearchKey;
+import library.dto.MediaFilter;
+import library.dto.SearchPage;
+import library.search.CompletionTrie;
+import library.search.FuzzyTermIndex;
+import library.search.TopKCollector;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -25,6 +40,130 @@ public interface MediaRepository {
      */
     Optional<Media> findById(String id);
 
+    /**
+     * Finds a media item by the number of a generated id ("M42" has number 42).
+     * This default formats the id and calls {@link #findById(String)};
+     * repositories keyed by number look the number up directly.
+     *
+     * @param number the id number
+     * @return Optional containing the media if found, otherwise empty
+     */
+    default Optional<Media> findByNumber(long number) {
+        return findById(Ids.format('M', number));
+    }
+
+    /**
+     * Finds several media items by id in one call.
+     * Ids that are not found are left out of the result.
+     *
+     * @param ids the media ids
+     * @return map of media id to media
+     */
+    default Map<String, Media> findAllById(Collection<String> ids) {
+        Map<String, Media> result = new HashMap<>();
+        for (String id : ids) {
+            findById(id).ifPresent(m -> result.put(id, m));
+        }
+        return result;
+    }
+
+    /**
+     * Searches media items by title (ignores case and accents).
+     * A title match is also a match of {@link #search(String)}, so only its results are checked.
+     *
+     * @param title partial or full title
+     * @return list of media with matching titles
+     */
+    default List<Media> searchByTitle(String title) {
+        String nq = title == null ? "" : SearchKey.normalize(title);
+        List<Media> result = new ArrayList<>();
+        for (Media m : search(nq)) {
+            if (m.getTitleKey() != null && m.getTitleKey().contains(nq)) result.add(m);
+        }
+        return result;
+    }
+
+    /**
+     * Searches media items by author (for books) or artist (for CDs).
+     *
+     * @param author name or partial name of author/artist
+     * @return list of matching media
+     */
+    default List<Media> searchByAuthor(String author) {
+        String nq = author == null ? "" : SearchKey.normalize(author);
+        List<Media> result = new ArrayList<>();
+        for (Media m : search(nq)) {
+            if (creatorMatches(m, nq)) result.add(m);
+        }
+        return result;
+    }
+
+    /**
+     * Checks the author of a book or the artist of a CD against a normalized query.
+     *
+     * @param m  the media item
+     * @param nq the normalized query
+     * @return true if the author or artist contains the query
+     */
+    static boolean creatorMatches(Media m, String nq) {
+        String key = null;
+        if (m instanceof Book) {
+            key = ((Book) m).getAuthorKey();
+        } else if (m instanceof CD) {
+            key = ((CD) m).getArtistKey();
+        }
+        return key != null && key.contains(nq);
+    }
+
+    /**
+     * Finds the books with an ISBN. ISBNs are compared in canonical form
+     * (see {@link Isbn}), so hyphens, spaces, case and ISBN-10 vs ISBN-13 don't matter.
+     * <p>
+     * This default scans {@link #findAll()}; indexed repositories use a hash index.
+     *
+     * @param isbn the ISBN to look up
+     * @return the books with that ISBN in insertion order, or an empty list
+     */
+    default List<Book> findByIsbn(String isbn) {
+        String key = Isbn.canonical(isbn);
+        List<Book> result = new ArrayList<>();
+        if (key == null) return result;
+        for (Media m : findAll()) {
+            if (m instanceof Book && key.equals(((Book) m).getCanonicalIsbn())) {
+                result.add((Book) m);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the books of several ISBNs in one call, e.g. for acquisition imports.
+     * ISBNs without any book are left out of the result.
+     *
+     * @param isbns the ISBNs to look up, in any form
+     * @return map of each given ISBN (as passed in) to its books
+     */
+    default Map<String, List<Book>> findAllByIsbn(Collection<String> isbns) {
+        // canonical ISBN -> the requested forms of it
+        Map<String, List<String>> wanted = new HashMap<>();
+        for (String isbn : isbns) {
+            String key = Isbn.canonical(isbn);
+            if (key != null) wanted.computeIfAbsent(key, k -> new ArrayList<>()).add(isbn);
+        }
+
+        Map<String, List<Book>> result = new LinkedHashMap<>();
+        if (wanted.isEmpty()) return result;
+        for (Media m : findAll()) {
+            if (!(m instanceof Book)) continue;
+            List<String> requested = wanted.get(((Book) m).getCanonicalIsbn());
+            if (requested == null) continue;
+            for (String isbn : requested) {
+                result.computeIfAbsent(isbn, k -> new ArrayList<>()).add((Book) m);
+            }
+        }
+        return result;
+    }
+
     /**
      * Searches for media items by title, author, artist, ISBN, or id.
      *
@@ -33,6 +172,107 @@ public interface MediaRepository {
      */
     List<Media> search(String q);
 
+    /**
+     * Suggests titles, authors and artists that start with the typed prefix.
+     * Values shared by more items come first; ties are sorted alphabetically.
+     * <p>
+     * This default builds the suggestions from {@link #findAll()} on every call;
+     * indexed repositories keep them up to date on save instead.
+     *
+     * @param prefix the typed prefix (ignores case and accents)
+     * @param k      maximum number of suggestions
+     * @return up to k suggestions
+     */
+    default List<String> autocomplete(String prefix, int k) {
+        CompletionTrie trie = new CompletionTrie();
+        for (Media m : findAll()) {
+            trie.add(m);
+        }
+        return trie.complete(prefix, k);
+    }
+
+    /**
+     * Typo-tolerant search over titles, authors and artists. An item matches when
+     * every word of the query is within {@code maxDistance} edits (Levenshtein
+     * distance) of some word of its title, author or artist, so "Jhosua Bloch"
+     * finds the books of Joshua Bloch.
+     * <p>
+     * This default compares every item of {@link #findAll()} with
+     * {@link FuzzyTermIndex#scan}, without building a tree for the one query;
+     * indexed repositories keep a {@link FuzzyTermIndex} up to date on save instead.
+     *
+     * @param q           the search query (ignores case and accents)
+     * @param maxDistance largest number of edits allowed per word
+     * @return matching media items, closest first, then in insertion order
+     */
+    default List<Media> searchFuzzy(String q, int maxDistance) {
+        List<Media> all = findAll();
+        List<Media> result = new ArrayList<>();
+        for (int doc : FuzzyTermIndex.scan(all, q == null ? "" : SearchKey.normalize(q), maxDistance)) {
+            result.add(all.get(doc));
+        }
+        return result;
+    }
+
+    /**
+     * Searches like {@link #search(String)}, but returns one page of results ranked by
+     * relevance (see {@link library.search.Relevance}). Only the best
+     * {@code offset + limit} matches are kept while scanning, so memory depends on
+     * the page, not on the number of matches.
+     *
+     * @param q      the search query
+     * @param offset number of best matches to skip
+     * @param limit  maximum number of items in the page
+     * @return the page, best match first, with the total number of matches
+     */
+    default SearchPage searchPage(String q, int offset, int limit) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        TopKCollector top = new TopKCollector(offset, limit);
+        int ordinal = 0;
+        for (Media m : findAll()) {
+            top.offer(m, ordinal++, nq);
+        }
+        return top.toPage();
+    }
+
+    /**
+     * Searches like {@link #search(String)}, keeping only the items accepted by the filter.
+     * This default checks every match against the filter; indexed repositories
+     * intersect per-type and availability bitsets instead.
+     *
+     * @param q      the search query (an empty query matches every item)
+     * @param filter the media type and availability to keep
+     * @return matching media items, in insertion order
+     */
+    default List<Media> search(String q, MediaFilter filter) {
+        List<Media> result = new ArrayList<>();
+        for (Media m : search(q)) {
+            if (filter.test(m)) result.add(m);
+        }
+        return result;
+    }
+
+    /**
+     * Ranked, paginated search like {@link #searchPage(String, int, int)},
+     * keeping only the items accepted by the filter.
+     *
+     * @param q      the search query (an empty query matches every item)
+     * @param filter the media type and availability to keep
+     * @param offset number of best matches to skip
+     * @param limit  maximum number of items in the page
+     * @return the page, best match first, with the total number of filtered matches
+     */
+    default SearchPage searchPage(String q, MediaFilter filter, int offset, int limit) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        TopKCollector top = new TopKCollector(offset, limit);
+        int ordinal = 0;
+        for (Media m : findAll()) {
+            if (filter.test(m)) top.offer(m, ordinal, nq);
+            ordinal++;
+        }
+        return top.toPage();
+    }
+
     /**
      * Returns all stored media items.
      *
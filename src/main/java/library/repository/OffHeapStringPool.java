@@ -0,0 +1,242 @@
+package library.repository;
+
+import library.domain.media.SearchKey;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Dictionary of strings stored outside the Java heap.
+ * <ul>
+ *     <li>Every distinct string gets a dense code (0, 1, 2, ...); interning
+ *     the same string again returns the same code.</li>
+ *     <li>The string and its search key (see {@link SearchKey}) are stored as
+ *     UTF-8 in direct byte buffers. The heap only holds a location and a hash
+ *     per code, plus the open-addressing table used to find existing strings.</li>
+ *     <li>{@link #codesContaining(String)} compares the query with the stored keys
+ *     byte by byte, without decoding them into strings.</li>
+ * </ul>
+ * Strings are never removed. {@link #release()} frees the buffers; the pool
+ * cannot be used afterwards. Reads may run concurrently with each other, but not
+ * with {@link #intern(String)} or {@link #release()}.
+ */
+final class OffHeapStringPool {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // direct buffers that hold the entries: [value length][value][key length][key]
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    // code -> chunk index (high 32 bits) and position in the chunk (low 32 bits)
+    private long[] locations = new long[16];
+
+    // code -> hash of the string
+    private int[] hashes = new int[16];
+
+    // open-addressing table of code + 1; 0 is an empty slot
+    private int[] table = new int[32];
+
+    private int size;
+    private long bytes;
+    private boolean released;
+
+    /**
+     * Returns the code of a string, adding it to the pool if it is new.
+     *
+     * @param value the string, not null
+     * @return the code of the string
+     */
+    int intern(String value) {
+        checkNotReleased();
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        int hash = value.hashCode();
+        int slot = findSlot(encoded, hash);
+        if (table[slot] != 0) return table[slot] - 1;
+
+        int code = size++;
+        if (code == locations.length) {
+            locations = Arrays.copyOf(locations, code * 2);
+            hashes = Arrays.copyOf(hashes, code * 2);
+        }
+        locations[code] = store(encoded, SearchKey.normalize(value).getBytes(StandardCharsets.UTF_8));
+        hashes[code] = hash;
+        table[slot] = code + 1;
+        if (size * 2 > table.length) rehash();
+        return code;
+    }
+
+    /**
+     * Returns the code of a string without adding it.
+     *
+     * @param value the string
+     * @return the code, or -1 if the string is not in the pool
+     */
+    int find(String value) {
+        if (value == null) return -1;
+        checkNotReleased();
+        int slot = findSlot(value.getBytes(StandardCharsets.UTF_8), value.hashCode());
+        return table[slot] - 1;
+    }
+
+    /**
+     * Decodes the string of a code.
+     *
+     * @param code the code
+     * @return the string
+     */
+    String get(int code) {
+        checkNotReleased();
+        ByteBuffer chunk = chunkOf(code);
+        int pos = positionOf(code);
+        return decode(chunk, pos + 4, chunk.getInt(pos));
+    }
+
+    /**
+     * Finds the codes whose search key contains the query.
+     *
+     * @param nq the query, already passed through {@link SearchKey#normalize(String)}
+     * @return the matching codes
+     */
+    BitSet codesContaining(String nq) {
+        checkNotReleased();
+        BitSet result = new BitSet(size);
+        if (nq.isEmpty()) {
+            result.set(0, size);
+            return result;
+        }
+        byte[] needle = nq.getBytes(StandardCharsets.UTF_8);
+        for (int code = 0; code < size; code++) {
+            ByteBuffer chunk = chunkOf(code);
+            int pos = positionOf(code);
+            int keyPos = pos + 4 + chunk.getInt(pos);
+            if (contains(chunk, keyPos + 4, chunk.getInt(keyPos), needle)) result.set(code);
+        }
+        return result;
+    }
+
+    /** @return number of distinct strings */
+    int size() {
+        return size;
+    }
+
+    /** @return number of bytes used by the entries outside the heap */
+    long offHeapBytes() {
+        return bytes;
+    }
+
+    /**
+     * Frees the direct buffers now instead of when they are garbage collected.
+     * Calling it again has no effect.
+     */
+    void release() {
+        if (released) return;
+        released = true;
+        for (ByteBuffer chunk : chunks) {
+            free(chunk);
+        }
+        chunks.clear();
+        bytes = 0;
+    }
+
+    private void checkNotReleased() {
+        if (released) throw new IllegalStateException("string pool was released");
+    }
+
+    // sun.misc.Unsafe.invokeCleaner exists from Java 9 and is looked up by reflection so
+    // the project still builds for Java 8; there, the buffer is freed when it is collected
+    private static void free(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the garbage collector
+        }
+    }
+
+    // slot of the string in the table, or the empty slot where it would go
+    private int findSlot(byte[] encoded, int hash) {
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+        while (table[slot] != 0) {
+            int code = table[slot] - 1;
+            if (hashes[code] == hash && valueEquals(code, encoded)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        int[] bigger = new int[table.length * 2];
+        int mask = bigger.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = mix(hashes[code]) & mask;
+            while (bigger[slot] != 0) slot = (slot + 1) & mask;
+            bigger[slot] = code + 1;
+        }
+        table = bigger;
+    }
+
+    private long store(byte[] value, byte[] key) {
+        int length = 8 + value.length + key.length;
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < length) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, length));
+            chunks.add(chunk);
+        }
+        int pos = chunk.position();
+        chunk.putInt(value.length).put(value).putInt(key.length).put(key);
+        bytes += length;
+        return ((long) (chunks.size() - 1) << 32) | pos;
+    }
+
+    private boolean valueEquals(int code, byte[] encoded) {
+        ByteBuffer chunk = chunkOf(code);
+        int pos = positionOf(code);
+        if (chunk.getInt(pos) != encoded.length) return false;
+        for (int i = 0; i < encoded.length; i++) {
+            if (chunk.get(pos + 4 + i) != encoded[i]) return false;
+        }
+        return true;
+    }
+
+    // UTF-8 never has one character's bytes inside another's, so a byte match is a string match
+    private static boolean contains(ByteBuffer chunk, int from, int length, byte[] needle) {
+        int last = from + length - needle.length;
+        for (int start = from; start <= last; start++) {
+            int i = 0;
+            while (i < needle.length && chunk.get(start + i) == needle[i]) i++;
+            if (i == needle.length) return true;
+        }
+        return false;
+    }
+
+    private static String decode(ByteBuffer chunk, int from, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = chunk.get(from + i);
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer chunkOf(int code) {
+        return chunks.get((int) (locations[code] >>> 32));
+    }
+
+    private int positionOf(int code) {
+        return (int) locations[code];
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
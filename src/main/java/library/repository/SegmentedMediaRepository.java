@@ -0,0 +1,292 @@
+package library.repository;
+
+import library.domain.media.Media;
+import library.domain.media.SearchKey;
+import library.dto.MediaFilter;
+import library.dto.SearchPage;
+import library.search.TopKCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-memory implementation of the MediaRepository that splits the catalogue into
+ * fixed-size segments and scans them in parallel on a {@link ForkJoinPool}.
+ * <ul>
+ *     <li>Items are appended to the last segment; a full segment is never resized.</li>
+ *     <li>Search splits the segments in halves until one segment is left and scans
+ *     each one on its own worker. Results are joined left before right, so they
+ *     come out in insertion order whatever the thread timing.</li>
+ *     <li>Ranked pages keep one bounded heap per segment and merge them; ties are
+ *     broken by insertion order, so pages are deterministic too.</li>
+ *     <li>A catalogue that fits in one segment is scanned on the calling thread.</li>
+ * </ul>
+ * Thread-safe: saves take a write lock, lookups and searches a read lock.
+ */
+public class SegmentedMediaRepository implements MediaRepository {
+
+    /** Default number of items per segment. */
+    public static final int DEFAULT_SEGMENT_SIZE = 4096;
+
+    private final int segmentSize;
+    private final ForkJoinPool pool;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // segments of segmentSize items; only the last one may be partly filled
+    private final List<Media[]> segments = new ArrayList<>();
+    private int size;
+
+    // media id -> position in insertion order
+    private final IdPositions positions = new IdPositions('M');
+
+    /**
+     * Creates a repository with {@link #DEFAULT_SEGMENT_SIZE} items per segment
+     * that searches on the common fork-join pool.
+     */
+    public SegmentedMediaRepository() {
+        this(DEFAULT_SEGMENT_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a repository.
+     *
+     * @param segmentSize number of items per segment
+     * @param pool        the pool that scans the segments
+     */
+    public SegmentedMediaRepository(int segmentSize, ForkJoinPool pool) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize must be positive");
+        }
+        this.segmentSize = segmentSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Saves a media item to the repository.
+     * Saving an item with an id that is already stored replaces it in place.
+     *
+     * @param media the media object to store
+     */
+    @Override
+    public void save(Media media) {
+        lock.writeLock().lock();
+        try {
+            int pos = positions.get(media.getId());
+            if (pos >= 0) {
+                segments.get(pos / segmentSize)[pos % segmentSize] = media;
+                return;
+            }
+            if (size % segmentSize == 0) segments.add(new Media[segmentSize]);
+            segments.get(size / segmentSize)[size % segmentSize] = media;
+            positions.put(media.getId(), size);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds a media item by its id.
+     *
+     * @param id the media id
+     * @return Optional containing the media if found, otherwise empty
+     */
+    @Override
+    public Optional<Media> findById(String id) {
+        lock.readLock().lock();
+        try {
+            int pos = positions.get(id);
+            return pos < 0 ? Optional.empty() : Optional.of(segments.get(pos / segmentSize)[pos % segmentSize]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds a media item by id number without building the id string.
+     *
+     * @param number the id number
+     * @return Optional containing the media if found, otherwise empty
+     */
+    @Override
+    public Optional<Media> findByNumber(long number) {
+        lock.readLock().lock();
+        try {
+            int pos = positions.get(number);
+            return pos < 0 ? Optional.empty() : Optional.of(segments.get(pos / segmentSize)[pos % segmentSize]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches media by title, author, artist, ISBN, or id, scanning the segments in parallel.
+     * The search ignores case and accents.
+     *
+     * @param q the search query
+     * @return list of matching media items, in insertion order
+     */
+    @Override
+    public List<Media> search(String q) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        return scan(m -> m.matches(nq));
+    }
+
+    /**
+     * Filtered search, scanning the segments in parallel.
+     *
+     * @param q      the search query (an empty query matches every item)
+     * @param filter the media type and availability to keep
+     * @return matching media items, in insertion order
+     */
+    @Override
+    public List<Media> search(String q, MediaFilter filter) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+        return scan(m -> filter.test(m) && m.matches(nq));
+    }
+
+    /**
+     * Ranked, paginated search with one bounded heap per segment.
+     *
+     * @param q      the search query
+     * @param offset number of best matches to skip
+     * @param limit  maximum number of items in the page
+     * @return the page, best match first, with the total number of matches
+     */
+    @Override
+    public SearchPage searchPage(String q, int offset, int limit) {
+        return searchPage(q, MediaFilter.ANY, offset, limit);
+    }
+
+    /**
+     * Filtered, ranked and paginated search with one bounded heap per segment.
+     *
+     * @param q      the search query (an empty query matches every item)
+     * @param filter the media type and availability to keep
+     * @param offset number of best matches to skip
+     * @param limit  maximum number of items in the page
+     * @return the page, best match first, with the total number of filtered matches
+     */
+    @Override
+    public SearchPage searchPage(String q, MediaFilter filter, int offset, int limit) {
+        String nq = q == null ? "" : SearchKey.normalize(q);
+
+        lock.readLock().lock();
+        try {
+            int count = size;
+            TopKCollector top = run(count, segment -> {
+                TopKCollector partial = new TopKCollector(offset, limit);
+                int start = segment * segmentSize;
+                Media[] items = segments.get(segment);
+                for (int i = 0, n = segmentLength(segment, count); i < n; i++) {
+                    if (filter.test(items[i])) partial.offer(items[i], start + i, nq);
+                }
+                return partial;
+            }, TopKCollector::merge, () -> new TopKCollector(offset, limit));
+            return top.toPage();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all stored media items in insertion order.
+     *
+     * @return list of all media
+     */
+    @Override
+    public List<Media> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Media> result = new ArrayList<>(size);
+            for (int s = 0; s < segments.size(); s++) {
+                Media[] items = segments.get(s);
+                for (int i = 0, n = segmentLength(s, size); i < n; i++) result.add(items[i]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return number of segments in use */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // items of all segments that pass the predicate, in insertion order
+    private List<Media> scan(Predicate<Media> predicate) {
+        lock.readLock().lock();
+        try {
+            int count = size;
+            return run(count, segment -> {
+                List<Media> matches = new ArrayList<>();
+                Media[] items = segments.get(segment);
+                for (int i = 0, n = segmentLength(segment, count); i < n; i++) {
+                    if (predicate.test(items[i])) matches.add(items[i]);
+                }
+                return matches;
+            }, (left, right) -> {
+                left.addAll(right);
+                return left;
+            }, ArrayList::new);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a task on every segment holding some of the first {@code count} items
+     * and merges the results left to right. Called with the read lock held.
+     */
+    private <R> R run(int count, IntFunction<R> perSegment, BinaryOperator<R> merge, Supplier<R> empty) {
+        int segmentCount = (count + segmentSize - 1) / segmentSize;
+        if (segmentCount == 0) return empty.get();
+        if (segmentCount == 1) return perSegment.apply(0);
+        return pool.invoke(new SegmentTask<>(0, segmentCount, perSegment, merge));
+    }
+
+    private int segmentLength(int segment, int count) {
+        return Math.min(segmentSize, count - segment * segmentSize);
+    }
+
+    /**
+     * Fork-join task over a range of segments: halves the range until one segment is left.
+     */
+    private static final class SegmentTask<R> extends RecursiveTask<R> {
+        private final int from;
+        private final int to;
+        private final IntFunction<R> perSegment;
+        private final BinaryOperator<R> merge;
+
+        SegmentTask(int from, int to, IntFunction<R> perSegment, BinaryOperator<R> merge) {
+            this.from = from;
+            this.to = to;
+            this.perSegment = perSegment;
+            this.merge = merge;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from == 1) return perSegment.apply(from);
+            int mid = (from + to) >>> 1;
+            SegmentTask<R> left = new SegmentTask<>(from, mid, perSegment, merge);
+            left.fork();
+            R right = new SegmentTask<>(mid, to, perSegment, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
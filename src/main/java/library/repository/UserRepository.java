@@ -1,8 +1,12 @@
 package library.repository;
 
+import library.domain.Ids;
 import library.domain.User;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -25,6 +29,33 @@ public interface UserRepository {
      */
     Optional<User> findById(String id);
 
+    /**
+     * Finds a user by the number of a generated id ("U42" has number 42).
+     * This default formats the id and calls {@link #findById(String)};
+     * repositories keyed by number look the number up directly.
+     *
+     * @param number the id number
+     * @return Optional containing the user if found, otherwise empty
+     */
+    default Optional<User> findByNumber(long number) {
+        return findById(Ids.format('U', number));
+    }
+
+    /**
+     * Finds several users by id in one call.
+     * Ids that are not found are left out of the result.
+     *
+     * @param ids the user ids
+     * @return map of user id to user
+     */
+    default Map<String, User> findAllById(Collection<String> ids) {
+        Map<String, User> result = new HashMap<>();
+        for (String id : ids) {
+            findById(id).ifPresent(u -> result.put(id, u));
+        }
+        return result;
+    }
+
     /**
      * Finds a user by email address.
      *
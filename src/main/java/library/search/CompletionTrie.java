@@ -0,0 +1,272 @@
+package library.search;
+
+import library.domain.media.Media;
+import library.domain.media.SearchKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Radix tree of normalized titles, authors and artists, used for autocomplete.
+ * <p>
+ * Each key is a normalized field value (see {@link SearchKey}), and its weight is the number of stored
+ * media items with that value. Shared prefixes are stored once, and chains of
+ * single-child nodes are merged into one edge, which keeps the tree small.
+ * <p>
+ * Every node also stores the highest weight found below it. So
+ * {@link #complete(String, int)} walks down the prefix and then visits nodes
+ * best-first. The cost depends on the prefix length and on k, not on the
+ * catalogue size.
+ * <p>
+ * Not thread-safe; the owning repository has to guard it.
+ */
+public class CompletionTrie {
+
+    private final Node root = new Node("");
+
+    /**
+     * Adds the title and the author or artist of a media item.
+     *
+     * @param media the media item
+     */
+    public void add(Media media) {
+        for (String value : SearchableText.completionFieldsOf(media)) {
+            add(value);
+        }
+    }
+
+    /**
+     * Removes the title and the author or artist of a media item added before.
+     *
+     * @param media the media item
+     */
+    public void remove(Media media) {
+        for (String value : SearchableText.completionFieldsOf(media)) {
+            remove(value);
+        }
+    }
+
+    /**
+     * Adds one value, or increases its weight if it is already present.
+     *
+     * @param value the value as it should be shown
+     */
+    public void add(String value) {
+        String key = SearchKey.normalize(value);
+        if (key.isEmpty()) return;
+
+        Node node = root;
+        int i = 0;
+        List<Node> path = new ArrayList<>();
+        path.add(node);
+        while (i < key.length()) {
+            int c = node.childIndex(key.charAt(i));
+            if (c < 0) {
+                Node leaf = new Node(key.substring(i));
+                node.insertChild(-c - 1, leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[c];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // split the edge: node -> mid -> child
+                Node mid = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                mid.children = new Node[]{child};
+                mid.maxWeight = child.maxWeight;
+                node.children[c] = mid;
+                child = mid;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+
+        node.weight++;
+        if (node.display == null) node.display = value;
+        for (Node n : path) {
+            n.maxWeight = Math.max(n.maxWeight, node.weight);
+        }
+    }
+
+    /**
+     * Decreases the weight of a value, and removes it when the weight reaches zero.
+     *
+     * @param value the value to remove
+     */
+    public void remove(String value) {
+        String key = SearchKey.normalize(value);
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int c = node.childIndex(key.charAt(i));
+            if (c < 0) return;
+            Node child = node.children[c];
+            if (!key.startsWith(child.label, i)) return;
+            node = child;
+            path.add(node);
+            i += child.label.length();
+        }
+        if (node.weight == 0) return;
+
+        node.weight--;
+        if (node.weight == 0) node.display = null;
+
+        // prune empty nodes and fix maxWeight from the bottom up
+        for (int p = path.size() - 1; p > 0; p--) {
+            Node n = path.get(p);
+            Node parent = path.get(p - 1);
+            if (n.weight == 0 && n.children.length == 0) {
+                parent.removeChild(n);
+            } else if (n.weight == 0 && n.children.length == 1) {
+                Node only = n.children[0];
+                only.label = n.label + only.label;
+                parent.children[parent.childIndex(only.label.charAt(0))] = only;
+            } else {
+                n.recomputeMaxWeight();
+            }
+        }
+        root.recomputeMaxWeight();
+    }
+
+    /**
+     * Returns the top-k values that start with the prefix, highest weight first.
+     * Values with the same weight are sorted alphabetically.
+     *
+     * @param prefix the typed prefix (ignores case and accents), null or empty for all values
+     * @param k      maximum number of results
+     * @return up to k matching values, as they were added
+     */
+    public List<String> complete(String prefix, int k) {
+        List<String> result = new ArrayList<>();
+        if (k <= 0) return result;
+        String key = prefix == null ? "" : SearchKey.normalize(prefix);
+
+        // 1) walk down the prefix; it may end inside an edge
+        Node node = root;
+        StringBuilder path = new StringBuilder();
+        int i = 0;
+        while (i < key.length()) {
+            int c = node.childIndex(key.charAt(i));
+            if (c < 0) return result;
+            Node child = node.children[c];
+            int common = commonPrefix(child.label, key, i);
+            if (i + common < key.length() && common < child.label.length()) return result;
+            path.append(child.label);
+            node = child;
+            i += common;
+        }
+
+        // 2) best-first: highest (max) weight first, then alphabetical
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        queue.add(new Entry(node, path.toString(), node.maxWeight, false));
+        while (!queue.isEmpty() && result.size() < k) {
+            Entry e = queue.poll();
+            if (e.terminal) {
+                result.add(e.node.display);
+                continue;
+            }
+            if (e.node.weight > 0) {
+                queue.add(new Entry(e.node, e.key, e.node.weight, true));
+            }
+            for (Node child : e.node.children) {
+                queue.add(new Entry(child, e.key + child.label, child.maxWeight, false));
+            }
+        }
+        return result;
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int n = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(from + i)) i++;
+        return i;
+    }
+
+    /**
+     * One node of the tree; the label is the text on the edge from its parent.
+     */
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        String label;
+        // sorted by the first char of their label
+        Node[] children = NO_CHILDREN;
+        // number of items with exactly this key, 0 if no key ends here
+        int weight;
+        // the value as first added, shown to the user
+        String display;
+        // highest weight in this subtree
+        int maxWeight;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        // index of the child starting with ch, or (-(insertion point) - 1)
+        int childIndex(char ch) {
+            int lo = 0, hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char m = children[mid].label.charAt(0);
+                if (m < ch) lo = mid + 1;
+                else if (m > ch) hi = mid - 1;
+                else return mid;
+            }
+            return -lo - 1;
+        }
+
+        void insertChild(int pos, Node child) {
+            Node[] next = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(children, pos, next, pos + 1, children.length - pos);
+            next[pos] = child;
+            children = next;
+        }
+
+        void removeChild(Node child) {
+            int pos = childIndex(child.label.charAt(0));
+            Node[] next = new Node[children.length - 1];
+            System.arraycopy(children, 0, next, 0, pos);
+            System.arraycopy(children, pos + 1, next, pos, children.length - pos - 1);
+            children = next.length == 0 ? NO_CHILDREN : next;
+        }
+
+        void recomputeMaxWeight() {
+            int max = weight;
+            for (Node c : children) max = Math.max(max, c.maxWeight);
+            maxWeight = max;
+        }
+    }
+
+    /**
+     * Queue entry: either a subtree (ranked by its max weight) or a finished value.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        final Node node;
+        final String key;
+        final int weight;
+        final boolean terminal;
+
+        Entry(Node node, String key, int weight, boolean terminal) {
+            this.node = node;
+            this.key = key;
+            this.weight = weight;
+            this.terminal = terminal;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            if (weight != o.weight) return Integer.compare(o.weight, weight);
+            int byKey = key.compareTo(o.key);
+            if (byKey != 0) return byKey;
+            // a finished value comes before the subtree below the same key
+            return Boolean.compare(o.terminal, terminal);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package library.search;
+
+import library.domain.media.Media;
+import library.dto.MediaFilter;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bitsets of the documents per media type and of the available documents.
+ * A {@link MediaFilter} is answered by intersecting them, without looking at
+ * the items themselves. The owner keeps the availability bits up to date,
+ * e.g. from a {@link Media.AvailabilityListener}.
+ * <p>
+ * Adding and removing items must not run concurrently with other calls, like the
+ * repositories that own the index. Availability changes may come from any thread
+ * (borrowing reserves items concurrently): the availability bits are guarded by
+ * a lock that {@link #matching(MediaFilter)} also takes while it reads them.
+ */
+public class FacetIndex {
+
+    // media type -> documents of that type
+    private final Map<String, BitSet> byType = new HashMap<>();
+
+    // documents that are available now; guarded by availableLock
+    private final BitSet available = new BitSet();
+    private final Object availableLock = new Object();
+
+    // all documents
+    private final BitSet all = new BitSet();
+
+    /**
+     * Adds an item with its current type and availability.
+     *
+     * @param doc   the document number of the item
+     * @param media the media item
+     */
+    public void add(int doc, Media media) {
+        all.set(doc);
+        byType.computeIfAbsent(media.getMediaType(), k -> new BitSet()).set(doc);
+        synchronized (availableLock) {
+            available.set(doc, media.isAvailable());
+        }
+    }
+
+    /**
+     * Removes an item added before with the same document number.
+     *
+     * @param doc   the document number of the item
+     * @param media the media item, as it was added
+     */
+    public void remove(int doc, Media media) {
+        all.clear(doc);
+        BitSet docs = byType.get(media.getMediaType());
+        if (docs != null) docs.clear(doc);
+        synchronized (availableLock) {
+            available.clear(doc);
+        }
+    }
+
+    /**
+     * Records a change of availability. Safe to call from any thread.
+     * The bit is read from the item under the lock rather than taken from the
+     * change event: events of two quick changes may arrive in either order, and
+     * the last writer then still stores the current state.
+     *
+     * @param doc   the document number of the item
+     * @param media the media item whose availability changed
+     */
+    public void updateAvailable(int doc, Media media) {
+        if (!all.get(doc)) return;
+        synchronized (availableLock) {
+            available.set(doc, media.isAvailable());
+        }
+    }
+
+    /**
+     * Returns the documents accepted by a filter.
+     *
+     * @param filter the filter
+     * @return a new bit set of the accepted documents, or null if the filter accepts everything
+     */
+    public BitSet matching(MediaFilter filter) {
+        if (filter.isAny()) return null;
+
+        BitSet result;
+        if (filter.getMediaType() != null) {
+            BitSet docs = byType.get(filter.getMediaType());
+            result = docs == null ? new BitSet() : (BitSet) docs.clone();
+        } else {
+            result = (BitSet) all.clone();
+        }
+
+        Boolean wanted = filter.getAvailable();
+        if (wanted != null) {
+            synchronized (availableLock) {
+                if (wanted) result.and(available);
+                else result.andNot(available);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Restricts candidate documents to the documents accepted by a filter.
+     *
+     * @param docs   sorted candidates, or null for all documents
+     * @param filter the filter
+     * @return the sorted accepted candidates, or null if both mean "all documents"
+     */
+    public int[] restrict(int[] docs, MediaFilter filter) {
+        BitSet accepted = matching(filter);
+        if (accepted == null) return docs;
+        if (docs != null) {
+            BitSet candidates = new BitSet();
+            for (int doc : docs) candidates.set(doc);
+            accepted.and(candidates);
+        }
+        return accepted.stream().toArray();
+    }
+}
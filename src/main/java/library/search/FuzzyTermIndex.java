@@ -0,0 +1,253 @@
+package library.search;
+
+import library.domain.media.Media;
+import library.domain.media.SearchKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typo-tolerant index over the words of titles, authors and artists.
+ * <p>
+ * Every distinct word is stored once in a BK-tree: each node keeps its
+ * children by their edit distance to the node. To find the words within
+ * distance k of a query word at distance d from a node, only the children
+ * at distance d-k to d+k need to be visited (triangle inequality). So a lookup
+ * touches a small part of the dictionary, not every item of the catalogue.
+ * Distances at a node are computed with the bounded {@link Levenshtein#distance(String, String, int)},
+ * only as far as the node's children and the allowed distance need.
+ * <p>
+ * Words whose postings become empty are dropped from the word map at once and
+ * stay in the tree as dead nodes; once the tree holds more dead than live words
+ * it is rebuilt from the live ones.
+ * <p>
+ * A query matches an item when every query word is within the distance of
+ * some word of the item. Results are ranked by the total distance, then by
+ * document number. Not thread-safe; the owning repository has to guard it.
+ */
+public class FuzzyTermIndex {
+
+    // word -> sorted documents containing it
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    // live words, plus dead words not yet pruned by a rebuild
+    private Node root;
+
+    // number of words in the tree
+    private int treeSize;
+
+    /**
+     * Adds the words of the title and author or artist of an item.
+     *
+     * @param doc   the document number of the item
+     * @param media the media item
+     */
+    public void add(int doc, Media media) {
+        for (String word : wordsOf(media)) {
+            PostingList list = postings.get(word);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(word, list);
+                insert(word);
+            }
+            list.add(doc);
+        }
+    }
+
+    /**
+     * Removes an item added before with the same document number.
+     *
+     * @param doc   the document number of the item
+     * @param media the media item, as it was added
+     */
+    public void remove(int doc, Media media) {
+        for (String word : wordsOf(media)) {
+            PostingList list = postings.get(word);
+            if (list == null) continue;
+            list.remove(doc);
+            if (list.isEmpty()) postings.remove(word);
+        }
+        if (treeSize > 2 * postings.size()) rebuild();
+    }
+
+    /**
+     * @return number of words in the BK-tree, dead ones included
+     */
+    public int treeSize() {
+        return treeSize;
+    }
+
+    /**
+     * Searches a list of items without an index, ranking them like {@link #search}.
+     * Each item word is compared with the bounded distance, which is cheaper than
+     * building a tree for a single query.
+     *
+     * @param items       the items; their positions are the document numbers
+     * @param nq          the normalized query
+     * @param maxDistance largest edit distance allowed per word
+     * @return matching positions, best (smallest total distance) first
+     * @throws IllegalArgumentException if maxDistance is negative
+     */
+    public static int[] scan(List<? extends Media> items, String nq, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative");
+        }
+        Set<String> queryWords = new HashSet<>(SearchableText.tokens(nq));
+        if (queryWords.isEmpty()) return new int[0];
+
+        // document -> total distance over the query words
+        Map<Integer, Integer> total = new HashMap<>();
+        for (int doc = 0; doc < items.size(); doc++) {
+            Set<String> words = wordsOf(items.get(doc));
+            int sum = 0;
+            for (String qw : queryWords) {
+                int best = maxDistance + 1;
+                for (String word : words) {
+                    best = Math.min(best, Levenshtein.distance(qw, word, best - 1));
+                    if (best == 0) break;
+                }
+                if (best > maxDistance) {
+                    sum = -1;
+                    break;
+                }
+                sum += best;
+            }
+            if (sum >= 0) total.put(doc, sum);
+        }
+        return rank(total);
+    }
+
+    /**
+     * Finds the documents whose words are within the edit distance of every query word.
+     *
+     * @param nq          the normalized query
+     * @param maxDistance largest edit distance allowed per word
+     * @return matching documents, best (smallest total distance) first
+     * @throws IllegalArgumentException if maxDistance is negative
+     */
+    public int[] search(String nq, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative");
+        }
+        List<String> queryWords = SearchableText.tokens(nq);
+        if (queryWords.isEmpty() || root == null) return new int[0];
+
+        // document -> total distance over the query words handled so far
+        Map<Integer, Integer> total = null;
+        for (String qw : new HashSet<>(queryWords)) {
+            Map<Integer, Integer> best = new HashMap<>();
+            for (Map.Entry<String, Integer> hit : lookup(qw, maxDistance).entrySet()) {
+                PostingList list = postings.get(hit.getKey());
+                for (int doc : list.toArray()) {
+                    best.merge(doc, hit.getValue(), Math::min);
+                }
+            }
+
+            if (total == null) {
+                total = best;
+            } else {
+                Map<Integer, Integer> next = new HashMap<>();
+                for (Map.Entry<Integer, Integer> e : total.entrySet()) {
+                    Integer d = best.get(e.getKey());
+                    if (d != null) next.put(e.getKey(), e.getValue() + d);
+                }
+                total = next;
+            }
+            if (total.isEmpty()) return new int[0];
+        }
+
+        return rank(total);
+    }
+
+    // documents by total distance, then by document number
+    private static int[] rank(Map<Integer, Integer> total) {
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(total.entrySet());
+        ranked.sort((x, y) -> x.getValue().equals(y.getValue())
+                ? Integer.compare(x.getKey(), y.getKey())
+                : Integer.compare(x.getValue(), y.getValue()));
+        int[] docs = new int[ranked.size()];
+        for (int i = 0; i < docs.length; i++) docs[i] = ranked.get(i).getKey();
+        return docs;
+    }
+
+    /**
+     * Finds the stored words within the distance of a query word.
+     *
+     * @return word -> its distance to the query word
+     */
+    private Map<String, Integer> lookup(String qw, int maxDistance) {
+        Map<String, Integer> hits = new HashMap<>();
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            // beyond maxChild + maxDistance neither the node nor a child can match
+            int d = Levenshtein.distance(qw, node.word, node.maxChild + maxDistance);
+            if (d <= maxDistance && postings.containsKey(node.word)) {
+                hits.put(node.word, d);
+            }
+            if (node.children == null) continue;
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                int cd = child.getKey();
+                if (cd >= d - maxDistance && cd <= d + maxDistance) stack.add(child.getValue());
+            }
+        }
+        return hits;
+    }
+
+    private void rebuild() {
+        root = null;
+        treeSize = 0;
+        for (String word : postings.keySet()) {
+            insert(word);
+        }
+    }
+
+    private void insert(String word) {
+        if (root == null) {
+            root = new Node(word);
+            treeSize++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int d = Levenshtein.distance(word, node.word);
+            if (d == 0) return;
+            if (node.children == null) node.children = new HashMap<>(4);
+            Node child = node.children.get(d);
+            if (child == null) {
+                node.children.put(d, new Node(word));
+                node.maxChild = Math.max(node.maxChild, d);
+                treeSize++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    private static Set<String> wordsOf(Media media) {
+        Set<String> words = new HashSet<>();
+        for (String value : SearchableText.completionFieldsOf(media)) {
+            words.addAll(SearchableText.tokens(SearchKey.normalize(value)));
+        }
+        return words;
+    }
+
+    /**
+     * BK-tree node: a word and its children keyed by edit distance to it.
+     */
+    private static final class Node {
+        final String word;
+        Map<Integer, Node> children;
+        // largest distance among the children, 0 without children
+        int maxChild;
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+}
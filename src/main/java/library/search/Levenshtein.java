@@ -0,0 +1,73 @@
+package library.search;
+
+/**
+ * Levenshtein (edit) distance: the number of single-character insertions,
+ * deletions and substitutions needed to turn one string into another.
+ */
+public final class Levenshtein {
+
+    private Levenshtein() {
+    }
+
+    /**
+     * Computes the exact edit distance.
+     *
+     * @param a first string
+     * @param b second string
+     * @return the edit distance
+     */
+    public static int distance(String a, String b) {
+        return distance(a, b, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Computes the edit distance, but gives up as soon as it is known to be
+     * larger than {@code max}. Only the cells within {@code max} of the
+     * diagonal are computed, so the cost is O(max * length) instead of O(length^2).
+     *
+     * @param a   first string
+     * @param b   second string
+     * @param max the largest distance of interest
+     * @return the edit distance if it is at most max, otherwise max + 1
+     */
+    public static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        if (a.length() > b.length()) {
+            String t = a;
+            a = b;
+            b = t;
+        }
+        int n = a.length();
+        int m = b.length();
+        if (n == 0) return m <= max ? m : max + 1;
+
+        final int over = max + 1;
+        int[] prev = new int[n + 1];
+        int[] curr = new int[n + 1];
+        for (int i = 0; i <= n; i++) prev[i] = i <= max ? i : over;
+
+        for (int j = 1; j <= m; j++) {
+            char bc = b.charAt(j - 1);
+            // only cells near the diagonal can stay within max
+            int from = Math.max(1, j - max);
+            int to = (int) Math.min(n, (long) j + max);
+            curr[0] = j <= max ? j : over;
+            if (from > 1) curr[from - 1] = over;
+
+            int rowMin = curr[0];
+            for (int i = from; i <= to; i++) {
+                int cost = a.charAt(i - 1) == bc ? 0 : 1;
+                int v = Math.min(Math.min(curr[i - 1] + 1, prev[i] + 1), prev[i - 1] + cost);
+                curr[i] = Math.min(v, over);
+                rowMin = Math.min(rowMin, curr[i]);
+            }
+            if (to < n) curr[to + 1] = over;
+            if (rowMin > max) return over;
+
+            int[] t = prev;
+            prev = curr;
+            curr = t;
+        }
+        return prev[n] <= max ? prev[n] : over;
+    }
+}
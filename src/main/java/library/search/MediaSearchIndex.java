@@ -0,0 +1,40 @@
+package library.search;
+
+import library.domain.media.Media;
+
+/**
+ * Search index that a media repository can plug in to speed up {@code search}.
+ * <p>
+ * The repository gives every stored item a document number (its position in
+ * insertion order). The index returns candidate document numbers for a query.
+ * The candidates may include items that don't match, so the repository still
+ * checks each one against the real fields. This keeps search results exactly
+ * the same as a full scan.
+ */
+public interface MediaSearchIndex {
+
+    /**
+     * Adds a media item to the index.
+     *
+     * @param doc   the document number of the item
+     * @param media the media item
+     */
+    void add(int doc, Media media);
+
+    /**
+     * Removes a media item that was added before with the same document number.
+     *
+     * @param doc   the document number of the item
+     * @param media the media item, as it was added
+     */
+    void remove(int doc, Media media);
+
+    /**
+     * Returns the candidate documents for a query.
+     *
+     * @param nq the query, normalized with {@link library.domain.media.SearchKey#normalize(String)}
+     * @return sorted document numbers that may match, or null if the index
+     *         cannot narrow this query and every item has to be checked
+     */
+    int[] candidates(String nq);
+}
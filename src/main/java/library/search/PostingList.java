@@ -0,0 +1,107 @@
+package library.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted list of document numbers without duplicates, stored in a growable int array.
+ * Documents are usually added in increasing order, which is a plain append.
+ */
+final class PostingList {
+
+    private int[] docs = new int[4];
+    private int size;
+
+    /**
+     * Adds a document number, keeping the list sorted.
+     *
+     * @param doc the document number
+     */
+    void add(int doc) {
+        if (size > 0 && docs[size - 1] >= doc) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos >= 0) return;
+            insertAt(-pos - 1, doc);
+            return;
+        }
+        if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+        docs[size++] = doc;
+    }
+
+    /**
+     * Removes a document number if present.
+     *
+     * @param doc the document number
+     */
+    void remove(int doc) {
+        int pos = Arrays.binarySearch(docs, 0, size, doc);
+        if (pos < 0) return;
+        System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+        size--;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(docs, size);
+    }
+
+    /**
+     * Sets the bits of all documents of this list.
+     *
+     * @param bits the bit set to update
+     */
+    void addTo(BitSet bits) {
+        for (int i = 0; i < size; i++) bits.set(docs[i]);
+    }
+
+    /**
+     * Intersects this list with a sorted array.
+     *
+     * @param other sorted document numbers
+     * @return sorted documents found in both
+     */
+    int[] intersect(int[] other) {
+        return intersect(docs, size, other, other.length);
+    }
+
+    /**
+     * Intersects two sorted arrays with a linear merge.
+     *
+     * @return sorted documents found in both
+     */
+    static int[] intersect(int[] a, int aLen, int[] b, int bLen) {
+        int[] out = new int[Math.min(aLen, bLen)];
+        int i = 0, j = 0, n = 0;
+        while (i < aLen && j < bLen) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * @return the set bits as a sorted array
+     */
+    static int[] toArray(BitSet bits) {
+        return bits.stream().toArray();
+    }
+
+    private void insertAt(int pos, int doc) {
+        if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+        System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+        docs[pos] = doc;
+        size++;
+    }
+}
@@ -0,0 +1,63 @@
+package library.search;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+
+/**
+ * Scores how well a media item matches a search query, for ranked search.
+ * <p>
+ * Each field gets points for the best kind of match it has, and the item
+ * gets the points of its best field:
+ * <ul>
+ *     <li>Title: equal 100, starts with the query 80, query at the start of a word 60, anywhere 40.</li>
+ *     <li>Author or artist: equal 70, starts with 50, start of a word 40, anywhere 20.</li>
+ *     <li>ISBN: equal 90, anywhere 15.</li>
+ *     <li>Id: equal 100, anywhere 5.</li>
+ * </ul>
+ * Only the pre-computed search keys are read, so scoring allocates nothing.
+ */
+public final class Relevance {
+
+    /** Score of items that don't match the query. */
+    public static final int NO_MATCH = -1;
+
+    private Relevance() {
+    }
+
+    /**
+     * Scores a media item against a normalized query.
+     *
+     * @param m  the media item
+     * @param nq the normalized query; an empty query matches everything with score 0
+     * @return the score, or {@link #NO_MATCH}
+     */
+    public static int score(Media m, String nq) {
+        if (!m.matches(nq)) return NO_MATCH;
+        if (nq.isEmpty()) return 0;
+
+        int best = textScore(m.getTitleKey(), nq, 100, 80, 60, 40);
+        if (m instanceof Book) {
+            Book b = (Book) m;
+            best = Math.max(best, textScore(b.getAuthorKey(), nq, 70, 50, 40, 20));
+            best = Math.max(best, textScore(b.getIsbnKey(), nq, 90, 15, 15, 15));
+        } else if (m instanceof CD) {
+            best = Math.max(best, textScore(((CD) m).getArtistKey(), nq, 70, 50, 40, 20));
+        }
+        return Math.max(best, textScore(m.getIdKey(), nq, 100, 5, 5, 5));
+    }
+
+    private static int textScore(String key, String nq, int equal, int prefix, int wordStart, int inside) {
+        if (key == null) return 0;
+        int at = key.indexOf(nq);
+        if (at < 0) return 0;
+        if (at == 0) return key.length() == nq.length() ? equal : prefix;
+
+        // look for an occurrence that starts a word
+        while (at > 0) {
+            if (!Character.isLetterOrDigit(key.charAt(at - 1))) return wordStart;
+            at = key.indexOf(nq, at + 1);
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,91 @@
+package library.search;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.domain.media.SearchKey;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers for the searchable text of media items.
+ * The fields are the same ones that media search looks at: title, author and
+ * ISBN for books, artist for CDs, and the id.
+ */
+public final class SearchableText {
+
+    private SearchableText() {
+    }
+
+    /**
+     * Returns the search keys of the searchable fields of a media item
+     * (see {@link SearchKey}). Missing (null) fields are left out.
+     *
+     * @param m the media item
+     * @return list of field keys
+     */
+    public static List<String> fieldsOf(Media m) {
+        List<String> fields = new ArrayList<>(4);
+        addField(fields, m.getTitleKey());
+        if (m instanceof Book) {
+            Book b = (Book) m;
+            addField(fields, b.getAuthorKey());
+            addField(fields, b.getIsbnKey());
+        } else if (m instanceof CD) {
+            addField(fields, ((CD) m).getArtistKey());
+        }
+        addField(fields, m.getIdKey());
+        return fields;
+    }
+
+    /**
+     * Returns the fields offered by autocomplete: the title, and the author
+     * for books or the artist for CDs. Values are kept as stored, and missing or
+     * empty fields are left out.
+     *
+     * @param m the media item
+     * @return list of field values
+     */
+    public static List<String> completionFieldsOf(Media m) {
+        List<String> fields = new ArrayList<>(2);
+        addValue(fields, m.getTitle());
+        if (m instanceof Book) {
+            addValue(fields, ((Book) m).getAuthor());
+        } else if (m instanceof CD) {
+            addValue(fields, ((CD) m).getArtist());
+        }
+        return fields;
+    }
+
+    /**
+     * Splits text into tokens: the longest runs of letters and digits.
+     * Any substring of the text that is made only of letters and digits
+     * lies inside one of the tokens.
+     *
+     * @param text the text to split
+     * @return tokens in order of appearance (may repeat)
+     */
+    public static List<String> tokens(String text) {
+        List<String> result = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                result.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) result.add(text.substring(start));
+        return result;
+    }
+
+    private static void addValue(List<String> fields, String value) {
+        if (value != null && !value.isEmpty()) fields.add(value);
+    }
+
+    private static void addField(List<String> fields, String key) {
+        if (key != null) fields.add(key);
+    }
+}
@@ -0,0 +1,167 @@
+package library.search;
+
+import library.domain.media.Media;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Inverted index from tokens to the media items that contain them.
+ * <p>
+ * Every searchable field is split into tokens (runs of letters and digits),
+ * and each token keeps a sorted posting list of document numbers.
+ * A query is answered like this:
+ * <ul>
+ *     <li>The query is split into tokens the same way.</li>
+ *     <li>For each query token, the candidates are the postings of every indexed
+ *     token that contains it. A whole-token query like "code" also finds
+ *     "codes", because plain search matches anywhere inside the text.</li>
+ *     <li>The candidate lists of all query tokens are intersected.</li>
+ * </ul>
+ * Indexed tokens that contain a query token are found through two sorted maps:
+ * the tokens themselves (for tokens starting with the query token) and the first
+ * {@value #SUFFIX_KEY_LENGTH} characters of their proper suffixes (for tokens that
+ * contain it further inside). Keeping only the start of each suffix makes the
+ * memory linear in the token length; a longer query token is looked up by its
+ * start and the tokens found are checked for the whole query token. So a lookup
+ * costs a range scan over the matching tokens, not a scan over the whole dictionary.
+ * <p>
+ * Queries without any letter or digit cannot be narrowed and return null.
+ * Not thread-safe; the owning repository has to guard it.
+ */
+public class TokenSearchIndex implements MediaSearchIndex {
+
+    // token -> sorted documents containing it
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+
+    // characters of a suffix kept as its key
+    private static final int SUFFIX_KEY_LENGTH = 3;
+
+    // start of a proper suffix of a token -> tokens with such a suffix
+    private final NavigableMap<String, Set<String>> suffixes = new TreeMap<>();
+
+    @Override
+    public void add(int doc, Media media) {
+        for (String token : tokensOf(media)) {
+            PostingList list = postings.get(token);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(token, list);
+                addSuffixes(token);
+            }
+            list.add(doc);
+        }
+    }
+
+    @Override
+    public void remove(int doc, Media media) {
+        for (String token : tokensOf(media)) {
+            PostingList list = postings.get(token);
+            if (list == null) continue;
+            list.remove(doc);
+            if (list.isEmpty()) {
+                postings.remove(token);
+                removeSuffixes(token);
+            }
+        }
+    }
+
+    @Override
+    public int[] candidates(String nq) {
+        Set<String> queryTokens = new HashSet<>(SearchableText.tokens(nq));
+        if (queryTokens.isEmpty()) return null;
+
+        int[] result = null;
+        for (String qt : queryTokens) {
+            int[] docs = docsContaining(qt);
+            result = result == null ? docs : PostingList.intersect(result, result.length, docs, docs.length);
+            if (result.length == 0) break;
+        }
+        return result;
+    }
+
+    /**
+     * @return number of distinct tokens in the index
+     */
+    public int tokenCount() {
+        return postings.size();
+    }
+
+    /**
+     * Finds the documents with a token that contains the given query token.
+     */
+    private int[] docsContaining(String qt) {
+        NavigableMap<String, PostingList> starting = startingWith(postings, qt);
+        List<String> inner = containingInside(qt);
+
+        // only the exact token contains qt -> its posting list needs no merging
+        PostingList exact = postings.get(qt);
+        String next = postings.higherKey(qt);
+        if (exact != null && (next == null || !next.startsWith(qt)) && inner.isEmpty()) {
+            return exact.toArray();
+        }
+
+        BitSet docs = new BitSet();
+        for (PostingList list : starting.values()) {
+            list.addTo(docs);
+        }
+        for (String token : inner) {
+            postings.get(token).addTo(docs);
+        }
+        return PostingList.toArray(docs);
+    }
+
+    /**
+     * Finds the tokens that contain the query token after their first character.
+     */
+    private List<String> containingInside(String qt) {
+        boolean longer = qt.length() > SUFFIX_KEY_LENGTH;
+        String key = longer ? qt.substring(0, SUFFIX_KEY_LENGTH) : qt;
+        List<String> result = new ArrayList<>();
+        for (Set<String> tokens : startingWith(suffixes, key).values()) {
+            for (String token : tokens) {
+                // the key only holds the start of the suffix, so check the rest
+                if (!longer || token.indexOf(qt, 1) >= 0) result.add(token);
+            }
+        }
+        return result;
+    }
+
+    private void addSuffixes(String token) {
+        for (int i = 1; i < token.length(); i++) {
+            suffixes.computeIfAbsent(suffixKey(token, i), k -> new HashSet<>()).add(token);
+        }
+    }
+
+    private void removeSuffixes(String token) {
+        for (int i = 1; i < token.length(); i++) {
+            String suffix = suffixKey(token, i);
+            Set<String> tokens = suffixes.get(suffix);
+            if (tokens == null) continue;
+            tokens.remove(token);
+            if (tokens.isEmpty()) suffixes.remove(suffix);
+        }
+    }
+
+    private static String suffixKey(String token, int start) {
+        return token.substring(start, Math.min(token.length(), start + SUFFIX_KEY_LENGTH));
+    }
+
+    // keys that start with the prefix form one range of the sorted map
+    private static <V> NavigableMap<String, V> startingWith(NavigableMap<String, V> map, String prefix) {
+        return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static Set<String> tokensOf(Media media) {
+        Set<String> tokens = new HashSet<>();
+        for (String field : SearchableText.fieldsOf(media)) {
+            tokens.addAll(SearchableText.tokens(field));
+        }
+        return tokens;
+    }
+}
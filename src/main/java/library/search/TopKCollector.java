@@ -0,0 +1,116 @@
+package library.search;
+
+import library.domain.media.Media;
+import library.dto.SearchPage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best {@code offset + limit} scored items seen so far in a bounded heap,
+ * and counts all matches. Used to build a {@link SearchPage} without sorting,
+ * or even storing, all the matches.
+ * <p>
+ * Higher scores rank first; equal scores keep insertion order (lower ordinal first).
+ */
+public class TopKCollector {
+
+    // higher score first, then lower ordinal
+    private static final Comparator<Scored> BEST_FIRST = (a, b) -> a.score != b.score
+            ? Integer.compare(b.score, a.score)
+            : Integer.compare(a.ordinal, b.ordinal);
+
+    private final int offset;
+    private final int limit;
+    private final int capacity;
+
+    // worst kept entry on top, so it can be replaced cheaply
+    private final PriorityQueue<Scored> heap;
+    private int matches;
+
+    /**
+     * Creates a collector for one page.
+     *
+     * @param offset number of best matches to skip
+     * @param limit  page size
+     */
+    public TopKCollector(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        this.offset = offset;
+        this.limit = limit;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE - 8L, (long) offset + limit);
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(capacity, 1024)), BEST_FIRST.reversed());
+    }
+
+    /**
+     * Scores an item and keeps it if it ranks among the best so far.
+     *
+     * @param media   the media item
+     * @param ordinal position of the item in insertion order
+     * @param nq      the normalized query
+     */
+    public void offer(Media media, int ordinal, String nq) {
+        int score = Relevance.score(media, nq);
+        if (score == Relevance.NO_MATCH) return;
+
+        matches++;
+        if (capacity == 0) return;
+        keep(new Scored(media, score, ordinal));
+    }
+
+    private void keep(Scored candidate) {
+        if (heap.size() < capacity) {
+            heap.add(candidate);
+        } else if (BEST_FIRST.compare(candidate, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    /**
+     * Adds the matches of another collector for the same page, e.g. one that
+     * scanned another part of the catalogue. Ordinals must be unique across both.
+     *
+     * @param other the collector to take the matches from
+     * @return this collector
+     */
+    public TopKCollector merge(TopKCollector other) {
+        matches += other.matches;
+        for (Scored candidate : other.heap) {
+            keep(candidate);
+        }
+        return this;
+    }
+
+    /**
+     * Builds the requested page from the kept items.
+     *
+     * @return the page, best match first
+     */
+    public SearchPage toPage() {
+        List<Scored> ranked = new ArrayList<>(heap);
+        ranked.sort(BEST_FIRST);
+
+        List<Media> items = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            items.add(ranked.get(i).media);
+        }
+        return new SearchPage(items, offset, limit, matches);
+    }
+
+    private static final class Scored {
+        final Media media;
+        final int score;
+        final int ordinal;
+
+        Scored(Media media, int score, int ordinal) {
+            this.media = media;
+            this.score = score;
+            this.ordinal = ordinal;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package library.search;
+
+import library.domain.media.Media;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index for "contains anywhere" search.
+ * <p>
+ * Every run of three characters of each searchable field key
+ * (spaces and punctuation included) keeps a sorted posting list of document numbers.
+ * Any text that contains the query also contains every trigram of the query, so
+ * intersecting the posting lists of the query trigrams gives a set of candidates
+ * that includes all real matches. The repository then checks the candidates
+ * against the real fields, which keeps the exact {@code contains} semantics.
+ * <p>
+ * Queries shorter than three characters have no trigram and return null,
+ * so the repository scans the catalogue for them.
+ * Not thread-safe; the owning repository has to guard it.
+ */
+public class TrigramSearchIndex implements MediaSearchIndex {
+
+    // packed trigram -> sorted documents containing it
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    @Override
+    public void add(int doc, Media media) {
+        for (Long gram : trigramsOf(media)) {
+            postings.computeIfAbsent(gram, k -> new PostingList()).add(doc);
+        }
+    }
+
+    @Override
+    public void remove(int doc, Media media) {
+        for (Long gram : trigramsOf(media)) {
+            PostingList list = postings.get(gram);
+            if (list == null) continue;
+            list.remove(doc);
+            if (list.isEmpty()) postings.remove(gram);
+        }
+    }
+
+    @Override
+    public int[] candidates(String nq) {
+        if (nq.length() < 3) return null;
+
+        Set<Long> grams = new HashSet<>();
+        addTrigrams(grams, nq);
+
+        List<PostingList> lists = new ArrayList<>(grams.size());
+        for (Long gram : grams) {
+            PostingList list = postings.get(gram);
+            if (list == null) return new int[0];
+            lists.add(list);
+        }
+
+        // start with the shortest list so the intermediate results stay small
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        int[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = lists.get(i).intersect(result);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of distinct trigrams in the index
+     */
+    public int trigramCount() {
+        return postings.size();
+    }
+
+    private static Set<Long> trigramsOf(Media media) {
+        Set<Long> grams = new HashSet<>();
+        for (String field : SearchableText.fieldsOf(media)) {
+            addTrigrams(grams, field);
+        }
+        return grams;
+    }
+
+    // three 16-bit chars packed into one long key
+    private static void addTrigrams(Set<Long> grams, String text) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            long gram = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+            grams.add(gram);
+        }
+    }
+}
@@ -5,16 +5,35 @@ import library.domain.Loan;
 import library.domain.media.Book;
 import library.domain.media.CD;
 import library.domain.media.Media;
+import library.dto.BatchItemResult;
+import library.dto.MediaFilter;
+import library.dto.SearchPage;
 import library.exception.BusinessRuleException;
 import library.exception.ResourceNotFoundException;
+import library.persistence.DomainEvent;
+import library.persistence.EventLog;
 import library.repository.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Main service class for the library.
  * Handles users, media, loans, fines, and basic reporting.
+ * <p>
+ * With an {@link EventLog} set, every change is recorded as a {@link DomainEvent},
+ * and a call returns only once its events are durable. Changes are applied before
+ * their event is appended, so a snapshot taken after reading the last LSN
+ * contains every change up to that LSN.
+ * <p>
+ * If waiting for durability fails, the events may or may not be on disk, so the
+ * change is kept rather than rolled back, and the service stops accepting changes:
+ * every later change throws {@link IllegalStateException}. The same happens when
+ * appending the event of an applied change fails; only a borrow, whose event is
+ * the first thing logged, is rolled back instead.
+ * A restart recovers the state from the log.
  */
 public class LibraryService {
 
@@ -27,6 +46,12 @@ public class LibraryService {
     private final library.strategy.FineStrategy cdFine;
     private final AuthService authService;
 
+    // null -> changes are not recorded
+    private volatile EventLog eventLog;
+
+    // first failure while waiting for durability; set -> no further changes are accepted
+    private volatile RuntimeException logFailure;
+
     /**
      * Creates a new LibraryService with all required dependencies.
      *
@@ -53,6 +78,15 @@ public class LibraryService {
         this.authService = authService;
     }
 
+    /**
+     * Records all following changes in an event log, e.g. a {@link library.persistence.WriteAheadLog}.
+     *
+     * @param eventLog the log, or null to stop recording
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
     /**
      * Registers a new user in the system.
      *
@@ -61,8 +95,10 @@ public class LibraryService {
      * @return the created User instance
      */
     public User registerUser(String name, String email) {
+        checkNotFailed();
         User u = new User(name, email);
         userRepo.save(u);
+        awaitDurable(recordApplied(DomainEvent.userRegistered(u)));
         return u;
     }
 
@@ -74,8 +110,10 @@ public class LibraryService {
      * @param isbn   book ISBN
      */
     public void addBook(String title, String author, String isbn) {
+        checkNotFailed();
         Book b = new Book(title, author, isbn);
         mediaRepo.save(b);
+        awaitDurable(recordApplied(DomainEvent.mediaAdded(b)));
     }
 
     /**
@@ -85,8 +123,10 @@ public class LibraryService {
      * @param artist CD artist or band
      */
     public void addCD(String title, String artist) {
+        checkNotFailed();
         CD cd = new CD(title, artist);
         mediaRepo.save(cd);
+        awaitDurable(recordApplied(DomainEvent.mediaAdded(cd)));
     }
 
     /**
@@ -99,6 +139,58 @@ public class LibraryService {
         return mediaRepo.search(q == null ? "" : q);
     }
 
+    /**
+     * Ranked, paginated search: returns one page of the best matches.
+     *
+     * @param q      search text (matched against title, author, artist, ISBN, or id)
+     * @param offset number of best matches to skip
+     * @param limit  page size
+     * @return the page, best match first, with the total number of matches
+     */
+    public SearchPage search(String q, int offset, int limit) {
+        return mediaRepo.searchPage(q == null ? "" : q, offset, limit);
+    }
+
+    /**
+     * Filtered search, e.g. "which copies of X are available now".
+     *
+     * @param q      search text; an empty text lists every item accepted by the filter
+     * @param filter media type and availability to keep (null keeps everything)
+     * @return matching media, in insertion order
+     */
+    public List<Media> search(String q, MediaFilter filter) {
+        return mediaRepo.search(q == null ? "" : q, filter == null ? MediaFilter.ANY : filter);
+    }
+
+    /**
+     * Filtered, ranked and paginated search.
+     *
+     * @param q      search text; an empty text lists every item accepted by the filter
+     * @param filter media type and availability to keep (null keeps everything)
+     * @param offset number of best matches to skip
+     * @param limit  page size
+     * @return the page, best match first, with the total number of filtered matches
+     */
+    public SearchPage search(String q, MediaFilter filter, int offset, int limit) {
+        return mediaRepo.searchPage(q == null ? "" : q, filter == null ? MediaFilter.ANY : filter,
+                offset, limit);
+    }
+
+    /**
+     * Typo-tolerant search over titles, authors and artists.
+     *
+     * @param q           search text, possibly misspelled
+     * @param maxDistance largest number of typos (edits) allowed per word
+     * @return matching media, closest first
+     * @throws BusinessRuleException if maxDistance is negative
+     */
+    public List<Media> searchFuzzy(String q, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new BusinessRuleException("Edit distance must not be negative");
+        }
+        return mediaRepo.searchFuzzy(q, maxDistance);
+    }
+
     /**
      * Searches media items by title.
      *
@@ -106,11 +198,18 @@ public class LibraryService {
      * @return list of media with matching titles
      */
     public List<Media> searchByTitle(String title) {
-        String q = title == null ? "" : title.toLowerCase();
-        return mediaRepo.findAll().stream()
-                .filter(m -> m.getTitle() != null
-                        && m.getTitle().toLowerCase().contains(q))
-                .collect(java.util.stream.Collectors.toList());
+        return mediaRepo.searchByTitle(title);
+    }
+
+    /**
+     * Suggests titles, authors and artists for a typed prefix (type-ahead).
+     *
+     * @param prefix the typed prefix (ignores case and accents)
+     * @param k      maximum number of suggestions
+     * @return up to k suggestions, most common values first
+     */
+    public List<String> autocomplete(String prefix, int k) {
+        return mediaRepo.autocomplete(prefix, k);
     }
 
     /**
@@ -120,35 +219,30 @@ public class LibraryService {
      * @return list of matching media
      */
     public List<Media> searchByAuthor(String author) {
-        String q = author == null ? "" : author.toLowerCase();
-        return mediaRepo.findAll().stream()
-                .filter(m -> {
-                    if (m instanceof Book) {
-                        String a = ((Book) m).getAuthor();
-                        return a != null && a.toLowerCase().contains(q);
-                    } else if (m instanceof CD) {
-                        String art = ((CD) m).getArtist();
-                        return art != null && art.toLowerCase().contains(q);
-                    }
-                    return false;
-                })
-                .collect(java.util.stream.Collectors.toList());
+        return mediaRepo.searchByAuthor(author);
     }
 
     /**
      * Searches media items by ISBN (books only, exact match).
+     * ISBNs are compared in canonical form, so case, spaces, hyphens and
+     * ISBN-10 vs ISBN-13 don't matter.
      *
      * @param isbn ISBN string
      * @return list of books with that ISBN, or empty list
      */
     public List<Media> searchByIsbn(String isbn) {
         if (isbn == null) return java.util.Collections.emptyList();
-        String target = isbn.trim().toLowerCase();
-        return mediaRepo.findAll().stream()
-                .filter(m -> m instanceof Book
-                        && ((Book) m).getIsbn() != null
-                        && ((Book) m).getIsbn().trim().toLowerCase().equals(target))
-                .collect(java.util.stream.Collectors.toList());
+        return new ArrayList<>(mediaRepo.findByIsbn(isbn));
+    }
+
+    /**
+     * Resolves many ISBNs in one call, e.g. for acquisition imports.
+     *
+     * @param isbns the ISBNs to look up, in any form
+     * @return map of each given ISBN to its books; ISBNs without books are left out
+     */
+    public Map<String, List<Book>> resolveIsbns(java.util.Collection<String> isbns) {
+        return mediaRepo.findAllByIsbn(isbns);
     }
 
     /**
@@ -156,7 +250,7 @@ public class LibraryService {
      * <ul>
      *     <li>Checks for outstanding fines</li>
      *     <li>Checks for overdue loans</li>
-     *     <li>Ensures media is available</li>
+     *     <li>Reserves the media atomically, so two callers can never borrow the same item</li>
      *     <li>Creates a loan and sets due date based on media type</li>
      * </ul>
      *
@@ -166,37 +260,90 @@ public class LibraryService {
      * @throws BusinessRuleException     if rules are violated (fine, overdue, not available)
      */
     public void borrow(String userId, String mediaId) {
+        checkNotFailed();
         User user = userRepo.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("user not found"));
         Media media = mediaRepo.findById(mediaId)
                 .orElseThrow(() -> new ResourceNotFoundException("media not found"));
 
-        if (user.getOutstandingFine() > 0)
-            throw new BusinessRuleException("User has outstanding fines");
+        LocalDate now = timeProvider.today();
+        checkCanBorrow(user, now);
 
-        List<Loan> userLoans = loanRepo.findByUserId(userId);
-        for (Loan l : userLoans) {
-            if (l.isOverdue(timeProvider.today()))
-                throw new BusinessRuleException("User has overdue loans");
+        if (!media.tryReserve())
+            throw new BusinessRuleException("Media not available");
+
+        Loan loan = new Loan(userId, media.getId(), now, dueDateFor(media, now));
+        long lsn;
+        try {
+            loanRepo.save(loan);
+            lsn = record(DomainEvent.loanCreated(loan));
+        } catch (RuntimeException e) {
+            // nothing is logged yet, so give the reservation back
+            loanRepo.delete(loan);
+            media.setAvailable(true);
+            throw e;
         }
+        // the event may be on disk from here on, so a failed sync keeps the loan
+        awaitDurable(lsn);
+    }
 
-        if (!media.isAvailable())
-            throw new BusinessRuleException("Media not available");
+    /**
+     * Borrows several media items for one user in a single call.
+     * <p>
+     * The user is resolved, and fines and overdue loans are checked, only once
+     * for the whole batch. Each item is then reserved on its own: an item that
+     * is missing or not available is reported as failed without stopping the
+     * others. All created loans are written to the repository in one batch.
+     *
+     * @param userId   id of the user
+     * @param mediaIds ids of the media items to borrow
+     * @return one result per requested media id, in the same order
+     * @throws ResourceNotFoundException if the user is not found
+     * @throws BusinessRuleException     if the user has fines or overdue loans
+     */
+    public List<BatchItemResult> borrowAll(String userId, List<String> mediaIds) {
+        checkNotFailed();
+        User user = userRepo.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("user not found"));
 
         LocalDate now = timeProvider.today();
-        LocalDate due;
-
-        if ("BOOK".equals(media.getMediaType())) {
-            due = now.plusDays(28);
-        } else if ("CD".equals(media.getMediaType())) {
-            due = now.plusDays(7);
-        } else {
-            due = now.plusDays(28);
+        checkCanBorrow(user, now);
+
+        List<BatchItemResult> results = new ArrayList<>(mediaIds.size());
+        List<Loan> loans = new ArrayList<>(mediaIds.size());
+        List<Media> reserved = new ArrayList<>(mediaIds.size());
+
+        for (String mediaId : mediaIds) {
+            Media media = mediaRepo.findById(mediaId).orElse(null);
+            if (media == null) {
+                results.add(BatchItemResult.failure(mediaId, "media not found"));
+            } else if (!media.tryReserve()) {
+                results.add(BatchItemResult.failure(mediaId, "Media not available"));
+            } else {
+                Loan loan = new Loan(userId, media.getId(), now, dueDateFor(media, now));
+                loans.add(loan);
+                reserved.add(media);
+                results.add(BatchItemResult.success(mediaId, loan, 0));
+            }
         }
 
-        Loan loan = new Loan(userId, media.getId(), now, due);
-        loanRepo.save(loan);
-        media.setAvailable(false);
+        long lsn = 0;
+        try {
+            loanRepo.saveAll(loans);
+            for (Loan loan : loans) lsn = record(DomainEvent.loanCreated(loan));
+        } catch (RuntimeException e) {
+            if (lsn > 0) {
+                // some events are appended and may reach the disk: keep the loans
+                throw fail(e);
+            }
+            // nothing is logged yet, so give the reservations back
+            for (Loan loan : loans) loanRepo.delete(loan);
+            for (Media m : reserved) m.setAvailable(true);
+            throw e;
+        }
+        // one sync for the whole batch; a failed sync keeps the loans
+        awaitDurable(lsn);
+        return results;
     }
 
     /**
@@ -212,42 +359,89 @@ public class LibraryService {
      * @throws BusinessRuleException     if the loan was already returned
      */
     public void returnMedia(String loanId) {
+        checkNotFailed();
         Loan loan = loanRepo.findById(loanId)
                 .orElseThrow(() -> new ResourceNotFoundException("loan not found"));
 
         if (loan.isReturned())
             throw new BusinessRuleException("Already returned");
 
-        LocalDate today = timeProvider.today();
-
-        // Calculate overdue days before marking as returned
-        int overdueDays = loan.overdueDays(today);
-
-        // Mark returned
-        loan.setReturnedDate(today);
-
-        // Make media available
-        Media media = mediaRepo.findById(loan.getMediaId()).orElse(null);
-        if (media != null)
-            media.setAvailable(true);
+        int fine = closeLoan(loan, timeProvider.today());
+        long lsn = recordApplied(DomainEvent.loanReturned(loan));
 
         // If overdue → apply fine
-        if (overdueDays > 0) {
-            int fine = 0;
+        if (fine > 0) {
+            User user = userOf(loan);
+            if (user != null)
+                lsn = chargeFine(user, fine);
+        }
+        awaitDurable(lsn);
+    }
 
-            if (media != null) {
-                if ("BOOK".equals(media.getMediaType()))
-                    fine = bookFine.calculateFine(overdueDays);
-                else if ("CD".equals(media.getMediaType()))
-                    fine = cdFine.calculateFine(overdueDays);
+    /**
+     * Returns several loans in a single call.
+     * <p>
+     * Each loan is returned on its own: a loan that is missing or already
+     * returned is reported as failed without stopping the others. Fines are
+     * summed per user and each user is looked up and charged only once, also
+     * for the loans closed before an unexpected exception ends the batch. After
+     * a log failure nothing more is recorded, so no fines are charged then.
+     *
+     * @param loanIds ids of the loans to return
+     * @return one result per requested loan id, in the same order,
+     *         with the fine applied for that loan
+     */
+    public List<BatchItemResult> returnAll(List<String> loanIds) {
+        checkNotFailed();
+        LocalDate today = timeProvider.today();
+        List<BatchItemResult> results = new ArrayList<>(loanIds.size());
+        // user number -> summed fine; finedLoans holds the first fined loan of each user
+        IdMap<int[]> finesByUser = new IdMap<>();
+        List<Loan> finedLoans = new ArrayList<>();
+        long lsn = 0;
+        RuntimeException failure = null;
+
+        try {
+            for (String loanId : loanIds) {
+                Loan loan = loanRepo.findById(loanId).orElse(null);
+                if (loan == null) {
+                    results.add(BatchItemResult.failure(loanId, "loan not found"));
+                    continue;
+                }
+                if (loan.isReturned()) {
+                    results.add(BatchItemResult.failure(loanId, "Already returned"));
+                    continue;
+                }
+                try {
+                    int fine = closeLoan(loan, today);
+                    // the loan is closed now, so its fine is owed even if a later loan fails
+                    if (fine > 0) addFine(finesByUser, finedLoans, loan, fine);
+                    lsn = recordApplied(DomainEvent.loanReturned(loan));
+                    results.add(BatchItemResult.success(loanId, loan, fine));
+                } catch (BusinessRuleException e) {
+                    results.add(BatchItemResult.failure(loanId, e.getMessage()));
+                }
             }
-
-            if (fine > 0) {
-                User user = userRepo.findById(loan.getUserId()).orElse(null);
-                if (user != null)
-                    user.addFine(fine);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        // loans closed before an unexpected failure still get their fines charged,
+        // unless the log failed: the service is stopped and records nothing more
+        if (logFailure == null) {
+            try {
+                for (Loan loan : finedLoans) {
+                    User user = userOf(loan);
+                    if (user != null) lsn = chargeFine(user, finesByUser.get(loan.getUserNumber(), userText(loan))[0]);
+                }
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
             }
         }
+        if (failure != null) throw failure;
+        // one sync for the whole batch
+        awaitDurable(lsn);
+        return results;
     }
 
     /**
@@ -258,9 +452,16 @@ public class LibraryService {
      * @throws ResourceNotFoundException if user is not found
      */
     public void payFine(String userId, int amount) {
+        checkNotFailed();
         User u = userRepo.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("user not found"));
-        u.payFine(amount);
+        long lsn;
+        // the balance and its event change together, so the log has the balances in order
+        synchronized (u) {
+            int balance = u.payFine(amount);
+            lsn = recordApplied(DomainEvent.finePaid(userId, amount, balance));
+        }
+        awaitDurable(lsn);
     }
 
     /**
@@ -278,12 +479,12 @@ public class LibraryService {
      */
     public void unregisterUser(String adminUser, String userId) {
         authService.requireAdmin();
+        checkNotFailed();
 
         User u = userRepo.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("user not found"));
 
-        List<Loan> loans = loanRepo.findByUserId(userId);
-        boolean hasActive = loans.stream().anyMatch(l -> !l.isReturned());
+        boolean hasActive = !loanRepo.findActiveByUserId(userId).isEmpty();
 
         if (hasActive)
             throw new BusinessRuleException("User cannot be unregistered while having active loans");
@@ -292,6 +493,176 @@ public class LibraryService {
             throw new BusinessRuleException("User cannot be unregistered while having unpaid fines");
 
         userRepo.delete(u);
+        awaitDurable(recordApplied(DomainEvent.userUnregistered(userId)));
+    }
+
+    /**
+     * Adds a fine to a user and records the new balance.
+     *
+     * @return the LSN of the fine event, or 0 without an event log
+     */
+    private long chargeFine(User user, int fine) {
+        // the balance and its event change together, so the log has the balances in order
+        synchronized (user) {
+            int balance = user.addFine(fine);
+            return recordApplied(DomainEvent.fineAdded(user.getId(), fine, balance));
+        }
+    }
+
+    /**
+     * Appends an event to the event log, if there is one.
+     *
+     * @return the LSN of the event, or 0 without an event log
+     */
+    private long record(DomainEvent event) {
+        EventLog log = eventLog;
+        return log == null ? 0 : log.append(event);
+    }
+
+    /**
+     * Appends the event of a change that is already applied and is not rolled back.
+     * If that fails, the service stops accepting changes, see {@link #fail}.
+     *
+     * @return the LSN of the event, or 0 without an event log
+     */
+    private long recordApplied(DomainEvent event) {
+        try {
+            return record(event);
+        } catch (RuntimeException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Waits until the events up to an LSN are durable. If that fails, the
+     * service stops accepting changes, see {@link #fail}.
+     */
+    private void awaitDurable(long lsn) {
+        EventLog log = eventLog;
+        if (log == null || lsn <= 0) return;
+        try {
+            log.sync(lsn);
+        } catch (RuntimeException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Stops the service after a log failure. The in-memory state may be ahead of
+     * the durable log, and rolling it back could undo events that did reach the
+     * disk, so it is kept as is and no further changes are accepted.
+     *
+     * @return the failure, for the caller to rethrow
+     */
+    private RuntimeException fail(RuntimeException e) {
+        if (logFailure == null) logFailure = e;
+        return e;
+    }
+
+    /**
+     * Rejects changes once the event log has failed.
+     */
+    private void checkNotFailed() {
+        RuntimeException failure = logFailure;
+        if (failure != null)
+            throw new IllegalStateException("library stopped after an event log failure; restart to recover", failure);
+    }
+
+    /**
+     * Checks the user-level borrowing rules: no unpaid fines and no overdue loans.
+     */
+    private void checkCanBorrow(User user, LocalDate today) {
+        if (user.getOutstandingFine() > 0)
+            throw new BusinessRuleException("User has outstanding fines");
+
+        for (Loan l : loanRepo.findActiveByUserId(user.getId())) {
+            if (l.isOverdue(today))
+                throw new BusinessRuleException("User has overdue loans");
+        }
+    }
+
+    /**
+     * @return due date for a new loan: 7 days for CDs, 28 days otherwise
+     */
+    private LocalDate dueDateFor(Media media, LocalDate now) {
+        if ("CD".equals(media.getMediaType())) {
+            return now.plusDays(7);
+        }
+        return now.plusDays(28);
+    }
+
+    /**
+     * @return fine for the given overdue days based on the media type (0 if unknown type)
+     */
+    private int fineFor(Media media, int overdueDays) {
+        if (media == null) return 0;
+        if ("BOOK".equals(media.getMediaType()))
+            return bookFine.calculateFine(overdueDays);
+        if ("CD".equals(media.getMediaType()))
+            return cdFine.calculateFine(overdueDays);
+        return 0;
+    }
+
+    /**
+     * Marks a loan returned, makes its media available again,
+     * and computes the overdue fine (not yet charged to the user).
+     *
+     * @throws BusinessRuleException if another caller returned the loan first
+     */
+    private int closeLoan(Loan loan, LocalDate today) {
+        // Calculate overdue days before marking as returned
+        int overdueDays = loan.overdueDays(today);
+
+        // Mark returned (only one caller can win if two return the same loan)
+        if (!loanRepo.markReturned(loan, today))
+            throw new BusinessRuleException("Already returned");
+
+        // Make media available
+        Media media = mediaOf(loan);
+        if (media != null)
+            media.setAvailable(true);
+
+        return overdueDays > 0 ? fineFor(media, overdueDays) : 0;
+    }
+
+    /**
+     * Looks up the user of a loan by id number, so no id string is built.
+     *
+     * @return the user, or null if not found
+     */
+    private User userOf(Loan loan) {
+        long number = loan.getUserNumber();
+        return (number >= 0 ? userRepo.findByNumber(number) : userRepo.findById(loan.getUserId())).orElse(null);
+    }
+
+    /**
+     * Looks up the media of a loan by id number, so no id string is built.
+     *
+     * @return the media, or null if not found
+     */
+    private Media mediaOf(Loan loan) {
+        long number = loan.getMediaNumber();
+        return (number >= 0 ? mediaRepo.findByNumber(number) : mediaRepo.findById(loan.getMediaId())).orElse(null);
+    }
+
+    /**
+     * Adds a fine to the sum of the loan's user, keyed by user number.
+     */
+    private static void addFine(IdMap<int[]> finesByUser, List<Loan> finedLoans, Loan loan, int fine) {
+        int[] sum = finesByUser.get(loan.getUserNumber(), userText(loan));
+        if (sum == null) {
+            sum = new int[1];
+            finesByUser.put(loan.getUserNumber(), userText(loan), sum);
+            finedLoans.add(loan);
+        }
+        sum[0] += fine;
+    }
+
+    /**
+     * @return the user id of a loan when it has no number, null otherwise (see {@link IdMap})
+     */
+    private static String userText(Loan loan) {
+        return loan.getUserNumber() < 0 ? loan.getUserId() : null;
     }
 
     /**
@@ -323,18 +694,13 @@ public class LibraryService {
         List<String> report = new java.util.ArrayList<>();
         int totalFine = 0;
 
-        for (Loan loan : loanRepo.findAll()) {
-            if (loan.isReturned()) continue;
-
+        for (Loan loan : loanRepo.findActive()) {
             String loanId = loan.getId();
-            String uid = loan.getUserId();
-            String mid = loan.getMediaId();
+            User user = userOf(loan);
+            Media media = mediaOf(loan);
 
-            User user = userRepo.findById(uid).orElse(null);
-            Media media = mediaRepo.findById(mid).orElse(null);
-
-            String userPart = user != null ? user.getId() + " (" + user.getEmail() + ")" : uid;
-            String mediaPart = media != null ? media.getId() + " - " + media.getTitle() : mid;
+            String userPart = user != null ? user.getId() + " (" + user.getEmail() + ")" : loan.getUserId();
+            String mediaPart = media != null ? media.getId() + " - " + media.getTitle() : loan.getMediaId();
 
             String status;
             int fine = 0;
@@ -343,12 +709,7 @@ public class LibraryService {
                 int days = loan.overdueDays(today);
                 status = "OVERDUE by " + days + " day(s)";
 
-                if (media != null) {
-                    if ("BOOK".equals(media.getMediaType()))
-                        fine = bookFine.calculateFine(days);
-                    else if ("CD".equals(media.getMediaType()))
-                        fine = cdFine.calculateFine(days);
-                }
+                fine = fineFor(media, days);
             } else {
                 long daysLeft = java.time.temporal.ChronoUnit.DAYS.between(today, loan.getDueDate());
                 status = "DUE in " + daysLeft + " day(s)";
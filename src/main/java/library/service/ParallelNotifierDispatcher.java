@@ -0,0 +1,252 @@
+package library.service;
+
+import library.domain.User;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends reminder notifications on background threads instead of the caller's thread.
+ * <p>
+ * Behavior:
+ * <ul>
+ *     <li>Each notifier gets its own executor, so a slow notifier (e.g. a slow email
+ *     client) never holds up the others.</li>
+ *     <li>Each notifier has a bounded number of pending notifications. When the limit is
+ *     reached, the caller waits for a free slot of that notifier (backpressure), so a
+ *     slow notifier throttles the caller instead of losing notifications, while the
+ *     notifications already queued for the others keep running.</li>
+ *     <li>Notifications are sent in {@link Batch}es: a batch waits only for its own
+ *     notifications, so two callers sharing the dispatcher do not wait for each other.</li>
+ *     <li>A failing notifier is logged to stderr like in the serial mode,
+ *     and does not stop other notifications.</li>
+ * </ul>
+ * Used by {@link ReminderService} through {@link ReminderService#setDispatcher}.
+ */
+public class ParallelNotifierDispatcher implements AutoCloseable {
+
+    private final int threadsPerNotifier;
+    private final int maxPendingPerNotifier;
+    private final boolean virtualThreads;
+
+    // notifier -> its own executor and pending-slot limit
+    private final Map<ReminderService.Notifier, Lane> lanes = new IdentityHashMap<>();
+
+    /**
+     * Creates a dispatcher backed by platform thread pools.
+     *
+     * @param threadsPerNotifier    number of threads used for each notifier
+     * @param maxPendingPerNotifier maximum notifications queued or running per notifier
+     */
+    public ParallelNotifierDispatcher(int threadsPerNotifier, int maxPendingPerNotifier) {
+        this(threadsPerNotifier, maxPendingPerNotifier, false);
+    }
+
+    private ParallelNotifierDispatcher(int threadsPerNotifier, int maxPendingPerNotifier, boolean virtualThreads) {
+        if (threadsPerNotifier <= 0 || maxPendingPerNotifier <= 0) {
+            throw new IllegalArgumentException("threads and pending limit must be positive");
+        }
+        this.threadsPerNotifier = threadsPerNotifier;
+        this.maxPendingPerNotifier = Math.max(threadsPerNotifier, maxPendingPerNotifier);
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Creates a dispatcher that runs every notification on its own virtual thread
+     * when the JVM supports them (Java 21+), and falls back to a platform
+     * thread pool of the same size otherwise.
+     *
+     * @param maxInFlightPerNotifier maximum notifications running at once per notifier
+     * @return the dispatcher
+     */
+    public static ParallelNotifierDispatcher withVirtualThreads(int maxInFlightPerNotifier) {
+        return new ParallelNotifierDispatcher(maxInFlightPerNotifier, maxInFlightPerNotifier,
+                supportsVirtualThreads());
+    }
+
+    /**
+     * Starts a new batch of notifications.
+     *
+     * @return the batch
+     */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * @return true if notifications run on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops all notifier threads once the notifications already queued have finished.
+     */
+    @Override
+    public void close() {
+        List<Lane> all;
+        synchronized (lanes) {
+            all = new ArrayList<>(lanes.values());
+            lanes.clear();
+        }
+        for (Lane lane : all) {
+            lane.executor.shutdown();
+            try {
+                lane.executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Lane laneFor(ReminderService.Notifier notifier) {
+        synchronized (lanes) {
+            Lane lane = lanes.get(notifier);
+            if (lane == null) {
+                lane = new Lane(newExecutor(lanes.size() + 1), new Semaphore(maxPendingPerNotifier));
+                lanes.put(notifier, lane);
+            }
+            return lane;
+        }
+    }
+
+    private ExecutorService newExecutor(int laneNo) {
+        if (virtualThreads) {
+            ExecutorService executor = newVirtualThreadExecutor();
+            if (executor != null) return executor;
+        }
+        AtomicInteger threadNo = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "reminder-" + laneNo + "-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(threadsPerNotifier, factory);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() exists from Java 21; looked up by
+    // reflection so the project still builds for Java 8
+    private static Method virtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    // only looks the method up; no executor is created
+    private static boolean supportsVirtualThreads() {
+        return virtualThreadExecutorFactory() != null;
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        Method factory = virtualThreadExecutorFactory();
+        if (factory == null) return null;
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Notifications sent by one caller, e.g. one run of {@link ReminderService#sendReminders}.
+     * {@link #awaitIdle} waits only for the notifications of this batch.
+     */
+    public final class Batch {
+
+        // notifications of this batch submitted but not finished yet
+        private int pending;
+
+        private Batch() {
+        }
+
+        /**
+         * Queues one notification. When the notifier already has the maximum number
+         * of pending notifications, waits until one of them has finished. If the
+         * waiting thread is interrupted, the interrupt flag is restored and the
+         * notification is not queued.
+         *
+         * @param notifier the notifier to call
+         * @param user     the user to notify
+         * @param message  the reminder message
+         * @return true if the notification was queued, false if the caller was interrupted
+         */
+        public boolean dispatch(ReminderService.Notifier notifier, User user, String message) {
+            Lane lane = laneFor(notifier);
+            try {
+                lane.slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            synchronized (this) {
+                pending++;
+            }
+            try {
+                lane.executor.execute(() -> {
+                    try {
+                        notifier.notify(user, message);
+                    } catch (Exception ex) {
+                        // Log to stderr to avoid interrupting other notifications
+                        System.err.println("ReminderService: notifier failed for user "
+                                + user.getId() + " : " + ex.getMessage());
+                    } finally {
+                        finished(lane);
+                    }
+                });
+            } catch (RuntimeException e) {
+                finished(lane);
+                throw e;
+            }
+            return true;
+        }
+
+        /**
+         * Waits until every notification queued by this batch has finished.
+         * If the waiting thread is interrupted, the interrupt flag is restored
+         * and the method returns early.
+         */
+        public synchronized void awaitIdle() {
+            while (pending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void finished(Lane lane) {
+            lane.slots.release();
+            synchronized (this) {
+                if (--pending == 0) notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Executor and pending-slot limit of one notifier.
+     */
+    private static class Lane {
+        final ExecutorService executor;
+        final Semaphore slots;
+
+        Lane(ExecutorService executor, Semaphore slots) {
+            this.executor = executor;
+            this.slots = slots;
+        }
+    }
+}
@@ -1,16 +1,17 @@
 package library.service;
 
+import library.domain.Ids;
 import library.domain.Loan;
 import library.domain.User;
 import library.domain.media.Media;
 import library.dto.OverdueReport;
+import library.repository.IdMap;
 import library.repository.LoanRepository;
 import library.repository.MediaRepository;
 import library.repository.UserRepository;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Service responsible for building overdue reports and sending reminders.
@@ -26,6 +27,8 @@ import java.util.stream.Collectors;
  * <ul>
  *     <li>Each user gets a single message.</li>
  *     <li>Message format: {@code "You have X overdue book(s) and Y overdue CD(s)."}</li>
+ *     <li>Notifiers are called on the caller's thread, unless a
+ *     {@link ParallelNotifierDispatcher} is set with {@link #setDispatcher}.</li>
  * </ul>
  */
 public class ReminderService {
@@ -38,9 +41,16 @@ public class ReminderService {
         void notify(User user, String message);
     }
 
+    // slots of the per-user counter arrays
+    private static final int BOOK = 0;
+    private static final int CD = 1;
+
     private final List<Notifier> notifiers = new ArrayList<>();
     private final TimeProvider timeProvider;
 
+    // null -> notifiers are called on the caller's thread
+    private volatile ParallelNotifierDispatcher dispatcher;
+
     /**
      * Creates a new ReminderService.
      *
@@ -66,6 +76,16 @@ public class ReminderService {
         }
     }
 
+    /**
+     * Sets the dispatcher used to send notifications in parallel.
+     * Passing null goes back to calling the notifiers on the caller's thread.
+     *
+     * @param dispatcher the dispatcher to use, or null
+     */
+    public void setDispatcher(ParallelNotifierDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
     /**
      * Sends reminders to users that have overdue BOOK or CD loans.
      * <p>
@@ -78,6 +98,10 @@ public class ReminderService {
      * <pre>
      * "You have X overdue book(s) and Y overdue CD(s)."
      * </pre>
+     * When a dispatcher is set, this method still returns only after all
+     * notifications it queued have been sent. A notifier whose queue is full makes
+     * this method wait for it, so no reminder is lost. If the calling thread is
+     * interrupted, the remaining reminders are not queued and this is reported on stderr.
      *
      * @param loanRepo  repository used to query loans
      * @param userRepo  repository used to query users
@@ -87,55 +111,56 @@ public class ReminderService {
         LocalDate today = timeProvider.today();
 
         // 1) Find all overdue loans (active + overdue)
-        List<Loan> overdueAll = loanRepo.findAll().stream()
-                .filter(l -> !l.isReturned() && l.isOverdue(today))
-                .collect(Collectors.toList());
+        List<Loan> overdueAll = loanRepo.findOverdue(today);
 
         if (overdueAll.isEmpty()) {
             return; // nothing to do
         }
 
-        // 2) For each loan determine its media type (BOOK or CD) and group by user
-        // We'll build maps: userId -> bookCount, userId -> cdCount
-        Map<String, Integer> bookCounts = new HashMap<>();
-        Map<String, Integer> cdCounts = new HashMap<>();
+        // 2) Resolve the media of all overdue loans in one bulk call
+        IdMap<Media> media = mediaOf(overdueAll, mediaRepo);
 
+        // 3) One pass: user number -> {bookCount, cdCount}
+        // loans with missing media or unknown types are ignored for reminders;
+        // userIds keeps the users in order of their first overdue loan
+        IdMap<int[]> counts = new IdMap<>();
+        List<String> userIds = new ArrayList<>();
         for (Loan l : overdueAll) {
-            Optional<Media> maybeMedia = mediaRepo.findById(l.getMediaId());
-            String userId = l.getUserId();
-            if (!maybeMedia.isPresent()) continue;
-
-            Media media = maybeMedia.get();
-            String type = media.getMediaType();
-
-            if ("BOOK".equals(type)) {
-                bookCounts.put(userId, bookCounts.getOrDefault(userId, 0) + 1);
-            } else if ("CD".equals(type)) {
-                cdCounts.put(userId, cdCounts.getOrDefault(userId, 0) + 1);
-            } else {
-                // ignore unknown types for reminders
+            int type = typeIndex(media.get(l.getMediaNumber(), mediaText(l)));
+            if (type < 0) continue;
+
+            int[] c = counts.get(l.getUserNumber(), userText(l));
+            if (c == null) {
+                c = new int[2];
+                counts.put(l.getUserNumber(), userText(l), c);
+                userIds.add(l.getUserId());
             }
+            c[type]++;
         }
 
-        // 3) Collect union of userIds that have either books or CDs overdue
-        Set<String> userIds = new HashSet<>();
-        userIds.addAll(bookCounts.keySet());
-        userIds.addAll(cdCounts.keySet());
-
-        // 4) For each user send combined message
+        // 4) Resolve all users in one bulk call and send one combined message each
+        ParallelNotifierDispatcher current = dispatcher;
+        ParallelNotifierDispatcher.Batch batch = current == null ? null : current.newBatch();
+        Map<String, User> users = userRepo.findAllById(userIds);
+        boolean interrupted = false;
         for (String userId : userIds) {
-            Optional<User> maybeUser = userRepo.findById(userId);
-            if (!maybeUser.isPresent()) continue;
-
-            User user = maybeUser.get();
+            if (interrupted) break;
+            User user = users.get(userId);
+            if (user == null) continue;
             if (user.getEmail() == null || user.getEmail().trim().isEmpty()) continue;
 
-            int books = bookCounts.getOrDefault(userId, 0);
-            int cds = cdCounts.getOrDefault(userId, 0);
-
-            String message = "You have " + books + " overdue book(s) and " + cds + " overdue CD(s).";
+            int[] c = counts.get(Ids.numberOf(userId, 'U'), userId);
+            String message = "You have " + c[BOOK] + " overdue book(s) and " + c[CD] + " overdue CD(s).";
 
             for (Notifier notifier : notifiers) {
+                if (batch != null) {
+                    if (!batch.dispatch(notifier, user, message)) {
+                        System.err.println("ReminderService: interrupted, reminders not sent from user " + userId);
+                        interrupted = true;
+                        break;
+                    }
+                    continue;
+                }
                 try {
                     notifier.notify(user, message);
                 } catch (Exception ex) {
@@ -145,6 +170,10 @@ public class ReminderService {
                 }
             }
         }
+
+        if (batch != null) {
+            batch.awaitIdle();
+        }
     }
 
     /**
@@ -168,34 +197,90 @@ public class ReminderService {
                                      library.strategy.FineStrategy cdFine) {
 
         LocalDate today = timeProvider.today();
-        List<Loan> overdue = loanRepo.findAll().stream()
-                .filter(l -> l.isOverdue(today))
-                .collect(Collectors.toList());
+        List<Loan> overdue = loanRepo.findOverdue(today);
+        IdMap<Media> media = mediaOf(overdue, mediaRepo);
 
-        Map<String, Integer> counts = new HashMap<>();
-        Map<String, Integer> sums = new HashMap<>();
+        // user number -> {overdue item count, fine total}
+        IdMap<int[]> totals = new IdMap<>();
+        List<String> userIds = new ArrayList<>();
 
         for (Loan l : overdue) {
-            String uid = l.getUserId();
+            int[] t = totals.get(l.getUserNumber(), userText(l));
+            if (t == null) {
+                t = new int[2];
+                totals.put(l.getUserNumber(), userText(l), t);
+                userIds.add(l.getUserId());
+            }
 
             // Count of overdue items
-            counts.put(uid, counts.getOrDefault(uid, 0) + 1);
+            t[0]++;
 
-            Media m = mediaRepo.findById(l.getMediaId()).orElse(null);
-            int overdueDays = l.overdueDays(today);
-            int fine = 0;
-
-            if (m != null) {
-                if ("BOOK".equals(m.getMediaType())) {
-                    fine = bookFine.calculateFine(overdueDays);
-                } else if ("CD".equals(m.getMediaType())) {
-                    fine = cdFine.calculateFine(overdueDays);
-                }
+            int type = typeIndex(media.get(l.getMediaNumber(), mediaText(l)));
+            if (type == BOOK) {
+                t[1] += bookFine.calculateFine(l.overdueDays(today));
+            } else if (type == CD) {
+                t[1] += cdFine.calculateFine(l.overdueDays(today));
             }
+        }
 
-            sums.put(uid, sums.getOrDefault(uid, 0) + fine);
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, Integer> sums = new HashMap<>();
+        for (String userId : userIds) {
+            int[] t = totals.get(Ids.numberOf(userId, 'U'), userId);
+            counts.put(userId, t[0]);
+            sums.put(userId, t[1]);
         }
 
         return new OverdueReport(counts, sums);
     }
+
+    /**
+     * Resolves the media of the given loans with one bulk lookup.
+     * Each distinct media id is built as a string once, for the lookup;
+     * the result is keyed by media number so the loans can be joined without strings.
+     *
+     * @return media by id, for the media that were found
+     */
+    private static IdMap<Media> mediaOf(List<Loan> loans, MediaRepository mediaRepo) {
+        IdMap<String> seen = new IdMap<>();
+        List<String> ids = new ArrayList<>();
+        for (Loan l : loans) {
+            if (seen.get(l.getMediaNumber(), mediaText(l)) != null) continue;
+            String id = l.getMediaId();
+            seen.put(l.getMediaNumber(), mediaText(l), id);
+            ids.add(id);
+        }
+
+        Map<String, Media> found = mediaRepo.findAllById(ids);
+        IdMap<Media> media = new IdMap<>();
+        for (Map.Entry<String, Media> e : found.entrySet()) {
+            media.put(Ids.numberOf(e.getKey(), 'M'), e.getKey(), e.getValue());
+        }
+        return media;
+    }
+
+    /**
+     * @return the user id of a loan when it has no number, null otherwise (see {@link IdMap})
+     */
+    private static String userText(Loan l) {
+        return l.getUserNumber() < 0 ? l.getUserId() : null;
+    }
+
+    /**
+     * @return the media id of a loan when it has no number, null otherwise (see {@link IdMap})
+     */
+    private static String mediaText(Loan l) {
+        return l.getMediaNumber() < 0 ? l.getMediaId() : null;
+    }
+
+    /**
+     * @return {@link #BOOK} or {@link #CD} for known media types, -1 otherwise (or if media is null)
+     */
+    private static int typeIndex(Media media) {
+        if (media == null) return -1;
+        String type = media.getMediaType();
+        if ("BOOK".equals(type)) return BOOK;
+        if ("CD".equals(type)) return CD;
+        return -1;
+    }
 }
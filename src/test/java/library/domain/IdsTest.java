@@ -0,0 +1,51 @@
+package library.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Ids}.
+ */
+class IdsTest {
+
+    /**
+     * Only the generated form (prefix, then digits without leading zeros) has a number.
+     */
+    @Test
+    void numberOf_parsesGeneratedIdsOnly() {
+        assertEquals(42, Ids.numberOf("L42", 'L'));
+        assertEquals(0, Ids.numberOf("U0", 'U'));
+        assertEquals(-1, Ids.numberOf("M42", 'L'));
+        assertEquals(-1, Ids.numberOf("L042", 'L'));
+        assertEquals(-1, Ids.numberOf("L4x", 'L'));
+        assertEquals(-1, Ids.numberOf("L", 'L'));
+        assertEquals(-1, Ids.numberOf(null, 'L'));
+        assertEquals(-1, Ids.numberOf("L12345678901234567890", 'L'));
+    }
+
+    /**
+     * A sequence should move past restored ids, but never back.
+     */
+    @Test
+    void advancePast_onlyMovesForward() {
+        AtomicLong seq = new AtomicLong(5);
+
+        Ids.advancePast(seq, "U9", 'U');
+        assertEquals(10, seq.get());
+        Ids.advancePast(seq, "U3", 'U');
+        Ids.advancePast(seq, "custom", 'U');
+        assertEquals(10, seq.get());
+    }
+
+    /**
+     * Formatting a number should give back the id it was parsed from.
+     */
+    @Test
+    void format_isInverseOfNumberOf() {
+        assertEquals("M7", Ids.format('M', 7));
+        assertEquals(123456789012L, Ids.numberOf(Ids.format('L', 123456789012L), 'L'));
+    }
+}
@@ -0,0 +1,46 @@
+package library.domain;
+
+import library.domain.media.Book;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the id handling of {@link Loan}.
+ */
+class LoanTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    /**
+     * Generated user and media ids should be kept as numbers and given back unchanged.
+     */
+    @Test
+    void generatedIds_areStoredAsNumbers() {
+        User user = new User("mona", "mona@yahoo.com");
+        Book book = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        Loan loan = new Loan(user.getId(), book.getId(), DAY, DAY.plusDays(28));
+
+        assertEquals(user.getNumber(), loan.getUserNumber());
+        assertEquals(book.getNumber(), loan.getMediaNumber());
+        assertEquals(user.getId(), loan.getUserId());
+        assertEquals(book.getId(), loan.getMediaId());
+        assertEquals(loan.getId(), Ids.format('L', loan.getNumber()));
+    }
+
+    /**
+     * Ids that are not in the generated form should be kept as given, including null.
+     */
+    @Test
+    void otherIds_areKeptAsGiven() {
+        Loan loan = new Loan("custom-7", "U007", "m1", DAY, DAY.plusDays(7));
+
+        assertEquals(-1, loan.getNumber());
+        assertEquals(-1, loan.getUserNumber());
+        assertEquals("U007", loan.getUserId());
+        assertEquals("m1", loan.getMediaId());
+        assertNull(new Loan(null, null, DAY, DAY).getUserId());
+    }
+}
@@ -0,0 +1,55 @@
+package library.domain.media;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Isbn}.
+ */
+class IsbnTest {
+
+    /**
+     * Hyphens, spaces and an "ISBN" label should not change the canonical form.
+     */
+    @Test
+    void canonical_stripsHyphensSpacesAndLabel() {
+        assertEquals("9780132350884", Isbn.canonical("978-0-13-235088-4"));
+        assertEquals("9780132350884", Isbn.canonical(" 978 0132350884 "));
+        assertEquals("9780132350884", Isbn.canonical("ISBN 978-0-13-235088-4"));
+        assertEquals("9780132350884", Isbn.canonical("isbn:9780132350884"));
+    }
+
+    /**
+     * A valid ISBN-10 should become the matching ISBN-13.
+     */
+    @Test
+    void canonical_convertsIsbn10ToIsbn13() {
+        assertEquals("9780132350884", Isbn.canonical("0-13-235088-2"));
+        assertEquals("9780306406157", Isbn.canonical("0-306-40615-2"));
+        assertEquals("9780807281932", Isbn.canonical("080728193x"));
+    }
+
+    /**
+     * Text that is not a valid ISBN keeps its cleaned-up form.
+     */
+    @Test
+    void canonical_otherCodes_keepCleanedText() {
+        assertEquals("ISBN100", Isbn.canonical("  ISBN-100 "));
+        assertEquals("ISBN100", Isbn.canonical("isbn-100"));
+        // wrong ISBN-10 checksum: not converted
+        assertEquals("0132350881", Isbn.canonical("0-13-235088-1"));
+        // wrong ISBN-13 check digit: the label is not dropped
+        assertEquals("9780132350885", Isbn.canonical("978-0-13-235088-5"));
+        assertEquals("ISBN9780132350885", Isbn.canonical("ISBN 978-0-13-235088-5"));
+    }
+
+    /**
+     * Null and blank input have no canonical form.
+     */
+    @Test
+    void canonical_nullOrBlank_returnsNull() {
+        assertNull(Isbn.canonical(null));
+        assertNull(Isbn.canonical(" - "));
+    }
+}
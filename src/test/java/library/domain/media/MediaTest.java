@@ -0,0 +1,35 @@
+package library.domain.media;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the availability handling of {@link Media}.
+ */
+class MediaTest {
+
+    /**
+     * Listeners should be told about real availability changes only.
+     */
+    @Test
+    void availabilityListener_calledOnChangesOnly() {
+        Book book = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        List<Boolean> events = new ArrayList<>();
+        Media.AvailabilityListener listener = (m, available) -> events.add(available);
+        book.addAvailabilityListener(listener);
+
+        assertTrue(book.tryReserve());
+        assertFalse(book.tryReserve());
+        book.setAvailable(false);
+        book.setAvailable(true);
+
+        book.removeAvailabilityListener(listener);
+        book.setAvailable(false);
+
+        assertEquals(List.of(false, true), events);
+    }
+}
@@ -0,0 +1,75 @@
+package library.domain.media;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SearchKey} and the search keys kept by media items.
+ */
+class SearchKeyTest {
+
+    /**
+     * Keys should be lower-case and without accents.
+     */
+    @Test
+    void normalize_foldsCaseAndAccents() {
+        assertEquals("clean code", SearchKey.normalize("Clean CODE"));
+        assertEquals("beyonce", SearchKey.normalize("Beyoncé"));
+        assertEquals("dvorak", SearchKey.normalize("DVOŘÁK"));
+        assertNull(SearchKey.normalize(null));
+    }
+
+    /**
+     * A capital I with a dot should give the same key as a plain i,
+     * without the combining dot that lower-casing adds.
+     */
+    @Test
+    void normalize_dottedCapitalI_givesPlainI() {
+        assertEquals("istanbul", SearchKey.normalize("İSTANBUL"));
+        assertEquals(SearchKey.normalize("istanbul"), SearchKey.normalize("İstanbul"));
+    }
+
+    /**
+     * Lower-casing should not depend on the default locale (e.g. Turkish dotless i).
+     */
+    @Test
+    void normalize_ignoresDefaultLocale() {
+        Locale before = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr"));
+            assertEquals("isbn", SearchKey.normalize("ISBN"));
+        } finally {
+            Locale.setDefault(before);
+        }
+    }
+
+    /**
+     * Media items should match on the keys of all their searchable fields.
+     */
+    @Test
+    void matches_usesKeysOfAllFields() {
+        Book book = new Book("Café Stories", "José Saramago", "ISBN-1");
+        CD cd = new CD("Lemonade", "Beyoncé");
+
+        assertTrue(book.matches(SearchKey.normalize("CAFE")));
+        assertTrue(book.matches("saramago"));
+        assertTrue(book.matches("isbn-1"));
+        assertTrue(book.matches(book.getIdKey()));
+        assertTrue(cd.matches("beyonce"));
+        assertFalse(cd.matches("saramago"));
+    }
+
+    /**
+     * Missing fields should never match and never throw.
+     */
+    @Test
+    void matches_nullFields_doNotMatch() {
+        Book book = new Book(null, null, null);
+
+        assertFalse(book.matches("x"));
+        assertTrue(book.matches(book.getIdKey()));
+    }
+}
@@ -0,0 +1,165 @@
+package library.persistence;
+
+import library.domain.Admin;
+import library.domain.Ids;
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.repository.InMemoryAdminRepository;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.service.AuthService;
+import library.service.LibraryService;
+import library.service.ReminderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link EventApplier}, and a restart test of a
+ * {@link LibraryService} that records its changes in a {@link WriteAheadLog}.
+ */
+class EventApplierTest {
+
+    @TempDir
+    Path dir;
+
+    private InMemoryUserRepository userRepo;
+    private InMemoryMediaRepository mediaRepo;
+    private InMemoryLoanRepository loanRepo;
+    private EventApplier applier;
+
+    /**
+     * Creates empty repositories and an applier for them.
+     */
+    @BeforeEach
+    void setup() {
+        userRepo = new InMemoryUserRepository();
+        mediaRepo = new InMemoryMediaRepository();
+        loanRepo = new InMemoryLoanRepository();
+        applier = new EventApplier(userRepo, mediaRepo, loanRepo);
+    }
+
+    /**
+     * Applying the same events twice should give the same state as applying them once.
+     */
+    @Test
+    void apply_twice_isIdempotent() {
+        User user = new User("ahmad", "ahmad@gmail.com");
+        Book book = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        Loan loan = new Loan(user.getId(), book.getId(), LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 29));
+        loan.setReturnedDate(LocalDate.of(2025, 2, 3));
+        List<DomainEvent> events = List.of(
+                DomainEvent.userRegistered(user),
+                DomainEvent.mediaAdded(book),
+                DomainEvent.loanCreated(loan),
+                DomainEvent.loanReturned(loan),
+                DomainEvent.fineAdded(user.getId(), 10, 10),
+                DomainEvent.finePaid(user.getId(), 4, 6));
+
+        for (int round = 0; round < 2; round++) {
+            events.forEach(applier::apply);
+        }
+        applier.restoreAvailability();
+
+        assertEquals(1, userRepo.findAll().size());
+        assertEquals(6, userRepo.findById(user.getId()).orElseThrow().getOutstandingFine());
+        assertEquals(1, mediaRepo.findAll().size());
+        assertEquals("Robert Martin", ((Book) mediaRepo.findById(book.getId()).orElseThrow()).getAuthor());
+        assertEquals(1, loanRepo.findAll().size());
+        assertEquals(LocalDate.of(2025, 2, 3), loanRepo.findById(loan.getId()).orElseThrow().getReturnedDate());
+        assertTrue(mediaRepo.findById(book.getId()).orElseThrow().isAvailable());
+    }
+
+    /**
+     * Restored ids should be kept, and new objects should get larger ids.
+     */
+    @Test
+    void apply_restoredIds_advanceSequences() {
+        applier.apply(DomainEvent.userRegistered(new User("U1000000", "old", "old@example.com")));
+        applier.apply(DomainEvent.mediaAdded(new CD("M1000000", "Old Hits", "Band")));
+
+        assertTrue(userRepo.findById("U1000000").isPresent());
+        assertTrue(Ids.numberOf(new User("new", "new@example.com").getId(), 'U') > 1000000);
+        assertTrue(Ids.numberOf(new Book("New", "A", "ISBN-1").getId(), 'M') > 1000000);
+    }
+
+    /**
+     * Media with an active loan should be unavailable after restoring, all others available.
+     */
+    @Test
+    void restoreAvailability_followsActiveLoans() {
+        Book borrowed = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        CD free = new CD("Greatest Hits", "Michael Jackson");
+        applier.apply(DomainEvent.mediaAdded(borrowed));
+        applier.apply(DomainEvent.mediaAdded(free));
+        applier.apply(DomainEvent.loanCreated(
+                new Loan("U1", borrowed.getId(), LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 29))));
+
+        applier.restoreAvailability();
+
+        assertFalse(mediaRepo.findById(borrowed.getId()).orElseThrow().isAvailable());
+        assertTrue(mediaRepo.findById(free.getId()).orElseThrow().isAvailable());
+    }
+
+    /**
+     * Everything a service acknowledged should be back after a restart from the log.
+     */
+    @Test
+    void replay_afterRestart_restoresServiceState() throws IOException {
+        AtomicReference<LocalDate> today = new AtomicReference<>(LocalDate.of(2025, 1, 1));
+        String userId;
+        String returnedMediaId;
+        String borrowedMediaId;
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            LibraryService lib = service(today);
+            lib.setEventLog(wal);
+            userId = lib.registerUser("mona", "mona@yahoo.com").getId();
+            lib.addBook("Clean Code", "Robert Martin", "ISBN-100");
+            lib.addCD("Greatest Hits", "Michael Jackson");
+            borrowedMediaId = mediaRepo.findAll().get(0).getId();
+            returnedMediaId = mediaRepo.findAll().get(1).getId();
+
+            lib.borrow(userId, borrowedMediaId);
+            lib.borrowAll(userId, List.of(returnedMediaId));
+            // the CD is due after 7 days, so it is returned late
+            today.set(LocalDate.of(2025, 1, 10));
+            lib.returnMedia(loanRepo.findAll().get(1).getId());
+            lib.payFine(userId, 3);
+        }
+
+        setup();
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            wal.replay(0, (event, lsn) -> applier.apply(event));
+        }
+        applier.restoreAvailability();
+
+        User user = userRepo.findById(userId).orElseThrow();
+        assertEquals(20 - 3, user.getOutstandingFine());
+        assertEquals(2, loanRepo.findAll().size());
+        assertEquals(1, loanRepo.findActiveByUserId(userId).size());
+        Media returned = mediaRepo.findById(returnedMediaId).orElseThrow();
+        Media borrowed = mediaRepo.findById(borrowedMediaId).orElseThrow();
+        assertTrue(returned.isAvailable());
+        assertFalse(borrowed.isAvailable());
+        assertEquals("Michael Jackson", ((CD) returned).getArtist());
+    }
+
+    private LibraryService service(AtomicReference<LocalDate> today) {
+        InMemoryAdminRepository admins = new InMemoryAdminRepository();
+        admins.save(new Admin("admin", "admin"));
+        return new LibraryService(userRepo, mediaRepo, loanRepo, new ReminderService(today::get), today::get,
+                days -> 10, days -> 20, new AuthService(admins));
+    }
+}
@@ -0,0 +1,107 @@
+package library.persistence;
+
+import library.AppConfig;
+import library.domain.User;
+import library.repository.IndexedLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.service.LibraryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LogCompactor}, including a restart of a persistent {@link AppConfig}.
+ */
+class LogCompactorTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Compaction should snapshot the durable events and delete the segments they cover;
+     * the snapshot plus the remaining log should give the same state as the full log.
+     */
+    @Test
+    void compact_writesSnapshotAndDeletesCoveredSegments() throws IOException {
+        SnapshotStore snapshots = new SnapshotStore(dir.resolve("snapshots"));
+        try (WriteAheadLog wal = new WriteAheadLog(dir.resolve("wal"), 64)) {
+            User user = new User("mona", "mona@yahoo.com");
+            wal.appendAndSync(DomainEvent.userRegistered(user));
+            for (int i = 1; i <= 20; i++) wal.appendAndSync(DomainEvent.fineAdded(user.getId(), 1, i));
+            int segmentsBefore = wal.segments().size();
+
+            LogCompactor compactor = new LogCompactor(wal, snapshots);
+            assertEquals(21, compactor.compact());
+            assertTrue(wal.segments().size() < segmentsBefore);
+            assertEquals(21, compactor.compact());
+
+            wal.appendAndSync(DomainEvent.finePaid(user.getId(), 5, 15));
+
+            InMemoryUserRepository users = new InMemoryUserRepository();
+            InMemoryMediaRepository media = new InMemoryMediaRepository();
+            IndexedLoanRepository loans = new IndexedLoanRepository();
+            long from = snapshots.loadLatest(users, media, loans);
+            assertEquals(20, users.findById(user.getId()).orElseThrow().getOutstandingFine());
+            EventApplier applier = new EventApplier(users, media, loans);
+            wal.replay(from, (event, lsn) -> applier.apply(event));
+            assertEquals(15, users.findById(user.getId()).orElseThrow().getOutstandingFine());
+
+            assertThrows(IOException.class, () -> wal.replay(0, (event, lsn) -> { }));
+        }
+    }
+
+    /**
+     * The background run should write snapshots while the log keeps taking events.
+     */
+    @Test
+    void start_writesSnapshotsInBackground() throws Exception {
+        SnapshotStore snapshots = new SnapshotStore(dir.resolve("snapshots"));
+        try (WriteAheadLog wal = new WriteAheadLog(dir.resolve("wal"));
+             LogCompactor compactor = new LogCompactor(wal, snapshots)) {
+            compactor.start(10, TimeUnit.MILLISECONDS);
+            for (int i = 1; i <= 50; i++) wal.appendAndSync(DomainEvent.userUnregistered("U" + i));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (snapshots.snapshots().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(snapshots.snapshots().isEmpty());
+        }
+    }
+
+    /**
+     * A persistent AppConfig should come back with the same data after compaction and a restart.
+     */
+    @Test
+    void appConfig_restartAfterCompaction_restoresState() throws IOException {
+        String userId;
+        String mediaId;
+        AppConfig first = new AppConfig(dir);
+        try {
+            LibraryService lib = first.libraryService();
+            userId = lib.registerUser("sara", "sara@example.com").getId();
+            lib.addBook("Domain-Driven Design", "Eric Evans", "ISBN-500");
+            mediaId = lib.searchByIsbn("ISBN-500").get(0).getId();
+            first.logCompactor().compact();
+            lib.borrow(userId, mediaId);
+        } finally {
+            first.close();
+        }
+
+        AppConfig second = new AppConfig(dir);
+        try {
+            assertTrue(second.userRepository().findById(userId).isPresent());
+            assertFalse(second.mediaRepository().findById(mediaId).orElseThrow().isAvailable());
+            assertEquals(1, second.loanRepository().findActiveByUserId(userId).size());
+            assertEquals(8, second.mediaRepository().findAll().size());
+        } finally {
+            second.close();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package library.persistence;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SnapshotStore}.
+ */
+class SnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private SnapshotStore store;
+    private User user;
+    private Book book;
+    private CD cd;
+    private Loan returned;
+    private Loan active;
+
+    private InMemoryUserRepository users;
+    private InMemoryMediaRepository media;
+    private InMemoryLoanRepository loans;
+
+    /**
+     * Creates a store, sample state and empty repositories to load into.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        store = new SnapshotStore(dir);
+        user = new User("mona", "mona@yahoo.com");
+        user.addFine(15);
+        book = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        cd = new CD("Greatest Hits", "Michael Jackson");
+        returned = new Loan(user.getId(), book.getId(), LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 29));
+        returned.setReturnedDate(LocalDate.of(2025, 2, 2));
+        active = new Loan(user.getId(), cd.getId(), LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 8));
+
+        users = new InMemoryUserRepository();
+        media = new InMemoryMediaRepository();
+        loans = new InMemoryLoanRepository();
+    }
+
+    /**
+     * A written snapshot should load back with the same ids, fields, fines and loan dates.
+     */
+    @Test
+    void loadLatest_restoresWrittenState() throws IOException {
+        store.write(42, List.of(user), List.of(book, cd), List.of(returned, active));
+
+        assertEquals(42, store.loadLatest(users, media, loans));
+
+        User u = users.findById(user.getId()).orElseThrow();
+        assertEquals("mona@yahoo.com", u.getEmail());
+        assertEquals(15, u.getOutstandingFine());
+        Book b = (Book) media.findById(book.getId()).orElseThrow();
+        assertEquals("ISBN-100", b.getIsbn());
+        assertEquals("Robert Martin", b.getAuthor());
+        Media c = media.findById(cd.getId()).orElseThrow();
+        assertEquals("Michael Jackson", ((CD) c).getArtist());
+        assertEquals(LocalDate.of(2025, 2, 2), loans.findById(returned.getId()).orElseThrow().getReturnedDate());
+        assertEquals(List.of(active.getId()), List.of(loans.findActive().get(0).getId()));
+    }
+
+    /**
+     * A damaged newest snapshot should be skipped, and only the newest ones should be kept.
+     */
+    @Test
+    void loadLatest_damagedNewest_fallsBackToOlder() throws IOException {
+        store.write(1, List.of(user), List.of(), List.of());
+        store.write(2, List.of(user), List.of(book), List.of());
+        Path newest = store.write(3, List.of(user), List.of(book, cd), List.of());
+        assertEquals(SnapshotStore.KEEP, store.snapshots().size());
+
+        byte[] data = Files.readAllBytes(newest);
+        data[data.length / 2] ^= 0x21;
+        Files.write(newest, data);
+
+        assertEquals(2, store.loadLatest(users, media, loans));
+        assertEquals(1, media.findAll().size());
+    }
+
+    /**
+     * Without snapshots nothing is loaded.
+     */
+    @Test
+    void loadLatest_noSnapshot_returnsZero() throws IOException {
+        assertEquals(0, store.loadLatest(users, media, loans));
+        assertTrue(users.findAll().isEmpty());
+    }
+}
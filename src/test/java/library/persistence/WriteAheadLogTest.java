@@ -0,0 +1,264 @@
+package library.persistence;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link WriteAheadLog} and the encoding of {@link DomainEvent}s.
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Events written and synced should be read back in order, with all their fields, after reopening.
+     */
+    @Test
+    void replay_afterReopen_returnsEventsInOrder() throws IOException {
+        User user = new User("ahmad", "ahmad@gmail.com");
+        Book book = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        Loan loan = new Loan(user.getId(), book.getId(), LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 29));
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            wal.append(DomainEvent.userRegistered(user));
+            wal.append(DomainEvent.mediaAdded(book));
+            wal.append(DomainEvent.mediaAdded(new CD("Greatest Hits", "Michael Jackson")));
+            wal.appendAndSync(DomainEvent.loanCreated(loan));
+            wal.appendAndSync(DomainEvent.fineAdded(user.getId(), 10, 25));
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            List<DomainEvent> events = readAll(wal, 0);
+
+            assertEquals(5, wal.getLastLsn());
+            assertEquals(5, events.size());
+            assertEquals("ahmad@gmail.com", events.get(0).getDetail());
+            assertEquals("ISBN-100", events.get(1).getIsbn());
+            assertEquals("CD", events.get(2).getMediaType());
+            assertEquals("Michael Jackson", events.get(2).getDetail());
+            assertEquals(LocalDate.of(2025, 1, 29), events.get(3).getDueDate());
+            assertEquals(book.getId(), events.get(3).getMediaId());
+            assertEquals(25, events.get(4).getBalance());
+            assertEquals(6, wal.append(DomainEvent.userUnregistered(user.getId())));
+        }
+    }
+
+    /**
+     * Events appended before one sync should be written together by that sync.
+     */
+    @Test
+    void sync_writesAllBufferedEventsInOneFlush() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            wal.append(DomainEvent.userUnregistered("U1"));
+            wal.append(DomainEvent.userUnregistered("U2"));
+            long last = wal.append(DomainEvent.userUnregistered("U3"));
+            assertEquals(0, wal.getDurableLsn());
+
+            wal.sync(1);
+
+            assertEquals(last, wal.getDurableLsn());
+            assertEquals(1, wal.getFlushCount());
+            wal.sync(last);
+            assertEquals(1, wal.getFlushCount());
+        }
+    }
+
+    /**
+     * Many threads appending and syncing should get unique LSNs, and every event should be durable.
+     */
+    @Test
+    void appendAndSync_concurrentWriters_allEventsDurable() throws Exception {
+        int threads = 8;
+        int perThread = 100;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Set<Long> lsns = new HashSet<>();
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    List<Long> mine = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        mine.add(wal.appendAndSync(DomainEvent.fineAdded("U" + thread, 1, i + 1)));
+                    }
+                    return mine;
+                }));
+            }
+            for (Future<List<Long>> f : futures) lsns.addAll(f.get(30, TimeUnit.SECONDS));
+
+            assertEquals(threads * perThread, lsns.size());
+            assertEquals(threads * perThread, wal.getDurableLsn());
+            assertTrue(wal.getFlushCount() <= threads * perThread);
+        } finally {
+            pool.shutdownNow();
+        }
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            assertEquals(threads * perThread, readAll(wal, 0).size());
+        }
+    }
+
+    /**
+     * A record cut off by a crash should be dropped on open, and new events should follow the last good one.
+     */
+    @Test
+    void open_tornTail_isTruncated() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            wal.appendAndSync(DomainEvent.userUnregistered("U1"));
+            wal.appendAndSync(DomainEvent.userUnregistered("U2"));
+        }
+        Path segment = onlySegment();
+        long size = Files.size(segment);
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.truncate(size - 3);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            assertEquals(1, wal.getLastLsn());
+            wal.appendAndSync(DomainEvent.userUnregistered("U3"));
+        }
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            List<DomainEvent> events = readAll(wal, 0);
+            assertEquals(2, events.size());
+            assertEquals("U3", events.get(1).getId());
+        }
+    }
+
+    /**
+     * A corrupt record before the end of the log cannot be a torn write, so opening fails.
+     */
+    @Test
+    void open_corruptRecordInOlderSegment_fails() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 1)) {
+            wal.appendAndSync(DomainEvent.userUnregistered("U1"));
+            wal.appendAndSync(DomainEvent.userUnregistered("U2"));
+        }
+        Path first;
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 1)) {
+            first = wal.segments().get(0);
+        }
+        byte[] data = Files.readAllBytes(first);
+        data[data.length - 1] ^= 0x55;
+        Files.write(first, data);
+
+        assertThrows(IOException.class, () -> new WriteAheadLog(dir, 1));
+    }
+
+    /**
+     * Small segments should roll over, and replay should start after the given LSN.
+     */
+    @Test
+    void replay_acrossSegments_skipsOlderEvents() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 40)) {
+            for (int i = 1; i <= 10; i++) wal.appendAndSync(DomainEvent.userUnregistered("U" + i));
+
+            assertTrue(wal.segments().size() > 1);
+            List<DomainEvent> tail = readAll(wal, 7);
+            assertEquals(3, tail.size());
+            assertEquals("U8", tail.get(0).getId());
+        }
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 40)) {
+            assertEquals(10, wal.getLastLsn());
+            assertEquals(10, readAll(wal, 0).size());
+        }
+    }
+
+    /**
+     * After compaction left only an empty current segment, reopening must
+     * continue after the compacted events instead of starting again at LSN 1.
+     */
+    @Test
+    void open_compactedSegmentsAndEmptyCurrentSegment_keepsLsns() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 40)) {
+            for (int i = 1; i <= 10; i++) wal.appendAndSync(DomainEvent.userUnregistered("U" + i));
+        }
+        // a crash right after the next segment was created, then compaction through LSN 10
+        Files.createFile(dir.resolve(String.format("wal-%020d.log", 11)));
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 40)) {
+            wal.deleteSegmentsThrough(10);
+            assertEquals(1, wal.segments().size());
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 40)) {
+            assertEquals(10, wal.getLastLsn());
+            assertEquals(11, wal.appendAndSync(DomainEvent.userUnregistered("U11")));
+        }
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 40)) {
+            assertEquals(11, wal.getLastLsn());
+            List<DomainEvent> tail = readAll(wal, 10);
+            assertEquals(1, tail.size());
+            assertEquals("U11", tail.get(0).getId());
+        }
+    }
+
+    /**
+     * A log that ends before a loaded snapshot should continue after the snapshot,
+     * and the reopened log should hold only the new events.
+     */
+    @Test
+    void advanceTo_snapshotAheadOfLog_continuesAfterSnapshot() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            for (int i = 1; i <= 3; i++) wal.appendAndSync(DomainEvent.userUnregistered("U" + i));
+
+            wal.advanceTo(2);
+            assertEquals(3, wal.getLastLsn());
+            wal.advanceTo(20);
+            assertEquals(21, wal.appendAndSync(DomainEvent.userUnregistered("U21")));
+        }
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            assertEquals(21, wal.getLastLsn());
+            List<DomainEvent> tail = readAll(wal, 20);
+            assertEquals(1, tail.size());
+            assertEquals("U21", tail.get(0).getId());
+        }
+    }
+
+    /**
+     * Appending to a closed log is rejected.
+     */
+    @Test
+    void append_afterClose_throws() throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(dir);
+        wal.close();
+        assertThrows(IllegalStateException.class, () -> wal.append(DomainEvent.userUnregistered("U1")));
+    }
+
+    private Path onlySegment() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            List<Path> segments = wal.segments();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private static List<DomainEvent> readAll(WriteAheadLog wal, long afterLsn) throws IOException {
+        List<DomainEvent> events = new ArrayList<>();
+        long[] previous = {afterLsn};
+        wal.replay(afterLsn, (event, lsn) -> {
+            assertEquals(previous[0] + 1, lsn);
+            previous[0] = lsn;
+            events.add(event);
+        });
+        return events;
+    }
+}
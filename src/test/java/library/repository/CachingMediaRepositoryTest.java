@@ -0,0 +1,222 @@
+package library.repository;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.dto.MediaFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CachingMediaRepository}.
+ *
+ * A counting delegate shows which calls reach the real repository,
+ * and a manual clock drives expiry.
+ */
+class CachingMediaRepositoryTest {
+
+    /**
+     * Delegate that counts search calls.
+     */
+    static class CountingRepository extends IndexedMediaRepository {
+        final AtomicInteger searches = new AtomicInteger();
+
+        @Override
+        public List<Media> search(String q) {
+            searches.incrementAndGet();
+            return super.search(q);
+        }
+    }
+
+    private CountingRepository delegate;
+    private AtomicLong clock;
+    private CachingMediaRepository repo;
+    private Book cleanCode;
+
+    @BeforeEach
+    void setup() {
+        delegate = new CountingRepository();
+        cleanCode = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        delegate.save(cleanCode);
+        delegate.save(new CD("Greatest Hits", "Michael Jackson"));
+
+        clock = new AtomicLong();
+        repo = new CachingMediaRepository(delegate, 2, TimeUnit.SECONDS.toNanos(60), clock::get);
+    }
+
+    /**
+     * A repeated query should be answered from the cache, also in another case.
+     */
+    @Test
+    void search_repeatedQuery_isCacheHit() {
+        assertEquals(1, repo.search("clean").size());
+        assertEquals(1, repo.search("CLEAN").size());
+
+        assertEquals(1, delegate.searches.get());
+        assertEquals(1, repo.getHitCount());
+        assertEquals(1, repo.getMissCount());
+    }
+
+    /**
+     * Callers may change the returned list without changing the cache.
+     */
+    @Test
+    void search_returnedListIsACopy() {
+        repo.search("clean").clear();
+
+        assertEquals(1, repo.search("clean").size());
+    }
+
+    /**
+     * Saving an item that matches a cached query should drop only that query.
+     */
+    @Test
+    void save_matchingItem_invalidatesOnlyAffectedQueries() {
+        repo.search("clean");
+        repo.search("hits");
+
+        Book other = new Book("Clean Architecture", "Robert Martin", "ISBN-200");
+        repo.save(other);
+
+        assertEquals(2, repo.search("clean").size());
+        assertEquals(1, repo.search("hits").size());
+        assertEquals(3, delegate.searches.get());
+        assertEquals(1, repo.getInvalidationCount());
+    }
+
+    /**
+     * Entries should expire after the time limit.
+     */
+    @Test
+    void search_afterTtl_reloads() {
+        repo.search("clean");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        repo.search("clean");
+
+        assertEquals(2, delegate.searches.get());
+    }
+
+    /**
+     * The least recently used query should be evicted when the cache is full.
+     */
+    @Test
+    void search_overCapacity_evictsLeastRecentlyUsed() {
+        repo.search("clean");
+        repo.search("hits");
+        repo.search("clean");
+        repo.search("code");
+
+        assertEquals(2, repo.size());
+        assertEquals(1, repo.getEvictionCount());
+
+        repo.search("clean");
+        assertEquals(3, delegate.searches.get());
+        repo.search("hits");
+        assertEquals(4, delegate.searches.get());
+    }
+
+    /**
+     * Title, author and ISBN lookups should be cached and invalidated too.
+     */
+    @Test
+    void searchByFields_areCachedAndInvalidated() {
+        repo = new CachingMediaRepository(delegate, 10, TimeUnit.SECONDS.toNanos(60), clock::get);
+
+        assertEquals(1, repo.searchByTitle("clean").size());
+        assertEquals(1, repo.searchByAuthor("jackson").size());
+        assertEquals(List.of(cleanCode), repo.findByIsbn("isbn-100"));
+        repo.searchByTitle("Clean");
+        repo.findByIsbn("ISBN 100");
+        assertEquals(2, repo.getHitCount());
+
+        CD other = new CD("Thriller", "Michael Jackson");
+        repo.save(other);
+
+        assertEquals(2, repo.searchByAuthor("jackson").size());
+        assertEquals(1, repo.searchByTitle("clean").size());
+    }
+
+    /**
+     * Availability changes should reach the listeners registered by the cache
+     * without touching unrelated entries.
+     */
+    @Test
+    void availabilityChange_keepsAvailabilityIndependentEntries() {
+        repo.search("clean");
+        cleanCode.setAvailable(false);
+        repo.search("clean");
+
+        assertEquals(1, delegate.searches.get());
+        assertFalse(repo.search("clean").get(0).isAvailable());
+    }
+
+    /**
+     * Invalid sizes should be rejected.
+     */
+    @Test
+    void constructor_invalidLimits_throw() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CachingMediaRepository(delegate, 0, 1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CachingMediaRepository(delegate, 10, 0, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A search filtered by availability should be dropped when a matching item is borrowed,
+     * but not when an item of another type changes.
+     */
+    @Test
+    void availabilityChange_invalidatesFilteredEntries() {
+        CD cd = (CD) delegate.search("hits").get(0);
+        assertEquals(List.of(cleanCode), repo.search("", MediaFilter.availableOnly("BOOK")));
+
+        cd.setAvailable(false);
+        assertEquals(0, repo.getInvalidationCount());
+
+        cleanCode.setAvailable(false);
+        assertEquals(1, repo.getInvalidationCount());
+        assertTrue(repo.search("", MediaFilter.availableOnly("BOOK")).isEmpty());
+    }
+
+    /**
+     * After the availability-dependent entry is dropped, further changes should not
+     * reach the cache at all, so entries of another thread's query stay cached.
+     */
+    @Test
+    void availabilityChange_withoutDependentEntries_skipsTheCache() {
+        repo.search("", MediaFilter.availableOnly("BOOK"));
+        cleanCode.setAvailable(false);
+        assertEquals(1, repo.getInvalidationCount());
+
+        repo.search("clean");
+        for (int i = 0; i < 10; i++) cleanCode.setAvailable(i % 2 == 0);
+
+        assertEquals(1, repo.getInvalidationCount());
+        assertEquals(1, repo.size());
+    }
+
+    /**
+     * Items hold the cache weakly, so a cache that is no longer used can be collected.
+     */
+    @Test
+    void droppedCache_canBeGarbageCollected() throws InterruptedException {
+        WeakReference<CachingMediaRepository> ref = new WeakReference<>(
+                new CachingMediaRepository(delegate, 2, TimeUnit.SECONDS.toNanos(60), clock::get));
+
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(ref.get());
+        cleanCode.setAvailable(false);
+    }
+}
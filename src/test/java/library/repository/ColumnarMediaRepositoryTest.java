@@ -0,0 +1,214 @@
+package library.repository;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.dto.MediaFilter;
+import library.support.ConcurrentRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ColumnarMediaRepository}.
+ *
+ * Results are compared with the list-based repository, and items that
+ * were not kept by the test are checked after being rebuilt from the columns.
+ */
+class ColumnarMediaRepositoryTest {
+
+    private ColumnarMediaRepository repo;
+    private InMemoryMediaRepository scan;
+
+    /**
+     * Stores the same 30 items in a columnar repository and in a list-based one.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new ColumnarMediaRepository();
+        scan = new InMemoryMediaRepository();
+        for (int i = 0; i < 30; i++) {
+            Media m = i % 3 == 0
+                    ? new CD("Greatest Hits " + i, "Band " + (i % 5))
+                    : new Book("Código Book " + i, "Author " + (i % 7), "ISBN-" + i);
+            if (i % 4 == 0) m.setAvailable(false);
+            repo.save(m);
+            scan.save(m);
+        }
+    }
+
+    /**
+     * Search should return the same items, in the same order, as a scan over the objects.
+     */
+    @Test
+    void search_matchesListScan() {
+        for (String q : List.of("codigo", "hits 1", "author 3", "", "isbn-4", "band", "nothing")) {
+            assertEquals(scan.search(q), repo.search(q), q);
+        }
+        MediaFilter availableBooks = MediaFilter.availableOnly("BOOK");
+        assertEquals(scan.search("book", availableBooks), repo.search("book", availableBooks));
+        assertEquals(scan.searchPage("code", 2, 5).getItems(), repo.searchPage("code", 2, 5).getItems());
+        assertEquals(scan.findByIsbn("isbn 7"), repo.findByIsbn("isbn 7"));
+    }
+
+    /**
+     * Repeated values should be stored once in the string pools.
+     */
+    @Test
+    void save_repeatedValues_areStoredOnce() {
+        long before = repo.getOffHeapBytes();
+        repo.save(new Book("Greatest Hits 0", "Author 1", "ISBN-1"));
+
+        assertEquals(31, repo.size());
+        assertTrue(repo.getOffHeapBytes() - before < 40);
+    }
+
+    /**
+     * An item rebuilt from the columns should have the stored fields and availability,
+     * and its availability changes should reach the filtered search.
+     */
+    @Test
+    void findById_rebuiltItem_keepsFieldsAndAvailability() {
+        String id = saveUnreferencedBook();
+
+        Book book = (Book) repo.findById(id).orElseThrow();
+        assertEquals("Effective Java", book.getTitle());
+        assertEquals("Joshua Bloch", book.getAuthor());
+        assertEquals("ISBN-900", book.getIsbn());
+        assertFalse(book.isAvailable());
+        assertSame(book, repo.findById(id).orElseThrow());
+
+        book.setAvailable(true);
+        assertEquals(List.of(book), repo.search("effective", new MediaFilter("BOOK", true)));
+    }
+
+    /**
+     * Saving an item with a stored id should replace it in place.
+     */
+    @Test
+    void save_sameId_replacesInPlace() {
+        Media first = scan.findAll().get(1);
+        Book replacement = new Book(first.getId(), "Refactoring", "Martin Fowler", "ISBN-77");
+        repo.save(replacement);
+
+        assertEquals(30, repo.size());
+        assertSame(replacement, repo.findAll().get(1));
+        assertEquals(List.of(replacement), repo.search("fowler"));
+        assertEquals(scan.search("codigo").size() - 1, repo.search("codigo").size());
+    }
+
+    /**
+     * Only books and CDs can be stored in the columns.
+     */
+    @Test
+    void save_otherMediaType_throws() {
+        Media dvd = new Media("Film", "DVD") { };
+        assertThrows(IllegalArgumentException.class, () -> repo.save(dvd));
+    }
+
+    /**
+     * Threads that look up the same rebuilt item at once should all get one instance,
+     * so availability changes on any of them reach the columns.
+     */
+    @Test
+    void findById_fromManyThreads_returnsOneInstance() throws InterruptedException {
+        String id = saveUnreferencedBook();
+        Queue<Media> found = new ConcurrentLinkedQueue<>();
+
+        ConcurrentRunner.runTogether(8, worker -> {
+            for (int i = 0; i < 1000; i++) {
+                found.add(repo.findById(id).orElseThrow());
+            }
+        });
+
+        Media first = found.peek();
+        assertTrue(found.stream().allMatch(m -> m == first));
+    }
+
+    /**
+     * Borrowing and returning from many threads should leave the availability
+     * bits equal to the real state of the items.
+     */
+    @Test
+    void availabilityChanges_fromManyThreads_keepFiltersExact() throws InterruptedException {
+        List<Media> items = repo.findAll();
+
+        ConcurrentRunner.runTogether(8, worker -> {
+            Random random = new Random(worker);
+            for (int i = 0; i < 20_000; i++) {
+                Media m = items.get(random.nextInt(items.size()));
+                if (random.nextBoolean()) m.tryReserve();
+                else m.setAvailable(true);
+            }
+        });
+
+        MediaFilter available = MediaFilter.availableOnly(null);
+        List<Media> expected = new ArrayList<>();
+        for (Media m : items) {
+            if (available.test(m)) expected.add(m);
+        }
+        assertEquals(expected, repo.search("", available));
+    }
+
+    /**
+     * When the borrow's availability event reaches the repository after the
+     * return that followed it, the filter should still show the item as available.
+     */
+    @Test
+    void availabilityEvents_deliveredOutOfOrder_keepFilterExact() throws InterruptedException {
+        Book late = new Book("Refactoring", "Martin Fowler", "ISBN-900");
+        CountDownLatch borrowing = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(1);
+        // registered before the repository's listener, so it holds the borrow's event back
+        late.addAvailabilityListener((m, available) -> {
+            if (available) return;
+            borrowing.countDown();
+            try {
+                returned.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        repo.save(late);
+
+        Thread borrower = new Thread(late::tryReserve);
+        borrower.start();
+        assertTrue(borrowing.await(5, TimeUnit.SECONDS));
+        late.setAvailable(true);
+        returned.countDown();
+        borrower.join();
+
+        assertTrue(late.isAvailable());
+        assertEquals(List.of(late), repo.search("refactoring", MediaFilter.availableOnly(null)));
+    }
+
+    /**
+     * Closing frees the off-heap pools, after which the repository refuses to be used.
+     */
+    @Test
+    void close_releasesOffHeapMemory() {
+        assertTrue(repo.getOffHeapBytes() > 0);
+
+        repo.close();
+
+        assertEquals(0, repo.getOffHeapBytes());
+        assertThrows(IllegalStateException.class, () -> repo.search("hits"));
+        repo.close();
+    }
+
+    private String saveUnreferencedBook() {
+        Book book = new Book("Effective Java", "Joshua Bloch", "ISBN-900");
+        book.setAvailable(false);
+        repo.save(book);
+        return book.getId();
+    }
+}
@@ -0,0 +1,54 @@
+package library.repository;
+
+import library.domain.Admin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ConcurrentAdminRepository}.
+ *
+ * These tests verify that admins are stored and found by username,
+ * and that the first admin saved with a username wins.
+ */
+class ConcurrentAdminRepositoryTest {
+
+    private ConcurrentAdminRepository repo;
+
+    /**
+     * Sets up a fresh repository with one admin before each test.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new ConcurrentAdminRepository();
+        repo.save(new Admin("admin", "admin"));
+    }
+
+    /**
+     * Verifies that findByUsername() returns the stored admin.
+     */
+    @Test
+    void findByUsername_returnsCorrectAdmin() {
+        assertEquals("admin", repo.findByUsername("admin").orElseThrow().getPasswordHash());
+    }
+
+    /**
+     * Ensures that unknown or null usernames return empty.
+     */
+    @Test
+    void findByUsername_returnsEmptyWhenNotFound() {
+        assertTrue(repo.findByUsername("notexists").isEmpty());
+        assertTrue(repo.findByUsername(null).isEmpty());
+    }
+
+    /**
+     * Saving a second admin with the same username keeps the first one.
+     */
+    @Test
+    void save_duplicateUsername_keepsFirstAdmin() {
+        repo.save(new Admin("admin", "other"));
+
+        assertEquals("admin", repo.findByUsername("admin").orElseThrow().getPasswordHash());
+    }
+}
@@ -0,0 +1,153 @@
+package library.repository;
+
+import library.domain.Loan;
+import library.support.ConcurrentRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ConcurrentLoanRepository}.
+ *
+ * These tests verify the user, active, and due-date indexes,
+ * and that concurrent saves and returns keep them consistent.
+ */
+class ConcurrentLoanRepositoryTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 1, 1);
+
+    private ConcurrentLoanRepository repo;
+
+    private Loan loan1;
+    private Loan loan2;
+    private Loan loan3;
+
+    /**
+     * Sets up a repository with sample loan data before each test.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new ConcurrentLoanRepository();
+
+        loan1 = new Loan("user1", "m1", TODAY.minusDays(20), TODAY.minusDays(3));
+        loan2 = new Loan("user1", "m2", TODAY, TODAY.plusDays(5));
+        loan3 = new Loan("user2", "m3", TODAY.minusDays(30), TODAY.minusDays(10));
+
+        repo.save(loan1);
+        repo.save(loan2);
+        repo.save(loan3);
+    }
+
+    /**
+     * Verifies findAll(), findById() and findByUserId().
+     */
+    @Test
+    void save_and_find_shouldReturnStoredLoans() {
+        assertEquals(3, repo.findAll().size());
+        assertSame(loan2, repo.findById(loan2.getId()).orElseThrow());
+        assertEquals(2, repo.findByUserId("user1").size());
+        assertTrue(repo.findByUserId("none").isEmpty());
+    }
+
+    /**
+     * Generated ids are keyed by their number and custom ids by their text;
+     * both must be found, returned and deleted through the same lookups.
+     */
+    @Test
+    void generatedAndCustomIds_areFoundReturnedAndDeleted() {
+        Loan numbered = new Loan("U7", "M1", TODAY, TODAY.plusDays(3));
+        Loan other = new Loan("U70", "M2", TODAY, TODAY.plusDays(3));
+        repo.save(numbered);
+        repo.save(other);
+
+        assertEquals(List.of(numbered), repo.findByUserId("U7"));
+        assertEquals(List.of(numbered), repo.findActiveByUserId("U7"));
+        assertTrue(repo.findByUserId("U07").isEmpty());
+        assertSame(numbered, repo.findById(numbered.getId()).orElseThrow());
+
+        assertTrue(repo.markReturned(numbered, TODAY));
+        assertTrue(repo.findActiveByUserId("U7").isEmpty());
+        repo.delete(numbered);
+        assertTrue(repo.findByUserId("U7").isEmpty());
+        assertTrue(repo.findById(numbered.getId()).isEmpty());
+        assertEquals(List.of(loan1, loan2), repo.findByUserId("user1"));
+    }
+
+    /**
+     * Verifies that findOverdue() returns overdue loans ordered by due date.
+     */
+    @Test
+    void findOverdue_returnsLoansDueBeforeToday_inDueDateOrder() {
+        List<Loan> overdue = repo.findOverdue(TODAY);
+
+        assertEquals(2, overdue.size());
+        assertSame(loan3, overdue.get(0));
+        assertSame(loan1, overdue.get(1));
+    }
+
+    /**
+     * Ensures that markReturned() succeeds once and updates the active indexes.
+     */
+    @Test
+    void markReturned_onlyFirstCallSucceeds() {
+        assertTrue(repo.markReturned(loan1, TODAY));
+        assertFalse(repo.markReturned(loan1, TODAY));
+
+        assertEquals(2, repo.findActive().size());
+        assertEquals(1, repo.findActiveByUserId("user1").size());
+        assertEquals(1, repo.findOverdue(TODAY).size());
+    }
+
+    /**
+     * Ensures that delete() removes the loan from every index.
+     */
+    @Test
+    void delete_removesLoanFromAllIndexes() {
+        repo.delete(loan3);
+
+        assertEquals(2, repo.findAll().size());
+        assertTrue(repo.findById(loan3.getId()).isEmpty());
+        assertTrue(repo.findActiveByUserId("user2").isEmpty());
+        assertEquals(1, repo.findOverdue(TODAY).size());
+    }
+
+    /**
+     * Many threads returning the same loan: exactly one of them wins.
+     */
+    @Test
+    void markReturned_fromManyThreads_onlyOneWins() throws InterruptedException {
+        AtomicInteger winners = new AtomicInteger();
+
+        ConcurrentRunner.runTogether(8, worker -> {
+            if (repo.markReturned(loan2, TODAY)) winners.incrementAndGet();
+        });
+
+        assertEquals(1, winners.get());
+        assertTrue(repo.findActiveByUserId("user1").stream().noneMatch(l -> l == loan2));
+    }
+
+    /**
+     * saveAll() should index a batch like saving the loans one by one,
+     * also when a loan of the batch is replaced later in the same batch.
+     */
+    @Test
+    void saveAll_batch_updatesAllIndexes() {
+        Loan batch1 = new Loan("user3", "m4", TODAY, TODAY.plusDays(7));
+        Loan batch2 = new Loan("user3", "m5", TODAY.minusDays(9), TODAY.minusDays(1));
+        Loan replaced = new Loan("user3", "m6", TODAY, TODAY.plusDays(7));
+        Loan replacement = new Loan(replaced.getId(), "user4", "m6", TODAY, TODAY.plusDays(7));
+
+        repo.saveAll(List.of(batch1, batch2, replaced, replacement));
+
+        assertEquals(List.of(batch1, batch2), repo.findByUserId("user3"));
+        assertEquals(List.of(batch1, batch2), repo.findActiveByUserId("user3"));
+        assertEquals(List.of(replacement), repo.findActiveByUserId("user4"));
+        assertEquals(List.of(loan3, loan1, batch2), repo.findOverdue(TODAY));
+        assertEquals(6, repo.findAll().size());
+    }
+}
@@ -0,0 +1,69 @@
+package library.repository;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ConcurrentMediaRepository}.
+ *
+ * These tests verify that media items are stored in insertion order,
+ * found by id, and searched like the list-based repository.
+ */
+class ConcurrentMediaRepositoryTest {
+
+    private ConcurrentMediaRepository repo;
+    private Book book;
+    private CD cd;
+
+    /**
+     * Initializes the repository with sample media items before each test.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new ConcurrentMediaRepository();
+        book = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        cd = new CD("Greatest Hits", "Michael Jackson");
+        repo.save(book);
+        repo.save(cd);
+    }
+
+    /**
+     * Ensures that findAll() keeps insertion order and re-saving does not duplicate.
+     */
+    @Test
+    void findAll_keepsInsertionOrder_withoutDuplicates() {
+        repo.save(book);
+
+        List<Media> all = repo.findAll();
+        assertEquals(2, all.size());
+        assertSame(book, all.get(0));
+        assertSame(cd, all.get(1));
+    }
+
+    /**
+     * Confirms that findById() returns the stored item or empty.
+     */
+    @Test
+    void findById_returnsItemOrEmpty() {
+        assertSame(cd, repo.findById(cd.getId()).orElseThrow());
+        assertTrue(repo.findById("unknown").isEmpty());
+    }
+
+    /**
+     * Searching should match title, author, and artist case-insensitively.
+     */
+    @Test
+    void search_matchesTitleAuthorAndArtist() {
+        assertEquals(1, repo.search("clean").size());
+        assertEquals(1, repo.search("MARTIN").size());
+        assertTrue(repo.search("michael").get(0) instanceof CD);
+        assertEquals(2, repo.search(null).size());
+    }
+}
@@ -0,0 +1,118 @@
+package library.repository;
+
+import library.domain.User;
+import library.support.ConcurrentRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ConcurrentUserRepository}.
+ *
+ * These tests verify storing, retrieving, and deleting users,
+ * and that parallel saves do not lose users or duplicate ids.
+ */
+class ConcurrentUserRepositoryTest {
+
+    private ConcurrentUserRepository repo;
+    private User ayham;
+    private User mona;
+
+    /**
+     * Initializes the repository with sample users before each test.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new ConcurrentUserRepository();
+        ayham = new User("ayham", "ayham@test.com");
+        mona = new User("mona", "mona@test.com");
+        repo.save(ayham);
+        repo.save(mona);
+    }
+
+    /**
+     * Ensures that findAll() returns the users in insertion order.
+     */
+    @Test
+    void findAll_returnsUsersInInsertionOrder() {
+        List<User> all = repo.findAll();
+        assertEquals(2, all.size());
+        assertSame(ayham, all.get(0));
+        assertSame(mona, all.get(1));
+    }
+
+    /**
+     * Confirms that findById() and findByEmail() return the correct user.
+     */
+    @Test
+    void findByIdAndEmail_returnCorrectUser() {
+        assertSame(ayham, repo.findById(ayham.getId()).orElseThrow());
+        assertSame(mona, repo.findByEmail("mona@test.com").orElseThrow());
+        assertTrue(repo.findById("unknown").isEmpty());
+        assertTrue(repo.findByEmail(null).isEmpty());
+    }
+
+    /**
+     * Ensures that delete() removes the user from both indexes.
+     */
+    @Test
+    void delete_removesUserFromIdAndEmailIndex() {
+        repo.delete(mona);
+
+        assertEquals(1, repo.findAll().size());
+        assertTrue(repo.findById(mona.getId()).isEmpty());
+        assertTrue(repo.findByEmail("mona@test.com").isEmpty());
+    }
+
+    /**
+     * Deleting the first user of a shared email should leave the next one findable by it.
+     */
+    @Test
+    void delete_sharedEmail_keepsOtherUserFindable() {
+        User twin = new User("mona 2", "mona@test.com");
+        repo.save(twin);
+
+        assertSame(mona, repo.findByEmail("mona@test.com").orElseThrow());
+        repo.delete(mona);
+        assertSame(twin, repo.findByEmail("mona@test.com").orElseThrow());
+    }
+
+    /**
+     * Replacing a user with a new email should drop the old email from the index.
+     */
+    @Test
+    void save_replacingUserWithNewEmail_dropsOldEmail() {
+        User renamed = new User(mona.getId(), "mona", "mona@new.com");
+        repo.save(renamed);
+
+        assertTrue(repo.findByEmail("mona@test.com").isEmpty());
+        assertSame(renamed, repo.findByEmail("mona@new.com").orElseThrow());
+        assertSame(renamed, repo.findById(mona.getId()).orElseThrow());
+        repo.delete(renamed);
+        assertTrue(repo.findByEmail("mona@new.com").isEmpty());
+    }
+
+    /**
+     * Users created and saved from many threads all get unique ids
+     * and are all stored.
+     */
+    @Test
+    void save_fromManyThreads_keepsEveryUser() throws InterruptedException {
+        ConcurrentRunner.runTogether(8, worker -> {
+            for (int i = 0; i < 125; i++) {
+                int n = worker * 125 + i;
+                repo.save(new User("u" + n, "u" + n + "@test.com"));
+            }
+        });
+
+        List<User> all = repo.findAll();
+        Set<String> ids = all.stream().map(User::getId).collect(Collectors.toSet());
+        assertEquals(1002, all.size());
+        assertEquals(1002, ids.size());
+    }
+}
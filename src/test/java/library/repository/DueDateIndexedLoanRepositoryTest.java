@@ -0,0 +1,113 @@
+package library.repository;
+
+import library.domain.Loan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link DueDateIndexedLoanRepository}.
+ *
+ * These tests verify that overdue loans are read from the due-date index
+ * and that the index follows returns and deletes.
+ */
+class DueDateIndexedLoanRepositoryTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 1, 1);
+
+    private DueDateIndexedLoanRepository repo;
+
+    private Loan overdueLong;
+    private Loan overdueShort;
+    private Loan dueToday;
+    private Loan notDue;
+
+    /**
+     * Sets up a repository with loans due before, on, and after today.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new DueDateIndexedLoanRepository();
+
+        overdueShort = new Loan("user1", "m1", TODAY.minusDays(10), TODAY.minusDays(1));
+        overdueLong = new Loan("user2", "m2", TODAY.minusDays(40), TODAY.minusDays(12));
+        dueToday = new Loan("user1", "m3", TODAY.minusDays(7), TODAY);
+        notDue = new Loan("user2", "m4", TODAY, TODAY.plusDays(28));
+
+        repo.save(overdueShort);
+        repo.save(overdueLong);
+        repo.save(dueToday);
+        repo.save(notDue);
+    }
+
+    /**
+     * Verifies that findOverdue() returns only loans due before today,
+     * ordered by due date.
+     */
+    @Test
+    void findOverdue_returnsLoansDueBeforeToday_inDueDateOrder() {
+        List<Loan> overdue = repo.findOverdue(TODAY);
+
+        assertEquals(2, overdue.size());
+        assertSame(overdueLong, overdue.get(0));
+        assertSame(overdueShort, overdue.get(1));
+    }
+
+    /**
+     * Ensures that returned loans leave the overdue index.
+     */
+    @Test
+    void markReturned_removesLoanFromOverdueResults() {
+        repo.markReturned(overdueLong, TODAY);
+
+        List<Loan> overdue = repo.findOverdue(TODAY);
+        assertEquals(1, overdue.size());
+        assertSame(overdueShort, overdue.get(0));
+    }
+
+    /**
+     * Ensures that loans saved as returned are never reported as overdue.
+     */
+    @Test
+    void save_returnedLoan_isNotIndexed() {
+        Loan returned = new Loan("user3", "m5", TODAY.minusDays(30), TODAY.minusDays(5));
+        returned.setReturnedDate(TODAY.minusDays(6));
+        repo.save(returned);
+
+        assertEquals(2, repo.findOverdue(TODAY).size());
+    }
+
+    /**
+     * Ensures that deleted loans leave the overdue index.
+     */
+    @Test
+    void delete_removesLoanFromOverdueResults() {
+        repo.delete(overdueShort);
+
+        assertEquals(1, repo.findOverdue(TODAY).size());
+        assertEquals(2, repo.findOverdue(TODAY.plusDays(1)).size());
+    }
+
+    /**
+     * saveAll() should add the active loans of a batch to the due-date index,
+     * and move a replaced loan to its new due date.
+     */
+    @Test
+    void saveAll_batch_indexesActiveLoansByDueDate() {
+        Loan overdue1 = new Loan("user3", "m5", TODAY.minusDays(20), TODAY.minusDays(5));
+        Loan overdue2 = new Loan("user3", "m6", TODAY.minusDays(20), TODAY.minusDays(5));
+        Loan returned = new Loan("user3", "m7", TODAY.minusDays(20), TODAY.minusDays(5));
+        returned.setReturnedDate(TODAY.minusDays(6));
+        Loan extended = new Loan(overdueLong.getId(), "user2", "m2", TODAY.minusDays(40), TODAY.plusDays(3));
+
+        repo.saveAll(List.of(overdue1, overdue2, returned, extended));
+
+        assertEquals(List.of(overdue1, overdue2, overdueShort), repo.findOverdue(TODAY));
+        assertEquals(List.of(overdue1, overdue2, overdueShort, dueToday, extended),
+                repo.findOverdue(TODAY.plusDays(4)));
+    }
+}
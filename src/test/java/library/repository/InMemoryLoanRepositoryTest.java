@@ -78,6 +78,20 @@ class InMemoryLoanRepositoryTest {
         assertEquals(2, loans.size());
     }
 
+    /**
+     * Generated user ids are matched by number, and never match a text id.
+     */
+    @Test
+    void findByUserId_generatedIds_matchByNumber() {
+        Loan numbered = new Loan("U7", "M1", LocalDate.now(), LocalDate.now().plusDays(3));
+        repo.save(numbered);
+        repo.save(new Loan("U70", "M1", LocalDate.now(), LocalDate.now().plusDays(3)));
+
+        assertEquals(List.of(numbered), repo.findByUserId("U7"));
+        assertEquals(List.of(numbered), repo.findActiveByUserId("U7"));
+        assertTrue(repo.findByUserId("U07").isEmpty());
+    }
+
     /**
      * Ensures that findByUserId() returns an empty list
      * when the user has no loans.
@@ -99,4 +113,32 @@ class InMemoryLoanRepositoryTest {
         assertEquals(2, repo.findAll().size());
         assertTrue(repo.findById(loan1.getId()).isEmpty());
     }
+
+    /**
+     * Ensures that findActive() skips loans that were already returned
+     * when they were saved.
+     */
+    @Test
+    void findActive_skipsLoansSavedAsReturned() {
+        Loan old = new Loan("user2", "m4", LocalDate.now().minusDays(9), LocalDate.now().minusDays(2));
+        old.setReturnedDate(LocalDate.now().minusDays(3));
+        repo.save(old);
+
+        assertEquals(3, repo.findActive().size());
+        assertEquals(1, repo.findActiveByUserId("user2").size());
+    }
+
+    /**
+     * Verifies that markReturned() sets the return date and
+     * removes the loan from the active loans.
+     */
+    @Test
+    void markReturned_removesLoanFromActiveLoans() {
+        repo.markReturned(loan1, LocalDate.now());
+
+        assertNotNull(loan1.getReturnedDate());
+        assertEquals(2, repo.findActive().size());
+        assertEquals(1, repo.findActiveByUserId("user1").size());
+        assertEquals(2, repo.findByUserId("user1").size());
+    }
 }
@@ -6,7 +6,9 @@ import library.domain.media.Media;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,6 +50,18 @@ class InMemoryMediaRepositoryTest {
         assertTrue(repo.findById(m.getId()).isPresent());
     }
 
+    /**
+     * findAllById() returns the items that exist and skips unknown ids.
+     */
+    @Test
+    void findAllById_returnsOnlyExistingItems() {
+        Media m = repo.findAll().get(0);
+        Map<String, Media> found = repo.findAllById(Arrays.asList(m.getId(), "unknown"));
+
+        assertEquals(1, found.size());
+        assertSame(m, found.get(m.getId()));
+    }
+
     /**
      * Searching by title should return the matching Book.
      */
@@ -105,4 +119,30 @@ class InMemoryMediaRepositoryTest {
         assertEquals(2, repo.search(null).size());
         assertEquals(2, repo.search("").size());
     }
+
+    /**
+     * Search should ignore accents as well as case.
+     */
+    @Test
+    void search_ignoresAccents() {
+        CD accented = new CD("Lemonade", "Beyoncé");
+        repo.save(accented);
+
+        assertEquals(List.of(accented), repo.search("BEYONCE"));
+        assertEquals(List.of(accented), repo.search("beyoncé"));
+    }
+
+    /**
+     * The default ISBN lookups should compare canonical ISBNs.
+     */
+    @Test
+    void findByIsbn_default_comparesCanonicalIsbn() {
+        Book b = new Book("Clean Code", "Robert Martin", "0-13-235088-2");
+        repo.save(b);
+
+        assertEquals(List.of(b), repo.findByIsbn("978-0132350884"));
+        Map<String, List<Book>> resolved = repo.findAllByIsbn(Arrays.asList("9780132350884", "missing"));
+        assertEquals(1, resolved.size());
+        assertEquals(List.of(b), resolved.get("9780132350884"));
+    }
 }
@@ -0,0 +1,144 @@
+package library.repository;
+
+import library.domain.Loan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link IndexedLoanRepository}.
+ *
+ * These tests verify that the user index stays consistent
+ * with the stored loans when loans are saved and deleted.
+ */
+class IndexedLoanRepositoryTest {
+
+    private IndexedLoanRepository repo;
+
+    private Loan loan1;
+    private Loan loan2;
+    private Loan loan3;
+
+    /**
+     * Sets up a repository with sample loan data before each test.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new IndexedLoanRepository();
+
+        loan1 = new Loan("user1", "m1", LocalDate.now(), LocalDate.now().plusDays(7));
+        loan2 = new Loan("user1", "m2", LocalDate.now(), LocalDate.now().plusDays(5));
+        loan3 = new Loan("user2", "m3", LocalDate.now(), LocalDate.now().plusDays(4));
+
+        repo.save(loan1);
+        repo.save(loan2);
+        repo.save(loan3);
+    }
+
+    /**
+     * Ensures that findAll() returns all loans in insertion order.
+     */
+    @Test
+    void findAll_returnsLoansInInsertionOrder() {
+        List<Loan> all = repo.findAll();
+        assertEquals(3, all.size());
+        assertSame(loan1, all.get(0));
+        assertSame(loan3, all.get(2));
+    }
+
+    /**
+     * Verifies that findById() returns the correct loan or empty.
+     */
+    @Test
+    void findById_returnsLoanOrEmpty() {
+        assertSame(loan2, repo.findById(loan2.getId()).orElseThrow());
+        assertTrue(repo.findById("unknown").isEmpty());
+    }
+
+    /**
+     * Verifies that findByUserId() returns only the loans of that user.
+     */
+    @Test
+    void findByUserId_returnsOnlyLoansOfThatUser() {
+        assertEquals(2, repo.findByUserId("user1").size());
+        assertEquals(1, repo.findByUserId("user2").size());
+        assertTrue(repo.findByUserId("none").isEmpty());
+    }
+
+    /**
+     * Saving the same loan again should not duplicate it in the user index.
+     */
+    @Test
+    void save_sameLoanTwice_doesNotDuplicate() {
+        repo.save(loan1);
+
+        assertEquals(3, repo.findAll().size());
+        assertEquals(2, repo.findByUserId("user1").size());
+    }
+
+    /**
+     * Ensures that delete() removes the loan from the user index too.
+     */
+    @Test
+    void delete_removesLoanFromUserIndex() {
+        repo.delete(loan1);
+        repo.delete(loan3);
+
+        assertEquals(1, repo.findAll().size());
+        assertEquals(1, repo.findByUserId("user1").size());
+        assertTrue(repo.findByUserId("user2").isEmpty());
+    }
+
+    /**
+     * Ensures that findActive() skips loans that were already returned
+     * when they were saved.
+     */
+    @Test
+    void findActive_skipsLoansSavedAsReturned() {
+        Loan old = new Loan("user2", "m4", LocalDate.now().minusDays(9), LocalDate.now().minusDays(2));
+        old.setReturnedDate(LocalDate.now().minusDays(3));
+        repo.save(old);
+
+        assertEquals(3, repo.findActive().size());
+        assertEquals(1, repo.findActiveByUserId("user2").size());
+    }
+
+    /**
+     * Verifies that markReturned() sets the return date and
+     * removes the loan from the active loans.
+     */
+    @Test
+    void markReturned_removesLoanFromActiveLoans() {
+        repo.markReturned(loan1, LocalDate.now());
+
+        assertNotNull(loan1.getReturnedDate());
+        assertEquals(2, repo.findActive().size());
+        assertEquals(1, repo.findActiveByUserId("user1").size());
+        assertEquals(2, repo.findByUserId("user1").size());
+    }
+
+    /**
+     * saveAll() should index a batch like saving the loans one by one,
+     * including a loan that replaces a stored one and a returned loan.
+     */
+    @Test
+    void saveAll_batch_updatesUserAndActiveIndexes() {
+        Loan batch1 = new Loan("user3", "m4", LocalDate.now(), LocalDate.now().plusDays(7));
+        Loan batch2 = new Loan("user3", "m5", LocalDate.now(), LocalDate.now().plusDays(7));
+        Loan returned = new Loan("user3", "m6", LocalDate.now(), LocalDate.now().plusDays(7));
+        returned.setReturnedDate(LocalDate.now());
+        Loan replacement = new Loan(loan3.getId(), "user1", "m3", LocalDate.now(), LocalDate.now().plusDays(4));
+
+        repo.saveAll(List.of(batch1, batch2, returned, replacement));
+
+        assertEquals(List.of(batch1, batch2, returned), repo.findByUserId("user3"));
+        assertEquals(List.of(batch1, batch2), repo.findActiveByUserId("user3"));
+        assertEquals(List.of(loan1, loan2, replacement), repo.findActiveByUserId("user1"));
+        assertTrue(repo.findByUserId("user2").isEmpty());
+        assertEquals(6, repo.findAll().size());
+    }
+}
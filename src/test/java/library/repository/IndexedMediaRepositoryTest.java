@@ -0,0 +1,350 @@
+package library.repository;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.dto.MediaFilter;
+import library.dto.SearchPage;
+import library.search.TrigramSearchIndex;
+import library.support.ConcurrentRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link IndexedMediaRepository}.
+ *
+ * These tests verify that media items are stored in insertion order,
+ * found by id through the hash index, and searched like the list-based repository.
+ */
+class IndexedMediaRepositoryTest {
+
+    private IndexedMediaRepository repo;
+    private Book book;
+    private CD cd;
+
+    /**
+     * Initializes the repository with sample media items before each test.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new IndexedMediaRepository();
+        book = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        cd = new CD("Greatest Hits", "Michael Jackson");
+        repo.save(book);
+        repo.save(cd);
+    }
+
+    /**
+     * Ensures that findAll() returns the items in insertion order.
+     */
+    @Test
+    void findAll_keepsInsertionOrder() {
+        List<Media> all = repo.findAll();
+        assertEquals(2, all.size());
+        assertSame(book, all.get(0));
+        assertSame(cd, all.get(1));
+    }
+
+    /**
+     * Confirms that findById() returns the stored item.
+     */
+    @Test
+    void findById_shouldReturnCorrectItem() {
+        assertSame(cd, repo.findById(cd.getId()).orElseThrow());
+    }
+
+    /**
+     * Ensures that findById() returns empty for an unknown id.
+     */
+    @Test
+    void findById_shouldReturnEmptyForUnknownId() {
+        assertTrue(repo.findById("unknown").isEmpty());
+    }
+
+    /**
+     * findByNumber() finds the item of a generated id without the string.
+     */
+    @Test
+    void findByNumber_findsTheSameItemAsFindById() {
+        assertSame(cd, repo.findByNumber(cd.getNumber()).orElseThrow());
+        assertTrue(repo.findByNumber(Long.MAX_VALUE).isEmpty());
+    }
+
+    /**
+     * Saving the same item again should not create a duplicate entry.
+     */
+    @Test
+    void save_sameItemTwice_doesNotDuplicate() {
+        book.setAvailable(false);
+        repo.save(book);
+
+        assertEquals(2, repo.findAll().size());
+        assertFalse(repo.findById(book.getId()).orElseThrow().isAvailable());
+    }
+
+    /**
+     * Searching should match title, author, and artist case-insensitively.
+     */
+    @Test
+    void search_matchesTitleAuthorAndArtist() {
+        assertEquals(1, repo.search("clean").size());
+        assertEquals(1, repo.search("MARTIN").size());
+        assertTrue(repo.search("michael").get(0) instanceof CD);
+        assertEquals(2, repo.search(null).size());
+    }
+
+    /**
+     * Substring and multi-word queries should give the same results as a full scan.
+     */
+    @Test
+    void search_sameResultsAsListRepository() {
+        InMemoryMediaRepository scan = new InMemoryMediaRepository();
+        scan.save(book);
+        scan.save(cd);
+        Book other = new Book("Code Complete", "Steve McConnell", "ISBN-200");
+        repo.save(other);
+        scan.save(other);
+
+        IndexedMediaRepository trigram = new IndexedMediaRepository(new TrigramSearchIndex());
+        trigram.save(book);
+        trigram.save(cd);
+        trigram.save(other);
+
+        String[] queries = {"ode", "code", "clean code", "n c", "isbn-1", "-", " ", "", "hits m",
+                "ckson", "zzz", other.getId().toLowerCase(), "0", "code code"};
+        for (String q : queries) {
+            assertEquals(scan.search(q), repo.search(q), "token index, query: '" + q + "'");
+            assertEquals(scan.search(q), trigram.search(q), "trigram index, query: '" + q + "'");
+        }
+    }
+
+    /**
+     * Replacing an item with a new object under the same id should update the search index.
+     */
+    @Test
+    void save_replacedItem_isSearchedByNewFields() {
+        Media replacement = new CD("Other Album", "Someone") {
+            @Override
+            public String getId() {
+                return book.getId();
+            }
+        };
+        repo.save(replacement);
+
+        assertTrue(repo.search("clean").isEmpty());
+        assertEquals(List.of(replacement), repo.search("album"));
+    }
+
+    /**
+     * Autocomplete should suggest titles and authors, and follow replaced items.
+     */
+    @Test
+    void autocomplete_suggestsTitlesAndAuthors() {
+        assertEquals(List.of("Clean Code"), repo.autocomplete("cl", 5));
+        assertEquals(List.of("Michael Jackson"), repo.autocomplete("mich", 5));
+
+        Media replacement = new CD("Classical Collection", "Mozart") {
+            @Override
+            public String getId() {
+                return book.getId();
+            }
+        };
+        repo.save(replacement);
+
+        assertEquals(List.of("Classical Collection"), repo.autocomplete("cl", 5));
+        assertTrue(repo.autocomplete("rob", 5).isEmpty());
+    }
+
+    /**
+     * The ISBN index should find books by any form of the ISBN, also in bulk.
+     */
+    @Test
+    void findByIsbn_usesCanonicalForm() {
+        Book copy1 = new Book("Clean Code", "Robert Martin", "978-0-13-235088-4");
+        Book copy2 = new Book("Clean Code", "Robert Martin", "0132350882");
+        repo.save(copy1);
+        repo.save(copy2);
+
+        assertEquals(List.of(copy1, copy2), repo.findByIsbn("9780132350884"));
+        assertEquals(List.of(book), repo.findByIsbn("isbn 100"));
+        assertTrue(repo.findByIsbn("unknown").isEmpty());
+        assertTrue(repo.findByIsbn(null).isEmpty());
+
+        Map<String, List<Book>> resolved = repo.findAllByIsbn(List.of("0-13-235088-2", "ISBN-100", "nope"));
+        assertEquals(2, resolved.size());
+        assertEquals(List.of(copy1, copy2), resolved.get("0-13-235088-2"));
+        assertEquals(List.of(book), resolved.get("ISBN-100"));
+    }
+
+    /**
+     * Replacing a book should move it in the ISBN index.
+     */
+    @Test
+    void save_replacedBook_updatesIsbnIndex() {
+        Book replacement = new Book("Clean Code", "Robert Martin", "ISBN-999") {
+            @Override
+            public String getId() {
+                return book.getId();
+            }
+        };
+        repo.save(replacement);
+
+        assertTrue(repo.findByIsbn("ISBN-100").isEmpty());
+        assertEquals(List.of(replacement), repo.findByIsbn("isbn-999"));
+    }
+
+    /**
+     * A ranked page should hold the best matches, in the same way with and without the index.
+     */
+    @Test
+    void searchPage_returnsBestMatchesFirst() {
+        Book codeComplete = new Book("Code Complete", "Steve McConnell", "ISBN-200");
+        repo.save(codeComplete);
+        InMemoryMediaRepository scan = new InMemoryMediaRepository();
+        scan.save(book);
+        scan.save(cd);
+        scan.save(codeComplete);
+
+        SearchPage page = repo.searchPage("code", 0, 1);
+
+        assertEquals(List.of(codeComplete), page.getItems());
+        assertEquals(2, page.getTotalMatches());
+        assertTrue(page.hasMore());
+        assertEquals(List.of(book), repo.searchPage("code", 1, 1).getItems());
+        assertEquals(scan.searchPage("code", 0, 5).getItems(), repo.searchPage("code", 0, 5).getItems());
+        assertEquals(3, repo.searchPage("", 0, 5).getTotalMatches());
+    }
+
+    /**
+     * Fuzzy search should find a misspelled author, in the same way with and without the index.
+     */
+    @Test
+    void searchFuzzy_misspelledAuthor_findsBook() {
+        Book effectiveJava = new Book("Effective Java", "Joshua Bloch", "ISBN-300");
+        repo.save(effectiveJava);
+        InMemoryMediaRepository scan = new InMemoryMediaRepository();
+        scan.save(book);
+        scan.save(cd);
+        scan.save(effectiveJava);
+
+        assertTrue(repo.search("Jhosua Bloch").isEmpty());
+        assertEquals(List.of(effectiveJava), repo.searchFuzzy("Jhosua Bloch", 2));
+        assertEquals(List.of(cd), repo.searchFuzzy("Micheal", 2));
+        assertEquals(scan.searchFuzzy("Jhosua Bloch", 2), repo.searchFuzzy("Jhosua Bloch", 2));
+        assertTrue(repo.searchFuzzy("Jhosua Bloch", 1).isEmpty());
+    }
+
+    /**
+     * Filtered search should follow availability changes made after saving,
+     * and agree with the scanning default.
+     */
+    @Test
+    void searchFiltered_followsAvailabilityChanges() {
+        Book second = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        repo.save(second);
+        InMemoryMediaRepository scan = new InMemoryMediaRepository();
+        scan.save(book);
+        scan.save(cd);
+        scan.save(second);
+
+        book.setAvailable(false);
+
+        assertEquals(List.of(second), repo.search("clean", MediaFilter.availableOnly("BOOK")));
+        assertEquals(List.of(book), repo.search("clean", new MediaFilter(null, false)));
+        assertEquals(List.of(cd), repo.search("", new MediaFilter("cd", null)));
+        assertEquals(scan.search("", MediaFilter.availableOnly(null)), repo.search("", MediaFilter.availableOnly(null)));
+        assertEquals(List.of(second), repo.searchPage("clean", MediaFilter.availableOnly(null), 0, 5).getItems());
+
+        book.setAvailable(true);
+        assertEquals(List.of(book, second), repo.search("clean", MediaFilter.availableOnly("BOOK")));
+    }
+
+    /**
+     * A replaced item should no longer drive the availability bitset.
+     */
+    @Test
+    void save_replacedItem_stopsTrackingOldAvailability() {
+        CD replacement = new CD("Greatest Hits", "Michael Jackson") {
+            @Override
+            public String getId() {
+                return cd.getId();
+            }
+        };
+        repo.save(replacement);
+        cd.setAvailable(false);
+
+        assertEquals(List.of(replacement), repo.search("hits", MediaFilter.availableOnly(null)));
+    }
+
+    /**
+     * When the borrow's availability event reaches the repository after the
+     * return that followed it, the filter should still show the item as available.
+     */
+    @Test
+    void availabilityEvents_deliveredOutOfOrder_keepFilterExact() throws InterruptedException {
+        Book late = new Book("Refactoring", "Martin Fowler", "ISBN-900");
+        CountDownLatch borrowing = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(1);
+        // registered before the repository's listener, so it holds the borrow's event back
+        late.addAvailabilityListener((m, available) -> {
+            if (available) return;
+            borrowing.countDown();
+            try {
+                returned.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        repo.save(late);
+
+        Thread borrower = new Thread(late::tryReserve);
+        borrower.start();
+        assertTrue(borrowing.await(5, TimeUnit.SECONDS));
+        late.setAvailable(true);
+        returned.countDown();
+        borrower.join();
+
+        assertTrue(late.isAvailable());
+        assertEquals(List.of(late), repo.search("refactoring", MediaFilter.availableOnly(null)));
+    }
+
+    /**
+     * Borrowing and returning from many threads should leave the availability
+     * bitsets equal to the real state of the items, also for neighbouring bits.
+     */
+    @Test
+    void availabilityChanges_fromManyThreads_keepFiltersExact() throws InterruptedException {
+        List<Media> items = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            Media m = new Book("Shelf " + i, "Author", "ISBN-S" + i);
+            repo.save(m);
+            items.add(m);
+        }
+
+        ConcurrentRunner.runTogether(8, worker -> {
+            Random random = new Random(worker);
+            for (int i = 0; i < 20_000; i++) {
+                Media m = items.get(random.nextInt(items.size()));
+                if (random.nextBoolean()) m.tryReserve();
+                else m.setAvailable(true);
+            }
+        });
+
+        MediaFilter available = MediaFilter.availableOnly(null);
+        List<Media> expected = new ArrayList<>();
+        for (Media m : repo.findAll()) {
+            if (available.test(m)) expected.add(m);
+        }
+        assertEquals(expected, repo.search("", available));
+        assertEquals(expected.size(), repo.searchPage("", available, 0, 1000).getTotalMatches());
+    }
+}
@@ -0,0 +1,79 @@
+package library.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LongIntMap} and {@link IdMap}.
+ */
+class LongIntMapTest {
+
+    private LongIntMap map;
+
+    /**
+     * Creates an empty map.
+     */
+    @BeforeEach
+    void setup() {
+        map = new LongIntMap();
+    }
+
+    /**
+     * Random puts and removes should give the same answers as a HashMap,
+     * so deletion never breaks a probe chain.
+     */
+    @Test
+    void randomOperations_matchHashMap() {
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000; key++) {
+            assertEquals(expected.getOrDefault(key, -1), map.get(key));
+        }
+    }
+
+    /**
+     * Negative keys are never stored.
+     */
+    @Test
+    void get_negativeKey_returnsMissing() {
+        assertEquals(-1, map.get(-1));
+        assertEquals(-1, map.remove(-5));
+    }
+
+    /**
+     * An IdMap should keep numbered and string ids apart and survive removals.
+     */
+    @Test
+    void idMap_numberedAndTextIds() {
+        IdMap<String> ids = new IdMap<>();
+        ids.put(1, null, "one");
+        ids.put(2, null, "two");
+        ids.put(3, null, "three");
+        ids.put(-1, "user1", "custom");
+
+        ids.remove(1, null);
+
+        assertNull(ids.get(1, null));
+        assertEquals("two", ids.get(2, null));
+        assertEquals("three", ids.get(3, null));
+        assertEquals("custom", ids.get(-1, "user1"));
+        assertNull(ids.get(-1, "user2"));
+    }
+}
@@ -0,0 +1,157 @@
+package library.repository;
+
+import library.domain.Loan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link MappedLoanRepository}.
+ *
+ * These tests verify that returned loans move to the mapped history,
+ * read back with the same fields, and stay consistent on save and delete.
+ */
+class MappedLoanRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    private MappedLoanRepository repo;
+
+    /**
+     * Opens a repository on a fresh history file.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        repo = new MappedLoanRepository(dir.resolve("loans.bin"));
+    }
+
+    /**
+     * Closes the history file.
+     */
+    @AfterEach
+    void tearDown() throws IOException {
+        repo.close();
+    }
+
+    /**
+     * Returning a loan should move it to the history and keep all its fields.
+     */
+    @Test
+    void markReturned_movesLoanToHistory() {
+        Loan loan = new Loan("U7", "M3", DAY, DAY.plusDays(28));
+        repo.save(loan);
+
+        assertTrue(repo.markReturned(loan, DAY.plusDays(30)));
+        assertFalse(repo.markReturned(loan, DAY.plusDays(31)));
+
+        assertEquals(1, repo.getHistorySize());
+        assertTrue(repo.findActive().isEmpty());
+        Loan stored = repo.findById(loan.getId()).orElseThrow();
+        assertEquals("U7", stored.getUserId());
+        assertEquals("M3", stored.getMediaId());
+        assertEquals(DAY, stored.getBorrowDate());
+        assertEquals(DAY.plusDays(28), stored.getDueDate());
+        assertEquals(DAY.plusDays(30), stored.getReturnedDate());
+        assertTrue(Files.exists(dir.resolve("loans.bin")));
+    }
+
+    /**
+     * Loans with ids that are not in the generated form should stay on the heap.
+     */
+    @Test
+    void save_unencodableIds_keepsLoanOnHeap() {
+        Loan loan = new Loan("user1", "m1", DAY, DAY.plusDays(7));
+        repo.save(loan);
+        repo.markReturned(loan, DAY.plusDays(3));
+
+        assertEquals(0, repo.getHistorySize());
+        assertSame(loan, repo.findById(loan.getId()).orElseThrow());
+        assertEquals(1, repo.findByUserId("user1").size());
+    }
+
+    /**
+     * findByUserId should combine the active loans with the matching history records.
+     */
+    @Test
+    void findByUserId_combinesActiveAndHistory() {
+        Loan returned = new Loan("U1", "M1", DAY, DAY.plusDays(7));
+        returned.setReturnedDate(DAY.plusDays(2));
+        Loan active = new Loan("U1", "M2", DAY, DAY.plusDays(7));
+        Loan other = new Loan("U2", "M3", DAY, DAY.plusDays(7));
+        other.setReturnedDate(DAY.plusDays(1));
+        repo.save(returned);
+        repo.save(active);
+        repo.save(other);
+
+        List<String> ids = new ArrayList<>();
+        for (Loan l : repo.findByUserId("U1")) ids.add(l.getId());
+
+        assertEquals(List.of(active.getId(), returned.getId()), ids);
+        assertEquals(3, repo.findAll().size());
+        assertEquals(List.of(active), repo.findActiveByUserId("U1"));
+        assertEquals(List.of(active), repo.findOverdue(DAY.plusDays(10)));
+    }
+
+    /**
+     * Deleting from the middle of the history should keep the other records reachable.
+     * Enough loans are stored to span several mapped chunks.
+     */
+    @Test
+    void delete_keepsOtherRecordsReachable() {
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < 70_000; i++) {
+            Loan loan = new Loan("U" + (i % 100), "M" + i, DAY, DAY.plusDays(7));
+            loan.setReturnedDate(DAY.plusDays(i % 10));
+            repo.save(loan);
+            loans.add(loan);
+        }
+
+        repo.delete(loans.get(5));
+        repo.delete(loans.get(69_999));
+        repo.delete(loans.get(100));
+
+        assertEquals(69_997, repo.getHistorySize());
+        assertTrue(repo.findById(loans.get(5).getId()).isEmpty());
+        assertTrue(repo.findById(loans.get(100).getId()).isEmpty());
+        for (int i : new int[]{0, 6, 99, 35_000, 69_998}) {
+            Loan stored = repo.findById(loans.get(i).getId()).orElseThrow();
+            assertEquals("M" + i, stored.getMediaId());
+            assertEquals(DAY.plusDays(i % 10), stored.getReturnedDate());
+        }
+        assertEquals(699, repo.findByUserId("U0").size());
+    }
+
+    /**
+     * Saving a stored loan again should replace it, also when it becomes active again.
+     */
+    @Test
+    void save_existingLoan_replacesIt() {
+        Loan loan = new Loan("U1", "M1", DAY, DAY.plusDays(7));
+        loan.setReturnedDate(DAY.plusDays(1));
+        repo.save(loan);
+        loan.setReturnedDate(DAY.plusDays(4));
+        repo.save(loan);
+
+        assertEquals(1, repo.getHistorySize());
+        assertEquals(DAY.plusDays(4), repo.findById(loan.getId()).orElseThrow().getReturnedDate());
+
+        loan.setReturnedDate(null);
+        repo.save(loan);
+
+        assertEquals(0, repo.getHistorySize());
+        assertSame(loan, repo.findActive().get(0));
+    }
+}
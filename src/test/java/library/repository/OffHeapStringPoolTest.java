@@ -0,0 +1,96 @@
+package library.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link OffHeapStringPool}.
+ */
+class OffHeapStringPoolTest {
+
+    private OffHeapStringPool pool;
+
+    /**
+     * Creates an empty pool.
+     */
+    @BeforeEach
+    void setup() {
+        pool = new OffHeapStringPool();
+    }
+
+    /**
+     * Interning the same string twice should return the same code.
+     */
+    @Test
+    void intern_sameString_returnsSameCode() {
+        int a = pool.intern("Clean Code");
+        int b = pool.intern("Effective Java");
+
+        assertEquals(a, pool.intern("Clean Code"));
+        assertNotEquals(a, b);
+        assertEquals(2, pool.size());
+        assertEquals(b, pool.find("Effective Java"));
+        assertEquals(-1, pool.find("Refactoring"));
+    }
+
+    /**
+     * Strings should decode back unchanged, including non-ASCII ones,
+     * also after the table was rehashed several times.
+     */
+    @Test
+    void get_decodesStoredStrings() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, pool.intern("Título " + i));
+        }
+        assertEquals("Título 0", pool.get(0));
+        assertEquals("Título 999", pool.get(999));
+        assertEquals(512, pool.find("Título 512"));
+    }
+
+    /**
+     * Keys are compared ignoring case and accents, on the stored bytes.
+     */
+    @Test
+    void codesContaining_matchesNormalizedKeys() {
+        pool.intern("Cien Años de Soledad");
+        pool.intern("Clean Code");
+        pool.intern("El Año del Dragón");
+
+        BitSet hits = pool.codesContaining("ano");
+        assertEquals(2, hits.cardinality());
+        assertTrue(hits.get(0) && hits.get(2));
+        assertEquals(3, pool.codesContaining("").cardinality());
+        assertTrue(pool.codesContaining("xyz").isEmpty());
+    }
+
+    /**
+     * A string larger than a chunk should get its own buffer.
+     */
+    @Test
+    void intern_largeString_isStored() {
+        String large = "x".repeat(3 << 20);
+        int code = pool.intern(large);
+
+        assertEquals(large, pool.get(code));
+        assertTrue(pool.offHeapBytes() > 2 * large.length());
+    }
+
+    /**
+     * Releasing frees the buffers; later calls are rejected and a second release is ignored.
+     */
+    @Test
+    void release_freesBuffersAndRejectsUse() {
+        pool.intern("Clean Code");
+
+        pool.release();
+        pool.release();
+
+        assertEquals(0, pool.offHeapBytes());
+        assertThrows(IllegalStateException.class, () -> pool.get(0));
+        assertThrows(IllegalStateException.class, () -> pool.intern("Refactoring"));
+    }
+}
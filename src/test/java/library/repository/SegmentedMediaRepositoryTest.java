@@ -0,0 +1,119 @@
+package library.repository;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.dto.MediaFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SegmentedMediaRepository}.
+ *
+ * Small segments force every search across several segments and workers,
+ * and the results are compared with the list-based repository.
+ */
+class SegmentedMediaRepositoryTest {
+
+    private ForkJoinPool pool;
+    private SegmentedMediaRepository repo;
+    private InMemoryMediaRepository scan;
+
+    /**
+     * Stores the same 50 items in a repository with segments of 4 and in a list-based one.
+     */
+    @BeforeEach
+    void setup() {
+        pool = new ForkJoinPool(4);
+        repo = new SegmentedMediaRepository(4, pool);
+        scan = new InMemoryMediaRepository();
+        for (int i = 0; i < 50; i++) {
+            Media m = i % 3 == 0
+                    ? new CD("Greatest Hits " + i, "Band " + (i % 5))
+                    : new Book("Code Book " + i, "Author " + (i % 7), "ISBN-" + i);
+            if (i % 4 == 0) m.setAvailable(false);
+            repo.save(m);
+            scan.save(m);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Items should be spread over fixed-size segments and kept in insertion order.
+     */
+    @Test
+    void save_fillsSegmentsInOrder() {
+        assertEquals(13, repo.getSegmentCount());
+        assertEquals(scan.findAll(), repo.findAll());
+    }
+
+    /**
+     * Parallel search should return the same items, in the same order, as a sequential scan.
+     */
+    @Test
+    void search_matchesSequentialScanInOrder() {
+        for (String q : List.of("code", "hits 1", "author 3", "", "isbn-4", "nothing")) {
+            assertEquals(scan.search(q), repo.search(q), q);
+        }
+        MediaFilter availableBooks = MediaFilter.availableOnly("BOOK");
+        assertEquals(scan.search("code", availableBooks), repo.search("code", availableBooks));
+    }
+
+    /**
+     * Merged pages should equal the pages of a sequential scan.
+     */
+    @Test
+    void searchPage_matchesSequentialScan() {
+        for (int offset : new int[]{0, 3, 40}) {
+            assertEquals(scan.searchPage("code", offset, 5).getItems(), repo.searchPage("code", offset, 5).getItems());
+        }
+        assertEquals(scan.searchPage("", 0, 100).getTotalMatches(), repo.searchPage("", 0, 100).getTotalMatches());
+        assertEquals(scan.searchPage("hits", new MediaFilter(null, false), 0, 10).getItems(),
+                repo.searchPage("hits", new MediaFilter(null, false), 0, 10).getItems());
+    }
+
+    /**
+     * Re-saving an id should replace the item in place, and findById should find it.
+     */
+    @Test
+    void save_sameId_replacesInPlace() {
+        Media first = repo.findAll().get(5);
+        Book replacement = new Book("Replaced", "Someone", "ISBN-X") {
+            @Override
+            public String getId() {
+                return first.getId();
+            }
+        };
+        repo.save(replacement);
+
+        assertSame(replacement, repo.findById(first.getId()).orElseThrow());
+        assertSame(replacement, repo.findAll().get(5));
+        assertEquals(50, repo.findAll().size());
+        assertTrue(repo.findById("unknown").isEmpty());
+    }
+
+    /**
+     * An empty repository and a single segment should be searched without the pool.
+     */
+    @Test
+    void search_emptyAndSingleSegment() {
+        SegmentedMediaRepository small = new SegmentedMediaRepository();
+        assertTrue(small.search("x").isEmpty());
+        assertEquals(0, small.searchPage("x", 0, 5).getTotalMatches());
+
+        CD cd = new CD("Greatest Hits", "Michael Jackson");
+        small.save(cd);
+        assertEquals(List.of(cd), small.search("jackson"));
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedMediaRepository(0, pool));
+    }
+}
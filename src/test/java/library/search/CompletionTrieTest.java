@@ -0,0 +1,140 @@
+package library.search;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CompletionTrie}.
+ */
+class CompletionTrieTest {
+
+    private CompletionTrie trie;
+
+    @BeforeEach
+    void setup() {
+        trie = new CompletionTrie();
+    }
+
+    /**
+     * Values shared by more items should come first, ties alphabetically.
+     */
+    @Test
+    void complete_ranksByWeightThenAlphabetically() {
+        trie.add(new Book("Clean Code", "Robert Martin", "ISBN-1"));
+        trie.add(new Book("Clean Architecture", "Robert Martin", "ISBN-2"));
+        trie.add(new CD("Rock Legends", "Pink Floyd"));
+
+        assertEquals(List.of("Robert Martin", "Rock Legends"), trie.complete("ro", 10));
+        assertEquals(List.of("Clean Architecture", "Clean Code"), trie.complete("CLEAN", 10));
+    }
+
+    /**
+     * Only the top k suggestions should be returned.
+     */
+    @Test
+    void complete_limitsToK() {
+        trie.add("alpha");
+        trie.add("alps");
+        trie.add("alpine");
+        trie.add("alpine");
+
+        assertEquals(List.of("alpine", "alpha"), trie.complete("al", 2));
+        assertTrue(trie.complete("al", 0).isEmpty());
+    }
+
+    /**
+     * A prefix that ends inside an edge, or doesn't match, should be handled.
+     */
+    @Test
+    void complete_prefixInsideEdgeOrMissing() {
+        trie.add("greatest hits");
+
+        assertEquals(List.of("greatest hits"), trie.complete("grea", 5));
+        assertEquals(List.of("greatest hits"), trie.complete("greatest hits", 5));
+        assertTrue(trie.complete("grey", 5).isEmpty());
+        assertTrue(trie.complete("greatest hits!", 5).isEmpty());
+    }
+
+    /**
+     * A null or empty prefix should return the top values overall.
+     */
+    @Test
+    void complete_emptyPrefix_returnsTopOverall() {
+        trie.add("b");
+        trie.add("a");
+        trie.add("b");
+
+        assertEquals(List.of("b", "a"), trie.complete(null, 5));
+        assertEquals(List.of("b"), trie.complete("", 1));
+    }
+
+    /**
+     * Removing values should update weights and drop values that reach zero.
+     */
+    @Test
+    void remove_updatesWeightsAndDropsValues() {
+        trie.add("code");
+        trie.add("codec");
+        trie.add("codec");
+        trie.add("coder");
+
+        trie.remove("codec");
+        assertEquals(List.of("code", "codec", "coder"), trie.complete("co", 5));
+
+        trie.remove("codec");
+        trie.remove("code");
+        assertEquals(List.of("coder"), trie.complete("co", 5));
+
+        trie.remove("missing");
+        trie.remove("coder");
+        assertTrue(trie.complete("", 5).isEmpty());
+    }
+
+    /**
+     * Random adds and removes should give the same results as a brute-force ranking.
+     */
+    @Test
+    void complete_matchesBruteForce() {
+        Random random = new Random(3);
+        Map<String, Integer> counts = new HashMap<>();
+        String[] parts = {"a", "b", "ab", "ba", "abc", "c"};
+
+        for (int round = 0; round < 2000; round++) {
+            String value = parts[random.nextInt(parts.length)] + parts[random.nextInt(parts.length)];
+            if (random.nextInt(3) == 0 && counts.containsKey(value)) {
+                trie.remove(value);
+                counts.merge(value, -1, Integer::sum);
+                counts.remove(value, 0);
+            } else {
+                trie.add(value);
+                counts.merge(value, 1, Integer::sum);
+            }
+
+            String prefix = parts[random.nextInt(parts.length)];
+            assertEquals(bruteForce(counts, prefix, 4), trie.complete(prefix, 4), "prefix " + prefix);
+        }
+    }
+
+    private static List<String> bruteForce(Map<String, Integer> counts, String prefix, int k) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        return entries.stream()
+                .filter(e -> e.getKey().startsWith(prefix))
+                .sorted((x, y) -> x.getValue().equals(y.getValue())
+                        ? x.getKey().compareTo(y.getKey())
+                        : Integer.compare(y.getValue(), x.getValue()))
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+}
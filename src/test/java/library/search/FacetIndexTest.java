@@ -0,0 +1,99 @@
+package library.search;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.dto.MediaFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FacetIndex}.
+ */
+class FacetIndexTest {
+
+    private FacetIndex facets;
+    private Book borrowed;
+    private CD hits;
+
+    /**
+     * Indexes two books (one borrowed) and a CD as documents 0, 1 and 2.
+     */
+    @BeforeEach
+    void setup() {
+        facets = new FacetIndex();
+        borrowed = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        borrowed.setAvailable(false);
+        facets.add(0, borrowed);
+        facets.add(1, new Book("Code Complete", "Steve McConnell", "ISBN-200"));
+        hits = new CD("Greatest Hits", "Michael Jackson");
+        facets.add(2, hits);
+    }
+
+    /**
+     * Type and availability filters should intersect their bitsets.
+     */
+    @Test
+    void matching_intersectsFacets() {
+        assertNull(facets.matching(MediaFilter.ANY));
+        assertEquals(bits(0, 1), facets.matching(new MediaFilter("book", null)));
+        assertEquals(bits(1, 2), facets.matching(MediaFilter.availableOnly(null)));
+        assertEquals(bits(1), facets.matching(MediaFilter.availableOnly("BOOK")));
+        assertEquals(bits(0), facets.matching(new MediaFilter(null, false)));
+        assertEquals(bits(), facets.matching(new MediaFilter("DVD", null)));
+    }
+
+    /**
+     * Availability changes and removals should be reflected in the bitsets.
+     */
+    @Test
+    void updateAvailableAndRemove_updateFacets() {
+        borrowed.setAvailable(true);
+        facets.updateAvailable(0, borrowed);
+        hits.setAvailable(false);
+        facets.updateAvailable(2, hits);
+        assertEquals(bits(0, 1), facets.matching(MediaFilter.availableOnly(null)));
+
+        Book removed = new Book("Code Complete", "Steve McConnell", "ISBN-200");
+        facets.remove(1, removed);
+        facets.updateAvailable(1, removed);
+        assertEquals(bits(0), facets.matching(MediaFilter.availableOnly(null)));
+        assertEquals(bits(0), facets.matching(new MediaFilter("BOOK", null)));
+    }
+
+    /**
+     * A stale change event should not overwrite the current availability:
+     * the bit follows the item, whatever order the events arrive in.
+     */
+    @Test
+    void updateAvailable_eventsOutOfOrder_followsItem() {
+        // the borrow's event arrives after the return that followed it
+        borrowed.setAvailable(true);
+        facets.updateAvailable(0, borrowed);
+        facets.updateAvailable(0, borrowed);
+
+        assertEquals(bits(0, 1, 2), facets.matching(MediaFilter.availableOnly(null)));
+    }
+
+    /**
+     * Candidates should be restricted to the accepted documents; no filter keeps them as they are.
+     */
+    @Test
+    void restrict_filtersCandidates() {
+        int[] candidates = {0, 2};
+
+        assertSame(candidates, facets.restrict(candidates, MediaFilter.ANY));
+        assertNull(facets.restrict(null, MediaFilter.ANY));
+        assertArrayEquals(new int[]{2}, facets.restrict(candidates, MediaFilter.availableOnly(null)));
+        assertArrayEquals(new int[]{0, 1}, facets.restrict(null, new MediaFilter("BOOK", null)));
+    }
+
+    private static BitSet bits(int... docs) {
+        BitSet bits = new BitSet();
+        for (int doc : docs) bits.set(doc);
+        return bits;
+    }
+}
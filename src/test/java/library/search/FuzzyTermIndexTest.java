@@ -0,0 +1,171 @@
+package library.search;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FuzzyTermIndex}.
+ */
+class FuzzyTermIndexTest {
+
+    private FuzzyTermIndex index;
+
+    /**
+     * Indexes three media items as documents 0, 1 and 2.
+     */
+    @BeforeEach
+    void setup() {
+        index = new FuzzyTermIndex();
+        index.add(0, new Book("Effective Java", "Joshua Bloch", "ISBN-100"));
+        index.add(1, new Book("Java Puzzlers", "Joshua Bloch", "ISBN-200"));
+        index.add(2, new CD("Thriller", "Michael Jackson"));
+    }
+
+    /**
+     * A misspelled author should still find the books within the edit distance.
+     */
+    @Test
+    void search_misspelledAuthor_findsBooks() {
+        assertArrayEquals(new int[]{0, 1}, index.search("jhosua bloch", 2));
+        assertArrayEquals(new int[0], index.search("jhosua bloch", 1));
+    }
+
+    /**
+     * Closer matches should come first.
+     */
+    @Test
+    void search_ranksByTotalDistance() {
+        index.add(3, new Book("Jav Basics", "Ann Lee", "ISBN-300"));
+
+        assertArrayEquals(new int[]{0, 1, 3}, index.search("java", 1));
+        assertArrayEquals(new int[]{3, 0, 1}, index.search("jav", 1));
+        assertArrayEquals(new int[]{2}, index.search("thriler", 1));
+    }
+
+    /**
+     * Every query word has to match some word of the item.
+     */
+    @Test
+    void search_allWordsMustMatch() {
+        assertArrayEquals(new int[0], index.search("java jackson", 1));
+        assertArrayEquals(new int[0], index.search("", 2));
+    }
+
+    /**
+     * Removed items should no longer be found, and their words found again once re-added.
+     */
+    @Test
+    void remove_dropsDocument() {
+        index.remove(2, new CD("Thriller", "Michael Jackson"));
+
+        assertArrayEquals(new int[0], index.search("jackson", 0));
+        index.add(3, new CD("Bad", "Michael Jackson"));
+        assertArrayEquals(new int[]{3}, index.search("jakson", 1));
+    }
+
+    /**
+     * Once most words are gone, the tree should be rebuilt from the live words only.
+     */
+    @Test
+    void remove_mostWords_prunesTree() {
+        Media effective = new Book("Effective Java", "Joshua Bloch", "ISBN-100");
+        Media puzzlers = new Book("Java Puzzlers", "Joshua Bloch", "ISBN-200");
+        int before = index.treeSize();
+
+        index.remove(0, effective);
+        index.remove(1, puzzlers);
+
+        assertTrue(index.treeSize() < before);
+        assertArrayEquals(new int[]{2}, index.search("jakson", 1));
+        assertArrayEquals(new int[0], index.search("java", 1));
+        index.add(1, puzzlers);
+        assertArrayEquals(new int[]{1}, index.search("jaav", 2));
+    }
+
+    /**
+     * Scanning a list without an index should rank like the index.
+     */
+    @Test
+    void scan_ranksLikeSearch() {
+        List<Media> items = new ArrayList<>();
+        items.add(new Book("Effective Java", "Joshua Bloch", "ISBN-100"));
+        items.add(new Book("Java Puzzlers", "Joshua Bloch", "ISBN-200"));
+        items.add(new CD("Thriller", "Michael Jackson"));
+        items.add(new Book("Jav Basics", "Ann Lee", "ISBN-300"));
+        index.add(3, items.get(3));
+
+        for (String q : new String[]{"java", "jav", "jhosua bloch", "thriler", "java jackson", ""}) {
+            for (int d = 0; d <= 2; d++) {
+                assertArrayEquals(index.search(q, d), FuzzyTermIndex.scan(items, q, d), q + " within " + d);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> FuzzyTermIndex.scan(items, "java", -1));
+    }
+
+    /**
+     * A negative distance is rejected.
+     */
+    @Test
+    void search_negativeDistance_throws() {
+        assertThrows(IllegalArgumentException.class, () -> index.search("java", -1));
+    }
+
+    /**
+     * The BK-tree lookup should return the same documents as comparing every word.
+     */
+    @Test
+    void search_matchesBruteForce() {
+        Random random = new Random(11);
+        List<Media> items = new ArrayList<>();
+        FuzzyTermIndex big = new FuzzyTermIndex();
+        for (int i = 0; i < 300; i++) {
+            Media m = new Book(randomWord(random) + " " + randomWord(random), randomWord(random), "ISBN-" + i);
+            items.add(m);
+            big.add(i, m);
+        }
+        // removals leave dead words and trigger rebuilds
+        for (int i = 0; i < 200; i++) {
+            big.remove(i, items.get(i));
+            items.set(i, new Book("", "", "ISBN-" + i));
+        }
+        for (int q = 0; q < 100; q++) {
+            String word = randomWord(random);
+            for (int d = 0; d <= 2; d++) {
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < items.size(); i++) {
+                    if (closest(items.get(i), word) <= d) expected.add(i);
+                }
+                List<Integer> actual = new ArrayList<>();
+                for (int doc : big.search(word, d)) actual.add(doc);
+                actual.sort(null);
+                assertEquals(expected, actual, word + " within " + d);
+            }
+        }
+    }
+
+    private static int closest(Media m, String word) {
+        int best = Integer.MAX_VALUE;
+        for (String value : SearchableText.completionFieldsOf(m)) {
+            for (String token : SearchableText.tokens(value.toLowerCase())) {
+                best = Math.min(best, Levenshtein.distance(word, token));
+            }
+        }
+        return best;
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = 3 + random.nextInt(4);
+        for (int i = 0; i < length; i++) sb.append((char) ('a' + random.nextInt(4)));
+        return sb.toString();
+    }
+}
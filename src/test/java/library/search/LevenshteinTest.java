@@ -0,0 +1,58 @@
+package library.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Levenshtein}.
+ */
+class LevenshteinTest {
+
+    /**
+     * Known distances for insertions, deletions, substitutions and swaps.
+     */
+    @Test
+    void distance_knownPairs() {
+        assertEquals(0, Levenshtein.distance("bloch", "bloch"));
+        assertEquals(3, Levenshtein.distance("kitten", "sitting"));
+        assertEquals(2, Levenshtein.distance("jhosua", "joshua"));
+        assertEquals(4, Levenshtein.distance("", "code"));
+        assertEquals(1, Levenshtein.distance("code", "cod"));
+    }
+
+    /**
+     * The bounded version should stop at max + 1 when the strings are too far apart.
+     */
+    @Test
+    void distance_bounded_returnsMaxPlusOneWhenTooFar() {
+        assertEquals(2, Levenshtein.distance("kitten", "sitting", 1));
+        assertEquals(3, Levenshtein.distance("kitten", "sitting", 3));
+        assertEquals(2, Levenshtein.distance("abc", "abcdefgh", 1));
+    }
+
+    /**
+     * The bounded version should agree with the exact one on random words.
+     */
+    @Test
+    void distance_bounded_matchesExact() {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            String a = randomWord(random);
+            String b = randomWord(random);
+            int exact = Levenshtein.distance(a, b);
+            for (int max = 0; max <= 4; max++) {
+                assertEquals(Math.min(exact, max + 1), Levenshtein.distance(a, b, max), a + " / " + b);
+            }
+        }
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; i++) sb.append((char) ('a' + random.nextInt(3)));
+        return sb.toString();
+    }
+}
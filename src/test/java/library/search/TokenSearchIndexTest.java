@@ -0,0 +1,108 @@
+package library.search;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TokenSearchIndex}.
+ */
+class TokenSearchIndexTest {
+
+    private TokenSearchIndex index;
+    private Book cleanCode;
+    private Book codeComplete;
+    private CD hits;
+
+    /**
+     * Indexes three media items as documents 0, 1 and 2.
+     */
+    @BeforeEach
+    void setup() {
+        index = new TokenSearchIndex();
+        cleanCode = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        codeComplete = new Book("Code Complete", "Steve McConnell", "ISBN-200");
+        hits = new CD("Greatest Hits", "Michael Jackson");
+        index.add(0, cleanCode);
+        index.add(1, codeComplete);
+        index.add(2, hits);
+    }
+
+    /**
+     * A whole token should return the documents that contain it.
+     */
+    @Test
+    void candidates_wholeToken_returnsPostings() {
+        assertArrayEquals(new int[]{0, 1}, index.candidates("code"));
+        assertArrayEquals(new int[]{2}, index.candidates("jackson"));
+    }
+
+    /**
+     * A part of a token should also find the documents, at the start or inside the token.
+     */
+    @Test
+    void candidates_partOfToken_findsContainingTokens() {
+        assertArrayEquals(new int[]{0, 1}, index.candidates("od"));
+        assertArrayEquals(new int[]{1}, index.candidates("compl"));
+        assertArrayEquals(new int[]{2}, index.candidates("atest"));
+    }
+
+    /**
+     * A query token longer than the suffix keys should only find tokens
+     * that contain all of it, not just its start.
+     */
+    @Test
+    void candidates_longPartOfToken_checksWholeQueryToken() {
+        index.add(3, new Book("Longer", "Ann O'Donnelly", "ISBN-300"));
+
+        assertArrayEquals(new int[]{1, 3}, index.candidates("onnell"));
+        assertArrayEquals(new int[]{3}, index.candidates("onnelly"));
+        assertArrayEquals(new int[0], index.candidates("onnex"));
+    }
+
+    /**
+     * Several query tokens should intersect their candidate lists.
+     */
+    @Test
+    void candidates_severalTokens_intersects() {
+        assertArrayEquals(new int[]{0}, index.candidates("clean code"));
+        assertArrayEquals(new int[0], index.candidates("clean hits"));
+    }
+
+    /**
+     * A query without letters or digits cannot be narrowed.
+     */
+    @Test
+    void candidates_noLettersOrDigits_returnsNull() {
+        assertNull(index.candidates(""));
+        assertNull(index.candidates(" - "));
+    }
+
+    /**
+     * Removing a document should drop it from the postings and unused tokens from the index.
+     */
+    @Test
+    void remove_dropsDocumentAndUnusedTokens() {
+        int before = index.tokenCount();
+        index.remove(1, codeComplete);
+
+        assertArrayEquals(new int[]{0}, index.candidates("code"));
+        assertArrayEquals(new int[0], index.candidates("mcconnell"));
+        assertArrayEquals(new int[0], index.candidates("onnell"));
+        assertTrue(index.tokenCount() < before);
+    }
+
+    /**
+     * Adding a lower document number later should keep the postings sorted.
+     */
+    @Test
+    void add_outOfOrder_keepsPostingsSorted() {
+        index.remove(0, cleanCode);
+        index.add(0, cleanCode);
+
+        assertArrayEquals(new int[]{0, 1}, index.candidates("code"));
+    }
+}
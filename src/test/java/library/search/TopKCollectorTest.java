@@ -0,0 +1,111 @@
+package library.search;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.dto.SearchPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TopKCollector} and the {@link Relevance} scores it ranks by.
+ */
+class TopKCollectorTest {
+
+    /**
+     * Better field matches should rank first: exact title, title prefix,
+     * word start, then a match inside a word.
+     */
+    @Test
+    void toPage_ranksByRelevance() {
+        Media inside = new Book("Barcode Tricks", "Someone", "ISBN-1");
+        Media wordStart = new Book("Clean Code", "Robert Martin", "ISBN-2");
+        Media prefix = new Book("Code Complete", "Steve McConnell", "ISBN-3");
+        Media exact = new CD("Code", "Band");
+        Media none = new CD("Greatest Hits", "Michael Jackson");
+
+        TopKCollector top = new TopKCollector(0, 10);
+        int ordinal = 0;
+        for (Media m : List.of(inside, wordStart, prefix, exact, none)) {
+            top.offer(m, ordinal++, "code");
+        }
+        SearchPage page = top.toPage();
+
+        assertEquals(List.of(exact, prefix, wordStart, inside), page.getItems());
+        assertEquals(4, page.getTotalMatches());
+        assertFalse(page.hasMore());
+    }
+
+    /**
+     * Pages should follow each other without gaps, and equal scores keep insertion order.
+     */
+    @Test
+    void toPage_offsetAndLimit_returnConsecutivePages() {
+        List<Media> all = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            all.add(new Book("Java " + i, "Author", "ISBN-" + i));
+        }
+
+        List<Media> collected = new ArrayList<>();
+        for (int offset = 0; offset < 25; offset += 10) {
+            TopKCollector top = new TopKCollector(offset, 10);
+            for (int i = 0; i < all.size(); i++) {
+                top.offer(all.get(i), i, "java");
+            }
+            SearchPage page = top.toPage();
+            assertEquals(25, page.getTotalMatches());
+            assertEquals(offset + 10 < 25, page.hasMore());
+            collected.addAll(page.getItems());
+        }
+
+        assertEquals(all, collected);
+    }
+
+    /**
+     * A zero limit should still count the matches.
+     */
+    @Test
+    void toPage_zeroLimit_onlyCounts() {
+        TopKCollector top = new TopKCollector(0, 0);
+        top.offer(new CD("Code", "Band"), 0, "code");
+
+        SearchPage page = top.toPage();
+        assertTrue(page.getItems().isEmpty());
+        assertEquals(1, page.getTotalMatches());
+        assertTrue(page.hasMore());
+    }
+
+    /**
+     * Negative offsets or limits should be rejected.
+     */
+    @Test
+    void constructor_negativeArguments_throw() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKCollector(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new TopKCollector(0, -1));
+    }
+
+    /**
+     * Merging collectors over parts of the input should give the same page as one collector.
+     */
+    @Test
+    void merge_equalsSingleCollector() {
+        List<Media> items = new ArrayList<>();
+        for (int i = 0; i < 30; i++) items.add(new Book("Code " + (i % 4 == 0 ? "" : "Book ") + i, "A", "ISBN-" + i));
+
+        TopKCollector single = new TopKCollector(2, 5);
+        TopKCollector left = new TopKCollector(2, 5);
+        TopKCollector right = new TopKCollector(2, 5);
+        for (int i = 0; i < items.size(); i++) {
+            single.offer(items.get(i), i, "code");
+            (i < 17 ? left : right).offer(items.get(i), i, "code");
+        }
+        SearchPage merged = right.merge(left).toPage();
+
+        assertEquals(single.toPage().getItems(), merged.getItems());
+        assertEquals(30, merged.getTotalMatches());
+    }
+}
@@ -0,0 +1,91 @@
+package library.search;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TrigramSearchIndex}.
+ */
+class TrigramSearchIndexTest {
+
+    private TrigramSearchIndex index;
+    private Book cleanCode;
+    private Book codeComplete;
+    private CD hits;
+
+    /**
+     * Indexes three media items as documents 0, 1 and 2.
+     */
+    @BeforeEach
+    void setup() {
+        index = new TrigramSearchIndex();
+        cleanCode = new Book("Clean Code", "Robert Martin", "ISBN-100");
+        codeComplete = new Book("Code Complete", "Steve McConnell", "ISBN-200");
+        hits = new CD("Greatest Hits", "Michael Jackson");
+        index.add(0, cleanCode);
+        index.add(1, codeComplete);
+        index.add(2, hits);
+    }
+
+    /**
+     * A substring inside a word should return the documents containing it.
+     */
+    @Test
+    void candidates_substring_returnsContainingDocs() {
+        assertArrayEquals(new int[]{0, 1}, index.candidates("ode"));
+        assertArrayEquals(new int[]{2}, index.candidates("ckso"));
+    }
+
+    /**
+     * Queries across a space or a hyphen should work, since trigrams include them.
+     */
+    @Test
+    void candidates_acrossSpaceAndHyphen_returnsDocs() {
+        assertArrayEquals(new int[]{0}, index.candidates("an co"));
+        assertArrayEquals(new int[]{1}, index.candidates("isbn-2"));
+    }
+
+    /**
+     * A query with an unknown trigram should return no candidates.
+     */
+    @Test
+    void candidates_unknownTrigram_returnsEmpty() {
+        assertArrayEquals(new int[0], index.candidates("xyz"));
+    }
+
+    /**
+     * Queries shorter than three characters cannot be narrowed.
+     */
+    @Test
+    void candidates_shortQuery_returnsNull() {
+        assertNull(index.candidates(""));
+        assertNull(index.candidates("co"));
+    }
+
+    /**
+     * Candidates may contain false positives (all trigrams present but not together);
+     * they are never missing a real match.
+     */
+    @Test
+    void candidates_mayIncludeFalsePositives() {
+        // every trigram of "code code" appears in "code complete"
+        assertArrayEquals(new int[]{1}, index.candidates("code code"));
+    }
+
+    /**
+     * Removing a document should drop it and its unused trigrams.
+     */
+    @Test
+    void remove_dropsDocument() {
+        int before = index.trigramCount();
+        index.remove(1, codeComplete);
+
+        assertArrayEquals(new int[]{0}, index.candidates("code"));
+        assertArrayEquals(new int[0], index.candidates("mcconnell"));
+        assertTrue(index.trigramCount() < before);
+    }
+}
@@ -6,19 +6,34 @@ import library.domain.User;
 import library.domain.media.Book;
 import library.domain.media.CD;
 import library.domain.media.Media;
+import library.dto.BatchItemResult;
+import library.dto.MediaFilter;
+import library.dto.SearchPage;
 import library.exception.BusinessRuleException;
 import library.exception.NotAuthorizedException;
 import library.exception.ResourceNotFoundException;
+import library.persistence.DomainEvent;
+import library.persistence.EventLog;
+import library.repository.ConcurrentLoanRepository;
+import library.repository.ConcurrentMediaRepository;
+import library.repository.ConcurrentUserRepository;
 import library.repository.InMemoryAdminRepository;
 import library.repository.InMemoryLoanRepository;
 import library.repository.InMemoryMediaRepository;
 import library.repository.InMemoryUserRepository;
 import library.strategy.FineStrategy;
+import library.support.ConcurrentRunner;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -194,6 +209,21 @@ public class LibraryServiceTest {
         // المهم إن الميثود تم استدعاؤها بدون استثناء.
     }
 
+    /**
+     * Ensures that the paginated search() ranks matches and reports the total.
+     */
+    @Test
+    void search_paginated_returnsRankedPage() {
+        libraryService.addBook("Clean", "Bob", "ISBN-202");
+
+        SearchPage page = libraryService.search("clean", 0, 1);
+
+        assertEquals(1, page.getItems().size());
+        assertEquals("Clean", page.getItems().get(0).getTitle());
+        assertEquals(2, page.getTotalMatches());
+        assertTrue(page.hasMore());
+    }
+
     /**
      * Verifies that searchByTitle() matches titles case-insensitively
      * and by substring.
@@ -227,6 +257,45 @@ public class LibraryServiceTest {
         assertTrue(result.stream().anyMatch(m -> m instanceof CD && ((CD)m).getArtist().toLowerCase().contains("rob")));
     }
 
+    /**
+     * Ensures that autocomplete() suggests titles and authors by prefix.
+     */
+    @Test
+    void autocomplete_suggestsByPrefix() {
+        libraryService.addBook("Clean Architecture", "Robert C. Martin", "ISBN-201");
+
+        List<String> result = libraryService.autocomplete("ro", 5);
+
+        assertEquals("Robert C. Martin", result.get(0));
+        assertTrue(libraryService.autocomplete("zzz", 5).isEmpty());
+    }
+
+    /**
+     * Ensures that a filtered search only lists the copies that can be borrowed now.
+     */
+    @Test
+    void search_availableOnly_skipsBorrowedCopies() {
+        libraryService.borrow(user.getId(), book.getId());
+
+        assertTrue(libraryService.search(book.getTitle(), MediaFilter.availableOnly("BOOK")).isEmpty());
+        assertEquals(List.of(cd), libraryService.search("", MediaFilter.availableOnly(null)));
+        assertEquals(1, libraryService.search("", new MediaFilter("CD", null), 0, 10).getTotalMatches());
+    }
+
+    /**
+     * Ensures that searchFuzzy() tolerates typos in the author and rejects a negative distance.
+     */
+    @Test
+    void searchFuzzy_toleratesTypos() {
+        libraryService.addBook("Effective Java", "Joshua Bloch", "ISBN-300");
+
+        List<Media> result = libraryService.searchFuzzy("Jhosua Bloch", 2);
+
+        assertEquals(1, result.size());
+        assertEquals("Effective Java", result.get(0).getTitle());
+        assertThrows(BusinessRuleException.class, () -> libraryService.searchFuzzy("java", -1));
+    }
+
     /**
      * Ensures that searchByIsbn() trims and ignores case on ISBN string.
      */
@@ -237,6 +306,22 @@ public class LibraryServiceTest {
         assertEquals(book.getId(), result.get(0).getId());
     }
 
+    /**
+     * Ensures that searchByIsbn() and resolveIsbns() ignore hyphens and ISBN-10 vs ISBN-13.
+     */
+    @Test
+    void searchByIsbn_andResolveIsbns_useCanonicalIsbn() {
+        libraryService.addBook("Clean Code 2nd copy", "Robert C. Martin", "0-13-235088-2");
+
+        List<Media> result = libraryService.searchByIsbn("978-0-13-235088-4");
+        assertEquals(1, result.size());
+        assertEquals("Clean Code 2nd copy", result.get(0).getTitle());
+
+        Map<String, List<Book>> resolved = libraryService.resolveIsbns(List.of("9780132350884", "ISBN100", "x"));
+        assertEquals(2, resolved.size());
+        assertEquals(book.getId(), resolved.get("ISBN100").get(0).getId());
+    }
+
     /**
      * Verifies that searchByIsbn(null) returns an empty list.
      */
@@ -353,6 +438,42 @@ public class LibraryServiceTest {
                 () -> libraryService.borrow(user.getId(), "unknown-media"));
     }
 
+    /**
+     * Many users borrowing the same book at the same time:
+     * exactly one borrow succeeds and exactly one loan is created.
+     */
+    @Test
+    void borrow_sameMediaFromManyThreads_onlyOneLoanIsCreated() throws InterruptedException {
+        ConcurrentUserRepository users = new ConcurrentUserRepository();
+        ConcurrentMediaRepository media = new ConcurrentMediaRepository();
+        ConcurrentLoanRepository loans = new ConcurrentLoanRepository();
+        LibraryService service = new LibraryService(users, media, loans, reminderService, timeProvider,
+                new ConstantFineStrategy(10), new ConstantFineStrategy(20), authService);
+
+        Book shared = new Book("Shared", "Author", "ISBN-900");
+        media.save(shared);
+        List<User> borrowers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            User u = new User("u" + i, "u" + i + "@example.com");
+            users.save(u);
+            borrowers.add(u);
+        }
+
+        AtomicInteger successes = new AtomicInteger();
+        ConcurrentRunner.runTogether(borrowers.size(), worker -> {
+            try {
+                service.borrow(borrowers.get(worker).getId(), shared.getId());
+                successes.incrementAndGet();
+            } catch (BusinessRuleException ignored) {
+                // lost the race
+            }
+        });
+
+        assertEquals(1, successes.get());
+        assertEquals(1, loans.findActive().size());
+        assertFalse(shared.isAvailable());
+    }
+
     // =========================================================
     // 4) returnMedia
     // =========================================================
@@ -461,6 +582,245 @@ public class LibraryServiceTest {
                 () -> libraryService.returnMedia("unknown-loan-id"));
     }
 
+    // =========================================================
+    // 4b) borrowAll / returnAll
+    // =========================================================
+
+    /**
+     * borrowAll() should create one loan per available item and report
+     * missing or unavailable items as failed without stopping the batch.
+     */
+    @Test
+    void borrowAll_mixedItems_returnsPerItemResults() {
+        Book taken = new Book("Taken", "Someone", "ISBN-500");
+        taken.setAvailable(false);
+        mediaRepo.save(taken);
+
+        List<BatchItemResult> results = libraryService.borrowAll(user.getId(),
+                Arrays.asList(book.getId(), "unknown-media", taken.getId(), cd.getId(), book.getId()));
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("media not found", results.get(1).getError());
+        assertEquals("Media not available", results.get(2).getError());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(timeProvider.today().plusDays(7), results.get(3).getLoan().getDueDate());
+        assertEquals("Media not available", results.get(4).getError(), "same item twice in one batch");
+
+        assertEquals(2, loanRepo.findByUserId(user.getId()).size());
+        assertFalse(book.isAvailable());
+        assertFalse(cd.isAvailable());
+    }
+
+    /**
+     * borrowAll() checks user-level rules once and fails the whole batch.
+     */
+    @Test
+    void borrowAll_whenUserHasOutstandingFine_throwsBusinessRuleException() {
+        user.addFine(5);
+
+        assertThrows(BusinessRuleException.class,
+                () -> libraryService.borrowAll(user.getId(), Arrays.asList(book.getId(), cd.getId())));
+        assertTrue(book.isAvailable());
+        assertTrue(loanRepo.findAll().isEmpty());
+    }
+
+    /**
+     * returnAll() should return each loan, report failures per item,
+     * and charge the summed fine to the user.
+     */
+    @Test
+    void returnAll_mixedLoans_returnsPerItemResultsAndChargesFines() {
+        Loan bookLoan = new Loan(user.getId(), book.getId(),
+                timeProvider.today().minusDays(30), timeProvider.today().minusDays(2));
+        Loan cdLoan = new Loan(user.getId(), cd.getId(),
+                timeProvider.today().minusDays(10), timeProvider.today().minusDays(1));
+        loanRepo.save(bookLoan);
+        loanRepo.save(cdLoan);
+        book.setAvailable(false);
+        cd.setAvailable(false);
+
+        List<BatchItemResult> results = libraryService.returnAll(
+                Arrays.asList(bookLoan.getId(), "unknown-loan", cdLoan.getId(), bookLoan.getId()));
+
+        assertEquals(4, results.size());
+        assertEquals(10, results.get(0).getFine());
+        assertEquals("loan not found", results.get(1).getError());
+        assertEquals(20, results.get(2).getFine());
+        assertEquals("Already returned", results.get(3).getError());
+
+        assertEquals(30, user.getOutstandingFine());
+        assertTrue(book.isAvailable());
+        assertTrue(cd.isAvailable());
+        assertTrue(loanRepo.findActive().isEmpty());
+    }
+
+    /**
+     * When an unexpected error ends returnAll() part-way, the loans
+     * already closed must still get their fines charged.
+     */
+    @Test
+    void returnAll_failureAfterClosingLoans_stillChargesTheirFines() {
+        libraryService = new LibraryService(userRepo, mediaRepo, loanRepo, reminderService, timeProvider,
+                new ConstantFineStrategy(10),
+                days -> { throw new IllegalStateException("no CD fine table"); },
+                authService);
+        Loan bookLoan = new Loan(user.getId(), book.getId(),
+                timeProvider.today().minusDays(30), timeProvider.today().minusDays(2));
+        Loan cdLoan = new Loan(user.getId(), cd.getId(),
+                timeProvider.today().minusDays(10), timeProvider.today().minusDays(1));
+        loanRepo.save(bookLoan);
+        loanRepo.save(cdLoan);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> libraryService.returnAll(Arrays.asList(bookLoan.getId(), cdLoan.getId())));
+
+        assertEquals("no CD fine table", e.getMessage());
+        assertTrue(bookLoan.isReturned());
+        assertEquals(10, user.getOutstandingFine());
+    }
+
+    /**
+     * When recording a return fails part-way through returnAll(), the original
+     * failure must come out, no more events are appended to the broken log,
+     * and the service stops.
+     */
+    @Test
+    void returnAll_appendFails_stopsWithoutChargingFines() {
+        Loan bookLoan = new Loan(user.getId(), book.getId(),
+                timeProvider.today().minusDays(30), timeProvider.today().minusDays(2));
+        Loan cdLoan = new Loan(user.getId(), cd.getId(),
+                timeProvider.today().minusDays(10), timeProvider.today().minusDays(1));
+        loanRepo.save(bookLoan);
+        loanRepo.save(cdLoan);
+        AtomicInteger appends = new AtomicInteger();
+        libraryService.setEventLog(new EventLog() {
+            @Override
+            public long append(DomainEvent event) {
+                // the second return cannot be recorded, and neither can anything after it
+                if (appends.incrementAndGet() >= 2) throw new IllegalStateException("log failed " + appends.get());
+                return appends.get();
+            }
+
+            @Override
+            public void sync(long lsn) {
+            }
+        });
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> libraryService.returnAll(Arrays.asList(bookLoan.getId(), cdLoan.getId())));
+
+        assertEquals("log failed 2", e.getMessage());
+        assertEquals(0, e.getSuppressed().length);
+        assertEquals(2, appends.get());
+        assertThrows(IllegalStateException.class, () -> libraryService.payFine(user.getId(), 0));
+    }
+
+    /**
+     * When recording a return fails, the loan stays closed in memory,
+     * so the service must stop instead of carrying on without its event.
+     */
+    @Test
+    void returnMedia_appendFails_stopsService() {
+        Loan loan = new Loan(user.getId(), book.getId(), timeProvider.today(), timeProvider.today().plusDays(28));
+        loanRepo.save(loan);
+        book.setAvailable(false);
+        libraryService.setEventLog(new EventLog() {
+            @Override
+            public long append(DomainEvent event) {
+                throw new IllegalStateException("log closed");
+            }
+
+            @Override
+            public void sync(long lsn) {
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> libraryService.returnMedia(loan.getId()));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> libraryService.borrow(user.getId(), cd.getId()));
+        assertEquals("log closed", e.getCause().getMessage());
+        assertTrue(cd.isAvailable());
+    }
+
+    /**
+     * When the sync after borrow() fails, the event may already be on disk,
+     * so the loan must be kept and the service must refuse further changes.
+     */
+    @Test
+    void borrow_syncFails_keepsLoanAndStopsService() {
+        libraryService.setEventLog(failingSyncLog());
+
+        assertThrows(UncheckedIOException.class, () -> libraryService.borrow(user.getId(), book.getId()));
+
+        assertFalse(book.isAvailable());
+        assertEquals(1, loanRepo.findActiveByUserId(user.getId()).size());
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> libraryService.borrow(user.getId(), cd.getId()));
+        assertInstanceOf(UncheckedIOException.class, e.getCause());
+        assertTrue(cd.isAvailable());
+        assertThrows(IllegalStateException.class, () -> libraryService.registerUser("Late", "late@example.com"));
+    }
+
+    /**
+     * When the sync after borrowAll() fails, all loans of the batch must be kept.
+     */
+    @Test
+    void borrowAll_syncFails_keepsLoans() {
+        libraryService.setEventLog(failingSyncLog());
+
+        assertThrows(UncheckedIOException.class,
+                () -> libraryService.borrowAll(user.getId(), Arrays.asList(book.getId(), cd.getId())));
+
+        assertFalse(book.isAvailable());
+        assertFalse(cd.isAvailable());
+        assertEquals(2, loanRepo.findActiveByUserId(user.getId()).size());
+        assertThrows(IllegalStateException.class, () -> libraryService.payFine(user.getId(), 0));
+    }
+
+    /**
+     * When appending the event of borrow() fails, nothing is logged,
+     * so the reservation is given back and the service keeps working.
+     */
+    @Test
+    void borrow_appendFails_givesReservationBack() {
+        AtomicInteger appends = new AtomicInteger();
+        libraryService.setEventLog(new EventLog() {
+            @Override
+            public long append(DomainEvent event) {
+                if (appends.incrementAndGet() == 1) throw new IllegalStateException("log full");
+                return appends.get();
+            }
+
+            @Override
+            public void sync(long lsn) {
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> libraryService.borrow(user.getId(), book.getId()));
+
+        assertTrue(book.isAvailable());
+        assertTrue(loanRepo.findActiveByUserId(user.getId()).isEmpty());
+        libraryService.borrow(user.getId(), book.getId());
+        assertFalse(book.isAvailable());
+    }
+
+    private static EventLog failingSyncLog() {
+        AtomicInteger appends = new AtomicInteger();
+        return new EventLog() {
+            @Override
+            public long append(DomainEvent event) {
+                return appends.incrementAndGet();
+            }
+
+            @Override
+            public void sync(long lsn) {
+                throw new UncheckedIOException(new IOException("fsync failed"));
+            }
+        };
+    }
+
     // =========================================================
     // 5) payFine
     // =========================================================
@@ -0,0 +1,258 @@
+package library.service;
+
+import library.domain.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ParallelNotifierDispatcher}.
+ */
+public class ParallelNotifierDispatcherTest {
+
+    private ParallelNotifierDispatcher dispatcher;
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        dispatcher = new ParallelNotifierDispatcher(2, 16);
+        user = new User("Ali", "ali@test.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    /**
+     * Verifies that awaitIdle waits until every queued notification has run,
+     * also when the batch is much larger than the pending limit.
+     */
+    @Test
+    void awaitIdle_afterDispatch_allNotificationsDone() {
+        AtomicInteger calls = new AtomicInteger();
+        ReminderService.Notifier notifier = (u, msg) -> calls.incrementAndGet();
+
+        ParallelNotifierDispatcher.Batch batch = dispatcher.newBatch();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(batch.dispatch(notifier, user, "msg"));
+        }
+        batch.awaitIdle();
+
+        assertEquals(100, calls.get());
+    }
+
+    /**
+     * Verifies that every reminder reaches a slow notifier: the caller is
+     * throttled by it instead of losing reminders, and a fast notifier still
+     * gets all of its own.
+     */
+    @Test
+    void dispatch_slowNotifier_everyReminderArrives() {
+        AtomicInteger slowCalls = new AtomicInteger();
+        ReminderService.Notifier slow = (u, msg) -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slowCalls.incrementAndGet();
+        };
+        AtomicInteger fastCalls = new AtomicInteger();
+        ReminderService.Notifier fast = (u, msg) -> fastCalls.incrementAndGet();
+
+        ParallelNotifierDispatcher.Batch batch = dispatcher.newBatch();
+        for (int i = 0; i < 200; i++) {
+            assertTrue(batch.dispatch(slow, user, "msg"));
+            assertTrue(batch.dispatch(fast, user, "msg"));
+        }
+        batch.awaitIdle();
+
+        assertEquals(200, slowCalls.get());
+        assertEquals(200, fastCalls.get());
+    }
+
+    /**
+     * Verifies that a blocked notifier does not hold up another notifier.
+     */
+    @Test
+    void dispatch_slowNotifier_doesNotBlockOtherNotifier() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ReminderService.Notifier slow = (u, msg) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CountDownLatch fastDone = new CountDownLatch(3);
+        ReminderService.Notifier fast = (u, msg) -> fastDone.countDown();
+
+        ParallelNotifierDispatcher.Batch batch = dispatcher.newBatch();
+        batch.dispatch(slow, user, "msg");
+        batch.dispatch(slow, user, "msg");
+        for (int i = 0; i < 3; i++) {
+            batch.dispatch(fast, user, "msg");
+        }
+
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        batch.awaitIdle();
+    }
+
+    /**
+     * Verifies that a full notifier makes the caller wait for a free slot,
+     * while the notifications queued for another notifier are not held up.
+     */
+    @Test
+    void dispatch_pendingLimitReached_waitsForThatNotifier() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ReminderService.Notifier slow = (u, msg) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        AtomicInteger fastCalls = new AtomicInteger();
+        ReminderService.Notifier fast = (u, msg) -> fastCalls.incrementAndGet();
+
+        AtomicInteger slowCalls = new AtomicInteger();
+        ReminderService.Notifier counted = (u, msg) -> {
+            slow.notify(u, msg);
+            slowCalls.incrementAndGet();
+        };
+
+        ParallelNotifierDispatcher.Batch batch = dispatcher.newBatch();
+        for (int i = 0; i < 16; i++) {
+            assertTrue(batch.dispatch(counted, user, "msg"));
+        }
+        assertTrue(batch.dispatch(fast, user, "msg"));
+
+        CountDownLatch queued = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            if (batch.dispatch(counted, user, "msg")) queued.countDown();
+        });
+        producer.start();
+
+        assertFalse(queued.await(200, TimeUnit.MILLISECONDS));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (fastCalls.get() == 0) Thread.sleep(1);
+        });
+
+        release.countDown();
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        producer.join();
+        batch.awaitIdle();
+        assertEquals(17, slowCalls.get());
+        assertEquals(1, fastCalls.get());
+    }
+
+    /**
+     * Verifies that a caller interrupted while waiting for a full notifier
+     * gets false back with its interrupt flag set.
+     */
+    @Test
+    void dispatch_interruptedWhileWaiting_returnsFalse() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ReminderService.Notifier slow = (u, msg) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ParallelNotifierDispatcher.Batch batch = dispatcher.newBatch();
+        for (int i = 0; i < 16; i++) {
+            batch.dispatch(slow, user, "msg");
+        }
+
+        Thread.currentThread().interrupt();
+        assertFalse(batch.dispatch(slow, user, "msg"));
+        assertTrue(Thread.interrupted());
+
+        release.countDown();
+        batch.awaitIdle();
+    }
+
+    /**
+     * Verifies that a batch waits only for its own notifications,
+     * not for the ones another caller queued on the same dispatcher.
+     */
+    @Test
+    void awaitIdle_waitsOnlyForItsOwnBatch() {
+        CountDownLatch release = new CountDownLatch(1);
+        ReminderService.Notifier slow = (u, msg) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        AtomicInteger calls = new AtomicInteger();
+
+        ParallelNotifierDispatcher.Batch other = dispatcher.newBatch();
+        other.dispatch(slow, user, "msg");
+
+        ParallelNotifierDispatcher.Batch own = dispatcher.newBatch();
+        own.dispatch((u, msg) -> calls.incrementAndGet(), user, "msg");
+        assertTimeoutPreemptively(Duration.ofSeconds(5), own::awaitIdle);
+        assertEquals(1, calls.get());
+
+        release.countDown();
+        other.awaitIdle();
+    }
+
+    /**
+     * Verifies that a failing notifier does not stop the next notifications.
+     */
+    @Test
+    void dispatch_notifierThrows_laterNotificationsStillRun() {
+        AtomicInteger calls = new AtomicInteger();
+        ReminderService.Notifier flaky = (u, msg) -> {
+            if (calls.incrementAndGet() % 2 == 0) throw new RuntimeException("boom");
+        };
+
+        ParallelNotifierDispatcher.Batch batch = dispatcher.newBatch();
+        for (int i = 0; i < 10; i++) {
+            batch.dispatch(flaky, user, "msg");
+        }
+        batch.awaitIdle();
+
+        assertEquals(10, calls.get());
+    }
+
+    /**
+     * Verifies that the virtual-thread variant works, whether or not
+     * the JVM has virtual threads.
+     */
+    @Test
+    void withVirtualThreads_runsNotifications() {
+        AtomicInteger calls = new AtomicInteger();
+        try (ParallelNotifierDispatcher virtual = ParallelNotifierDispatcher.withVirtualThreads(64)) {
+            ParallelNotifierDispatcher.Batch batch = virtual.newBatch();
+            for (int i = 0; i < 50; i++) {
+                batch.dispatch((u, msg) -> calls.incrementAndGet(), user, "msg");
+            }
+            batch.awaitIdle();
+        }
+
+        assertEquals(50, calls.get());
+    }
+
+    /**
+     * Verifies that non-positive sizes are rejected.
+     */
+    @Test
+    void constructor_nonPositiveSizes_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelNotifierDispatcher(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelNotifierDispatcher(2, 0));
+    }
+}
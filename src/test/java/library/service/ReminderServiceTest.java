@@ -6,6 +6,7 @@ import library.domain.media.Book;
 import library.domain.media.CD;
 import library.domain.media.Media;
 import library.dto.OverdueReport;
+import library.notifications.FakeEmailClient;
 import library.repository.InMemoryLoanRepository;
 import library.repository.InMemoryMediaRepository;
 import library.repository.InMemoryUserRepository;
@@ -267,6 +268,36 @@ public class ReminderServiceTest {
         assertEquals(expectedMessage, rec.message);
     }
 
+    /**
+     * Verifies that several users each get one message with their own counts.
+     */
+    @Test
+    void sendReminders_severalUsers_eachGetsOwnCounts() {
+        User other = new User("Other", "other@example.com");
+        userRepo.save(other);
+        CD cd2 = new CD("Other Hits", "Someone");
+        mediaRepo.save(cd2);
+
+        LocalDate borrowDate = timeProvider.today().minusDays(30);
+        LocalDate overdueDueDate = timeProvider.today().minusDays(2);
+
+        loanRepo.save(new Loan(userWithEmail.getId(), book.getId(), borrowDate, overdueDueDate));
+        loanRepo.save(new Loan(other.getId(), cd.getId(), borrowDate, overdueDueDate));
+        loanRepo.save(new Loan(other.getId(), cd2.getId(), borrowDate, overdueDueDate));
+
+        reminderService.sendReminders(loanRepo, userRepo, mediaRepo);
+
+        List<RecordingNotifier.Recorded> records = recordingNotifier.getRecords();
+        assertEquals(2, records.size());
+        for (RecordingNotifier.Recorded rec : records) {
+            if (rec.userId.equals(other.getId())) {
+                assertEquals("You have 0 overdue book(s) and 2 overdue CD(s).", rec.message);
+            } else {
+                assertEquals("You have 1 overdue book(s) and 0 overdue CD(s).", rec.message);
+            }
+        }
+    }
+
     /**
      * Verifies that a user without an email address
      * does not receive any reminder messages.
@@ -363,6 +394,34 @@ public class ReminderServiceTest {
         assertEquals(1, recordingNotifier.getRecords().size());
     }
 
+    /**
+     * Verifies that parallel dispatch sends one message per user, keeps going when
+     * a notifier fails, and returns only after all messages were sent, even when
+     * the notifier queues are much smaller than the run.
+     */
+    @Test
+    void sendReminders_withParallelDispatcher_sendsAllMessages() {
+        FakeEmailClient email = new FakeEmailClient();
+        reminderService = new ReminderService(timeProvider);
+        reminderService.registerNotifier((user, msg) -> { throw new RuntimeException("boom"); });
+        reminderService.registerNotifier((user, msg) -> email.send(user.getEmail(), "Library reminder", msg));
+
+        LocalDate borrowDate = timeProvider.today().minusDays(30);
+        LocalDate dueDate    = timeProvider.today().minusDays(2);
+        for (int i = 0; i < 200; i++) {
+            User u = new User("U" + i, "u" + i + "@example.com");
+            userRepo.save(u);
+            loanRepo.save(new Loan(u.getId(), book.getId(), borrowDate, dueDate));
+        }
+
+        try (ParallelNotifierDispatcher dispatcher = new ParallelNotifierDispatcher(4, 8)) {
+            reminderService.setDispatcher(dispatcher);
+            reminderService.sendReminders(loanRepo, userRepo, mediaRepo);
+
+            assertEquals(200, email.getSent().size());
+        }
+    }
+
     // =========================================================
     // 3) buildReport
     // =========================================================
@@ -450,4 +509,29 @@ public class ReminderServiceTest {
         assertEquals(1, report.getOverdueCounts().get(userWithEmail.getId()));
         assertEquals(0, report.getFineTotals().get(userWithEmail.getId()));
     }
+
+    /**
+     * Users with generated ids and users with ids of another form are
+     * grouped apart in the same report.
+     */
+    @Test
+    void buildReport_generatedAndCustomUserIds_areCountedSeparately() {
+        User custom = new User("reader-7", "Custom", "custom@example.com");
+        userRepo.save(custom);
+
+        LocalDate borrowDate = timeProvider.today().minusDays(10);
+        LocalDate dueDate    = timeProvider.today().minusDays(2);
+
+        loanRepo.save(new Loan(userWithEmail.getId(), book.getId(), borrowDate, dueDate));
+        loanRepo.save(new Loan(custom.getId(), book.getId(), borrowDate, dueDate));
+        loanRepo.save(new Loan(custom.getId(), cd.getId(), borrowDate, dueDate));
+
+        OverdueReport report = reminderService.buildReport(
+                loanRepo, userRepo, mediaRepo, new ConstantFineStrategy(10), new ConstantFineStrategy(20)
+        );
+
+        assertEquals(1, report.getOverdueCounts().get(userWithEmail.getId()));
+        assertEquals(2, report.getOverdueCounts().get("reader-7"));
+        assertEquals(30, report.getFineTotals().get("reader-7"));
+    }
 }
@@ -0,0 +1,53 @@
+package library.support;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Test helper that runs the same task on many threads at once.
+ * All workers wait on one start latch so they really race, and the first
+ * unexpected exception of a worker fails the test.
+ */
+public final class ConcurrentRunner {
+
+    private ConcurrentRunner() {
+    }
+
+    /**
+     * Starts {@code threads} workers together and waits until all of them are done.
+     *
+     * @param threads number of workers
+     * @param task    the work of one worker, given the worker number
+     * @throws InterruptedException if the test thread is interrupted while waiting
+     */
+    public static void runTogether(int threads, IntConsumer task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        for (int i = 0; i < threads; i++) {
+            int worker = i;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    task.accept(worker);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS), "workers did not finish");
+        if (failure.get() != null) fail("worker failed", failure.get());
+    }
+}
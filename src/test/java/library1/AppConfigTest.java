@@ -3,6 +3,7 @@ package library1;
 import library.AppConfig;
 import library.notifications.FakeEmailClient;
 import library.repository.AdminRepository;
+import library.repository.InMemoryMediaRepository;
 import library.repository.LoanRepository;
 import library.repository.MediaRepository;
 import library.repository.UserRepository;
@@ -12,7 +13,9 @@ import library.service.ReminderService;
 import library.service.TimeProvider;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
  * Tests for {@link AppConfig}.
@@ -52,4 +55,18 @@ class AppConfigTest {
         assertNotNull(libraryService);
         assertNotNull(fakeEmailClient);
     }
+
+    /**
+     * Checks that a media repository passed to {@link AppConfig}
+     * is the one used and that it receives the seed data.
+     */
+    @Test
+    void appConfig_uses_selected_media_repository() {
+        InMemoryMediaRepository mediaRepo = new InMemoryMediaRepository();
+
+        AppConfig config = new AppConfig(mediaRepo);
+
+        assertSame(mediaRepo, config.mediaRepository());
+        assertEquals(7, mediaRepo.findAll().size());
+    }
 }